@@ -0,0 +1,150 @@
+package com.ironz.binaryprefs;
+
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
+import com.ironz.binaryprefs.cache.candidates.ConcurrentCacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.cache.provider.ConcurrentCacheProvider;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.event.EventBridge;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.fetch.EagerFetchStrategy;
+import com.ironz.binaryprefs.fetch.FetchStrategy;
+import com.ironz.binaryprefs.fetch.LazyFetchStrategy;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.task.KeyPartitionedExecutor;
+import com.ironz.binaryprefs.task.ScheduledBackgroundTaskExecutor;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.barrierprovider.FutureBarrierProvider;
+import com.ironz.binaryprefs.task.barrierprovider.impl.UnInterruptableFutureBarrierProvider;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Creates preferences instances for running on plain JVM without android
+ * runtime, the same way as {@link BinaryPreferencesBuilder} does.
+ * Each {@link #create(String, DirectoryProvider, BinaryPreferencesBuilder.MemoryCacheMode)} call
+ * creates instance with empty in-memory cache, so it behaves like
+ * preferences which are created after process start.
+ * Background executors are shared by name and run on creator's pool
+ * which should be released with {@link #shutdown()}.
+ */
+public final class BenchmarkPreferencesCreator {
+
+    private final Map<String, KeyPartitionedExecutor> executors = new ConcurrentHashMap<>();
+    private final ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+    private final PersistableRegistry persistableRegistry;
+
+    public BenchmarkPreferencesCreator(PersistableRegistry persistableRegistry) {
+        this.persistableRegistry = persistableRegistry;
+    }
+
+    public Preferences create(String name, DirectoryProvider directoryProvider, BinaryPreferencesBuilder.MemoryCacheMode mode) {
+        LockFactory lockFactory = new SimpleLockFactory(
+                name,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+        CacheCandidateProvider candidateProvider = new ConcurrentCacheCandidateProvider(name, new ConcurrentHashMap<String, Set<String>>());
+        CacheProvider cacheProvider = new ConcurrentCacheProvider(name, new ConcurrentHashMap<String, Map<String, Object>>());
+        FutureBarrierProvider barrierProvider = new UnInterruptableFutureBarrierProvider();
+        ExceptionHandler exceptionHandler = ExceptionHandler.PRINT;
+        TaskExecutor taskExecutor = new ScheduledBackgroundTaskExecutor(name, exceptionHandler, executors, pool, barrierProvider);
+        FileTransaction fileTransaction = new MultiProcessTransaction(
+                new NioFileAdapter(directoryProvider),
+                lockFactory,
+                taskExecutor,
+                KeyEncryption.NO_OP,
+                ValueEncryption.NO_OP,
+                false,
+                Snapshot.NO_OP
+        );
+        SerializerFactory serializerFactory = new SerializerFactory(persistableRegistry);
+        EventBridge eventBridge = new NoOpEventBridge();
+        GroupCommitQueue commitQueue = new GroupCommitQueue(
+                fileTransaction,
+                cacheProvider,
+                eventBridge,
+                ChangeJournal.NO_OP,
+                taskExecutor,
+                barrierProvider,
+                exceptionHandler,
+                0,
+                Integer.MAX_VALUE
+        );
+        FetchStrategy fetchStrategy = mode == BinaryPreferencesBuilder.MemoryCacheMode.LAZY ? new LazyFetchStrategy(
+                lockFactory,
+                taskExecutor,
+                candidateProvider,
+                cacheProvider,
+                fileTransaction,
+                serializerFactory
+        ) : new EagerFetchStrategy(
+                lockFactory,
+                taskExecutor,
+                pool,
+                candidateProvider,
+                cacheProvider,
+                fileTransaction,
+                serializerFactory,
+                mode == BinaryPreferencesBuilder.MemoryCacheMode.EAGER_PARALLEL
+        );
+        return new BinaryPreferences(
+                commitQueue,
+                eventBridge,
+                candidateProvider,
+                cacheProvider,
+                serializerFactory,
+                lockFactory,
+                fetchStrategy
+        );
+    }
+
+    /**
+     * Stops background pool which has been created by this creator.
+     */
+    public void shutdown() {
+        pool.shutdown();
+        executors.clear();
+    }
+
+    /**
+     * Event bridge without listeners, android main thread isn't available on JVM.
+     */
+    private static final class NoOpEventBridge implements EventBridge {
+
+        @Override
+        public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+
+        }
+
+        @Override
+        public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+
+        }
+
+        @Override
+        public void notifyListenersCommit(List<TransactionElement> transaction) {
+
+        }
+    }
+}
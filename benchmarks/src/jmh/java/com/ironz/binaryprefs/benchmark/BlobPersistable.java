@@ -0,0 +1,45 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
+import com.ironz.binaryprefs.serialization.serializer.persistable.io.DataInput;
+import com.ironz.binaryprefs.serialization.serializer.persistable.io.DataOutput;
+
+/**
+ * Persistable which holds one binary blob and small header fields.
+ */
+public final class BlobPersistable implements Persistable {
+
+    public static final String KEY = "blob_persistable";
+
+    private long id;
+    private String name;
+    private byte[] blob;
+
+    public BlobPersistable() {
+    }
+
+    public BlobPersistable(long id, String name, byte[] blob) {
+        this.id = id;
+        this.name = name;
+        this.blob = blob;
+    }
+
+    @Override
+    public void writeExternal(DataOutput out) {
+        out.writeLong(id);
+        out.writeString(name);
+        out.writeByteArray(blob);
+    }
+
+    @Override
+    public void readExternal(DataInput in) {
+        id = in.readLong();
+        name = in.readString();
+        blob = in.readByteArray();
+    }
+
+    @Override
+    public Persistable deepClone() {
+        return new BlobPersistable(id, name, blob.clone());
+    }
+}
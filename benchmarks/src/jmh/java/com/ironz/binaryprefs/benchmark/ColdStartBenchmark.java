@@ -0,0 +1,70 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.BenchmarkPreferencesCreator;
+import com.ironz.binaryprefs.BinaryPreferencesBuilder;
+import com.ironz.binaryprefs.Preferences;
+import com.ironz.binaryprefs.PreferencesEditor;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures time from preferences creation with empty in-memory cache
+ * to the first value read for all memory cache modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ColdStartBenchmark {
+
+    private static final String NAME = "cold_start";
+    private static final String KEY_PREFIX = "key_";
+
+    @Param({"10", "1000", "100000"})
+    public int keys;
+
+    @Param({"LAZY", "EAGER", "EAGER_PARALLEL"})
+    public BinaryPreferencesBuilder.MemoryCacheMode mode;
+
+    private TempDirectoryProvider directoryProvider;
+    private BenchmarkPreferencesCreator creator;
+
+    @Setup
+    public void setUp() {
+        directoryProvider = new TempDirectoryProvider();
+        creator = new BenchmarkPreferencesCreator(new PersistableRegistry());
+        Preferences preferences = creator.create(NAME, directoryProvider, BinaryPreferencesBuilder.MemoryCacheMode.LAZY);
+        PreferencesEditor editor = preferences.edit();
+        for (int i = 0; i < keys; i++) {
+            editor.putInt(KEY_PREFIX + i, i);
+        }
+        editor.commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        creator.shutdown();
+        directoryProvider.delete();
+    }
+
+    @Benchmark
+    public int firstRead() {
+        Preferences preferences = creator.create(NAME, directoryProvider, mode);
+        return preferences.getInt(KEY_PREFIX + (keys - 1), -1);
+    }
+}
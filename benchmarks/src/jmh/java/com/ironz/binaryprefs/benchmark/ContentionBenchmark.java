@@ -0,0 +1,96 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.BenchmarkPreferencesCreator;
+import com.ironz.binaryprefs.BinaryPreferencesBuilder;
+import com.ironz.binaryprefs.Preferences;
+import com.ironz.binaryprefs.PreferencesEditor;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures cached reads of 16 threads while one more thread
+ * constantly applies changes into the same preferences and
+ * applies of 4 threads which change random keys.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContentionBenchmark {
+
+    private static final String NAME = "contention";
+    private static final String KEY_PREFIX = "int_";
+
+    private final String[] keys = new String[HotReadBenchmark.KEYS];
+
+    @Param({"LAZY", "EAGER"})
+    public BinaryPreferencesBuilder.MemoryCacheMode mode;
+
+    private TempDirectoryProvider directoryProvider;
+    private BenchmarkPreferencesCreator creator;
+    private Preferences preferences;
+
+    @Setup
+    public void setUp() {
+        directoryProvider = new TempDirectoryProvider();
+        creator = new BenchmarkPreferencesCreator(new PersistableRegistry());
+        preferences = creator.create(NAME, directoryProvider, mode);
+        PreferencesEditor editor = preferences.edit();
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = KEY_PREFIX + i;
+            editor.putInt(keys[i], i);
+        }
+        editor.commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        creator.shutdown();
+        directoryProvider.delete();
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(16)
+    public int read(HotReadBenchmark.Cursor cursor) {
+        return preferences.getInt(keys[cursor.next()], -1);
+    }
+
+    @Benchmark
+    @Group("readWrite")
+    @GroupThreads(1)
+    public void write(HotReadBenchmark.Cursor cursor) {
+        int index = cursor.next();
+        preferences.edit()
+                .putInt(keys[index], index)
+                .apply();
+    }
+
+    @Benchmark
+    @Group("writeWrite")
+    @GroupThreads(4)
+    public void concurrentWrite() {
+        int index = ThreadLocalRandom.current().nextInt(keys.length);
+        preferences.edit()
+                .putInt(keys[index], index)
+                .apply();
+    }
+}
@@ -0,0 +1,104 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.encryption.AesGcmValueEncryption;
+import com.ironz.binaryprefs.encryption.AesValueEncryption;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.XorKeyEncryption;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures value encryption for different value sizes and key name encryption.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncryptionBenchmark {
+
+    private static final byte[] AES_KEY = "1111111111111111".getBytes();
+    private static final byte[] AES_IV = "0000000000000000".getBytes();
+    private static final byte[] XOR_KEY = "1111111111111110".getBytes();
+    private static final String KEY_NAME = "some_preference_key_name";
+
+    @Param({"64", "4096", "1048576"})
+    public int size;
+
+    private AesValueEncryption valueEncryption;
+    private AesGcmValueEncryption gcmEncryption;
+    private KeyEncryption keyEncryption;
+
+    private byte[] value;
+    private byte[] encryptedValue;
+    private ByteBuffer encryptedBuffer;
+    private byte[] gcmEncryptedValue;
+    private String encryptedName;
+
+    @Setup
+    public void setUp() {
+        valueEncryption = new AesValueEncryption(AES_KEY, AES_IV);
+        gcmEncryption = new AesGcmValueEncryption(AES_KEY);
+        keyEncryption = new XorKeyEncryption(XOR_KEY);
+        value = new byte[size];
+        new Random(size).nextBytes(value);
+        encryptedValue = valueEncryption.encrypt(value);
+        encryptedBuffer = ByteBuffer.allocateDirect(encryptedValue.length);
+        encryptedBuffer.put(encryptedValue);
+        encryptedBuffer.flip();
+        gcmEncryptedValue = gcmEncryption.encrypt(value);
+        encryptedName = keyEncryption.encrypt(KEY_NAME);
+    }
+
+    @Benchmark
+    public byte[] aesEncrypt() {
+        return valueEncryption.encrypt(value);
+    }
+
+    @Benchmark
+    public byte[] aesDecrypt() {
+        return valueEncryption.decrypt(encryptedValue);
+    }
+
+    /**
+     * Decrypts read-only direct buffer like memory mapped file view.
+     */
+    @Benchmark
+    public ByteBuffer aesDecryptBuffer() {
+        return valueEncryption.decrypt(encryptedBuffer.asReadOnlyBuffer());
+    }
+
+    @Benchmark
+    public byte[] aesGcmEncrypt() {
+        return gcmEncryption.encrypt(value);
+    }
+
+    @Benchmark
+    public byte[] aesGcmDecrypt() {
+        return gcmEncryption.decrypt(gcmEncryptedValue);
+    }
+
+    @Benchmark
+    public String xorEncrypt() {
+        return keyEncryption.encrypt(KEY_NAME);
+    }
+
+    @Benchmark
+    public String xorDecrypt() {
+        return keyEncryption.decrypt(encryptedName);
+    }
+}
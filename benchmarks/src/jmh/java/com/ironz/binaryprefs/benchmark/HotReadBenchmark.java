@@ -0,0 +1,138 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.BenchmarkPreferencesCreator;
+import com.ironz.binaryprefs.BinaryPreferencesBuilder;
+import com.ironz.binaryprefs.Preferences;
+import com.ironz.binaryprefs.PreferencesEditor;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures reads which are served from filled in-memory cache
+ * by different count of concurrent reader threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HotReadBenchmark {
+
+    static final int KEYS = 1024;
+
+    private static final String NAME = "hot_read";
+    private static final String INT_KEY_PREFIX = "int_";
+    private static final String STRING_KEY_PREFIX = "string_";
+
+    private final String[] intKeys = new String[KEYS];
+    private final String[] stringKeys = new String[KEYS];
+
+    private TempDirectoryProvider directoryProvider;
+    private BenchmarkPreferencesCreator creator;
+    private Preferences preferences;
+
+    @Setup
+    public void setUp() {
+        directoryProvider = new TempDirectoryProvider();
+        creator = new BenchmarkPreferencesCreator(new PersistableRegistry());
+        preferences = creator.create(NAME, directoryProvider, BinaryPreferencesBuilder.MemoryCacheMode.EAGER);
+        PreferencesEditor editor = preferences.edit();
+        for (int i = 0; i < KEYS; i++) {
+            intKeys[i] = INT_KEY_PREFIX + i;
+            stringKeys[i] = STRING_KEY_PREFIX + i;
+            editor.putInt(intKeys[i], i);
+            editor.putString(stringKeys[i], stringKeys[i]);
+        }
+        editor.commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        creator.shutdown();
+        directoryProvider.delete();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int getInt1(Cursor cursor) {
+        return getInt(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int getInt4(Cursor cursor) {
+        return getInt(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int getInt16(Cursor cursor) {
+        return getInt(cursor);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public int getInt32(Cursor cursor) {
+        return getInt(cursor);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public String getString1(Cursor cursor) {
+        return getString(cursor);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String getString4(Cursor cursor) {
+        return getString(cursor);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public String getString16(Cursor cursor) {
+        return getString(cursor);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public String getString32(Cursor cursor) {
+        return getString(cursor);
+    }
+
+    private int getInt(Cursor cursor) {
+        return preferences.getInt(intKeys[cursor.next()], -1);
+    }
+
+    private String getString(Cursor cursor) {
+        return preferences.getString(stringKeys[cursor.next()], null);
+    }
+
+    /**
+     * Per-thread key index, so readers don't share any mutable state.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+
+        private int index;
+
+        int next() {
+            index = (index + 1) & (KEYS - 1);
+            return index;
+        }
+    }
+}
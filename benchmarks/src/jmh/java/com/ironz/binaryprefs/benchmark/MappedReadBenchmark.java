@@ -0,0 +1,124 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.task.KeyPartitionedExecutor;
+import com.ironz.binaryprefs.task.ScheduledBackgroundTaskExecutor;
+import com.ironz.binaryprefs.task.SharedThreadPool;
+import com.ironz.binaryprefs.task.barrierprovider.impl.UnInterruptableFutureBarrierProvider;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Measures cold disk read of large values. Run with {@code -prof gc} and compare
+ * {@code gc.alloc.rate.norm} (bytes allocated per read) between copying
+ * ({@code mappedReads=false}) and memory mapped ({@code mappedReads=true}) modes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MappedReadBenchmark {
+
+    private static final String NAME = "mapped_read";
+    private static final String BYTE_ARRAY_KEY = "byte_array";
+
+    @Param({"1024", "262144"})
+    public int size;
+
+    @Param({"false", "true"})
+    public boolean mappedReads;
+
+    private TempDirectoryProvider directoryProvider;
+    private FileTransaction fileTransaction;
+    private SerializerFactory serializerFactory;
+
+    @Setup
+    public void setUp() {
+        directoryProvider = new TempDirectoryProvider();
+        PersistableRegistry persistableRegistry = new PersistableRegistry();
+        persistableRegistry.register(BlobPersistable.KEY, BlobPersistable.class);
+        serializerFactory = new SerializerFactory(persistableRegistry);
+        SimpleLockFactory lockFactory = new SimpleLockFactory(
+                NAME,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+        fileTransaction = new MultiProcessTransaction(
+                new NioFileAdapter(directoryProvider),
+                lockFactory,
+                new ScheduledBackgroundTaskExecutor(
+                        NAME,
+                        ExceptionHandler.PRINT,
+                        new ConcurrentHashMap<String, KeyPartitionedExecutor>(),
+                        SharedThreadPool.getInstance(),
+                        new UnInterruptableFutureBarrierProvider()
+                ),
+                KeyEncryption.NO_OP,
+                ValueEncryption.NO_OP,
+                mappedReads,
+                Snapshot.NO_OP
+        );
+        byte[] blob = new byte[size];
+        new Random(size).nextBytes(blob);
+        BlobPersistable persistable = new BlobPersistable(size, NAME, blob);
+        List<TransactionElement> elements = new ArrayList<>();
+        elements.add(TransactionElement.createUpdateElement(
+                BYTE_ARRAY_KEY,
+                serializerFactory.getByteArraySerializer().serialize(blob)
+        ));
+        elements.add(TransactionElement.createUpdateElement(
+                BlobPersistable.KEY,
+                serializerFactory.getPersistableSerializer().serialize(persistable)
+        ));
+        fileTransaction.commit(elements);
+    }
+
+    @TearDown
+    public void tearDown() {
+        directoryProvider.delete();
+    }
+
+    @Benchmark
+    public Object byteArrayRead() {
+        ByteBuffer buffer = fileTransaction.fetchOneBuffer(BYTE_ARRAY_KEY);
+        return serializerFactory.deserialize(BYTE_ARRAY_KEY, buffer);
+    }
+
+    @Benchmark
+    public Object persistableRead() {
+        ByteBuffer buffer = fileTransaction.fetchOneBuffer(BlobPersistable.KEY);
+        return serializerFactory.deserialize(BlobPersistable.KEY, buffer);
+    }
+}
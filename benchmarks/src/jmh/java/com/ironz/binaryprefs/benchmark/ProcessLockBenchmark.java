@@ -0,0 +1,70 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Measures uncontended inter-process exclusive and shared file lock round
+ * trip which guards every disk write and read in IPC mode. Broadcast delivery itself requires
+ * android runtime and isn't covered here.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProcessLockBenchmark {
+
+    private static final String NAME = "process_lock";
+
+    private TempDirectoryProvider directoryProvider;
+    private Lock processLock;
+    private Lock processReadLock;
+
+    @Setup
+    public void setUp() {
+        directoryProvider = new TempDirectoryProvider();
+        SimpleLockFactory lockFactory = new SimpleLockFactory(
+                NAME,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+        processLock = lockFactory.getProcessLock();
+        processReadLock = lockFactory.getProcessReadLock();
+    }
+
+    @TearDown
+    public void tearDown() {
+        directoryProvider.delete();
+    }
+
+    @Benchmark
+    public void lockUnlock() {
+        processLock.lock();
+        processLock.unlock();
+    }
+
+    @Benchmark
+    public void lockUnlockShared() {
+        processReadLock.lock();
+        processReadLock.unlock();
+    }
+}
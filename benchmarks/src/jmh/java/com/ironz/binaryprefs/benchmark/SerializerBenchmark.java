@@ -0,0 +1,201 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialization and deserialization of each supported value type.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializerBenchmark {
+
+    private static final int BYTE_ARRAY_SIZE = 1024;
+    private static final int STRING_SET_SIZE = 16;
+    private static final String STRING_VALUE = "Some string value with non-ascii symbols: Жжß中";
+
+    private SerializerFactory factory;
+
+    private byte[] byteArrayValue;
+    private Set<String> stringSetValue;
+    private Persistable persistableValue;
+
+    private byte[] booleanBytes;
+    private byte[] byteBytes;
+    private byte[] byteArrayBytes;
+    private byte[] charBytes;
+    private byte[] doubleBytes;
+    private byte[] floatBytes;
+    private byte[] intBytes;
+    private byte[] longBytes;
+    private byte[] shortBytes;
+    private byte[] stringBytes;
+    private byte[] stringSetBytes;
+    private byte[] persistableBytes;
+
+    @Setup
+    public void setUp() {
+        PersistableRegistry registry = new PersistableRegistry();
+        registry.register(BlobPersistable.KEY, BlobPersistable.class);
+        factory = new SerializerFactory(registry);
+
+        byteArrayValue = new byte[BYTE_ARRAY_SIZE];
+        stringSetValue = new HashSet<>();
+        for (int i = 0; i < STRING_SET_SIZE; i++) {
+            stringSetValue.add(STRING_VALUE + i);
+        }
+        persistableValue = new BlobPersistable(Long.MAX_VALUE, STRING_VALUE, byteArrayValue);
+
+        booleanBytes = factory.getBooleanSerializer().serialize(true);
+        byteBytes = factory.getByteSerializer().serialize(Byte.MAX_VALUE);
+        byteArrayBytes = factory.getByteArraySerializer().serialize(byteArrayValue);
+        charBytes = factory.getCharSerializer().serialize(Character.MAX_VALUE);
+        doubleBytes = factory.getDoubleSerializer().serialize(Double.MAX_VALUE);
+        floatBytes = factory.getFloatSerializer().serialize(Float.MAX_VALUE);
+        intBytes = factory.getIntegerSerializer().serialize(Integer.MAX_VALUE);
+        longBytes = factory.getLongSerializer().serialize(Long.MAX_VALUE);
+        shortBytes = factory.getShortSerializer().serialize(Short.MAX_VALUE);
+        stringBytes = factory.getStringSerializer().serialize(STRING_VALUE);
+        stringSetBytes = factory.getStringSetSerializer().serialize(stringSetValue);
+        persistableBytes = factory.getPersistableSerializer().serialize(persistableValue);
+    }
+
+    @Benchmark
+    public byte[] booleanSerialize() {
+        return factory.getBooleanSerializer().serialize(true);
+    }
+
+    @Benchmark
+    public boolean booleanDeserialize() {
+        return factory.getBooleanSerializer().deserialize(booleanBytes);
+    }
+
+    @Benchmark
+    public byte[] byteSerialize() {
+        return factory.getByteSerializer().serialize(Byte.MAX_VALUE);
+    }
+
+    @Benchmark
+    public byte byteDeserialize() {
+        return factory.getByteSerializer().deserialize(byteBytes);
+    }
+
+    @Benchmark
+    public byte[] byteArraySerialize() {
+        return factory.getByteArraySerializer().serialize(byteArrayValue);
+    }
+
+    @Benchmark
+    public byte[] byteArrayDeserialize() {
+        return factory.getByteArraySerializer().deserialize(byteArrayBytes);
+    }
+
+    @Benchmark
+    public byte[] charSerialize() {
+        return factory.getCharSerializer().serialize(Character.MAX_VALUE);
+    }
+
+    @Benchmark
+    public char charDeserialize() {
+        return factory.getCharSerializer().deserialize(charBytes);
+    }
+
+    @Benchmark
+    public byte[] doubleSerialize() {
+        return factory.getDoubleSerializer().serialize(Double.MAX_VALUE);
+    }
+
+    @Benchmark
+    public double doubleDeserialize() {
+        return factory.getDoubleSerializer().deserialize(doubleBytes);
+    }
+
+    @Benchmark
+    public byte[] floatSerialize() {
+        return factory.getFloatSerializer().serialize(Float.MAX_VALUE);
+    }
+
+    @Benchmark
+    public float floatDeserialize() {
+        return factory.getFloatSerializer().deserialize(floatBytes);
+    }
+
+    @Benchmark
+    public byte[] intSerialize() {
+        return factory.getIntegerSerializer().serialize(Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public int intDeserialize() {
+        return factory.getIntegerSerializer().deserialize(intBytes);
+    }
+
+    @Benchmark
+    public byte[] longSerialize() {
+        return factory.getLongSerializer().serialize(Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public long longDeserialize() {
+        return factory.getLongSerializer().deserialize(longBytes);
+    }
+
+    @Benchmark
+    public byte[] shortSerialize() {
+        return factory.getShortSerializer().serialize(Short.MAX_VALUE);
+    }
+
+    @Benchmark
+    public short shortDeserialize() {
+        return factory.getShortSerializer().deserialize(shortBytes);
+    }
+
+    @Benchmark
+    public byte[] stringSerialize() {
+        return factory.getStringSerializer().serialize(STRING_VALUE);
+    }
+
+    @Benchmark
+    public String stringDeserialize() {
+        return factory.getStringSerializer().deserialize(stringBytes);
+    }
+
+    @Benchmark
+    public byte[] stringSetSerialize() {
+        return factory.getStringSetSerializer().serialize(stringSetValue);
+    }
+
+    @Benchmark
+    public Set<String> stringSetDeserialize() {
+        return factory.getStringSetSerializer().deserialize(stringSetBytes);
+    }
+
+    @Benchmark
+    public byte[] persistableSerialize() {
+        return factory.getPersistableSerializer().serialize(persistableValue);
+    }
+
+    @Benchmark
+    public Persistable persistableDeserialize() {
+        return factory.getPersistableSerializer().deserialize(BlobPersistable.KEY, persistableBytes);
+    }
+}
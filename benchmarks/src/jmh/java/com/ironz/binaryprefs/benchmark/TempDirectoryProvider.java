@@ -0,0 +1,81 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+
+import java.io.File;
+
+/**
+ * File system directory provider which keeps all preferences
+ * directories inside unique temporary directory.
+ */
+public final class TempDirectoryProvider implements DirectoryProvider {
+
+    private static final String PREFIX = "binaryprefs-benchmark";
+    private static final String STORE_DIRECTORY_NAME = "values";
+    private static final String BACKUP_DIRECTORY_NAME = "backup";
+    private static final String LOCK_DIRECTORY_NAME = "lock";
+
+    private final File baseDir;
+    private final File storeDir;
+    private final File backupDir;
+    private final File lockDir;
+
+    public TempDirectoryProvider() {
+        this.baseDir = createBaseDir();
+        this.storeDir = createDir(STORE_DIRECTORY_NAME);
+        this.backupDir = createDir(BACKUP_DIRECTORY_NAME);
+        this.lockDir = createDir(LOCK_DIRECTORY_NAME);
+    }
+
+    @Override
+    public File getStoreDirectory() {
+        return storeDir;
+    }
+
+    @Override
+    public File getBackupDirectory() {
+        return backupDir;
+    }
+
+    @Override
+    public File getLockDirectory() {
+        return lockDir;
+    }
+
+    /**
+     * Removes all created directories with content.
+     */
+    public void delete() {
+        delete(baseDir);
+    }
+
+    private File createBaseDir() {
+        try {
+            File file = File.createTempFile(PREFIX, "");
+            if (!file.delete() || !file.mkdirs()) {
+                throw new IllegalStateException("Cannot create " + file);
+            }
+            return file;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private File createDir(String name) {
+        File file = new File(baseDir, name);
+        //noinspection ResultOfMethodCallIgnored
+        file.mkdirs();
+        return file;
+    }
+
+    private void delete(File file) {
+        File[] files = file.listFiles();
+        if (files != null) {
+            for (File child : files) {
+                delete(child);
+            }
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
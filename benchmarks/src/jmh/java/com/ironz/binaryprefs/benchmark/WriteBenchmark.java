@@ -0,0 +1,90 @@
+package com.ironz.binaryprefs.benchmark;
+
+import com.ironz.binaryprefs.BenchmarkPreferencesCreator;
+import com.ironz.binaryprefs.BinaryPreferencesBuilder;
+import com.ironz.binaryprefs.Preferences;
+import com.ironz.binaryprefs.PreferencesEditor;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@code apply()} and {@code commit()} throughput for
+ * transactions with different count of changed keys.
+ * Pending applied transactions are flushed after each iteration,
+ * so the background writer doesn't leak into next measurement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WriteBenchmark {
+
+    private static final String NAME = "write";
+    private static final String KEY_PREFIX = "key_";
+    private static final int KEYS = 128;
+
+    @Param({"1", "16"})
+    public int keysPerTransaction;
+
+    private final String[] keys = new String[KEYS];
+
+    private TempDirectoryProvider directoryProvider;
+    private BenchmarkPreferencesCreator creator;
+    private Preferences preferences;
+    private int counter;
+
+    @Setup
+    public void setUp() {
+        directoryProvider = new TempDirectoryProvider();
+        creator = new BenchmarkPreferencesCreator(new PersistableRegistry());
+        preferences = creator.create(NAME, directoryProvider, BinaryPreferencesBuilder.MemoryCacheMode.LAZY);
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = KEY_PREFIX + i;
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void flush() {
+        preferences.edit().commit();
+    }
+
+    @TearDown
+    public void tearDown() {
+        creator.shutdown();
+        directoryProvider.delete();
+    }
+
+    @Benchmark
+    public void apply() {
+        fill(preferences.edit()).apply();
+    }
+
+    @Benchmark
+    public boolean commit() {
+        return fill(preferences.edit()).commit();
+    }
+
+    private PreferencesEditor fill(PreferencesEditor editor) {
+        for (int i = 0; i < keysPerTransaction; i++) {
+            int value = counter++;
+            editor.putInt(keys[value & (KEYS - 1)], value);
+        }
+        return editor;
+    }
+}
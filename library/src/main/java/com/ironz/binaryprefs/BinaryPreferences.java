@@ -4,12 +4,10 @@ import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
 import com.ironz.binaryprefs.cache.provider.CacheProvider;
 import com.ironz.binaryprefs.event.EventBridge;
 import com.ironz.binaryprefs.event.OnSharedPreferenceChangeListenerWrapper;
-import com.ironz.binaryprefs.file.transaction.FileTransaction;
 import com.ironz.binaryprefs.fetch.FetchStrategy;
 import com.ironz.binaryprefs.lock.LockFactory;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
-import com.ironz.binaryprefs.task.TaskExecutor;
 
 import java.util.Map;
 import java.util.Set;
@@ -17,32 +15,33 @@ import java.util.concurrent.locks.Lock;
 
 final class BinaryPreferences implements Preferences {
 
-    private final FileTransaction fileTransaction;
+    private final GroupCommitQueue commitQueue;
     private final EventBridge eventsBridge;
     private final CacheCandidateProvider cacheCandidateProvider;
     private final CacheProvider cacheProvider;
-    private final TaskExecutor taskExecutor;
     private final SerializerFactory serializerFactory;
     private final Lock readLock;
     private final Lock writeLock;
+    private final Lock allKeysReadLock;
+    private final LockFactory lockFactory;
     private final FetchStrategy fetchStrategy;
 
-    BinaryPreferences(FileTransaction fileTransaction,
+    BinaryPreferences(GroupCommitQueue commitQueue,
                       EventBridge eventsBridge,
                       CacheCandidateProvider cacheCandidateProvider,
                       CacheProvider cacheProvider,
-                      TaskExecutor taskExecutor,
                       SerializerFactory serializerFactory,
                       LockFactory lockFactory,
                       FetchStrategy fetchStrategy) {
-        this.fileTransaction = fileTransaction;
+        this.commitQueue = commitQueue;
         this.eventsBridge = eventsBridge;
         this.cacheCandidateProvider = cacheCandidateProvider;
         this.cacheProvider = cacheProvider;
-        this.taskExecutor = taskExecutor;
         this.serializerFactory = serializerFactory;
         this.readLock = lockFactory.getReadLock();
         this.writeLock = lockFactory.getWriteLock();
+        this.allKeysReadLock = lockFactory.getAllKeysReadLock();
+        this.lockFactory = lockFactory;
         this.fetchStrategy = fetchStrategy;
     }
 
@@ -64,22 +63,22 @@ final class BinaryPreferences implements Preferences {
 
     @Override
     public int getInt(String key, int defValue) {
-        return (int) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getInt(key, defValue);
     }
 
     @Override
     public long getLong(String key, long defValue) {
-        return (long) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getLong(key, defValue);
     }
 
     @Override
     public float getFloat(String key, float defValue) {
-        return (float) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getFloat(key, defValue);
     }
 
     @Override
     public boolean getBoolean(String key, boolean defValue) {
-        return (boolean) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getBoolean(key, defValue);
     }
 
     @SuppressWarnings("unchecked")
@@ -90,22 +89,22 @@ final class BinaryPreferences implements Preferences {
 
     @Override
     public byte getByte(String key, byte defValue) {
-        return (byte) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getByte(key, defValue);
     }
 
     @Override
     public short getShort(String key, short defValue) {
-        return (short) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getShort(key, defValue);
     }
 
     @Override
     public char getChar(String key, char defValue) {
-        return (char) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getChar(key, defValue);
     }
 
     @Override
     public double getDouble(String key, double defValue) {
-        return (double) fetchStrategy.getValue(key, defValue);
+        return fetchStrategy.getDouble(key, defValue);
     }
 
     @Override
@@ -127,13 +126,12 @@ final class BinaryPreferences implements Preferences {
         readLock.lock();
         try {
             return new BinaryPreferencesEditor(
-                    fileTransaction,
-                    eventsBridge,
-                    taskExecutor,
+                    commitQueue,
                     serializerFactory,
                     cacheProvider,
                     cacheCandidateProvider,
-                    writeLock
+                    lockFactory,
+                    fetchStrategy
             );
         } finally {
             readLock.unlock();
@@ -142,11 +140,11 @@ final class BinaryPreferences implements Preferences {
 
     @Override
     public Set<String> keys() {
-        readLock.lock();
+        allKeysReadLock.lock();
         try {
-            return cacheProvider.keys();
+            return cacheCandidateProvider.keys();
         } finally {
-            readLock.unlock();
+            allKeysReadLock.unlock();
         }
     }
 
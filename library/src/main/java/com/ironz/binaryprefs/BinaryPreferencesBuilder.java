@@ -6,31 +6,46 @@ import android.os.Looper;
 
 import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
 import com.ironz.binaryprefs.cache.candidates.ConcurrentCacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.BoundedCacheProvider;
 import com.ironz.binaryprefs.cache.provider.CacheProvider;
 import com.ironz.binaryprefs.cache.provider.ConcurrentCacheProvider;
+import com.ironz.binaryprefs.cache.provider.SegmentedCache;
+import com.ironz.binaryprefs.encryption.CachedKeyEncryption;
 import com.ironz.binaryprefs.encryption.KeyEncryption;
 import com.ironz.binaryprefs.encryption.ValueEncryption;
-import com.ironz.binaryprefs.event.BroadcastEventBridge;
 import com.ironz.binaryprefs.event.EventBridge;
 import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.event.GenerationEventBridge;
 import com.ironz.binaryprefs.event.MainThreadEventBridge;
 import com.ironz.binaryprefs.exception.PreferencesInitializationException;
 import com.ironz.binaryprefs.fetch.EagerFetchStrategy;
 import com.ironz.binaryprefs.fetch.FetchStrategy;
+import com.ironz.binaryprefs.fetch.JournalFetchStrategy;
 import com.ironz.binaryprefs.fetch.LazyFetchStrategy;
+import com.ironz.binaryprefs.file.adapter.AtomicFileAdapter;
 import com.ironz.binaryprefs.file.adapter.FileAdapter;
+import com.ironz.binaryprefs.file.adapter.LogFileAdapter;
 import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
 import com.ironz.binaryprefs.file.directory.AndroidDirectoryProvider;
 import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.journal.MappedChangeJournal;
+import com.ironz.binaryprefs.file.snapshot.MappedSnapshot;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
 import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.LogFileTransaction;
 import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
 import com.ironz.binaryprefs.lock.LockFactory;
 import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
 import com.ironz.binaryprefs.migration.MigrateProcessor;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
 import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.task.KeyPartitionedExecutor;
+import com.ironz.binaryprefs.task.PartitionedTaskExecutor;
 import com.ironz.binaryprefs.task.ScheduledBackgroundTaskExecutor;
+import com.ironz.binaryprefs.task.SharedThreadPool;
 import com.ironz.binaryprefs.task.TaskExecutor;
 import com.ironz.binaryprefs.task.barrierprovider.FutureBarrierProvider;
 import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
@@ -41,7 +56,6 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
 /**
@@ -55,13 +69,17 @@ public final class BinaryPreferencesBuilder {
      */
     @SuppressWarnings("WeakerAccess")
     public static final String DEFAULT_NAME = "default";
+    private static final int DEFAULT_GROUP_COMMIT_SIZE = 256;
+    private static final int DEFAULT_KEY_CACHE_SIZE = 4096;
+    private static final long SNAPSHOT_DELAY_MILLIS = 1000;
     private static final String INCORRECT_THREAD_INIT_MESSAGE = "Preferences should be instantiated in the main thread.";
     private final ParametersProvider parametersProvider = new ParametersProvider();
 
-    private final Map<String, ReadWriteLock> locks = parametersProvider.getLocks();
-    private final Map<String, Lock> processLocks = parametersProvider.getProcessLocks();
-    private final Map<String, ExecutorService> executors = parametersProvider.getExecutors();
+    private final Map<String, StripedReadWriteLock> locks = parametersProvider.getLocks();
+    private final Map<String, ReadWriteLock> processLocks = parametersProvider.getProcessLocks();
+    private final Map<String, KeyPartitionedExecutor> executors = parametersProvider.getExecutors();
     private final Map<String, Map<String, Object>> caches = parametersProvider.getCaches();
+    private final Map<String, SegmentedCache> lazyCaches = parametersProvider.getLazyCaches();
     private final Map<String, Set<String>> cacheCandidates = parametersProvider.getCacheCandidates();
     private final Map<String, List<SharedPreferences.OnSharedPreferenceChangeListener>> allListeners = parametersProvider.getAllListeners();
 
@@ -74,10 +92,22 @@ public final class BinaryPreferencesBuilder {
     private boolean supportInterProcess = false;
     private boolean allowBuildOnBackgroundThread = false;
     private MemoryCacheMode memoryCacheMode = MemoryCacheMode.LAZY;
+    private long maxCacheBytes = 0;
+    private boolean releaseOnTrimMemory = false;
+    private StorageMode storageMode = StorageMode.FILE_PER_KEY;
+    private boolean memoryMappedReads = false;
+    private boolean snapshot = false;
+    private boolean valueChecksum = false;
+    private boolean compactPersistable = false;
+    private DurabilityMode durabilityMode = null;
     private KeyEncryption keyEncryption = KeyEncryption.NO_OP;
     private ValueEncryption valueEncryption = ValueEncryption.NO_OP;
     private ExceptionHandler exceptionHandler = ExceptionHandler.PRINT;
     private TaskExecutorMode taskExecutorMode = TaskExecutorMode.NON_INTERRUPTIBLE;
+    private SchedulingMode schedulingMode = SchedulingMode.SEQUENTIAL;
+    private ExecutorService executorService = null;
+    private long groupCommitWindowMillis = 0;
+    private int groupCommitSize = DEFAULT_GROUP_COMMIT_SIZE;
 
     /**
      * Creates builder with base parameters.
@@ -138,8 +168,7 @@ public final class BinaryPreferencesBuilder {
      * Defines usage of IPC mechanism for delivering key updates and cache consistency.
      * Default value is {@code false}.
      * <p>
-     * Note: Please, note that one key change delta should be less than 1 (one) megabyte
-     * because IPC data transferring is limited by this capacity.
+     * Note: only changed key names are transferred, other processes read values from disk.
      * </p>
      *
      * @param value {@code true} if would use IPC, {@code false} otherwise
@@ -162,6 +191,134 @@ public final class BinaryPreferencesBuilder {
         return this;
     }
 
+    /**
+     * Limits in-memory cache by total serialized size of values.
+     * Least recently used values are evicted and fetched from disk again
+     * on demand, values which aren't written to disk yet are never evicted.
+     * Works only with {@link MemoryCacheMode#LAZY}.
+     * Default value is {@code 0} which means unbounded cache.
+     * <p>
+     * Note: all instances of one preferences name should use the same limit.
+     * </p>
+     *
+     * @param bytes cache size limit in bytes
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder maxCacheSize(long bytes) {
+        this.maxCacheBytes = bytes;
+        return this;
+    }
+
+    /**
+     * Defines if in-memory cache could be released by {@link TrimMemoryCallbacks}.
+     * Works only with {@link MemoryCacheMode#LAZY}.
+     * Default value is {@code false}.
+     * <p>
+     * Note: all instances of one preferences name should use the same value.
+     * </p>
+     *
+     * @param value {@code true} if cache could be released on memory pressure, {@code false} otherwise
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder releaseOnTrimMemory(boolean value) {
+        this.releaseOnTrimMemory = value;
+        return this;
+    }
+
+    /**
+     * Defines on-disk layout for preference values.
+     * Default value is {@link StorageMode#FILE_PER_KEY}.
+     * <p>
+     * Note: values which has been saved in one mode are not visible in another one.
+     * </p>
+     *
+     * @param mode required storage mode
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder storageMode(StorageMode mode) {
+        this.storageMode = mode;
+        return this;
+    }
+
+    /**
+     * Defines usage of memory mapped file view for reading values from disk.
+     * {@code byte[]} and {@link Persistable} values will be deserialized right
+     * from mapped buffer without intermediate copies. Recommended for large values,
+     * for small values mapping could be slower than plain read.
+     * Default value is {@code false}.
+     * <p>
+     * Note: copying could be avoided only if {@link ValueEncryption#NO_OP} is used.
+     * </p>
+     *
+     * @param value {@code true} if would use memory mapped reads, {@code false} otherwise
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder memoryMappedReads(boolean value) {
+        this.memoryMappedReads = value;
+        return this;
+    }
+
+    /**
+     * Defines usage of consolidated snapshot of all values for fast start.
+     * Snapshot is rewritten in background after commits and read with one
+     * file access instead of listing and reading each value file, value files
+     * are used only if snapshot is outdated. Each commit acquires process lock
+     * while snapshot is used. Takes effect only for {@link StorageMode#FILE_PER_KEY}.
+     * Default value is {@code false}.
+     * <p>
+     * Note: all processes which work with the same preferences should use the same value.
+     * </p>
+     *
+     * @param value {@code true} if would use snapshot, {@code false} otherwise
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder snapshot(boolean value) {
+        this.snapshot = value;
+        return this;
+    }
+
+    /**
+     * Defines usage of checksummed value files. Each value is saved with
+     * header which contains format version, length and CRC-32C of content,
+     * header is verified on each read. Value is written into temporary file
+     * which is synced and atomically renamed over original one instead of
+     * making backup. Values which has been saved without checksum are still
+     * readable. Takes effect only for {@link StorageMode#FILE_PER_KEY},
+     * log frames of {@link StorageMode#APPEND_LOG} are always checksummed.
+     * Default value is {@code false}.
+     * <p>
+     * Note: values which has been saved with checksum are not readable without it.
+     * </p>
+     *
+     * @param value {@code true} if would use checksummed value files, {@code false} otherwise
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder valueChecksum(boolean value) {
+        this.valueChecksum = value;
+        return this;
+    }
+
+    /**
+     * Defines durability of value files. Each value is written into temporary
+     * file through reused direct buffer and atomically renamed over original
+     * one instead of making backup and growing memory mapped file, temporary
+     * file is synced to disk before rename according to given mode.
+     * Takes effect only for {@link StorageMode#FILE_PER_KEY}.
+     * By default values are saved with backup and synced to disk.
+     * <p>
+     * Note: values which aren't synced survive process crash, but could be lost
+     * or empty after power loss. Use {@link #valueChecksum(boolean)} for detecting
+     * such values on read.
+     * </p>
+     *
+     * @param mode required durability mode
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder durabilityMode(DurabilityMode mode) {
+        this.durabilityMode = mode;
+        return this;
+    }
+
     /**
      * Defines key encryption implementation which performs vice versa byte encryption operations.
      * Default value is {@link KeyEncryption#NO_OP}
@@ -208,6 +365,61 @@ public final class BinaryPreferencesBuilder {
         return this;
     }
 
+    /**
+     * Defines how background disk tasks are scheduled.
+     * Default value is {@link SchedulingMode#SEQUENTIAL}.
+     * <p>
+     * Note: all instances of one preferences name should use the same mode.
+     * </p>
+     *
+     * @param mode required scheduling mode
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder schedulingMode(SchedulingMode mode) {
+        this.schedulingMode = mode;
+        return this;
+    }
+
+    /**
+     * Defines pool which performs background disk tasks.
+     * By default all preferences share one bounded pool
+     * which stops idle threads.
+     * <p>
+     * Note: pool is bound to preferences name by first created instance,
+     * so it's ignored for names which are already opened.
+     * </p>
+     *
+     * @param executorService pool for background tasks
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder executorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * Defines how editor transactions are merged before writing to disk.
+     * All transactions which are applied within commit window are written
+     * as one transaction, last written value wins for each key.
+     * Batch is written earlier if it contains {@code maxBatchSize} keys or
+     * if {@link PreferencesEditor#commit()} is called.
+     * Default window is {@code 0} - batch is submitted immediately but still
+     * collects transactions which are applied while previous write is running.
+     * <p>
+     * Note: values applied within the window are kept only in memory
+     * until window expires and will be lost if process is killed.
+     * </p>
+     *
+     * @param windowMillis maximum delay of applied transaction in milliseconds
+     * @param maxBatchSize maximum count of keys in one batch
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder groupCommit(long windowMillis, int maxBatchSize) {
+        this.groupCommitWindowMillis = windowMillis;
+        this.groupCommitSize = maxBatchSize;
+        return this;
+    }
+
     /**
      * Registers {@link Persistable} data-object for de/serialization process.
      * All {@link Persistable} data-objects should be registered for understanding
@@ -223,6 +435,26 @@ public final class BinaryPreferencesBuilder {
         return this;
     }
 
+    /**
+     * Defines usage of compact serialization protocol for {@link Persistable} values.
+     * Compact protocol omits type flag before each field and writes integers as
+     * zig-zag varints, so values usually take several times less bytes.
+     * Values which has been saved in previous protocol are still readable
+     * and are rewritten in compact protocol on next change.
+     * Default value is {@code false}.
+     * <p>
+     * Note: values which has been saved in compact protocol are not readable by
+     * library versions before 1.1.0.
+     * </p>
+     *
+     * @param value {@code true} if would use compact protocol, {@code false} otherwise
+     * @return current builder instance
+     */
+    public BinaryPreferencesBuilder compactPersistable(boolean value) {
+        this.compactPersistable = value;
+        return this;
+    }
+
     /**
      * Performs migration from any implementation of preferences
      * to this implementation.
@@ -275,33 +507,73 @@ public final class BinaryPreferencesBuilder {
         return preferences;
     }
 
+    /**
+     * Bounded cache bookkeeping slows down hot reads, so it's used only if it's requested.
+     */
+    private CacheProvider createCacheProvider() {
+        if (memoryCacheMode == MemoryCacheMode.LAZY && (maxCacheBytes > 0 || releaseOnTrimMemory)) {
+            long maxBytes = maxCacheBytes > 0 ? maxCacheBytes : Long.MAX_VALUE;
+            return new BoundedCacheProvider(name, lazyCaches, maxBytes);
+        }
+        return new ConcurrentCacheProvider(name, caches);
+    }
+
+    private ExecutorService createPool() {
+        return executorService != null ? executorService : SharedThreadPool.getInstance();
+    }
+
+    private TaskExecutor createTaskExecutor(ExecutorService pool, FutureBarrierProvider futureBarrierProvider) {
+        if (schedulingMode == SchedulingMode.KEY_PARTITIONED) {
+            return new PartitionedTaskExecutor(name, exceptionHandler, executors, pool, futureBarrierProvider);
+        }
+        return new ScheduledBackgroundTaskExecutor(name, exceptionHandler, executors, pool, futureBarrierProvider);
+    }
+
     private BinaryPreferences createInstance() {
 
         DirectoryProvider directoryProvider = new AndroidDirectoryProvider(name, baseDir);
-        FileAdapter fileAdapter = new NioFileAdapter(directoryProvider);
         LockFactory lockFactory = new SimpleLockFactory(name, directoryProvider, locks, processLocks);
-        FileTransaction fileTransaction = new MultiProcessTransaction(fileAdapter, lockFactory, keyEncryption, valueEncryption);
         CacheCandidateProvider cacheCandidateProvider = new ConcurrentCacheCandidateProvider(name, cacheCandidates);
-        CacheProvider cacheProvider = new ConcurrentCacheProvider(name, caches);
+        CacheProvider cacheProvider = createCacheProvider();
 
         FutureBarrierProvider futureBarrierProvider = taskExecutorMode == TaskExecutorMode.INTERRUPTIBLE
                 ? new InterruptableFutureBarrierProvider()
                 : new UnInterruptableFutureBarrierProvider();
-        TaskExecutor taskExecutor = new ScheduledBackgroundTaskExecutor(name, exceptionHandler, executors, futureBarrierProvider);
+        ExecutorService pool = createPool();
+        TaskExecutor taskExecutor = createTaskExecutor(pool, futureBarrierProvider);
+        FileTransaction fileTransaction = createFileTransaction(directoryProvider, lockFactory, taskExecutor, createKeyEncryption());
 
-        SerializerFactory serializerFactory = new SerializerFactory(persistableRegistry);
-        EventBridge eventsBridge = supportInterProcess ? new BroadcastEventBridge(
+        SerializerFactory serializerFactory = new SerializerFactory(persistableRegistry, compactPersistable);
+        ChangeJournal journal = supportInterProcess
+                ? new MappedChangeJournal(name, directoryProvider, lockFactory)
+                : ChangeJournal.NO_OP;
+
+        EventBridge eventsBridge = supportInterProcess ? new GenerationEventBridge(
                 context,
                 name,
                 cacheCandidateProvider,
                 cacheProvider,
                 serializerFactory,
                 taskExecutor,
-                valueEncryption,
+                fileTransaction,
                 directoryProvider,
-                allListeners
+                allListeners,
+                journal,
+                memoryCacheMode == MemoryCacheMode.LAZY
         ) : new MainThreadEventBridge(name, allListeners);
 
+        GroupCommitQueue commitQueue = new GroupCommitQueue(
+                fileTransaction,
+                cacheProvider,
+                eventsBridge,
+                journal,
+                taskExecutor,
+                futureBarrierProvider,
+                exceptionHandler,
+                groupCommitWindowMillis,
+                groupCommitSize
+        );
+
         FetchStrategy strategy = memoryCacheMode == MemoryCacheMode.LAZY ? new LazyFetchStrategy(
                 lockFactory,
                 taskExecutor,
@@ -312,24 +584,80 @@ public final class BinaryPreferencesBuilder {
         ) : new EagerFetchStrategy(
                 lockFactory,
                 taskExecutor,
+                pool,
                 cacheCandidateProvider,
                 cacheProvider,
                 fileTransaction,
-                serializerFactory
+                serializerFactory,
+                memoryCacheMode == MemoryCacheMode.EAGER_PARALLEL
         );
 
+        if (supportInterProcess) {
+            strategy = new JournalFetchStrategy(
+                    strategy,
+                    journal,
+                    lockFactory,
+                    taskExecutor,
+                    cacheCandidateProvider,
+                    cacheProvider,
+                    fileTransaction,
+                    serializerFactory,
+                    memoryCacheMode == MemoryCacheMode.LAZY
+            );
+        }
+
         return new BinaryPreferences(
-                fileTransaction,
+                commitQueue,
                 eventsBridge,
                 cacheCandidateProvider,
                 cacheProvider,
-                taskExecutor,
                 serializerFactory,
                 lockFactory,
                 strategy
         );
     }
 
+    private FileTransaction createFileTransaction(DirectoryProvider directoryProvider,
+                                                  LockFactory lockFactory,
+                                                  TaskExecutor taskExecutor,
+                                                  KeyEncryption keyEncryption) {
+        if (storageMode == StorageMode.APPEND_LOG) {
+            LogFileAdapter fileAdapter = new LogFileAdapter(directoryProvider);
+            return new LogFileTransaction(
+                    fileAdapter,
+                    lockFactory,
+                    taskExecutor,
+                    keyEncryption,
+                    valueEncryption,
+                    memoryMappedReads
+            );
+        }
+        FileAdapter fileAdapter = createFileAdapter(directoryProvider);
+        Snapshot valuesSnapshot = snapshot
+                ? new MappedSnapshot(name, directoryProvider, fileAdapter, lockFactory, taskExecutor, SNAPSHOT_DELAY_MILLIS)
+                : Snapshot.NO_OP;
+        return new MultiProcessTransaction(fileAdapter, lockFactory, taskExecutor, keyEncryption, valueEncryption, memoryMappedReads, valuesSnapshot);
+    }
+
+    private FileAdapter createFileAdapter(DirectoryProvider directoryProvider) {
+        if (durabilityMode == null) {
+            return new NioFileAdapter(directoryProvider, valueChecksum);
+        }
+        return new AtomicFileAdapter(
+                directoryProvider,
+                durabilityMode == DurabilityMode.ALWAYS,
+                durabilityMode != DurabilityMode.NEVER,
+                valueChecksum
+        );
+    }
+
+    private KeyEncryption createKeyEncryption() {
+        if (keyEncryption == KeyEncryption.NO_OP) {
+            return keyEncryption;
+        }
+        return new CachedKeyEncryption(keyEncryption, DEFAULT_KEY_CACHE_SIZE);
+    }
+
     /**
      * Defines target mode for various in-memory cache fill scenario
      */
@@ -341,7 +669,62 @@ public final class BinaryPreferencesBuilder {
         /**
          * Fill cache immediately after preferences initialization
          */
-        EAGER
+        EAGER,
+        /**
+         * Same as {@link #EAGER} but values are read, decrypted and deserialized
+         * by workers of background pool, see {@link #executorService(ExecutorService)}.
+         * Key and value encryption implementations must be thread safe.
+         */
+        EAGER_PARALLEL
+    }
+
+    /**
+     * Defines on-disk layout for preference values
+     */
+    public enum StorageMode {
+        /**
+         * Stores each preference value in separate file
+         */
+        FILE_PER_KEY,
+        /**
+         * Appends all changes of one transaction into single log file
+         * with one disk sync, dead records are compacted in background
+         */
+        APPEND_LOG
+    }
+
+    /**
+     * Defines when value files are synced to disk
+     */
+    public enum DurabilityMode {
+        /**
+         * Syncs each value, after power loss each value is either old or new one
+         */
+        ALWAYS,
+        /**
+         * Syncs values of {@link PreferencesEditor#commit()} only,
+         * values of {@link PreferencesEditor#apply()} survive process crash only
+         */
+        ON_COMMIT,
+        /**
+         * Never syncs values, they survive process crash only
+         */
+        NEVER
+    }
+
+    /**
+     * Defines how background disk tasks of preferences are scheduled
+     */
+    public enum SchedulingMode {
+        /**
+         * Performs all tasks one by one
+         */
+        SEQUENTIAL,
+        /**
+         * Keeps tasks order per key, but performs disk reads of different keys
+         * in parallel with each other and with writes on bounded thread pool
+         */
+        KEY_PARTITIONED
     }
 
     /**
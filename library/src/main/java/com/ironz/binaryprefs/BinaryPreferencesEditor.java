@@ -2,16 +2,14 @@ package com.ironz.binaryprefs;
 
 import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
 import com.ironz.binaryprefs.cache.provider.CacheProvider;
-import com.ironz.binaryprefs.event.EventBridge;
 import com.ironz.binaryprefs.exception.TransactionInvalidatedException;
-import com.ironz.binaryprefs.file.transaction.FileTransaction;
-import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.fetch.FetchStrategy;
+import com.ironz.binaryprefs.lock.LockFactory;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
 import com.ironz.binaryprefs.serialization.strategy.SerializationStrategy;
 import com.ironz.binaryprefs.serialization.strategy.impl.*;
 import com.ironz.binaryprefs.task.barrier.FutureBarrier;
-import com.ironz.binaryprefs.task.TaskExecutor;
 
 import java.util.*;
 import java.util.concurrent.locks.Lock;
@@ -22,31 +20,31 @@ final class BinaryPreferencesEditor implements PreferencesEditor {
 
     private final Map<String, SerializationStrategy> strategyMap = new HashMap<>();
     private final Set<String> removeSet = new HashSet<>();
+    private final Map<String, StringSetChange> changeMap = new HashMap<>();
 
-    private final FileTransaction fileTransaction;
-    private final EventBridge bridge;
-    private final TaskExecutor taskExecutor;
+    private final GroupCommitQueue commitQueue;
     private final SerializerFactory serializerFactory;
     private final CacheProvider cacheProvider;
     private final CacheCandidateProvider candidateProvider;
-    private final Lock writeLock;
+    private final LockFactory lockFactory;
+    private final FetchStrategy fetchStrategy;
+    private final Object monitor = new Object();
 
+    private boolean cleared;
     private boolean invalidated;
 
-    BinaryPreferencesEditor(FileTransaction fileTransaction,
-                            EventBridge bridge,
-                            TaskExecutor taskExecutor,
+    BinaryPreferencesEditor(GroupCommitQueue commitQueue,
                             SerializerFactory serializerFactory,
                             CacheProvider cacheProvider,
                             CacheCandidateProvider candidateProvider,
-                            Lock writeLock) {
-        this.fileTransaction = fileTransaction;
-        this.bridge = bridge;
-        this.taskExecutor = taskExecutor;
+                            LockFactory lockFactory,
+                            FetchStrategy fetchStrategy) {
+        this.commitQueue = commitQueue;
         this.serializerFactory = serializerFactory;
         this.cacheProvider = cacheProvider;
         this.candidateProvider = candidateProvider;
-        this.writeLock = writeLock;
+        this.lockFactory = lockFactory;
+        this.fetchStrategy = fetchStrategy;
     }
 
     @Override
@@ -54,13 +52,10 @@ final class BinaryPreferencesEditor implements PreferencesEditor {
         if (value == null) {
             return remove(key);
         }
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new StringSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
@@ -69,61 +64,46 @@ final class BinaryPreferencesEditor implements PreferencesEditor {
         if (value == null) {
             return remove(key);
         }
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new StringSetSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putInt(String key, int value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new IntegerSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putLong(String key, long value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new LongSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putFloat(String key, float value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new FloatSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putBoolean(String key, boolean value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new BooleanSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
@@ -132,134 +112,230 @@ final class BinaryPreferencesEditor implements PreferencesEditor {
         if (value == null) {
             return remove(key);
         }
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new PersistableSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putByte(String key, byte value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new ByteSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putShort(String key, short value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new ShortSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putChar(String key, char value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new CharSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putDouble(String key, double value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new DoubleSerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor putByteArray(String key, byte[] value) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             SerializationStrategy strategy = new ByteArraySerializationStrategy(value, serializerFactory);
             strategyMap.put(key, strategy);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
+    @Override
+    public PreferencesEditor addToStringSet(String key, Set<String> values) {
+        synchronized (monitor) {
+            Set<String> value = putStringSetValue(key);
+            if (value != null) {
+                value.addAll(values);
+                return putStringSet(key, value);
+            }
+            changeOf(key).add(values);
+            return this;
+        }
+    }
+
+    @Override
+    public PreferencesEditor removeFromStringSet(String key, Set<String> values) {
+        synchronized (monitor) {
+            Set<String> value = putStringSetValue(key);
+            if (value != null) {
+                value.removeAll(values);
+                return putStringSet(key, value);
+            }
+            changeOf(key).remove(values);
+            return this;
+        }
+    }
+
+    /**
+     * Returns copy of the set which has been put by this editor, so changes
+     * are applied to it directly.
+     */
+    private Set<String> putStringSetValue(String key) {
+        SerializationStrategy strategy = strategyMap.get(key);
+        if (strategy == null) {
+            return null;
+        }
+        return toStringSet(strategy.getValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Set<String> toStringSet(Object value) {
+        return (Set<String>) value;
+    }
+
+    private StringSetChange changeOf(String key) {
+        StringSetChange change = changeMap.get(key);
+        if (change == null) {
+            change = new StringSetChange();
+            changeMap.put(key, change);
+        }
+        return change;
+    }
+
     @Override
     public PreferencesEditor remove(String key) {
-        writeLock.lock();
-        try {
+        synchronized (monitor) {
             removeSet.add(key);
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public PreferencesEditor clear() {
-        writeLock.lock();
-        try {
-            Set<String> all = candidateProvider.keys();
-            removeSet.addAll(all);
+        synchronized (monitor) {
+            cleared = true;
             return this;
-        } finally {
-            writeLock.unlock();
         }
     }
 
     @Override
     public void apply() {
-        writeLock.lock();
-        try {
-            performTransaction();
-        } finally {
-            writeLock.unlock();
+        synchronized (monitor) {
+            performTransactionLocked(false);
         }
     }
 
     @Override
     public boolean commit() {
-        writeLock.lock();
+        FutureBarrier<?> barrier;
+        synchronized (monitor) {
+            barrier = performTransactionLocked(true);
+        }
+        return barrier.completeBlockingWithStatus();
+    }
+
+    /**
+     * Cache is changed and transaction is enqueued under write locks of changed keys
+     * only, so transactions of one key are published in the same order as they're
+     * written while transactions of unrelated keys don't wait for each other.
+     * Barrier is awaited outside of the locks. Cleared transaction takes global
+     * write lock because it affects all keys. Sets which are changed by delta
+     * are fetched before locking, because fetch could wait for disk.
+     */
+    private FutureBarrier<?> performTransactionLocked(boolean immediate) {
+        Map<String, Object> fetchedSets = fetchChangedSets();
+        Lock lock = cleared ? lockFactory.getWriteLock() : lockFactory.getWriteLock(changedKeys());
+        lock.lock();
         try {
-            FutureBarrier barrier = performTransaction();
-            return barrier.completeBlockingWithStatus();
+            return performTransaction(fetchedSets, immediate);
         } finally {
-            writeLock.unlock();
+            lock.unlock();
         }
     }
 
-    private FutureBarrier performTransaction() {
+    private Map<String, Object> fetchChangedSets() {
+        Map<String, Object> sets = new HashMap<>();
+        if (cleared) {
+            return sets;
+        }
+        for (String name : changeMap.keySet()) {
+            if (strategyMap.containsKey(name) || removeSet.contains(name)) {
+                continue;
+            }
+            sets.put(name, fetchStrategy.getValue(name, null));
+        }
+        return sets;
+    }
+
+    private Set<String> changedKeys() {
+        Set<String> keys = new HashSet<>(removeSet);
+        keys.addAll(strategyMap.keySet());
+        keys.addAll(changeMap.keySet());
+        return keys;
+    }
+
+    private FutureBarrier<?> performTransaction(Map<String, Object> fetchedSets, boolean immediate) {
+        if (cleared) {
+            removeSet.addAll(candidateProvider.keys());
+        }
+        applyChanges(fetchedSets);
         removeCache();
         storeCache();
         invalidate();
-        return taskExecutor.submit(new Runnable() {
-            @Override
-            public void run() {
-                commitTransaction();
+        return commitQueue.enqueue(removeSet, strategyMap, immediate);
+    }
+
+    /**
+     * Set changes are applied to the cached value because it could be changed by
+     * another editor after fetching. Only changes of the value which exists and
+     * isn't removed by this editor could be persisted as delta.
+     */
+    private void applyChanges(Map<String, Object> fetchedSets) {
+        for (String name : changeMap.keySet()) {
+            if (strategyMap.containsKey(name)) {
+                continue;
+            }
+            StringSetChange change = changeMap.get(name);
+            Object current = null;
+            if (!removeSet.contains(name) && candidateProvider.contains(name)) {
+                Object cached = cacheProvider.get(name);
+                current = cached != null ? cached : fetchedSets.get(name);
             }
-        });
+            if (current == null) {
+                Set<String> value = change.applyTo(Collections.<String>emptySet());
+                strategyMap.put(name, new StringSetSerializationStrategy(value, serializerFactory));
+                continue;
+            }
+            Set<String> value = change.applyTo(toStringSet(current));
+            SerializationStrategy strategy = new StringSetDeltaSerializationStrategy(value, change.added, change.removed, serializerFactory);
+            strategyMap.put(name, strategy);
+        }
     }
 
+    /**
+     * Values are read from cache without locks, so names which are removed
+     * and put again in one transaction are left in place for replacement
+     * in {@link #storeCache()} and readers never see them missing.
+     */
     private void removeCache() {
         for (String name : removeSet) {
+            if (strategyMap.containsKey(name)) {
+                continue;
+            }
             candidateProvider.remove(name);
             cacheProvider.remove(name);
         }
@@ -281,50 +357,29 @@ final class BinaryPreferencesEditor implements PreferencesEditor {
         invalidated = true;
     }
 
-    private void commitTransaction() {
-        List<TransactionElement> transaction = createTransaction();
-        fileTransaction.commit(transaction);
-        notifyListeners(transaction);
-    }
+    /**
+     * Changes of one set in this editor, the last change of each string wins.
+     */
+    private static final class StringSetChange {
 
-    private List<TransactionElement> createTransaction() {
-        List<TransactionElement> elements = new LinkedList<>();
-        elements.addAll(removePersistence());
-        elements.addAll(storePersistence());
-        return elements;
-    }
+        private final Set<String> added = new HashSet<>();
+        private final Set<String> removed = new HashSet<>();
 
-    private List<TransactionElement> removePersistence() {
-        List<TransactionElement> elements = new LinkedList<>();
-        for (String name : removeSet) {
-            TransactionElement e = TransactionElement.createRemovalElement(name);
-            elements.add(e);
+        private void add(Set<String> values) {
+            removed.removeAll(values);
+            added.addAll(values);
         }
-        return elements;
-    }
 
-    private List<TransactionElement> storePersistence() {
-        Set<String> strings = strategyMap.keySet();
-        List<TransactionElement> elements = new LinkedList<>();
-        for (String name : strings) {
-            SerializationStrategy strategy = strategyMap.get(name);
-            byte[] bytes = strategy.serialize();
-            TransactionElement e = TransactionElement.createUpdateElement(name, bytes);
-            elements.add(e);
+        private void remove(Set<String> values) {
+            added.removeAll(values);
+            removed.addAll(values);
         }
-        return elements;
-    }
 
-    private void notifyListeners(List<TransactionElement> transaction) {
-        for (TransactionElement element : transaction) {
-            String name = element.getName();
-            byte[] bytes = element.getContent();
-            if (element.getAction() == TransactionElement.ACTION_REMOVE) {
-                bridge.notifyListenersRemove(name);
-            }
-            if (element.getAction() == TransactionElement.ACTION_UPDATE) {
-                bridge.notifyListenersUpdate(name, bytes);
-            }
+        private Set<String> applyTo(Set<String> set) {
+            Set<String> value = new HashSet<>(set);
+            value.removeAll(removed);
+            value.addAll(added);
+            return value;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,273 @@
+package com.ironz.binaryprefs;
+
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.event.EventBridge;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.serialization.strategy.SerializationStrategy;
+import com.ironz.binaryprefs.serialization.strategy.impl.StringSetDeltaSerializationStrategy;
+import com.ironz.binaryprefs.task.KeyedTask;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.barrier.FutureBarrier;
+import com.ironz.binaryprefs.task.barrierprovider.FutureBarrierProvider;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merges editor transactions into batches which are written to disk
+ * with one {@link FileTransaction#commit(List, boolean)} call.
+ * Batch stays open while it waits in {@link TaskExecutor} queue, so
+ * all transactions which are enqueued before the batch starts writing
+ * are merged into it with last-writer-wins per key semantic.
+ * If commit window is greater than zero, submission of the batch
+ * is delayed until window expires, batch size reaches the limit or
+ * somebody calls {@link PreferencesEditor#commit()}. Batch which contains
+ * committed transaction is synced to disk regardless of durability policy.
+ * Cached values of written batch are released with
+ * {@link CacheProvider#release(String, int)}, so they could be evicted.
+ * <p>
+ * Delta of string set is written as is only if it's applied to the value
+ * which is already written, so delta which follows another delta of the
+ * same batch is merged with it and delta which follows whole value or
+ * removal is replaced with whole resulting value.
+ * </p>
+ */
+final class GroupCommitQueue {
+
+    private static final String SCHEDULER_THREAD_NAME = "binaryprefs-group-commit";
+
+    private final Object monitor = new Object();
+
+    private final FileTransaction fileTransaction;
+    private final CacheProvider cacheProvider;
+    private final EventBridge bridge;
+    private final ChangeJournal journal;
+    private final TaskExecutor taskExecutor;
+    private final FutureBarrierProvider barrierProvider;
+    private final ExceptionHandler exceptionHandler;
+    private final long windowMillis;
+    private final int maxBatchSize;
+
+    private Batch pending;
+
+    GroupCommitQueue(FileTransaction fileTransaction,
+                     CacheProvider cacheProvider,
+                     EventBridge bridge,
+                     ChangeJournal journal,
+                     TaskExecutor taskExecutor,
+                     FutureBarrierProvider barrierProvider,
+                     ExceptionHandler exceptionHandler,
+                     long windowMillis,
+                     int maxBatchSize) {
+        this.fileTransaction = fileTransaction;
+        this.cacheProvider = cacheProvider;
+        this.bridge = bridge;
+        this.journal = journal;
+        this.taskExecutor = taskExecutor;
+        this.barrierProvider = barrierProvider;
+        this.exceptionHandler = exceptionHandler;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Merges transaction into current pending batch.
+     *
+     * @param removeSet   names for removal
+     * @param strategyMap values for update, applied after removals
+     * @param immediate   {@code true} if pending batch should be submitted
+     *                    for writing without waiting for commit window
+     *                    and synced to disk
+     * @return barrier of the batch which contains this transaction,
+     * completes with failed status if merged write fails
+     */
+    FutureBarrier<?> enqueue(Set<String> removeSet, Map<String, SerializationStrategy> strategyMap, boolean immediate) {
+        Batch batch;
+        boolean submitNow;
+        boolean scheduleLater = false;
+        synchronized (monitor) {
+            if (pending == null) {
+                pending = new Batch();
+            }
+            batch = pending;
+            batch.sync |= immediate;
+            for (String name : removeSet) {
+                batch.changes.put(name, null);
+            }
+            for (String name : strategyMap.keySet()) {
+                putChange(batch, name, strategyMap.get(name));
+            }
+            for (String name : strategyMap.keySet()) {
+                Integer count = batch.puts.get(name);
+                batch.puts.put(name, count == null ? 1 : count + 1);
+            }
+            submitNow = !batch.submitted && (immediate || windowMillis <= 0 || batch.changes.size() >= maxBatchSize);
+            if (submitNow) {
+                batch.submitted = true;
+            } else if (!batch.submitted && !batch.scheduled) {
+                batch.scheduled = true;
+                scheduleLater = true;
+            }
+        }
+        if (submitNow) {
+            taskExecutor.submit(batch.task);
+        }
+        if (scheduleLater) {
+            scheduleSubmit(batch);
+        }
+        return batch.barrier;
+    }
+
+    private void putChange(Batch batch, String name, SerializationStrategy strategy) {
+        if (!(strategy instanceof StringSetDeltaSerializationStrategy) || !batch.changes.containsKey(name)) {
+            batch.changes.put(name, strategy);
+            return;
+        }
+        StringSetDeltaSerializationStrategy delta = (StringSetDeltaSerializationStrategy) strategy;
+        SerializationStrategy previous = batch.changes.get(name);
+        if (previous instanceof StringSetDeltaSerializationStrategy) {
+            batch.changes.put(name, ((StringSetDeltaSerializationStrategy) previous).merge(delta));
+            return;
+        }
+        batch.changes.put(name, delta.toFull());
+    }
+
+    private void scheduleSubmit(final Batch batch) {
+        SchedulerHolder.SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                submitOnce(batch);
+            }
+        }, windowMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void submitOnce(Batch batch) {
+        synchronized (monitor) {
+            if (batch.submitted) {
+                return;
+            }
+            batch.submitted = true;
+        }
+        taskExecutor.submit(batch.task);
+    }
+
+    private void write(Batch batch) {
+        Map<String, SerializationStrategy> changes;
+        Map<String, Integer> puts;
+        boolean sync;
+        synchronized (monitor) {
+            if (pending == batch) {
+                pending = null;
+            }
+            changes = batch.changes;
+            puts = batch.puts;
+            sync = batch.sync;
+        }
+        List<TransactionElement> transaction = createTransaction(changes);
+        fileTransaction.commit(transaction, sync);
+        release(transaction, puts);
+        journal.append(transaction);
+        bridge.notifyListenersCommit(transaction);
+    }
+
+    /**
+     * Releases each cache put which is merged into written batch. Names which
+     * are removed later in the same batch are released with zero size.
+     */
+    private void release(List<TransactionElement> transaction, Map<String, Integer> puts) {
+        Map<String, Integer> sizes = new HashMap<>(transaction.size());
+        for (TransactionElement element : transaction) {
+            sizes.put(element.getName(), element.getContentLength());
+        }
+        for (String name : puts.keySet()) {
+            int size = sizes.get(name);
+            for (int i = 0; i < puts.get(name); i++) {
+                cacheProvider.release(name, size);
+            }
+        }
+    }
+
+    private List<TransactionElement> createTransaction(Map<String, SerializationStrategy> changes) {
+        List<TransactionElement> elements = new LinkedList<>();
+        for (String name : changes.keySet()) {
+            SerializationStrategy strategy = changes.get(name);
+            if (strategy == null) {
+                elements.add(TransactionElement.createRemovalElement(name));
+                continue;
+            }
+            if (strategy instanceof StringSetDeltaSerializationStrategy) {
+                StringSetDeltaSerializationStrategy deltaStrategy = (StringSetDeltaSerializationStrategy) strategy;
+                byte[] delta = deltaStrategy.serializeDelta();
+                elements.add(TransactionElement.createUpdateElement(name, strategy, deltaStrategy.serializedLength(), delta));
+                continue;
+            }
+            elements.add(TransactionElement.createUpdateElement(name, strategy.serialize()));
+        }
+        return elements;
+    }
+
+    private final class Batch {
+
+        private final Map<String, SerializationStrategy> changes = new LinkedHashMap<>();
+        private final Map<String, Integer> puts = new HashMap<>();
+        private final FutureTask<Void> task = new BatchTask(this);
+        private final FutureBarrier<Void> barrier = barrierProvider.get(task, exceptionHandler);
+
+        private boolean submitted;
+        private boolean scheduled;
+        private boolean sync;
+    }
+
+    /**
+     * Tells executor which keys are written, so reads of other keys
+     * don't wait for this batch.
+     */
+    private final class BatchTask extends FutureTask<Void> implements KeyedTask {
+
+        private final Batch batch;
+
+        private BatchTask(final Batch batch) {
+            super(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    write(batch);
+                    return null;
+                }
+            });
+            this.batch = batch;
+        }
+
+        @Override
+        public boolean containsKey(String key) {
+            synchronized (monitor) {
+                return batch.changes.containsKey(key);
+            }
+        }
+    }
+
+    private static final class SchedulerHolder {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName(SCHEDULER_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
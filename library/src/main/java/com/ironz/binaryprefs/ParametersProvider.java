@@ -2,28 +2,31 @@ package com.ironz.binaryprefs;
 
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 
+import com.ironz.binaryprefs.cache.provider.SegmentedCache;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.task.KeyPartitionedExecutor;
+
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
 final class ParametersProvider {
 
-    private static final Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
-    private static final Map<String, Lock> processLocks = new ConcurrentHashMap<>();
+    private static final Map<String, StripedReadWriteLock> locks = new ConcurrentHashMap<>();
+    private static final Map<String, ReadWriteLock> processLocks = new ConcurrentHashMap<>();
     private static final Map<String, Map<String, Object>> caches = new ConcurrentHashMap<>();
+    private static final Map<String, SegmentedCache> lazyCaches = new ConcurrentHashMap<>();
     private static final Map<String, Set<String>> cacheCandidates = new ConcurrentHashMap<>();
     private static final Map<String, List<OnSharedPreferenceChangeListener>> allListeners = new ConcurrentHashMap<>();
-    private static final Map<String, ExecutorService> executors = new ConcurrentHashMap<>();
+    private static final Map<String, KeyPartitionedExecutor> executors = new ConcurrentHashMap<>();
 
-    Map<String, ReadWriteLock> getLocks() {
+    Map<String, StripedReadWriteLock> getLocks() {
         return locks;
     }
 
-    Map<String, Lock> getProcessLocks() {
+    Map<String, ReadWriteLock> getProcessLocks() {
         return processLocks;
     }
 
@@ -31,11 +34,15 @@ final class ParametersProvider {
         return caches;
     }
 
+    Map<String, SegmentedCache> getLazyCaches() {
+        return lazyCaches;
+    }
+
     Map<String, List<OnSharedPreferenceChangeListener>> getAllListeners() {
         return allListeners;
     }
 
-    Map<String, ExecutorService> getExecutors() {
+    Map<String, KeyPartitionedExecutor> getExecutors() {
         return executors;
     }
 
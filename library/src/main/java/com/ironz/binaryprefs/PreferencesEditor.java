@@ -104,4 +104,32 @@ public interface PreferencesEditor extends SharedPreferences.Editor {
      * chain put calls together.
      */
     PreferencesEditor putByteArray(String key, byte[] value);
+
+    /**
+     * Adds strings to the {@code Set<String>} value in the preferences editor,
+     * to be written back once {@link #commit} or {@link #apply} are called.
+     * Only added strings are written to disk if possible, instead of whole set.
+     * Changes are applied after removals of this editor and to the value
+     * which is actual at that moment, but {@link #putStringSet(String, Set)}
+     * which is called after this method replaces them.
+     *
+     * @param key    The name of the preference to modify.
+     * @param values Strings for adding to the set, the set is created if it
+     *               doesn't exist.
+     * @return Returns a reference to the same Editor object, so you can
+     * chain put calls together.
+     */
+    PreferencesEditor addToStringSet(String key, Set<String> values);
+
+    /**
+     * Removes strings from the {@code Set<String>} value in the preferences editor,
+     * to be written back once {@link #commit} or {@link #apply} are called.
+     * Follows the same rules as {@link #addToStringSet(String, Set)}.
+     *
+     * @param key    The name of the preference to modify.
+     * @param values Strings for removal from the set.
+     * @return Returns a reference to the same Editor object, so you can
+     * chain put calls together.
+     */
+    PreferencesEditor removeFromStringSet(String key, Set<String> values);
 }
\ No newline at end of file
@@ -0,0 +1,60 @@
+package com.ironz.binaryprefs;
+
+import android.content.ComponentCallbacks2;
+import android.content.res.Configuration;
+
+import com.ironz.binaryprefs.cache.provider.SegmentedCache;
+
+import java.util.Map;
+
+/**
+ * Releases memory of all preferences in {@link BinaryPreferencesBuilder.MemoryCacheMode#LAZY}
+ * mode which are built with cache limit or {@link BinaryPreferencesBuilder#releaseOnTrimMemory(boolean)}
+ * on memory pressure. Released values are fetched from disk again on demand, values which
+ * aren't written to disk yet are always kept. Eager caches are never released, because eager
+ * preferences read values only from memory.
+ * <p>
+ * Register it once with application context:
+ * {@code context.registerComponentCallbacks(new TrimMemoryCallbacks())}
+ * or call {@link #onTrimMemory(int)} from your own callbacks.
+ * </p>
+ */
+public final class TrimMemoryCallbacks implements ComponentCallbacks2 {
+
+    private final Map<String, SegmentedCache> caches = new ParametersProvider().getLazyCaches();
+
+    /**
+     * Moves cold values under soft references while app is running, all values
+     * when app is in background and drops all values when process is going to be killed.
+     *
+     * @param level trim memory level
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        for (SegmentedCache cache : caches.values()) {
+            trim(cache, level);
+        }
+    }
+
+    private void trim(SegmentedCache cache, int level) {
+        if (level >= TRIM_MEMORY_COMPLETE) {
+            cache.clear();
+            return;
+        }
+        if (level >= TRIM_MEMORY_BACKGROUND || level == TRIM_MEMORY_RUNNING_CRITICAL) {
+            cache.softenAll();
+            return;
+        }
+        cache.softenCold();
+    }
+
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+
+    }
+}
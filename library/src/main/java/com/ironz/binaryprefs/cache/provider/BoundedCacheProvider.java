@@ -0,0 +1,91 @@
+package com.ironz.binaryprefs.cache.provider;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Cache provider which keeps values within given bytes budget with {@link SegmentedCache}.
+ * Values which aren't written to disk yet are never evicted. Sizes of such values are
+ * estimated until they are written (persistable objects are serialized only in background),
+ * written and fetched values are measured by serialized length.
+ * Evicted values are kept softly reachable until garbage collector needs memory,
+ * all written values could be released on memory pressure with
+ * {@link com.ironz.binaryprefs.TrimMemoryCallbacks}.
+ */
+public final class BoundedCacheProvider implements CacheProvider {
+
+    private static final int PRIMITIVE_SIZE = 8;
+    private static final int SET_ELEMENT_OVERHEAD = 4;
+
+    private final SegmentedCache currentCache;
+
+    public BoundedCacheProvider(String prefName, Map<String, SegmentedCache> allCaches, long maxBytes) {
+        this.currentCache = putIfAbsentCache(prefName, allCaches, maxBytes);
+    }
+
+    private SegmentedCache putIfAbsentCache(String prefName, Map<String, SegmentedCache> allCaches, long maxBytes) {
+        if (allCaches.containsKey(prefName)) {
+            return allCaches.get(prefName);
+        }
+        SegmentedCache cache = new SegmentedCache(maxBytes);
+        allCaches.put(prefName, cache);
+        return cache;
+    }
+
+    @Override
+    public boolean contains(String key) {
+        return currentCache.contains(key);
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        currentCache.put(key, value, estimateSize(value), true);
+    }
+
+    @Override
+    public void putFetched(String key, Object value, int size) {
+        currentCache.put(key, value, size, false);
+    }
+
+    @Override
+    public void release(String key, int size) {
+        currentCache.release(key, size);
+    }
+
+    @Override
+    public Set<String> keys() {
+        return currentCache.keys();
+    }
+
+    @Override
+    public Object get(String key) {
+        return currentCache.get(key);
+    }
+
+    @Override
+    public void remove(String key) {
+        currentCache.remove(key);
+    }
+
+    @Override
+    public Map<String, Object> getAll() {
+        return currentCache.getAll();
+    }
+
+    private int estimateSize(Object value) {
+        if (value instanceof byte[]) {
+            return ((byte[]) value).length;
+        }
+        if (value instanceof String) {
+            return ((String) value).length();
+        }
+        if (value instanceof Set) {
+            int size = 0;
+            for (Object o : (Set<?>) value) {
+                size += ((String) o).length() + SET_ELEMENT_OVERHEAD;
+            }
+            return size;
+        }
+        return PRIMITIVE_SIZE;
+    }
+}
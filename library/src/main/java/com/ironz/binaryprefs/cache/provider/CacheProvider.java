@@ -17,13 +17,34 @@ public interface CacheProvider {
     boolean contains(String key);
 
     /**
-     * Puts file to cache, value not might be null
+     * Puts file to cache, value not might be null.
+     * Value might be not persisted yet, so it's kept until
+     * {@link #release(String, int)} is called for this put.
      *
      * @param key   target key
      * @param value target value
      */
     void put(String key, Object value);
 
+    /**
+     * Puts value which has been read from disk, value not might be null.
+     * Such value could be evicted and fetched from disk again.
+     *
+     * @param key   target key
+     * @param value target value
+     * @param size  serialized value size in bytes
+     */
+    void putFetched(String key, Object value, int size);
+
+    /**
+     * Notifies that value which has been put with {@link #put(String, Object)}
+     * is written to disk.
+     *
+     * @param key  target key
+     * @param size serialized value size in bytes
+     */
+    void release(String key, int size);
+
     /**
      * Returns all keys inside cache
      *
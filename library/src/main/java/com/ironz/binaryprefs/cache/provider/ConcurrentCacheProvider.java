@@ -35,6 +35,16 @@ public final class ConcurrentCacheProvider implements CacheProvider {
         currentCache.put(key, value);
     }
 
+    @Override
+    public void putFetched(String key, Object value, int size) {
+        currentCache.put(key, value);
+    }
+
+    @Override
+    public void release(String key, int size) {
+
+    }
+
     @Override
     public Set<String> keys() {
         Set<String> s = currentCache.keySet();
@@ -0,0 +1,381 @@
+package com.ironz.binaryprefs.cache.provider;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Byte budgeted segmented LRU cache.
+ * <p>
+ * New values are placed into probation segment, values which are read while
+ * they are in probation are promoted into protected segment on eviction, so
+ * one time scans (e.g. {@code getAll()}) can't push hot values out.
+ * Protected segment takes up to {@link #PROTECTED_PERCENT} of the budget,
+ * overflowed values are demoted back into probation.
+ * </p>
+ * Reads are lock free, they only mark value as referenced. Pinned values
+ * are kept out of segments and take part in eviction only when each pin
+ * is released, but their size still counts against the budget.
+ * <p>
+ * Evicted and trimmed values are kept through {@link SoftReference}, so they
+ * are returned back to cache on read until garbage collector clears them.
+ * </p>
+ */
+public final class SegmentedCache {
+
+    private static final int PROTECTED_PERCENT = 80;
+
+    private static final int SEGMENT_PINNED = 0;
+    private static final int SEGMENT_PROBATION = 1;
+    private static final int SEGMENT_PROTECTED = 2;
+
+    private final Object monitor = new Object();
+    private final Map<String, Entry> index = new ConcurrentHashMap<>();
+    private final LinkedHashMap<String, Entry> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<String, Entry> protectedSegment = new LinkedHashMap<>();
+    private final Map<String, Integer> pins = new HashMap<>();
+    private final Map<String, SoftEntry> softValues = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Object> clearedValues = new ReferenceQueue<>();
+    private final long maxBytes;
+    private final long maxProtectedBytes;
+
+    private long pinnedBytes;
+    private long probationBytes;
+    private long protectedBytes;
+
+    /**
+     * @param maxBytes total size budget of values in bytes
+     */
+    public SegmentedCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.maxProtectedBytes = maxBytes / 100 * PROTECTED_PERCENT;
+    }
+
+    public boolean contains(String key) {
+        if (index.containsKey(key)) {
+            return true;
+        }
+        SoftEntry softEntry = softValues.get(key);
+        return softEntry != null && softEntry.get() != null;
+    }
+
+    public Object get(String key) {
+        Entry entry = index.get(key);
+        if (entry == null) {
+            return getSoft(key);
+        }
+        if (!entry.referenced) {
+            entry.referenced = true;
+        }
+        return entry.value;
+    }
+
+    private Object getSoft(String key) {
+        SoftEntry softEntry = softValues.get(key);
+        if (softEntry == null) {
+            return null;
+        }
+        Object value = softEntry.get();
+        if (value == null) {
+            return null;
+        }
+        restore(softEntry, value);
+        return value;
+    }
+
+    /**
+     * Returns soft value back to probation if it hasn't been replaced or removed meanwhile.
+     */
+    private void restore(SoftEntry softEntry, Object value) {
+        synchronized (monitor) {
+            if (softValues.get(softEntry.key) != softEntry || index.containsKey(softEntry.key)) {
+                return;
+            }
+            softValues.remove(softEntry.key);
+            Entry entry = new Entry(softEntry.key, value, softEntry.size);
+            entry.referenced = true;
+            index.put(entry.key, entry);
+            linkProbationLocked(entry);
+            evictLocked();
+        }
+    }
+
+    /**
+     * Puts value and evicts least recently used values until cache fits the budget.
+     *
+     * @param key    target key
+     * @param value  target value
+     * @param size   estimated value size in bytes
+     * @param pinned {@code true} if value shouldn't be evicted until {@link #release(String, int)}
+     */
+    public void put(String key, Object value, int size, boolean pinned) {
+        synchronized (monitor) {
+            if (pinned) {
+                Integer count = pins.get(key);
+                pins.put(key, count == null ? 1 : count + 1);
+            }
+            purgeLocked();
+            softValues.remove(key);
+            Entry entry = new Entry(key, value, size);
+            Entry old = index.put(key, entry);
+            if (old != null) {
+                unlinkLocked(old);
+            }
+            if (pins.containsKey(key)) {
+                linkPinnedLocked(entry);
+            } else if (old != null && old.segment == SEGMENT_PROTECTED) {
+                linkProtectedLocked(entry);
+                rebalanceLocked();
+            } else {
+                linkProbationLocked(entry);
+            }
+            evictLocked();
+        }
+    }
+
+    /**
+     * Releases one pin of given key. Value becomes evictable when all pins are released.
+     *
+     * @param key  target key
+     * @param size actual value size in bytes
+     */
+    public void release(String key, int size) {
+        synchronized (monitor) {
+            Integer count = pins.remove(key);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                pins.put(key, count - 1);
+                return;
+            }
+            Entry entry = index.get(key);
+            if (entry != null) {
+                unlinkLocked(entry);
+                entry.size = size;
+                linkProbationLocked(entry);
+            }
+            evictLocked();
+        }
+    }
+
+    public void remove(String key) {
+        synchronized (monitor) {
+            softValues.remove(key);
+            Entry entry = index.remove(key);
+            if (entry != null) {
+                unlinkLocked(entry);
+            }
+        }
+    }
+
+    /**
+     * @return keys of strongly cached values
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(index.keySet());
+    }
+
+    /**
+     * @return copy of all strongly cached key/values
+     */
+    public Map<String, Object> getAll() {
+        Map<String, Object> map = new HashMap<>(index.size());
+        for (Entry entry : index.values()) {
+            map.put(entry.key, entry.value);
+        }
+        return map;
+    }
+
+    /**
+     * Moves values of probation segment under soft references.
+     */
+    public void softenCold() {
+        synchronized (monitor) {
+            purgeLocked();
+            softenLocked(probation);
+        }
+    }
+
+    /**
+     * Moves all values which are written to disk under soft references.
+     */
+    public void softenAll() {
+        synchronized (monitor) {
+            purgeLocked();
+            softenLocked(probation);
+            softenLocked(protectedSegment);
+        }
+    }
+
+    /**
+     * Drops all values which are written to disk including soft ones.
+     */
+    public void clear() {
+        synchronized (monitor) {
+            softenAll();
+            softValues.clear();
+            purgeLocked();
+        }
+    }
+
+    /**
+     * @return total size of strongly cached values in bytes
+     */
+    public long bytes() {
+        synchronized (monitor) {
+            return totalBytesLocked();
+        }
+    }
+
+    private long totalBytesLocked() {
+        return pinnedBytes + probationBytes + protectedBytes;
+    }
+
+    private void softenLocked(LinkedHashMap<String, Entry> segment) {
+        while (!segment.isEmpty()) {
+            softenLocked(eldest(segment));
+        }
+    }
+
+    /**
+     * Soft value is published before strong one is removed, so lock free
+     * readers always find one of them.
+     */
+    private void softenLocked(Entry entry) {
+        unlinkLocked(entry);
+        softValues.put(entry.key, new SoftEntry(entry.key, entry.value, entry.size, clearedValues));
+        index.remove(entry.key);
+    }
+
+    /**
+     * Removes soft entries which values have been cleared by garbage collector.
+     */
+    private void purgeLocked() {
+        SoftEntry softEntry;
+        while ((softEntry = (SoftEntry) clearedValues.poll()) != null) {
+            if (softValues.get(softEntry.key) == softEntry) {
+                softValues.remove(softEntry.key);
+            }
+        }
+    }
+
+    private void linkPinnedLocked(Entry entry) {
+        entry.segment = SEGMENT_PINNED;
+        pinnedBytes += entry.size;
+    }
+
+    private void linkProbationLocked(Entry entry) {
+        entry.segment = SEGMENT_PROBATION;
+        probation.put(entry.key, entry);
+        probationBytes += entry.size;
+    }
+
+    private void linkProtectedLocked(Entry entry) {
+        entry.segment = SEGMENT_PROTECTED;
+        protectedSegment.put(entry.key, entry);
+        protectedBytes += entry.size;
+    }
+
+    private void unlinkLocked(Entry entry) {
+        switch (entry.segment) {
+            case SEGMENT_PINNED:
+                pinnedBytes -= entry.size;
+                break;
+            case SEGMENT_PROBATION:
+                probation.remove(entry.key);
+                probationBytes -= entry.size;
+                break;
+            default:
+                protectedSegment.remove(entry.key);
+                protectedBytes -= entry.size;
+                break;
+        }
+    }
+
+    /**
+     * Demotes least recently used protected values into probation, referenced
+     * values get second chance in protected segment.
+     */
+    private void rebalanceLocked() {
+        int scans = protectedSegment.size() * 2;
+        while (protectedBytes > maxProtectedBytes && scans-- > 0) {
+            Entry entry = eldest(protectedSegment);
+            unlinkLocked(entry);
+            if (entry.referenced) {
+                entry.referenced = false;
+                linkProtectedLocked(entry);
+                continue;
+            }
+            linkProbationLocked(entry);
+        }
+    }
+
+    /**
+     * Evicts least recently used values from probation, referenced values
+     * are promoted into protected segment. Scans are bounded, because
+     * concurrent reads could mark values as referenced again.
+     */
+    private void evictLocked() {
+        int scans = index.size() * 3;
+        while (totalBytesLocked() > maxBytes && scans-- > 0) {
+            if (probation.isEmpty() && protectedSegment.isEmpty()) {
+                return;
+            }
+            if (probation.isEmpty()) {
+                Entry entry = eldest(protectedSegment);
+                unlinkLocked(entry);
+                entry.referenced = false;
+                linkProbationLocked(entry);
+                continue;
+            }
+            Entry entry = eldest(probation);
+            if (entry.referenced) {
+                unlinkLocked(entry);
+                entry.referenced = false;
+                linkProtectedLocked(entry);
+                rebalanceLocked();
+                continue;
+            }
+            softenLocked(entry);
+        }
+    }
+
+    private Entry eldest(LinkedHashMap<String, Entry> segment) {
+        Iterator<Entry> iterator = segment.values().iterator();
+        return iterator.next();
+    }
+
+    private static final class Entry {
+
+        private final String key;
+        private final Object value;
+        private int size;
+        private int segment;
+        private volatile boolean referenced;
+
+        private Entry(String key, Object value, int size) {
+            this.key = key;
+            this.value = value;
+            this.size = size;
+        }
+    }
+
+    private static final class SoftEntry extends SoftReference<Object> {
+
+        private final String key;
+        private final int size;
+
+        private SoftEntry(String key, Object value, int size, ReferenceQueue<Object> queue) {
+            super(value, queue);
+            this.key = key;
+            this.size = size;
+        }
+    }
+}
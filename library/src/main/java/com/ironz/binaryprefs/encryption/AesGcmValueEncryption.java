@@ -0,0 +1,212 @@
+package com.ironz.binaryprefs.encryption;
+
+import com.ironz.binaryprefs.exception.EncryptionException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+/**
+ * Implementation of {@link ValueEncryption} class which uses authenticated AES-GCM encryption
+ * with random nonce for each value. Corrupted or tampered values are rejected while decrypting.
+ * <p>
+ * Value layout is {@code [magic:4][nonce:12][cipher text][tag:16]}, header occupies exactly one
+ * AES block so cipher text stays block aligned and no padding is required.
+ * </p>
+ * <p>
+ * Values without header (e.g. saved with {@link AesValueEncryption}) are decrypted
+ * with fallback encryption and rewritten in GCM format after first read.
+ * </p>
+ */
+public final class AesGcmValueEncryption implements BufferValueEncryption, MigratingValueEncryption {
+
+    private static final String KEY_LENGTH_MESSAGE = "Secret key must be 16, 24 or 32 bytes";
+    private static final String UNKNOWN_FORMAT_MESSAGE = "Value isn't encrypted with AES-GCM and fallback encryption isn't defined";
+
+    private static final String AES = "AES";
+    private static final String AES_GCM_NO_PADDING = "AES/GCM/NoPadding";
+    private static final int MAGIC = 0x42504743;
+    private static final int MAGIC_LENGTH = 4;
+    private static final int NONCE_LENGTH = 12;
+    private static final int HEADER_LENGTH = MAGIC_LENGTH + NONCE_LENGTH;
+    private static final int TAG_LENGTH = 16;
+    private static final int TAG_LENGTH_BITS = TAG_LENGTH * 8;
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec secretKeySpec;
+    private final ValueEncryption fallback;
+    private final ThreadLocal<Cipher> cipher = new ThreadLocal<Cipher>() {
+        @Override
+        protected Cipher initialValue() {
+            try {
+                return Cipher.getInstance(AES_GCM_NO_PADDING);
+            } catch (Exception e) {
+                throw new EncryptionException(e);
+            }
+        }
+    };
+
+    /**
+     * Creates byte encryption instance which performs AES-GCM vice versa encryption operation.
+     *
+     * @param secretKeyBytes 16, 24 or 32 bytes secret key
+     */
+    public AesGcmValueEncryption(byte[] secretKeyBytes) {
+        this(secretKeyBytes, null);
+    }
+
+    /**
+     * Creates byte encryption instance which performs AES-GCM vice versa encryption operation
+     * and reads values without GCM header with given fallback encryption.
+     *
+     * @param secretKeyBytes 16, 24 or 32 bytes secret key
+     * @param fallback       encryption for values which has been saved before migration,
+     *                       e.g. {@link AesValueEncryption} or {@link ValueEncryption#NO_OP}
+     */
+    public AesGcmValueEncryption(byte[] secretKeyBytes, ValueEncryption fallback) {
+        checkLength(secretKeyBytes);
+        this.secretKeySpec = new SecretKeySpec(secretKeyBytes, AES);
+        this.fallback = fallback;
+    }
+
+    private void checkLength(byte[] secretKeyBytes) {
+        int length = secretKeyBytes.length;
+        if (length != 16 && length != 24 && length != 32) {
+            throw new EncryptionException(KEY_LENGTH_MESSAGE);
+        }
+    }
+
+    @Override
+    public byte[] encrypt(byte[] bytes) {
+        return encryptInternal(bytes);
+    }
+
+    @Override
+    public byte[] decrypt(byte[] bytes) {
+        return decryptInternal(bytes);
+    }
+
+    @Override
+    public ByteBuffer encrypt(ByteBuffer buffer) {
+        return encryptBufferInternal(buffer);
+    }
+
+    @Override
+    public ByteBuffer decrypt(ByteBuffer buffer) {
+        return decryptBufferInternal(buffer);
+    }
+
+    @Override
+    public boolean isOutdated(ByteBuffer buffer) {
+        return !hasHeader(buffer);
+    }
+
+    private byte[] encryptInternal(byte[] bytes) {
+        try {
+            byte[] result = new byte[HEADER_LENGTH + bytes.length + TAG_LENGTH];
+            Cipher encryptCipher = initEncrypt(result);
+            encryptCipher.doFinal(bytes, 0, bytes.length, result, HEADER_LENGTH);
+            return result;
+        } catch (Exception e) {
+            cipher.remove();
+            throw new EncryptionException(e);
+        }
+    }
+
+    private byte[] decryptInternal(byte[] bytes) {
+        if (!hasHeader(ByteBuffer.wrap(bytes))) {
+            return fallback().decrypt(bytes);
+        }
+        try {
+            Cipher decryptCipher = initDecrypt(ByteBuffer.wrap(bytes));
+            return decryptCipher.doFinal(bytes, HEADER_LENGTH, bytes.length - HEADER_LENGTH);
+        } catch (Exception e) {
+            cipher.remove();
+            throw new EncryptionException(e);
+        }
+    }
+
+    private ByteBuffer encryptBufferInternal(ByteBuffer buffer) {
+        try {
+            ByteBuffer output = ByteBuffer.allocate(HEADER_LENGTH + buffer.remaining() + TAG_LENGTH);
+            Cipher encryptCipher = initEncrypt(output.array());
+            output.position(HEADER_LENGTH);
+            encryptCipher.doFinal(buffer, output);
+            output.flip();
+            return output;
+        } catch (Exception e) {
+            cipher.remove();
+            throw new EncryptionException(e);
+        }
+    }
+
+    /**
+     * Decrypted value is shorter than encrypted one,
+     * so writable heap buffers are decrypted in place.
+     */
+    private ByteBuffer decryptBufferInternal(ByteBuffer buffer) {
+        if (!hasHeader(buffer)) {
+            return decryptFallback(buffer);
+        }
+        try {
+            Cipher decryptCipher = initDecrypt(buffer);
+            ByteBuffer output = buffer.isReadOnly() || !buffer.hasArray()
+                    ? ByteBuffer.allocate(buffer.remaining() - HEADER_LENGTH - TAG_LENGTH)
+                    : buffer.duplicate();
+            int start = output.position();
+            buffer.position(buffer.position() + HEADER_LENGTH);
+            int length = decryptCipher.doFinal(buffer, output);
+            output.position(start);
+            output.limit(start + length);
+            return output;
+        } catch (Exception e) {
+            cipher.remove();
+            throw new EncryptionException(e);
+        }
+    }
+
+    private ByteBuffer decryptFallback(ByteBuffer buffer) {
+        ValueEncryption encryption = fallback();
+        if (encryption instanceof BufferValueEncryption) {
+            return ((BufferValueEncryption) encryption).decrypt(buffer);
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return ByteBuffer.wrap(encryption.decrypt(bytes));
+    }
+
+    private ValueEncryption fallback() {
+        if (fallback == null) {
+            throw new EncryptionException(UNKNOWN_FORMAT_MESSAGE);
+        }
+        return fallback;
+    }
+
+    private boolean hasHeader(ByteBuffer buffer) {
+        return buffer.remaining() >= HEADER_LENGTH + TAG_LENGTH && buffer.getInt(buffer.position()) == MAGIC;
+    }
+
+    /**
+     * Writes header with new random nonce into the beginning of given array.
+     */
+    private Cipher initEncrypt(byte[] result) throws Exception {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        random.nextBytes(nonce);
+        ByteBuffer.wrap(result).putInt(MAGIC).put(nonce);
+        Cipher encryptCipher = cipher.get();
+        encryptCipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, new GCMParameterSpec(TAG_LENGTH_BITS, nonce));
+        return encryptCipher;
+    }
+
+    private Cipher initDecrypt(ByteBuffer buffer) throws Exception {
+        byte[] nonce = new byte[NONCE_LENGTH];
+        ByteBuffer header = buffer.duplicate();
+        header.position(header.position() + MAGIC_LENGTH);
+        header.get(nonce);
+        Cipher decryptCipher = cipher.get();
+        decryptCipher.init(Cipher.DECRYPT_MODE, secretKeySpec, new GCMParameterSpec(TAG_LENGTH_BITS, nonce));
+        return decryptCipher;
+    }
+}
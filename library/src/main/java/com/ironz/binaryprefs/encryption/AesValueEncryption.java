@@ -5,19 +5,23 @@ import com.ironz.binaryprefs.exception.EncryptionException;
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 
 /**
  * Implementation of {@link ValueEncryption} class which uses AES for <code>byte[]</code> data encryption.
+ * Initialized ciphers are confined to the calling thread and reused between operations.
  */
-public final class AesValueEncryption implements ValueEncryption {
+public final class AesValueEncryption implements BufferValueEncryption {
 
     private static final String SHORT_KEYS_MESSAGE = "Secret and initial vector must be 16 bytes";
 
     private static final String AES = "AES";
     private static final String AES_CBC_PKCS5_PADDING = "AES/CBC/PKCS5PADDING";
     private static final int KEY_LENGTH = 16;
-    private final byte[] secretKeyBytes;
-    private final byte[] initialVector;
+    private final SecretKeySpec secretKeySpec;
+    private final IvParameterSpec initialVector;
+    private final ThreadLocal<Cipher> encryptCipher = new CipherThreadLocal(Cipher.ENCRYPT_MODE);
+    private final ThreadLocal<Cipher> decryptCipher = new CipherThreadLocal(Cipher.DECRYPT_MODE);
 
     /**
      * Creates byte encryption instance which performs AES vice versa encryption operation.
@@ -27,8 +31,8 @@ public final class AesValueEncryption implements ValueEncryption {
      */
     public AesValueEncryption(byte[] secretKeyBytes, byte[] initialVector) {
         checkLength(secretKeyBytes, initialVector);
-        this.secretKeyBytes = secretKeyBytes;
-        this.initialVector = initialVector;
+        this.secretKeySpec = new SecretKeySpec(secretKeyBytes, AES);
+        this.initialVector = new IvParameterSpec(initialVector);
     }
 
     private void checkLength(byte[] secretKeyBytes, byte[] initialVector) {
@@ -47,37 +51,89 @@ public final class AesValueEncryption implements ValueEncryption {
         return decryptInternal(bytes);
     }
 
+    @Override
+    public ByteBuffer encrypt(ByteBuffer buffer) {
+        return encryptBufferInternal(buffer);
+    }
+
+    @Override
+    public ByteBuffer decrypt(ByteBuffer buffer) {
+        return decryptBufferInternal(buffer);
+    }
+
     private byte[] encryptInternal(byte[] bytes) {
         try {
-            Cipher encryptCipher = createEncryptCipher();
-            return encryptCipher.doFinal(bytes);
+            return encryptCipher.get().doFinal(bytes);
         } catch (Exception e) {
+            encryptCipher.remove();
             throw new EncryptionException(e);
         }
     }
 
     private byte[] decryptInternal(byte[] bytes) {
         try {
-            Cipher decryptCipher = createDecryptCipher();
-            return decryptCipher.doFinal(bytes);
+            return decryptCipher.get().doFinal(bytes);
         } catch (Exception e) {
+            decryptCipher.remove();
             throw new EncryptionException(e);
         }
     }
 
-    private Cipher createEncryptCipher() throws Exception {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secretKeyBytes, AES);
-        IvParameterSpec iv = new IvParameterSpec(initialVector);
-        Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5_PADDING);
-        cipher.init(Cipher.ENCRYPT_MODE, secretKeySpec, iv);
-        return cipher;
+    private ByteBuffer encryptBufferInternal(ByteBuffer buffer) {
+        try {
+            Cipher cipher = encryptCipher.get();
+            ByteBuffer output = ByteBuffer.allocate(cipher.getOutputSize(buffer.remaining()));
+            cipher.doFinal(buffer, output);
+            output.flip();
+            return output;
+        } catch (Exception e) {
+            encryptCipher.remove();
+            throw new EncryptionException(e);
+        }
     }
 
-    private Cipher createDecryptCipher() throws Exception {
-        SecretKeySpec secretKeySpec = new SecretKeySpec(secretKeyBytes, AES);
-        IvParameterSpec iv = new IvParameterSpec(initialVector);
-        Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5_PADDING);
-        cipher.init(Cipher.DECRYPT_MODE, secretKeySpec, iv);
-        return cipher;
+    /**
+     * Decrypted value is never longer than encrypted one,
+     * so writable heap buffers are decrypted in place.
+     */
+    private ByteBuffer decryptBufferInternal(ByteBuffer buffer) {
+        try {
+            Cipher cipher = decryptCipher.get();
+            ByteBuffer output = buffer.isReadOnly() || !buffer.hasArray()
+                    ? ByteBuffer.allocate(cipher.getOutputSize(buffer.remaining()))
+                    : buffer.duplicate();
+            int start = output.position();
+            int length = cipher.doFinal(buffer, output);
+            output.position(start);
+            output.limit(start + length);
+            return output;
+        } catch (Exception e) {
+            decryptCipher.remove();
+            throw new EncryptionException(e);
+        }
+    }
+
+    /**
+     * Cipher resets to initialized state after each {@code doFinal} call,
+     * so one instance is reused by owner thread until it fails.
+     */
+    private final class CipherThreadLocal extends ThreadLocal<Cipher> {
+
+        private final int mode;
+
+        private CipherThreadLocal(int mode) {
+            this.mode = mode;
+        }
+
+        @Override
+        protected Cipher initialValue() {
+            try {
+                Cipher cipher = Cipher.getInstance(AES_CBC_PKCS5_PADDING);
+                cipher.init(mode, secretKeySpec, initialVector);
+                return cipher;
+            } catch (Exception e) {
+                throw new EncryptionException(e);
+            }
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,26 @@
+package com.ironz.binaryprefs.encryption;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Value encryption which is able to convert buffers without copying them
+ * into intermediate arrays, e.g. memory mapped file views.
+ */
+public interface BufferValueEncryption extends ValueEncryption {
+    /**
+     * Encrypts remaining bytes of given buffer. Buffer position is moved to its limit.
+     *
+     * @param buffer original bytes
+     * @return encrypted bytes, positioned at start
+     */
+    ByteBuffer encrypt(ByteBuffer buffer);
+
+    /**
+     * Decrypts remaining bytes of given buffer. Buffer position is moved to its limit.
+     * Writable heap buffer content may be replaced with decrypted bytes.
+     *
+     * @param buffer encrypted bytes
+     * @return original bytes, positioned at start
+     */
+    ByteBuffer decrypt(ByteBuffer buffer);
+}
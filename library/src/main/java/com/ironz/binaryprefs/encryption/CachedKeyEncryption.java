@@ -0,0 +1,58 @@
+package com.ironz.binaryprefs.encryption;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decorator which remembers name mapping of another key encryption in both directions.
+ * Mapping is bounded by given size, names over the limit are converted by delegate on each call.
+ */
+public final class CachedKeyEncryption implements KeyEncryption {
+
+    private final Map<String, String> encrypted = new ConcurrentHashMap<>();
+    private final Map<String, String> decrypted = new ConcurrentHashMap<>();
+
+    private final KeyEncryption keyEncryption;
+    private final int maxSize;
+
+    /**
+     * Creates cached key encryption.
+     *
+     * @param keyEncryption target key encryption, should produce the same result for the same name
+     * @param maxSize       maximum count of remembered names
+     */
+    public CachedKeyEncryption(KeyEncryption keyEncryption, int maxSize) {
+        this.keyEncryption = keyEncryption;
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public String decrypt(String name) {
+        String cached = decrypted.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        String decrypt = keyEncryption.decrypt(name);
+        remember(decrypt, name);
+        return decrypt;
+    }
+
+    @Override
+    public String encrypt(String name) {
+        String cached = encrypted.get(name);
+        if (cached != null) {
+            return cached;
+        }
+        String encrypt = keyEncryption.encrypt(name);
+        remember(name, encrypt);
+        return encrypt;
+    }
+
+    private void remember(String name, String encryptedName) {
+        if (encrypted.size() >= maxSize) {
+            return;
+        }
+        encrypted.put(name, encryptedName);
+        decrypted.put(encryptedName, name);
+    }
+}
@@ -0,0 +1,17 @@
+package com.ironz.binaryprefs.encryption;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Value encryption which is able to decrypt values saved in outdated format.
+ * Outdated values are encrypted again and saved back right after they have been read.
+ */
+public interface MigratingValueEncryption extends ValueEncryption {
+    /**
+     * Checks encrypted value format. Buffer position is not changed.
+     *
+     * @param buffer encrypted bytes
+     * @return {@code true} if value should be rewritten in actual format, {@code false} otherwise
+     */
+    boolean isOutdated(ByteBuffer buffer);
+}
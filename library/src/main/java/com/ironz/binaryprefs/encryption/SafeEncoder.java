@@ -1,35 +1,42 @@
 package com.ironz.binaryprefs.encryption;
 
-import java.nio.charset.Charset;
-
 /**
- * Custom implementation of Base32 but with lower cased bytes table
+ * Custom implementation of Base32 but with lower cased bytes table.
+ * Encoder holds no state between calls, so one instance can be shared between threads.
  */
 public class SafeEncoder {
 
-    private static final Charset CHARSET = Charset.forName("UTF-8");
-    private static final byte[] ENCODE_TABLE = {
+    private static final char[] ENCODE_TABLE = {
             '0', '1', '2', '3', '4', '5', '6', '7', '8', '9',
             'a', 'b', 'c', 'd', 'e', 'f', 'g', 'h', 'j', 'k', 'm',
             'n', 'p', 'q', 'r', 's', 't', 'v', 'w', 'x', 'y', 'z'
     };
+    private static final byte[] DECODE_TABLE = createDecodeTable();
 
     private static final int MASK_8_BITS = 0xff;
-    private static final int DEFAULT_BUFFER_RESIZE_FACTOR = 2;
-    private static final int DEFAULT_BUFFER_SIZE = 8192;
     private static final int MASK_5BITS = 0x1f;
     private static final int BITS_PER_ENCODED_BYTE = 5;
     private static final int BYTES_PER_ENCODED_BLOCK = 8;
     private static final int BYTES_PER_UN_ENCODED_BLOCK = 5;
 
-    private byte[] buffer;
-    private int position;
-
-    private boolean eof;
-    private int modulus;
-    private long bitWorkArea;
+    /**
+     * Encoded characters count for each count of trailing bytes.
+     */
+    private static final int[] ENCODED_TAIL_LENGTH = {0, 2, 4, 5, 7};
+    /**
+     * Decoded bytes count for each count of trailing characters.
+     */
+    private static final int[] DECODED_TAIL_LENGTH = {0, 0, 1, 1, 2, 3, 3, 4};
+
+    private static byte[] createDecodeTable() {
+        byte[] table = new byte[128];
+        for (char c = 0; c < table.length; c++) {
+            table[c] = decode(c);
+        }
+        return table;
+    }
 
-    private byte decode(byte octet) {
+    private static byte decode(char octet) {
         switch (octet) {
             case '0':
             case 'O':
@@ -155,203 +162,125 @@ public class SafeEncoder {
         }
     }
 
-    private boolean isInAlphabet(byte octet) {
-        return decode(octet) != -1;
-    }
-
-    private int available() {
-        return buffer != null ? position : 0;
+    private static int decodeChar(char c) {
+        return c < DECODE_TABLE.length ? DECODE_TABLE[c] : -1;
     }
 
-    private void resizeBuffer() {
-        if (buffer == null) {
-            buffer = new byte[DEFAULT_BUFFER_SIZE];
-            position = 0;
-        } else {
-            byte[] bytes = new byte[buffer.length * DEFAULT_BUFFER_RESIZE_FACTOR];
-            System.arraycopy(buffer, 0, bytes, 0, buffer.length);
-            buffer = bytes;
+    public String encodeToString(byte[] bytes) {
+        int length = bytes.length;
+        int blocks = length / BYTES_PER_UN_ENCODED_BLOCK;
+        int tail = length % BYTES_PER_UN_ENCODED_BLOCK;
+        char[] result = new char[blocks * BYTES_PER_ENCODED_BLOCK + ENCODED_TAIL_LENGTH[tail]];
+        int in = 0;
+        int out = 0;
+        for (int block = 0; block < blocks; block++) {
+            long bitWorkArea = 0;
+            for (int i = 0; i < BYTES_PER_UN_ENCODED_BLOCK; i++) {
+                bitWorkArea = (bitWorkArea << 8) | (bytes[in++] & MASK_8_BITS);
+            }
+            for (int shift = 35; shift >= 0; shift -= BITS_PER_ENCODED_BYTE) {
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> shift) & MASK_5BITS];
+            }
         }
-    }
-
-    private void ensureBufferSize(int size) {
-        if ((buffer == null) || (buffer.length < position + size)) {
-            resizeBuffer();
+        long bitWorkArea = 0;
+        for (int i = 0; i < tail; i++) {
+            bitWorkArea = (bitWorkArea << 8) | (bytes[in++] & MASK_8_BITS);
         }
-    }
-
-    private void readResults(byte[] bytes) {
-        if (buffer != null) {
-            int len = available();
-            System.arraycopy(buffer, 0, bytes, 0, len);
-            buffer = null;
+        switch (tail) {
+            case 1:
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 3) & MASK_5BITS];
+                result[out] = ENCODE_TABLE[(int) (bitWorkArea << 2) & MASK_5BITS];
+                break;
+            case 2:
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 11) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 6) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 1) & MASK_5BITS];
+                result[out] = ENCODE_TABLE[(int) (bitWorkArea << 4) & MASK_5BITS];
+                break;
+            case 3:
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 19) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 14) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 9) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 4) & MASK_5BITS];
+                result[out] = ENCODE_TABLE[(int) (bitWorkArea << 1) & MASK_5BITS];
+                break;
+            case 4:
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 27) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 22) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 17) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 12) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 7) & MASK_5BITS];
+                result[out++] = ENCODE_TABLE[(int) (bitWorkArea >> 2) & MASK_5BITS];
+                result[out] = ENCODE_TABLE[(int) (bitWorkArea << 3) & MASK_5BITS];
+                break;
         }
+        return new String(result);
     }
 
-    private void reset() {
-        buffer = null;
-        position = 0;
-        modulus = 0;
-        eof = false;
-    }
-
-    public String encodeToString(byte[] bytes) {
-        return new String(encode(bytes), CHARSET);
-    }
-
+    /**
+     * Decodes given string, characters which are not in alphabet are skipped.
+     */
     public byte[] decode(String s) {
-        return decode(s.getBytes(CHARSET));
-    }
-
-    private byte[] encode(byte[] bytes) {
-        reset();
-        if (bytes == null || bytes.length == 0) {
-            return bytes;
-        }
-        encode(bytes, bytes.length);
-        encode(bytes, -1);
-        byte[] result = new byte[position];
-        readResults(result);
-        return result;
-    }
-
-    private byte[] decode(byte[] bytes) {
-        reset();
-        if (bytes == null || bytes.length == 0) {
-            return bytes;
-        }
-        decode(bytes, bytes.length);
-        decode(bytes, -1);
-        byte[] result = new byte[position];
-        readResults(result);
-        return result;
-    }
-
-    private void encode(byte[] in, int available) {
-        int localPosition = 0;
-        if (eof) {
-            return;
-        }
-        int encodeSize = BYTES_PER_ENCODED_BLOCK;
-        if (available < 0) {
-            eof = true;
-            if (0 == modulus) {
-                return;
-            }
-            ensureBufferSize(encodeSize);
-            switch (modulus) {
-                case 1:
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 3) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea << 2) & MASK_5BITS];
-                    break;
-
-                case 2:
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 11) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 6) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 1) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea << 4) & MASK_5BITS];
-                    break;
-                case 3:
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 19) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 14) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 9) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 4) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea << 1) & MASK_5BITS];
-                    break;
-                case 4:
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 27) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 22) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 17) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 12) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 7) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 2) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea << 3) & MASK_5BITS];
-                    break;
+        int length = s.length();
+        int count = 0;
+        for (int i = 0; i < length; i++) {
+            if (decodeChar(s.charAt(i)) != -1) {
+                count++;
             }
-        } else {
-            for (int i = 0; i < available; i++) {
-                ensureBufferSize(encodeSize);
-                modulus = (modulus + 1) % BYTES_PER_UN_ENCODED_BLOCK;
-                int b = in[localPosition++];
-                if (b < 0) {
-                    b += 256;
-                }
-                bitWorkArea = (bitWorkArea << 8) + b;
-                if (0 == modulus) {
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 35) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 30) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 25) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 20) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 15) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 10) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) (bitWorkArea >> 5) & MASK_5BITS];
-                    buffer[position++] = ENCODE_TABLE[(int) bitWorkArea & MASK_5BITS];
-                }
-            }
-        }
-    }
-
-    private void decode(byte[] in, int available) {
-        int localPosition = 0;
-        if (eof) {
-            return;
-        }
-        if (available < 0) {
-            eof = true;
         }
-        int decodeSize = BYTES_PER_ENCODED_BLOCK - 1;
-        for (int i = 0; i < available; i++) {
-            byte b = in[localPosition++];
-            ensureBufferSize(decodeSize);
-            if (isInAlphabet(b)) {
-                int result = decode(b);
-                modulus = (modulus + 1) % BYTES_PER_ENCODED_BLOCK;
-                bitWorkArea = (bitWorkArea << BITS_PER_ENCODED_BYTE) + result;
-                if (modulus == 0) {
-                    buffer[position++] = (byte) ((bitWorkArea >> 32) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 24) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
-                    buffer[position++] = (byte) (bitWorkArea & MASK_8_BITS);
-                }
+        int blocks = count / BYTES_PER_ENCODED_BLOCK;
+        int tail = count % BYTES_PER_ENCODED_BLOCK;
+        byte[] result = new byte[blocks * BYTES_PER_UN_ENCODED_BLOCK + DECODED_TAIL_LENGTH[tail]];
+        int out = 0;
+        int modulus = 0;
+        long bitWorkArea = 0;
+        for (int i = 0; i < length; i++) {
+            int value = decodeChar(s.charAt(i));
+            if (value == -1) {
+                continue;
             }
-        }
-
-        if (eof && modulus >= 2) {
-            ensureBufferSize(decodeSize);
-
-            switch (modulus) {
-                case 2:
-                    buffer[position++] = (byte) ((bitWorkArea >> 2) & MASK_8_BITS);
-                    break;
-                case 3:
-                    buffer[position++] = (byte) ((bitWorkArea >> 7) & MASK_8_BITS);
-                    break;
-                case 4:
-                    bitWorkArea = bitWorkArea >> 4;
-                    buffer[position++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea) & MASK_8_BITS);
-                    break;
-                case 5:
-                    bitWorkArea = bitWorkArea >> 1;
-                    buffer[position++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea) & MASK_8_BITS);
-                    break;
-                case 6:
-                    bitWorkArea = bitWorkArea >> 6;
-                    buffer[position++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea) & MASK_8_BITS);
-                    break;
-                case 7:
-                    bitWorkArea = bitWorkArea >> 3;
-                    buffer[position++] = (byte) ((bitWorkArea >> 24) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
-                    buffer[position++] = (byte) ((bitWorkArea) & MASK_8_BITS);
-                    break;
+            bitWorkArea = (bitWorkArea << BITS_PER_ENCODED_BYTE) + value;
+            modulus = (modulus + 1) % BYTES_PER_ENCODED_BLOCK;
+            if (modulus == 0) {
+                result[out++] = (byte) ((bitWorkArea >> 32) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 24) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
+                result[out++] = (byte) (bitWorkArea & MASK_8_BITS);
             }
         }
+        switch (modulus) {
+            case 2:
+                result[out] = (byte) ((bitWorkArea >> 2) & MASK_8_BITS);
+                break;
+            case 3:
+                result[out] = (byte) ((bitWorkArea >> 7) & MASK_8_BITS);
+                break;
+            case 4:
+                bitWorkArea = bitWorkArea >> 4;
+                result[out++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
+                result[out] = (byte) ((bitWorkArea) & MASK_8_BITS);
+                break;
+            case 5:
+                bitWorkArea = bitWorkArea >> 1;
+                result[out++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
+                result[out] = (byte) ((bitWorkArea) & MASK_8_BITS);
+                break;
+            case 6:
+                bitWorkArea = bitWorkArea >> 6;
+                result[out++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
+                result[out] = (byte) ((bitWorkArea) & MASK_8_BITS);
+                break;
+            case 7:
+                bitWorkArea = bitWorkArea >> 3;
+                result[out++] = (byte) ((bitWorkArea >> 24) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 16) & MASK_8_BITS);
+                result[out++] = (byte) ((bitWorkArea >> 8) & MASK_8_BITS);
+                result[out] = (byte) ((bitWorkArea) & MASK_8_BITS);
+                break;
+        }
+        return result;
     }
 }
\ No newline at end of file
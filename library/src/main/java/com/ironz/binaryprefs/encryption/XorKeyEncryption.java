@@ -13,12 +13,14 @@ public final class XorKeyEncryption implements KeyEncryption {
 
     private final byte[] xor;
     private final SafeEncoder safeEncoder;
+    private final byte fold;
 
     public XorKeyEncryption(byte[] xor) {
         this.xor = xor;
         this.safeEncoder = new SafeEncoder();
         checkLength();
         checkMirror();
+        this.fold = foldXor();
     }
 
     private void checkLength() {
@@ -48,32 +50,34 @@ public final class XorKeyEncryption implements KeyEncryption {
     @Override
     public String encrypt(String name) {
         byte[] original = name.getBytes();
-        byte[] bytes = xorName(original);
-        return safeEncoder.encodeToString(bytes);
+        xorName(original);
+        return safeEncoder.encodeToString(original);
     }
 
     @Override
     public String decrypt(String name) {
         byte[] decode = safeEncoder.decode(name);
-        byte[] bytes = xorName(decode);
-        return new String(bytes);
+        xorName(decode);
+        return new String(decode);
     }
 
-    private byte[] xorName(byte[] original) {
-        int length = original.length;
-        byte[] result = new byte[length];
-        for (int index = 0; index < length; index++) {
-            byte b = original[index];
-            result[index] = xorByte(b);
-        }
-        return result;
-    }
-
-    private byte xorByte(byte raw) {
-        byte temp = raw;
+    /**
+     * Sequential xor with every key byte is equal to xor with all key bytes folded into one.
+     */
+    private byte foldXor() {
+        byte temp = 0;
         for (byte b : xor) {
             temp ^= b;
         }
         return temp;
     }
+
+    /**
+     * Applies xor in place, given array is always temporary.
+     */
+    private void xorName(byte[] bytes) {
+        for (int index = 0; index < bytes.length; index++) {
+            bytes[index] ^= fold;
+        }
+    }
 }
\ No newline at end of file
@@ -13,6 +13,7 @@ import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
 import com.ironz.binaryprefs.cache.provider.CacheProvider;
 import com.ironz.binaryprefs.encryption.ValueEncryption;
 import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.task.TaskExecutor;
 
@@ -202,13 +203,24 @@ public final class BroadcastEventBridge implements EventBridge {
     }
 
     @Override
-    public void notifyListenersUpdate(String key, byte[] bytes) {
+    public void notifyListenersCommit(List<TransactionElement> transaction) {
+        for (TransactionElement element : transaction) {
+            String name = element.getName();
+            if (element.getAction() == TransactionElement.ACTION_REMOVE) {
+                notifyListenersRemove(name);
+            }
+            if (element.getAction() == TransactionElement.ACTION_UPDATE) {
+                notifyListenersUpdate(name, element.getContent());
+            }
+        }
+    }
+
+    private void notifyListenersUpdate(String key, byte[] bytes) {
         notifyListenersHandler(key);
         sendUpdateIntent(key, bytes);
     }
 
-    @Override
-    public void notifyListenersRemove(String key) {
+    private void notifyListenersRemove(String key) {
         notifyListenersHandler(key);
         sendRemoveIntent(key);
     }
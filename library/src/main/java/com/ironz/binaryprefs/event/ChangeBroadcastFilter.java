@@ -0,0 +1,55 @@
+package com.ironz.binaryprefs.event;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Decides which change broadcasts of {@link GenerationEventBridge} should be handled.
+ * Broadcasts of one sender could be delivered out of order and each of them carries
+ * its own keys, so only exact duplicates are skipped. Last {@link #WINDOW_SIZE} sequences
+ * are remembered for each sender, older broadcast is always accepted because
+ * {@link ChangeReloader} applies keys by their current state on disk.
+ * Should be accessed from one thread only.
+ */
+final class ChangeBroadcastFilter {
+
+    static final int WINDOW_SIZE = 64;
+
+    private final String prefName;
+    private final int processId;
+    private final Map<String, TreeSet<Long>> received = new HashMap<>();
+
+    ChangeBroadcastFilter(String prefName, int processId) {
+        this.prefName = prefName;
+        this.processId = processId;
+    }
+
+    /**
+     * @param name            preferences name of broadcast
+     * @param senderProcessId process id of broadcast sender
+     * @param sender          unique id of sender instance
+     * @param sequence        sender sequence of broadcast
+     * @return {@code true} if broadcast should be handled, {@code false} otherwise
+     */
+    boolean accept(String name, int senderProcessId, String sender, long sequence) {
+        if (!prefName.equals(name)) {
+            return false;
+        }
+        if (processId == senderProcessId) {
+            return false;
+        }
+        TreeSet<Long> sequences = received.get(sender);
+        if (sequences == null) {
+            sequences = new TreeSet<>();
+            received.put(sender, sequences);
+        }
+        if (!sequences.add(sequence)) {
+            return false;
+        }
+        if (sequences.size() > WINDOW_SIZE) {
+            sequences.pollFirst();
+        }
+        return true;
+    }
+}
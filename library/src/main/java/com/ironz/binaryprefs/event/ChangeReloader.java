@@ -0,0 +1,101 @@
+package com.ironz.binaryprefs.event;
+
+import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Applies keys which has been changed by another process to in-memory cache.
+ * Broadcasts could be delivered out of order, so key is treated as removed or updated
+ * by presence of its file on disk rather than by broadcast. Changed values are evicted
+ * from cache or read from disk right away.
+ */
+final class ChangeReloader {
+
+    private final CacheCandidateProvider cacheCandidateProvider;
+    private final CacheProvider cacheProvider;
+    private final SerializerFactory serializerFactory;
+    private final FileTransaction fileTransaction;
+    private final boolean lazyReload;
+
+    /**
+     * @param lazyReload {@code true} if changed values should be evicted from cache and read from
+     *                   disk on next access, {@code false} if they should be read right away
+     */
+    ChangeReloader(CacheCandidateProvider cacheCandidateProvider,
+                   CacheProvider cacheProvider,
+                   SerializerFactory serializerFactory,
+                   FileTransaction fileTransaction,
+                   boolean lazyReload) {
+        this.cacheCandidateProvider = cacheCandidateProvider;
+        this.cacheProvider = cacheProvider;
+        this.serializerFactory = serializerFactory;
+        this.fileTransaction = fileTransaction;
+        this.lazyReload = lazyReload;
+    }
+
+    /**
+     * @param updated keys which has been updated
+     * @param removed keys which has been removed
+     * @return all changed keys in order of applying
+     */
+    List<String> reload(String[] updated, String[] removed) {
+        List<String> keys = new ArrayList<>(updated.length + removed.length);
+        fileTransaction.lockRead();
+        try {
+            Set<String> names = fileTransaction.fetchNames();
+            for (String key : removed) {
+                reload(names, key);
+                keys.add(key);
+            }
+            for (String key : updated) {
+                reload(names, key);
+                keys.add(key);
+            }
+        } finally {
+            fileTransaction.unlockRead();
+        }
+        return keys;
+    }
+
+    private void reload(Set<String> names, String key) {
+        if (names.contains(key)) {
+            update(key);
+            return;
+        }
+        remove(key);
+    }
+
+    private void remove(String key) {
+        cacheCandidateProvider.remove(key);
+        cacheProvider.remove(key);
+    }
+
+    /**
+     * Value which can't be read is treated as removed, so remaining keys are still applied.
+     */
+    private void update(String key) {
+        cacheCandidateProvider.put(key);
+        if (lazyReload) {
+            cacheProvider.remove(key);
+            return;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = fileTransaction.fetchOneBuffer(key);
+        } catch (FileOperationException e) {
+            remove(key);
+            return;
+        }
+        int size = buffer.remaining();
+        Object value = serializerFactory.deserialize(key, buffer);
+        cacheProvider.putFetched(key, value, size);
+    }
+}
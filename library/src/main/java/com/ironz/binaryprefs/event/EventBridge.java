@@ -2,6 +2,10 @@ package com.ironz.binaryprefs.event;
 
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+
+import java.util.List;
+
 /**
  * Describes contract for preferences change events
  */
@@ -26,18 +30,10 @@ public interface EventBridge {
     void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener);
 
     /**
-     * Notifies all listeners which has been subscribed on preferences changes about preference update
-     *  @param key         target key
-     * @param bytes       target bytes
-     */
-    void notifyListenersUpdate(String key, byte[] bytes);
-
-    /**
-     * Notifies all listeners which has been subscribed on preferences changes about preference remove
+     * Notifies all listeners which has been subscribed on preferences changes about
+     * all updated and removed preferences of one committed transaction.
      *
-     * @param key         target key
+     * @param transaction committed transaction elements
      */
-    void notifyListenersRemove(String key);
-
-
+    void notifyListenersCommit(List<TransactionElement> transaction);
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package com.ironz.binaryprefs.event;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+
+import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.task.TaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Uses global broadcast receiver mechanism for delivering key change events between processes.
+ * Unlike {@link BroadcastEventBridge} values are never transferred: all keys of one committed
+ * transaction are sent in single broadcast with sender sequence number and receivers
+ * reload changed keys from disk. Broadcasts could be delivered out of order, so only duplicated
+ * ones are skipped by sequence, see {@link ChangeBroadcastFilter}. If {@link ChangeJournal}
+ * is used, cache is already kept coherent before each read, so broadcasts only notify listeners
+ * and changed values aren't read from disk twice.
+ * Uses UI thread for delivering key changes.
+ */
+public final class GenerationEventBridge implements EventBridge {
+
+    private static final String INTENT_PREFIX = "com.ironz.binaryprefs.";
+    private static final String ACTION_PREFERENCE_CHANGED = INTENT_PREFIX + "ACTION_PREFERENCE_CHANGED_";
+
+    private static final String PREFERENCE_NAME = "preference_name";
+    private static final String PREFERENCE_UPDATED_KEYS = "preference_updated_keys";
+    private static final String PREFERENCE_REMOVED_KEYS = "preference_removed_keys";
+    private static final String PREFERENCE_PROCESS_ID = "preference_process_id";
+    private static final String PREFERENCE_SOURCE = "preference_source";
+    private static final String PREFERENCE_SEQUENCE = "preference_sequence";
+
+    private static final int DEFAULT_PROCESS_ID = 0;
+    private static final long DEFAULT_SEQUENCE = 0;
+    private static final String[] EMPTY_KEYS = {};
+
+    private final List<OnSharedPreferenceChangeListener> currentListeners;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final AtomicLong sequence = new AtomicLong(DEFAULT_SEQUENCE);
+
+    private final Context context;
+    private final String prefName;
+    private final TaskExecutor taskExecutor;
+    private final ChangeReloader changeReloader;
+    private final ChangeJournal journal;
+
+    private final String actionName;
+    private final String source;
+    private final int processId;
+    /**
+     * Accessed only from main thread receiver.
+     */
+    private final ChangeBroadcastFilter changeFilter;
+    private final BroadcastReceiver changeReceiver;
+
+    /**
+     * Creates event bridge.
+     *
+     * @param journal    journal which keeps cache coherent or {@link ChangeJournal#NO_OP}
+     *                   if cache should be reloaded by broadcasts
+     * @param lazyReload {@code true} if changed values should be evicted from cache and read from
+     *                   disk on next access, {@code false} if they should be read in background right
+     *                   after notification
+     */
+    public GenerationEventBridge(Context context,
+                                 String prefName,
+                                 CacheCandidateProvider cacheCandidateProvider,
+                                 CacheProvider cacheProvider,
+                                 SerializerFactory serializerFactory,
+                                 TaskExecutor taskExecutor,
+                                 FileTransaction fileTransaction,
+                                 DirectoryProvider directoryProvider,
+                                 Map<String, List<OnSharedPreferenceChangeListener>> allListeners,
+                                 ChangeJournal journal,
+                                 boolean lazyReload) {
+        this.context = context;
+        this.prefName = prefName;
+        this.taskExecutor = taskExecutor;
+        this.changeReloader = new ChangeReloader(
+                cacheCandidateProvider,
+                cacheProvider,
+                serializerFactory,
+                fileTransaction,
+                lazyReload
+        );
+        this.journal = journal;
+        this.actionName = createActionName(directoryProvider);
+        this.currentListeners = putIfAbsentListeners(prefName, allListeners);
+        this.source = UUID.randomUUID().toString();
+        this.processId = Process.myPid();
+        this.changeFilter = new ChangeBroadcastFilter(prefName, processId);
+        this.changeReceiver = createChangeReceiver();
+    }
+
+    private String createActionName(DirectoryProvider directoryProvider) {
+        return ACTION_PREFERENCE_CHANGED + directoryProvider.getStoreDirectory().getAbsolutePath();
+    }
+
+    private List<OnSharedPreferenceChangeListener> putIfAbsentListeners(String prefName, Map<String,
+            List<OnSharedPreferenceChangeListener>> allListeners) {
+        if (allListeners.containsKey(prefName)) {
+            return allListeners.get(prefName);
+        }
+        List<OnSharedPreferenceChangeListener> listeners = new ArrayList<>();
+        allListeners.put(prefName, listeners);
+        return listeners;
+    }
+
+    private BroadcastReceiver createChangeReceiver() {
+        return new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context context, Intent intent) {
+                notifyChange(intent);
+            }
+        };
+    }
+
+    private void notifyChange(Intent intent) {
+        String name = intent.getStringExtra(PREFERENCE_NAME);
+        int senderProcessId = intent.getIntExtra(PREFERENCE_PROCESS_ID, DEFAULT_PROCESS_ID);
+        String sender = intent.getStringExtra(PREFERENCE_SOURCE);
+        long senderSequence = intent.getLongExtra(PREFERENCE_SEQUENCE, DEFAULT_SEQUENCE);
+        if (!changeFilter.accept(name, senderProcessId, sender, senderSequence)) {
+            return;
+        }
+
+        String[] updated = keysExtra(intent, PREFERENCE_UPDATED_KEYS);
+        String[] removed = keysExtra(intent, PREFERENCE_REMOVED_KEYS);
+
+        if (journal != ChangeJournal.NO_OP) {
+            notifyListenersInternal(concat(removed, updated));
+            return;
+        }
+        reloadTask(updated, removed);
+    }
+
+    private String[] keysExtra(Intent intent, String name) {
+        String[] keys = intent.getStringArrayExtra(name);
+        if (keys == null) {
+            return EMPTY_KEYS;
+        }
+        return keys;
+    }
+
+    private List<String> concat(String[] removed, String[] updated) {
+        List<String> keys = new ArrayList<>(removed.length + updated.length);
+        keys.addAll(Arrays.asList(removed));
+        keys.addAll(Arrays.asList(updated));
+        return keys;
+    }
+
+    private void reloadTask(final String[] updated, final String[] removed) {
+        taskExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                reloadInternal(updated, removed);
+            }
+        });
+    }
+
+    private void reloadInternal(String[] updated, String[] removed) {
+        List<String> keys = changeReloader.reload(updated, removed);
+        notifyListenersHandler(keys);
+    }
+
+    @Override
+    public void registerOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        if (currentListeners.isEmpty()) {
+            subscribeReceiver();
+        }
+        currentListeners.add(listener);
+    }
+
+    @Override
+    public void unregisterOnSharedPreferenceChangeListener(OnSharedPreferenceChangeListener listener) {
+        currentListeners.remove(listener);
+        if (currentListeners.isEmpty()) {
+            unSubscribeReceiver();
+        }
+    }
+
+    private void subscribeReceiver() {
+        context.registerReceiver(changeReceiver, new IntentFilter(actionName));
+    }
+
+    private void unSubscribeReceiver() {
+        context.unregisterReceiver(changeReceiver);
+    }
+
+    /**
+     * Called from commit task, so broadcast is sent right from the current thread.
+     */
+    @Override
+    public void notifyListenersCommit(List<TransactionElement> transaction) {
+        if (transaction.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>(transaction.size());
+        List<String> updated = new ArrayList<>(transaction.size());
+        List<String> removed = new ArrayList<>();
+        for (TransactionElement element : transaction) {
+            String name = element.getName();
+            keys.add(name);
+            if (element.getAction() == TransactionElement.ACTION_REMOVE) {
+                removed.add(name);
+            }
+            if (element.getAction() == TransactionElement.ACTION_UPDATE) {
+                updated.add(name);
+            }
+        }
+        notifyListenersHandler(keys);
+        sendChangeIntent(updated, removed);
+    }
+
+    private void notifyListenersHandler(final List<String> keys) {
+        handler.post(new Runnable() {
+            @Override
+            public void run() {
+                notifyListenersInternal(keys);
+            }
+        });
+    }
+
+    private void notifyListenersInternal(List<String> keys) {
+        List<OnSharedPreferenceChangeListener> temp = new ArrayList<>(currentListeners);
+        for (String key : keys) {
+            for (OnSharedPreferenceChangeListener listener : temp) {
+                listener.onSharedPreferenceChanged(null, key);
+            }
+        }
+    }
+
+    private void sendChangeIntent(List<String> updated, List<String> removed) {
+        Intent intent = new Intent(actionName);
+        intent.putExtra(PREFERENCE_PROCESS_ID, processId);
+        intent.putExtra(PREFERENCE_NAME, prefName);
+        intent.putExtra(PREFERENCE_SOURCE, source);
+        intent.putExtra(PREFERENCE_SEQUENCE, sequence.incrementAndGet());
+        intent.putExtra(PREFERENCE_UPDATED_KEYS, updated.toArray(new String[updated.size()]));
+        intent.putExtra(PREFERENCE_REMOVED_KEYS, removed.toArray(new String[removed.size()]));
+        context.sendBroadcast(intent);
+    }
+}
@@ -4,6 +4,8 @@ import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 import android.os.Handler;
 import android.os.Looper;
 
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -41,22 +43,23 @@ public final class MainThreadEventBridge implements EventBridge {
     }
 
     @Override
-    public void notifyListenersUpdate(final String key, byte[] bytes) {
-        notifyListeners(key);
-    }
-
-    @Override
-    public void notifyListenersRemove(String key) {
-        notifyListeners(key);
+    public void notifyListenersCommit(List<TransactionElement> transaction) {
+        final List<String> keys = new ArrayList<>(transaction.size());
+        for (TransactionElement element : transaction) {
+            keys.add(element.getName());
+        }
+        notifyListeners(keys);
     }
 
-    private void notifyListeners(final String key) {
+    private void notifyListeners(final List<String> keys) {
         handler.post(new Runnable() {
             @Override
             public void run() {
                 List<OnSharedPreferenceChangeListener> temp = new ArrayList<>(currentListeners);
-                for (OnSharedPreferenceChangeListener listener : temp) {
-                    listener.onSharedPreferenceChanged(null, key);
+                for (String key : keys) {
+                    for (OnSharedPreferenceChangeListener listener : temp) {
+                        listener.onSharedPreferenceChanged(null, key);
+                    }
                 }
             }
         });
@@ -3,44 +3,72 @@ package com.ironz.binaryprefs.fetch;
 import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
 import com.ironz.binaryprefs.cache.provider.CacheProvider;
 import com.ironz.binaryprefs.file.transaction.FileTransaction;
-import com.ironz.binaryprefs.file.transaction.TransactionElement;
 import com.ironz.binaryprefs.lock.LockFactory;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.task.TaskExecutor;
 import com.ironz.binaryprefs.task.barrier.FutureBarrier;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
 public final class EagerFetchStrategy implements FetchStrategy {
 
-    private final Lock readLock;
+    private static final int LOAD_THREADS_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private final Lock writeLock;
+    private final Lock allKeysReadLock;
     private final TaskExecutor taskExecutor;
+    private final ExecutorService loadPool;
     private final CacheCandidateProvider candidateProvider;
     private final CacheProvider cacheProvider;
     private final FileTransaction fileTransaction;
     private final SerializerFactory serializerFactory;
+    private final boolean parallelLoad;
 
+    /**
+     * Creates strategy which fills whole cache during construction.
+     *
+     * @param loadPool     pool which runs load workers, usually the same pool which runs
+     *                     tasks of {@link TaskExecutor}
+     * @param parallelLoad {@code true} if values should be read, decrypted and
+     *                     deserialized by load pool workers while process lock
+     *                     is held by initialization task, {@code false} for loading
+     *                     all values sequentially in initialization task
+     */
     public EagerFetchStrategy(LockFactory lockFactory,
                               TaskExecutor taskExecutor,
+                              ExecutorService loadPool,
                               CacheCandidateProvider candidateProvider,
                               CacheProvider cacheProvider,
                               FileTransaction fileTransaction,
-                              SerializerFactory serializerFactory) {
-        this.readLock = lockFactory.getReadLock();
+                              SerializerFactory serializerFactory,
+                              boolean parallelLoad) {
+        this.writeLock = lockFactory.getWriteLock();
+        this.allKeysReadLock = lockFactory.getAllKeysReadLock();
         this.taskExecutor = taskExecutor;
+        this.loadPool = loadPool;
         this.candidateProvider = candidateProvider;
         this.cacheProvider = cacheProvider;
         this.fileTransaction = fileTransaction;
         this.serializerFactory = serializerFactory;
+        this.parallelLoad = parallelLoad;
         fetchCache();
     }
 
     private void fetchCache() {
-        readLock.lock();
+        writeLock.lock();
         try {
             FutureBarrier barrier = taskExecutor.submit(new Runnable() {
                 @Override
@@ -50,25 +78,110 @@ public final class EagerFetchStrategy implements FetchStrategy {
             });
             barrier.completeBlockingUnsafe();
         } finally {
-            readLock.unlock();
+            writeLock.unlock();
         }
     }
 
     private void fetchCacheInternal() {
-        fileTransaction.lock();
+        fileTransaction.lockRead();
         try {
             if (!shouldFetch()) {
                 return;
             }
-            for (TransactionElement element : fileTransaction.fetchAll()) {
-                String name = element.getName();
-                byte[] bytes = element.getContent();
-                Object o = serializerFactory.deserialize(name, bytes);
-                cacheProvider.put(name, o);
-                candidateProvider.put(name);
+            Set<String> names = fileTransaction.fetchNames();
+            if (parallelLoad && names.size() > 1) {
+                fetchParallel(names);
+                return;
+            }
+            for (String name : names) {
+                fetchOne(name);
             }
         } finally {
-            fileTransaction.unlock();
+            fileTransaction.unlockRead();
+        }
+    }
+
+    /**
+     * Shares names between pool workers and current thread. Current thread
+     * holds process lock, so it doesn't leave until all started workers are finished.
+     * Initialization task could occupy the same pool, so workers which haven't been
+     * started yet are claimed by current thread and cancelled instead of awaited.
+     */
+    private void fetchParallel(Set<String> names) {
+        final String[] all = names.toArray(new String[names.size()]);
+        final AtomicInteger cursor = new AtomicInteger();
+        int workers = Math.min(LOAD_THREADS_COUNT, all.length - 1);
+        List<Future<Void>> futures = new ArrayList<>(workers);
+        List<AtomicBoolean> claims = new ArrayList<>(workers);
+        for (int i = 0; i < workers; i++) {
+            final AtomicBoolean claim = new AtomicBoolean();
+            claims.add(claim);
+            futures.add(loadPool.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    if (claim.compareAndSet(false, true)) {
+                        fetchRemaining(all, cursor);
+                    }
+                    return null;
+                }
+            }));
+        }
+        RuntimeException failure = null;
+        try {
+            fetchRemaining(all, cursor);
+        } catch (RuntimeException e) {
+            cursor.set(all.length);
+            failure = e;
+        }
+        for (int i = 0; i < workers; i++) {
+            Future<Void> future = futures.get(i);
+            if (claims.get(i).compareAndSet(false, true)) {
+                future.cancel(false);
+                continue;
+            }
+            Throwable t = awaitUninterruptibly(future);
+            if (t != null && failure == null) {
+                cursor.set(all.length);
+                failure = t instanceof RuntimeException ? (RuntimeException) t : new RuntimeException(t);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void fetchRemaining(String[] names, AtomicInteger cursor) {
+        int index;
+        while ((index = cursor.getAndIncrement()) < names.length) {
+            fetchOne(names[index]);
+        }
+    }
+
+    private void fetchOne(String name) {
+        ByteBuffer buffer = fileTransaction.fetchOneBuffer(name);
+        int size = buffer.remaining();
+        Object o = serializerFactory.deserialize(name, buffer);
+        cacheProvider.putFetched(name, o, size);
+        candidateProvider.put(name);
+    }
+
+    private Throwable awaitUninterruptibly(Future<Void> future) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    future.get();
+                    return null;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    return e.getCause();
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
         }
     }
 
@@ -80,21 +193,88 @@ public final class EagerFetchStrategy implements FetchStrategy {
 
     @Override
     public Object getValue(String key, Object defValue) {
-        readLock.lock();
-        try {
-            Object o = cacheProvider.get(key);
-            if (o == null) {
-                return defValue;
-            }
-            return serializerFactory.redefineMutable(o);
-        } finally {
-            readLock.unlock();
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
         }
+        return serializerFactory.redefineMutable(o);
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (int) o;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (long) o;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (float) o;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (boolean) o;
+    }
+
+    @Override
+    public byte getByte(String key, byte defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (byte) o;
+    }
+
+    @Override
+    public short getShort(String key, short defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (short) o;
+    }
+
+    @Override
+    public char getChar(String key, char defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (char) o;
+    }
+
+    @Override
+    public double getDouble(String key, double defValue) {
+        Object o = cacheProvider.get(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (double) o;
     }
 
     @Override
     public Map<String, Object> getAll() {
-        readLock.lock();
+        allKeysReadLock.lock();
         try {
             Map<String, Object> all = cacheProvider.getAll();
             Map<String, Object> clone = new HashMap<>(all.size());
@@ -105,17 +285,12 @@ public final class EagerFetchStrategy implements FetchStrategy {
             }
             return Collections.unmodifiableMap(clone);
         } finally {
-            readLock.unlock();
+            allKeysReadLock.unlock();
         }
     }
 
     @Override
     public boolean contains(String key) {
-        readLock.lock();
-        try {
-            return cacheProvider.contains(key);
-        } finally {
-            readLock.unlock();
-        }
+        return cacheProvider.contains(key);
     }
-}
\ No newline at end of file
+}
@@ -15,6 +15,78 @@ public interface FetchStrategy {
      */
     Object getValue(String key, Object defValue);
 
+    /**
+     * Returns {@code int} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    int getInt(String key, int defValue);
+
+    /**
+     * Returns {@code long} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    long getLong(String key, long defValue);
+
+    /**
+     * Returns {@code float} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    float getFloat(String key, float defValue);
+
+    /**
+     * Returns {@code boolean} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    boolean getBoolean(String key, boolean defValue);
+
+    /**
+     * Returns {@code byte} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    byte getByte(String key, byte defValue);
+
+    /**
+     * Returns {@code short} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    short getShort(String key, short defValue);
+
+    /**
+     * Returns {@code char} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    char getChar(String key, char defValue);
+
+    /**
+     * Returns {@code double} value for target key without boxing of default value.
+     *
+     * @param key      given key for fetching
+     * @param defValue default value if target value does not exists
+     * @return actual value if exists, default value otherwise
+     */
+    double getDouble(String key, double defValue);
+
     /**
      * Returns all value from current cache.
      *
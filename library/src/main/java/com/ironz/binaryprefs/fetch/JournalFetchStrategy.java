@@ -0,0 +1,240 @@
+package com.ironz.binaryprefs.fetch;
+
+import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.task.TaskExecutor;
+
+import java.nio.ByteBuffer;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Fetch strategy decorator which keeps in-memory cache coherent with other processes.
+ * Before each read {@link ChangeJournal} is checked and keys which has been changed
+ * by other processes are evicted (lazy reload) or read from disk again (eager reload).
+ * If journal records has been lost all keys are treated as changed. Removal is matched
+ * against names on disk, so key which collides by hash with removed one is read again.
+ * Sync never throws into getters: failures are passed to task executor exception handler.
+ */
+public final class JournalFetchStrategy implements FetchStrategy {
+
+    private final FetchStrategy fetchStrategy;
+    private final ChangeJournal journal;
+    private final Lock writeLock;
+    private final TaskExecutor taskExecutor;
+    private final CacheCandidateProvider candidateProvider;
+    private final CacheProvider cacheProvider;
+    private final FileTransaction fileTransaction;
+    private final SerializerFactory serializerFactory;
+    private final boolean lazyReload;
+
+    public JournalFetchStrategy(FetchStrategy fetchStrategy,
+                                ChangeJournal journal,
+                                LockFactory lockFactory,
+                                TaskExecutor taskExecutor,
+                                CacheCandidateProvider candidateProvider,
+                                CacheProvider cacheProvider,
+                                FileTransaction fileTransaction,
+                                SerializerFactory serializerFactory,
+                                boolean lazyReload) {
+        this.fetchStrategy = fetchStrategy;
+        this.journal = journal;
+        this.writeLock = lockFactory.getWriteLock();
+        this.taskExecutor = taskExecutor;
+        this.candidateProvider = candidateProvider;
+        this.cacheProvider = cacheProvider;
+        this.fileTransaction = fileTransaction;
+        this.serializerFactory = serializerFactory;
+        this.lazyReload = lazyReload;
+    }
+
+    @Override
+    public Object getValue(String key, Object defValue) {
+        sync();
+        return fetchStrategy.getValue(key, defValue);
+    }
+
+    @Override
+    public int getInt(String key, int defValue) {
+        sync();
+        return fetchStrategy.getInt(key, defValue);
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        sync();
+        return fetchStrategy.getLong(key, defValue);
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        sync();
+        return fetchStrategy.getFloat(key, defValue);
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        sync();
+        return fetchStrategy.getBoolean(key, defValue);
+    }
+
+    @Override
+    public byte getByte(String key, byte defValue) {
+        sync();
+        return fetchStrategy.getByte(key, defValue);
+    }
+
+    @Override
+    public short getShort(String key, short defValue) {
+        sync();
+        return fetchStrategy.getShort(key, defValue);
+    }
+
+    @Override
+    public char getChar(String key, char defValue) {
+        sync();
+        return fetchStrategy.getChar(key, defValue);
+    }
+
+    @Override
+    public double getDouble(String key, double defValue) {
+        sync();
+        return fetchStrategy.getDouble(key, defValue);
+    }
+
+    @Override
+    public Map<String, Object> getAll() {
+        sync();
+        return fetchStrategy.getAll();
+    }
+
+    @Override
+    public boolean contains(String key) {
+        sync();
+        return fetchStrategy.contains(key);
+    }
+
+    private void sync() {
+        if (!journal.isChanged()) {
+            return;
+        }
+        syncLocked();
+    }
+
+    /**
+     * Write lock keeps editors away while cache is changed, disk is read
+     * in task executor under shared process lock like in other fetch strategies.
+     */
+    private void syncLocked() {
+        writeLock.lock();
+        try {
+            final Set<Integer> updated = new HashSet<>();
+            final Set<Integer> removed = new HashSet<>();
+            final boolean complete = journal.poll(updated, removed);
+            if (complete && updated.isEmpty() && removed.isEmpty()) {
+                return;
+            }
+            taskExecutor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    reloadLocked(updated, removed, complete);
+                }
+            }).completeBlockingWithStatus();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void reloadLocked(Set<Integer> updated, Set<Integer> removed, boolean complete) {
+        fileTransaction.lockRead();
+        try {
+            reload(updated, removed, complete);
+        } finally {
+            fileTransaction.unlockRead();
+        }
+    }
+
+    private void reload(Set<Integer> updated, Set<Integer> removed, boolean complete) {
+        Set<String> names = complete && removed.isEmpty() ? null : fileTransaction.fetchNames();
+        Set<String> stale = new HashSet<>();
+        Set<Integer> found = new HashSet<>();
+        for (String key : candidateProvider.keys()) {
+            int hash = key.hashCode();
+            if (removed.contains(hash)) {
+                if (names.contains(key)) {
+                    stale.add(key);
+                } else {
+                    remove(key);
+                }
+            }
+            if (updated.contains(hash)) {
+                stale.add(key);
+                found.add(hash);
+            }
+        }
+        if (!complete || found.size() < updated.size()) {
+            if (names == null) {
+                names = fileTransaction.fetchNames();
+            }
+            stale.addAll(resolveNames(names, updated, complete));
+        }
+        for (String key : stale) {
+            update(key);
+        }
+    }
+
+    /**
+     * Hashes of new keys can't be resolved from cache, so names on disk are matched.
+     */
+    private Set<String> resolveNames(Set<String> names, Set<Integer> updated, boolean complete) {
+        if (complete) {
+            Set<String> stale = new HashSet<>();
+            for (String name : names) {
+                if (updated.contains(name.hashCode())) {
+                    stale.add(name);
+                }
+            }
+            return stale;
+        }
+        for (String key : candidateProvider.keys()) {
+            if (!names.contains(key)) {
+                remove(key);
+            }
+        }
+        return names;
+    }
+
+    private void remove(String key) {
+        candidateProvider.remove(key);
+        cacheProvider.remove(key);
+    }
+
+    /**
+     * File could be removed by another process which hasn't journaled removal yet,
+     * so missing file is treated as removal.
+     */
+    private void update(String key) {
+        candidateProvider.put(key);
+        if (lazyReload) {
+            cacheProvider.remove(key);
+            return;
+        }
+        ByteBuffer buffer;
+        try {
+            buffer = fileTransaction.fetchOneBuffer(key);
+        } catch (FileOperationException e) {
+            remove(key);
+            return;
+        }
+        int size = buffer.remaining();
+        Object value = serializerFactory.deserialize(key, buffer);
+        cacheProvider.putFetched(key, value, size);
+    }
+}
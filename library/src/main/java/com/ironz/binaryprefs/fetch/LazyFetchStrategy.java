@@ -3,12 +3,12 @@ package com.ironz.binaryprefs.fetch;
 import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
 import com.ironz.binaryprefs.cache.provider.CacheProvider;
 import com.ironz.binaryprefs.file.transaction.FileTransaction;
-import com.ironz.binaryprefs.file.transaction.TransactionElement;
 import com.ironz.binaryprefs.lock.LockFactory;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.task.TaskExecutor;
 import com.ironz.binaryprefs.task.barrier.FutureBarrier;
 
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,7 +18,8 @@ import java.util.concurrent.locks.Lock;
 
 public final class LazyFetchStrategy implements FetchStrategy {
 
-    private final Lock readLock;
+    private final LockFactory lockFactory;
+    private final Lock allKeysReadLock;
     private final TaskExecutor taskExecutor;
     private final CacheCandidateProvider candidateProvider;
     private final CacheProvider cacheProvider;
@@ -31,7 +32,8 @@ public final class LazyFetchStrategy implements FetchStrategy {
                              CacheProvider cacheProvider,
                              FileTransaction fileTransaction,
                              SerializerFactory serializerFactory) {
-        this.readLock = lockFactory.getReadLock();
+        this.lockFactory = lockFactory;
+        this.allKeysReadLock = lockFactory.getAllKeysReadLock();
         this.taskExecutor = taskExecutor;
         this.candidateProvider = candidateProvider;
         this.cacheProvider = cacheProvider;
@@ -41,13 +43,13 @@ public final class LazyFetchStrategy implements FetchStrategy {
     }
 
     private void fetchCacheCandidates() {
-        readLock.lock();
+        allKeysReadLock.lock();
         try {
             for (String name : fileTransaction.fetchNames()) {
                 candidateProvider.put(name);
             }
         } finally {
-            readLock.unlock();
+            allKeysReadLock.unlock();
         }
     }
 
@@ -56,6 +58,78 @@ public final class LazyFetchStrategy implements FetchStrategy {
         return getValueInternal(key, defValue);
     }
 
+    @Override
+    public int getInt(String key, int defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (int) o;
+    }
+
+    @Override
+    public long getLong(String key, long defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (long) o;
+    }
+
+    @Override
+    public float getFloat(String key, float defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (float) o;
+    }
+
+    @Override
+    public boolean getBoolean(String key, boolean defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (boolean) o;
+    }
+
+    @Override
+    public byte getByte(String key, byte defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (byte) o;
+    }
+
+    @Override
+    public short getShort(String key, short defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (short) o;
+    }
+
+    @Override
+    public char getChar(String key, char defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (char) o;
+    }
+
+    @Override
+    public double getDouble(String key, double defValue) {
+        Object o = getPrimitiveInternal(key);
+        if (o == null) {
+            return defValue;
+        }
+        return (double) o;
+    }
+
     @Override
     public Map<String, Object> getAll() {
         return getAllInternal();
@@ -67,6 +141,33 @@ public final class LazyFetchStrategy implements FetchStrategy {
     }
 
     private Object getValueInternal(String key, Object defValue) {
+        Object cached = cacheProvider.get(key);
+        if (cached != null) {
+            return serializerFactory.redefineMutable(cached);
+        }
+        if (!candidateProvider.contains(key)) {
+            return defValue;
+        }
+        return getValueLocked(key, defValue);
+    }
+
+    private Object getPrimitiveInternal(String key) {
+        Object cached = cacheProvider.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        if (!candidateProvider.contains(key)) {
+            return null;
+        }
+        return getValueLocked(key, null);
+    }
+
+    /**
+     * Cache miss path. Key read lock keeps editors of this key away until value
+     * is fetched and cached, otherwise stale disk value could overwrite applied one.
+     */
+    private Object getValueLocked(String key, Object defValue) {
+        Lock readLock = lockFactory.getReadLock(key);
         readLock.lock();
         try {
             Object o = getInternal(key, defValue);
@@ -85,7 +186,7 @@ public final class LazyFetchStrategy implements FetchStrategy {
         if (!candidates.contains(key)) {
             return defValue;
         }
-        FutureBarrier<Object> barrier = taskExecutor.submit(new Callable<Object>() {
+        FutureBarrier<Object> barrier = taskExecutor.submitRead(key, new Callable<Object>() {
             @Override
             public Object call() throws Exception {
                 return fetchOneFromDiskLocked(key);
@@ -95,11 +196,11 @@ public final class LazyFetchStrategy implements FetchStrategy {
     }
 
     private Map<String, Object> getAllInternal() {
-        readLock.lock();
+        allKeysReadLock.lock();
         try {
             Set<String> candidates = candidateProvider.keys();
-            Set<String> cachedKeys = cacheProvider.keys();
             Map<String, Object> allCache = cacheProvider.getAll();
+            Set<String> cachedKeys = allCache.keySet();
             if (cachedKeys.containsAll(candidates)) {
                 return Collections.unmodifiableMap(allCache);
             }
@@ -107,7 +208,7 @@ public final class LazyFetchStrategy implements FetchStrategy {
             Map<String, Object> merged = mergeCache(fetched, allCache);
             return Collections.unmodifiableMap(merged);
         } finally {
-            readLock.unlock();
+            allKeysReadLock.unlock();
         }
     }
 
@@ -130,7 +231,7 @@ public final class LazyFetchStrategy implements FetchStrategy {
     }
 
     private Map<String, Object> fetchDeltaLocked(Set<String> candidates, Set<String> cachedKeys) {
-        fileTransaction.lock();
+        fileTransaction.lockRead();
         try {
             Map<String, Object> map = new HashMap<>();
             for (String candidate : candidates) {
@@ -142,34 +243,28 @@ public final class LazyFetchStrategy implements FetchStrategy {
             }
             return map;
         } finally {
-            fileTransaction.unlock();
+            fileTransaction.unlockRead();
         }
     }
 
     private Object fetchOneFromDiskLocked(String key) {
-        fileTransaction.lock();
+        fileTransaction.lockRead();
         try {
             return fetchOneFromDisk(key);
         } finally {
-            fileTransaction.unlock();
+            fileTransaction.unlockRead();
         }
     }
 
     private Object fetchOneFromDisk(String key) {
-        TransactionElement element = fileTransaction.fetchOne(key);
-        byte[] bytes = element.getContent();
-        Object deserialize = serializerFactory.deserialize(key, bytes);
-        cacheProvider.put(key, deserialize);
+        ByteBuffer buffer = fileTransaction.fetchOneBuffer(key);
+        int size = buffer.remaining();
+        Object deserialize = serializerFactory.deserialize(key, buffer);
+        cacheProvider.putFetched(key, deserialize, size);
         return deserialize;
     }
 
     private boolean containsInternal(String key) {
-        readLock.lock();
-        try {
-            Set<String> candidates = candidateProvider.keys();
-            return candidates.contains(key);
-        } finally {
-            readLock.unlock();
-        }
+        return candidateProvider.contains(key);
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.ironz.binaryprefs.file.adapter;
+
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+
+import java.nio.ByteBuffer;
+
+/**
+ * File adapter implementation which writes each file into temporary file of backup
+ * directory and atomically renames it over original one, so original file is never
+ * partially written and backup isn't needed. See {@link AtomicFileWriter}.
+ * Reads are performed by {@link NioFileAdapter}.
+ * <p>
+ * Crash safety depends on sync policy: if temporary file is synced before rename, each
+ * file contains either old or new content after power loss. Files which are renamed
+ * without sync survive process crash, but after power loss they could be lost or empty
+ * because file system may persist rename before content. Such files are detected as
+ * corrupted on read if checksum is enabled.
+ * </p>
+ */
+public final class AtomicFileAdapter implements FileAdapter {
+
+    private final NioFileAdapter reader;
+    private final AtomicFileWriter writer;
+    private final boolean syncAlways;
+    private final boolean syncRequested;
+
+    /**
+     * @param directoryProvider directories of preferences
+     * @param syncAlways        {@code true} if each file should be synced before rename
+     * @param syncRequested     {@code true} if file should be synced before rename when
+     *                          it's requested by {@link #save(String, byte[], boolean)}
+     * @param checksum          {@code true} if files should be saved with checksum
+     */
+    public AtomicFileAdapter(DirectoryProvider directoryProvider,
+                             boolean syncAlways,
+                             boolean syncRequested,
+                             boolean checksum) {
+        this.reader = new NioFileAdapter(directoryProvider, checksum);
+        this.writer = new AtomicFileWriter(
+                directoryProvider.getStoreDirectory(),
+                directoryProvider.getBackupDirectory(),
+                checksum
+        );
+        this.syncAlways = syncAlways;
+        this.syncRequested = syncRequested;
+    }
+
+    @Override
+    public String[] names() {
+        return reader.names();
+    }
+
+    @Override
+    public byte[] fetch(String name) {
+        return reader.fetch(name);
+    }
+
+    @Override
+    public ByteBuffer fetchBuffer(String name) {
+        return reader.fetchBuffer(name);
+    }
+
+    @Override
+    public void save(String name, byte[] bytes) {
+        save(name, bytes, true);
+    }
+
+    @Override
+    public void save(String name, byte[] bytes, boolean sync) {
+        boolean force = syncAlways || (sync && syncRequested);
+        writer.save(name, bytes, force);
+    }
+
+    /**
+     * Appended file couldn't be replaced atomically, so appending isn't supported.
+     */
+    @Override
+    public boolean append(String name, byte[] bytes, int maxLength) {
+        return false;
+    }
+
+    /**
+     * Backups could be left by {@link NioFileAdapter} which has been used before.
+     */
+    @Override
+    public void restoreBackups() {
+        reader.restoreBackups();
+    }
+
+    @Override
+    public void remove(String name) {
+        reader.remove(name);
+    }
+}
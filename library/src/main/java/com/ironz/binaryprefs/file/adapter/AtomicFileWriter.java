@@ -0,0 +1,129 @@
+package com.ironz.binaryprefs.file.adapter;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Random;
+
+/**
+ * Writes each file into temporary file of backup directory and atomically renames it
+ * over original one, so original file is never partially written. Content is written
+ * through one reused direct buffer instead of growing memory mapped region of each file.
+ * Used by {@link AtomicFileAdapter} and by {@link NioFileAdapter} for checksummed files.
+ */
+final class AtomicFileWriter {
+
+    private static final String ZERO_BYTES_MESSAGE = "%s key's value is zero bytes for saving";
+    private static final String RENAME_MESSAGE = "Can't rename %s to %s";
+
+    private static final String BACKUP_EXTENSION = ".bak";
+    private static final String TEMP_NAME = "value-%016x.tmp";
+    private static final int MIN_BUFFER_SIZE = 4096;
+    private static final int MAX_RETAINED_BUFFER_SIZE = 64 * 1024;
+
+    private final File baseDir;
+    private final File backupDir;
+    private final File tempFile;
+    private final boolean checksum;
+    private final Object monitor = new Object();
+
+    private ByteBuffer buffer;
+
+    /**
+     * @param baseDir   directory of original files
+     * @param backupDir directory of temporary files and backups
+     * @param checksum  {@code true} if files should be saved with {@link ChecksumFormat} header
+     */
+    AtomicFileWriter(File baseDir, File backupDir, boolean checksum) {
+        this.baseDir = baseDir;
+        this.backupDir = backupDir;
+        this.tempFile = new File(backupDir, String.format(TEMP_NAME, new Random().nextLong()));
+        this.checksum = checksum;
+    }
+
+    /**
+     * Backup which could be left by {@link NioFileAdapter} is removed,
+     * otherwise it would replace new file on fetch.
+     *
+     * @param name  file name with extension
+     * @param bytes byte array for saving
+     * @param force {@code true} if temporary file should be synced before rename
+     */
+    void save(String name, byte[] bytes, boolean force) {
+        if (bytes.length == 0) {
+            throw new FileOperationException(String.format(ZERO_BYTES_MESSAGE, name));
+        }
+        synchronized (monitor) {
+            saveLocked(name, bytes, force);
+        }
+    }
+
+    private void saveLocked(String name, byte[] bytes, boolean force) {
+        File file = new File(baseDir, name);
+        writeTemp(bytes, force);
+        if (!tempFile.renameTo(file)) {
+            delete(tempFile);
+            throw new FileOperationException(String.format(RENAME_MESSAGE, tempFile, file));
+        }
+        delete(new File(backupDir, name + BACKUP_EXTENSION));
+    }
+
+    private void writeTemp(byte[] bytes, boolean force) {
+        ByteBuffer content = fill(bytes);
+        FileOutputStream stream = null;
+        try {
+            stream = new FileOutputStream(tempFile);
+            FileChannel channel = stream.getChannel();
+            while (content.hasRemaining()) {
+                channel.write(content);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (Exception e) {
+            delete(tempFile);
+            throw new FileOperationException(e);
+        } finally {
+            try {
+                if (stream != null) {
+                    stream.close();
+                }
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    /**
+     * Buffer is allocated on first save and grows for large files,
+     * but only small buffer is retained for the next save.
+     */
+    private ByteBuffer fill(byte[] bytes) {
+        int size = checksum ? ChecksumFormat.HEADER_SIZE + bytes.length : bytes.length;
+        ByteBuffer target = buffer;
+        if (target == null || target.capacity() < size) {
+            int capacity = target == null ? MIN_BUFFER_SIZE : target.capacity() * 2;
+            target = ByteBuffer.allocateDirect(Math.max(size, capacity));
+            if (target.capacity() <= MAX_RETAINED_BUFFER_SIZE) {
+                buffer = target;
+            }
+        }
+        target.clear();
+        if (checksum) {
+            ChecksumFormat.putHeader(target, bytes);
+        }
+        target.put(bytes);
+        target.flip();
+        return target;
+    }
+
+    private void delete(File file) {
+        if (!file.exists()) {
+            return;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+}
@@ -0,0 +1,94 @@
+package com.ironz.binaryprefs.file.adapter;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes checksummed value file format: [magic_and_version] + [length] + [crc32c] + [content].
+ * Magic starts with positive byte, so it never matches unencrypted values which have been
+ * saved without header, they start with negative serializer flag. Such legacy files are
+ * returned as is. Encrypted legacy file could start with magic by chance, so file which
+ * doesn't match its header is returned as is too, unless checksum is required.
+ */
+final class ChecksumFormat {
+
+    static final int HEADER_SIZE = 12;
+
+    private static final int MAGIC = 0x42505600;
+    private static final int MAGIC_MASK = 0xFFFFFF00;
+    private static final int VERSION = 1;
+    private static final int LENGTH_OFFSET = 4;
+    private static final int CHECKSUM_OFFSET = 8;
+
+    private static final String VERSION_MESSAGE = "%s file has unsupported format version %d";
+    private static final String CORRUPTED_MESSAGE = "%s file is corrupted, content doesn't match checksum";
+
+    private ChecksumFormat() {
+    }
+
+    /**
+     * Writes header for given content into buffer at its current position.
+     *
+     * @param buffer target buffer with at least {@link #HEADER_SIZE} remaining bytes
+     * @param bytes  file content
+     */
+    static void putHeader(ByteBuffer buffer, byte[] bytes) {
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(bytes, 0, bytes.length);
+        buffer.putInt(MAGIC | VERSION);
+        buffer.putInt(bytes.length);
+        buffer.putInt((int) crc32c.getValue());
+    }
+
+    /**
+     * @param first first four bytes of file
+     * @param size  file size
+     * @return {@code true} if file starts with checksum header
+     */
+    static boolean isHeader(int first, long size) {
+        return size >= HEADER_SIZE && (first & MAGIC_MASK) == MAGIC;
+    }
+
+    /**
+     * Verifies header and returns content of file.
+     *
+     * @param name     file name for error message
+     * @param buffer   whole file buffer
+     * @param required {@code true} if file which doesn't match its header should be rejected,
+     *                 {@code false} if it should be returned as legacy file
+     * @return content slice of buffer or buffer itself if file has no header
+     * @throws FileOperationException if checksum is required and file version is unknown
+     *                                or content doesn't match checksum
+     */
+    static ByteBuffer verify(String name, ByteBuffer buffer, boolean required) {
+        int position = buffer.position();
+        if (buffer.remaining() < HEADER_SIZE || !isHeader(buffer.getInt(position), buffer.remaining())) {
+            return buffer;
+        }
+        int version = buffer.getInt(position) & ~MAGIC_MASK;
+        if (version != VERSION) {
+            return reject(buffer, required, String.format(VERSION_MESSAGE, name, version));
+        }
+        int length = buffer.getInt(position + LENGTH_OFFSET);
+        if (length != buffer.remaining() - HEADER_SIZE) {
+            return reject(buffer, required, String.format(CORRUPTED_MESSAGE, name));
+        }
+        ByteBuffer content = buffer.duplicate();
+        content.position(position + HEADER_SIZE);
+        content = content.slice();
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(content);
+        if ((int) crc32c.getValue() != buffer.getInt(position + CHECKSUM_OFFSET)) {
+            return reject(buffer, required, String.format(CORRUPTED_MESSAGE, name));
+        }
+        return content;
+    }
+
+    private static ByteBuffer reject(ByteBuffer buffer, boolean required, String message) {
+        if (required) {
+            throw new FileOperationException(message);
+        }
+        return buffer;
+    }
+}
@@ -0,0 +1,66 @@
+package com.ironz.binaryprefs.file.adapter;
+
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) checksum implementation, because {@code java.util.zip.CRC32C}
+ * isn't available on all supported platforms. CRC-32C detects more error patterns
+ * of short messages than CRC-32 and has hardware support on modern CPUs.
+ */
+public final class Crc32c implements Checksum {
+
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[] TABLE = createTable();
+
+    private int crc = 0xFFFFFFFF;
+
+    private static int[] createTable() {
+        int[] table = new int[256];
+        for (int i = 0; i < table.length; i++) {
+            int value = i;
+            for (int bit = 0; bit < 8; bit++) {
+                value = (value & 1) != 0 ? (value >>> 1) ^ POLYNOMIAL : value >>> 1;
+            }
+            table[i] = value;
+        }
+        return table;
+    }
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xFF];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int value = crc;
+        for (int i = off; i < off + len; i++) {
+            value = (value >>> 8) ^ TABLE[(value ^ b[i]) & 0xFF];
+        }
+        crc = value;
+    }
+
+    /**
+     * Updates checksum with remaining bytes of buffer without changing its position.
+     *
+     * @param buffer source buffer
+     */
+    public void update(ByteBuffer buffer) {
+        int value = crc;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            value = (value >>> 8) ^ TABLE[(value ^ buffer.get(i)) & 0xFF];
+        }
+        crc = value;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xFFFFFFFF;
+    }
+}
@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.file.adapter;
 
+import java.nio.ByteBuffer;
+
 /**
  * Adapter abstraction which describes a file operation contract.
  * It's used for making unique implementation for concrete file operations.
@@ -21,6 +23,16 @@ public interface FileAdapter {
      */
     byte[] fetch(String name);
 
+    /**
+     * Returns read-only buffer view of concrete file content by name.
+     * Implementation should avoid copying file content into heap if possible,
+     * e.g. using memory mapped buffer.
+     *
+     * @param name file name with extension
+     * @return read-only buffer of file content
+     */
+    ByteBuffer fetchBuffer(String name);
+
     /**
      * Saves byte array to concrete file, if file exists it will be overwritten.
      *
@@ -29,6 +41,36 @@ public interface FileAdapter {
      */
     void save(String name, byte[] bytes);
 
+    /**
+     * Saves byte array to concrete file, if file exists it will be overwritten.
+     * Implementation may skip disk sync if it isn't requested, depending on its
+     * durability policy.
+     *
+     * @param name  file name with extension
+     * @param bytes byte array for saving
+     * @param sync  {@code true} if file should be synced to disk before return
+     */
+    void save(String name, byte[] bytes, boolean sync);
+
+    /**
+     * Appends byte array to the end of existing file. Implementation may refuse
+     * appending if it can't append safely, e.g. file content is checksummed
+     * or atomically replaced, in that case caller should save whole content.
+     *
+     * @param name      file name with extension
+     * @param bytes     byte array for appending
+     * @param maxLength maximum file length after appending, file should be
+     *                  saved whole if it grows longer
+     * @return {@code true} if bytes are appended and synced to disk
+     */
+    boolean append(String name, byte[] bytes, int maxLength);
+
+    /**
+     * Replaces files by backups which has been left by interrupted saves.
+     * Should be called under exclusive process lock.
+     */
+    void restoreBackups();
+
     /**
      * Removes file by key.
      *
@@ -0,0 +1,506 @@
+package com.ironz.binaryprefs.file.adapter;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+
+/**
+ * File adapter implementation which keeps all values of one preferences
+ * name inside single append-only log file.
+ * Each {@link #append(List)} call writes exactly one frame with following scheme:
+ * [body_length] + [crc32_of_body] + [body], where body is sequence of records:
+ * [action] + [name_length] + [name_bytes] + [value_length] + [value_bytes].
+ * Frame which is not fully written or has incorrect checksum is treated
+ * as torn write and will be cut off before next append.
+ * <p>
+ * Adapter tracks overwritten and removed records and rewrites log with only
+ * live records after {@link #compact()} call. Each rewrite changes log generation
+ * stored in file header, so other processes rebuild their index on next access.
+ * </p>
+ * This implementation is not aware about process locks, all calls should be
+ * guarded by appropriate file transaction lock.
+ */
+public final class LogFileAdapter implements FileAdapter {
+
+    private static final String ZERO_BYTES_MESSAGE = "%s key's value is zero bytes for saving";
+    private static final String NOT_FOUND_MESSAGE = "Cannot find '%s' record inside log file";
+    private static final String INCORRECT_HEADER_MESSAGE = "Log file '%s' has incorrect header";
+    private static final String UNEXPECTED_END_MESSAGE = "Unexpected end of log file '%s'";
+    private static final String CANNOT_REPLACE_MESSAGE = "Cannot replace log file '%s' by compacted one";
+
+    private static final String LOG_FILE_NAME = "values.log";
+    private static final String COMPACT_FILE_NAME = "values.log.compact";
+    private static final String R_MODE = "r";
+    private static final String RW_MODE = "rw";
+
+    private static final Charset CHARSET = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x42504c47;
+    private static final int HEADER_SIZE = 4 + 8;
+    private static final int FRAME_HEADER_SIZE = 4 + 4;
+    private static final int RECORD_OVERHEAD = 1 + 4 + 4;
+
+    private static final byte ACTION_UPDATE = 1;
+    private static final byte ACTION_REMOVE = 2;
+
+    /**
+     * Minimal size of dead records in bytes which allows compaction.
+     */
+    private static final long COMPACT_THRESHOLD = 16 * 1024;
+
+    private final File logFile;
+    private final File compactFile;
+    private final Random random = new Random();
+    private final Map<String, Entry> index = new HashMap<>();
+
+    private long generation;
+    private long position;
+    private long validPosition;
+    private long tornSize;
+    private long tornHeader;
+    private long liveBytes;
+    private long deadBytes;
+
+    public LogFileAdapter(DirectoryProvider directoryProvider) {
+        this.logFile = new File(directoryProvider.getStoreDirectory(), LOG_FILE_NAME);
+        this.compactFile = new File(directoryProvider.getBackupDirectory(), COMPACT_FILE_NAME);
+    }
+
+    @Override
+    public synchronized String[] names() {
+        refreshIfExists();
+        return index.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public synchronized byte[] fetch(String name) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(logFile, R_MODE);
+            FileChannel channel = randomAccessFile.getChannel();
+            Entry entry = fetchEntry(channel, name);
+            ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+            readFully(channel, buffer, entry.offset);
+            return buffer.array();
+        } catch (FileOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    /**
+     * Maps value region of the log file. Region stays valid after compaction
+     * because live records are rewritten into new file and existing
+     * frames are never modified.
+     */
+    @Override
+    public synchronized ByteBuffer fetchBuffer(String name) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(logFile, R_MODE);
+            FileChannel channel = randomAccessFile.getChannel();
+            Entry entry = fetchEntry(channel, name);
+            return channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, entry.length);
+        } catch (FileOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    private Entry fetchEntry(FileChannel channel, String name) throws Exception {
+        refresh(channel);
+        Entry entry = index.get(name);
+        if (entry == null) {
+            throw new FileOperationException(String.format(NOT_FOUND_MESSAGE, name));
+        }
+        return entry;
+    }
+
+    @Override
+    public void save(String name, byte[] bytes) {
+        TransactionElement element = TransactionElement.createUpdateElement(name, bytes);
+        append(Collections.singletonList(element));
+    }
+
+    /**
+     * Each frame is always synced to disk.
+     */
+    @Override
+    public void save(String name, byte[] bytes, boolean sync) {
+        save(name, bytes);
+    }
+
+    /**
+     * Log frame contains whole value, so appending isn't supported.
+     */
+    @Override
+    public boolean append(String name, byte[] bytes, int maxLength) {
+        return false;
+    }
+
+    /**
+     * Torn frame is cut off before next append, so backups aren't used.
+     */
+    @Override
+    public void restoreBackups() {
+
+    }
+
+    @Override
+    public void remove(String name) {
+        TransactionElement element = TransactionElement.createRemovalElement(name);
+        append(Collections.singletonList(element));
+    }
+
+    /**
+     * Appends all elements as one frame and forces it to the disk.
+     * Only update and remove elements are accepted, removal
+     * for absent name is skipped.
+     *
+     * @param elements target elements with already encrypted names and values
+     */
+    public synchronized void append(List<TransactionElement> elements) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(logFile, RW_MODE);
+            FileChannel channel = randomAccessFile.getChannel();
+            refresh(channel);
+            byte[] body = createBody(elements);
+            if (body.length == 0) {
+                return;
+            }
+            if (channel.size() == 0) {
+                long newGeneration = random.nextLong();
+                writeHeader(channel, newGeneration);
+                reset(newGeneration);
+            }
+            if (channel.size() > validPosition) {
+                channel.truncate(validPosition);
+            }
+            ByteBuffer frame = createFrame(body);
+            channel.write(frame, position);
+            channel.force(false);
+            applyFrame(body, position + FRAME_HEADER_SIZE);
+            position += FRAME_HEADER_SIZE + body.length;
+            validPosition = position;
+        } catch (FileOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    /**
+     * Checks whether dead records are exceeded the threshold and
+     * occupies more space than live records.
+     *
+     * @return {@code true} if log should be compacted, {@code false} otherwise
+     */
+    public synchronized boolean shouldCompact() {
+        return deadBytes >= COMPACT_THRESHOLD && deadBytes > liveBytes;
+    }
+
+    /**
+     * Rewrites log with only live records into the backup directory and atomically
+     * replaces current log file by rewritten one.
+     */
+    public synchronized void compact() {
+        refreshIfExists();
+        if (index.isEmpty() && !logFile.exists()) {
+            return;
+        }
+        long newGeneration = random.nextLong();
+        byte[] body = createCompactedBody();
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(compactFile, RW_MODE);
+            randomAccessFile.setLength(0);
+            FileChannel channel = randomAccessFile.getChannel();
+            writeHeader(channel, newGeneration);
+            channel.write(createFrame(body), HEADER_SIZE);
+            channel.force(false);
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+        if (!compactFile.renameTo(logFile)) {
+            throw new FileOperationException(String.format(CANNOT_REPLACE_MESSAGE, logFile.getAbsolutePath()));
+        }
+        reset(newGeneration);
+        applyFrame(body, HEADER_SIZE + FRAME_HEADER_SIZE);
+        position = HEADER_SIZE + FRAME_HEADER_SIZE + body.length;
+        validPosition = position;
+    }
+
+    private byte[] createCompactedBody() {
+        int size = 0;
+        for (String name : index.keySet()) {
+            size += recordSize(name.getBytes(CHARSET).length, index.get(name).length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(logFile, R_MODE);
+            FileChannel channel = randomAccessFile.getChannel();
+            for (String name : index.keySet()) {
+                Entry entry = index.get(name);
+                byte[] nameBytes = name.getBytes(CHARSET);
+                buffer.put(ACTION_UPDATE);
+                buffer.putInt(nameBytes.length);
+                buffer.put(nameBytes);
+                buffer.putInt(entry.length);
+                ByteBuffer value = buffer.slice();
+                value.limit(entry.length);
+                readFully(channel, value, entry.offset);
+                buffer.position(buffer.position() + entry.length);
+            }
+            return buffer.array();
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    private void refreshIfExists() {
+        if (!logFile.exists()) {
+            reset(0);
+            return;
+        }
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(logFile, R_MODE);
+            refresh(randomAccessFile.getChannel());
+        } catch (FileOperationException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    /**
+     * Synchronizes in-memory index with the log file: rebuilds it if log has been
+     * rewritten by compaction or replays frames which has been appended by another process.
+     */
+    private void refresh(FileChannel channel) throws Exception {
+        long size = channel.size();
+        if (size == 0) {
+            reset(0);
+            return;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new FileOperationException(String.format(INCORRECT_HEADER_MESSAGE, logFile.getAbsolutePath()));
+        }
+        long fileGeneration = header.getLong();
+        if (fileGeneration != generation || position == 0 || size < validPosition) {
+            reset(fileGeneration);
+        }
+        if (size > validPosition && !isKnownTornTail(channel, size)) {
+            replay(channel, size);
+        }
+    }
+
+    /**
+     * Torn tail stays in the file until the next append, so it's validated once and
+     * remembered by file size and its frame header. Another process cuts torn tail off
+     * before appending, so appended frame changes either size or header.
+     */
+    private boolean isKnownTornTail(FileChannel channel, long size) throws Exception {
+        if (size != tornSize) {
+            return false;
+        }
+        if (size - validPosition < FRAME_HEADER_SIZE) {
+            return true;
+        }
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        readFully(channel, header, validPosition);
+        header.flip();
+        return header.getLong() == tornHeader;
+    }
+
+    private void replay(FileChannel channel, long size) throws Exception {
+        ByteBuffer tail = ByteBuffer.allocate((int) (size - position));
+        readFully(channel, tail, position);
+        tail.flip();
+        CRC32 crc32 = new CRC32();
+        while (tail.remaining() >= FRAME_HEADER_SIZE) {
+            int start = tail.position();
+            int bodyLength = tail.getInt();
+            int checksum = tail.getInt();
+            if (bodyLength < 0 || bodyLength > tail.remaining()) {
+                break;
+            }
+            byte[] body = new byte[bodyLength];
+            tail.get(body);
+            crc32.reset();
+            crc32.update(body, 0, bodyLength);
+            if ((int) crc32.getValue() != checksum) {
+                break;
+            }
+            applyFrame(body, position + FRAME_HEADER_SIZE);
+            position += tail.position() - start;
+        }
+        validPosition = position;
+        rememberTornTail(tail, size);
+    }
+
+    private void rememberTornTail(ByteBuffer tail, long size) {
+        int start = (int) (tail.limit() - (size - validPosition));
+        tornSize = size;
+        tornHeader = size - validPosition < FRAME_HEADER_SIZE ? 0 : tail.getLong(start);
+    }
+
+    private void applyFrame(byte[] body, long bodyOffset) {
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        while (buffer.hasRemaining()) {
+            byte action = buffer.get();
+            byte[] nameBytes = new byte[buffer.getInt()];
+            buffer.get(nameBytes);
+            int length = buffer.getInt();
+            long offset = bodyOffset + buffer.position();
+            buffer.position(buffer.position() + length);
+            String name = new String(nameBytes, CHARSET);
+            Entry previous = index.remove(name);
+            if (previous != null) {
+                long size = recordSize(nameBytes.length, previous.length);
+                liveBytes -= size;
+                deadBytes += size;
+            }
+            if (action == ACTION_UPDATE) {
+                index.put(name, new Entry(offset, length));
+                liveBytes += recordSize(nameBytes.length, length);
+            }
+            if (action == ACTION_REMOVE) {
+                deadBytes += recordSize(nameBytes.length, length);
+            }
+        }
+    }
+
+    private byte[] createBody(List<TransactionElement> elements) {
+        int size = 0;
+        for (TransactionElement element : elements) {
+            if (!isWritable(element)) {
+                continue;
+            }
+            int nameLength = element.getName().getBytes(CHARSET).length;
+            size += recordSize(nameLength, element.getContent().length);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (TransactionElement element : elements) {
+            if (!isWritable(element)) {
+                continue;
+            }
+            byte[] nameBytes = element.getName().getBytes(CHARSET);
+            byte[] content = element.getContent();
+            boolean update = element.getAction() == TransactionElement.ACTION_UPDATE;
+            buffer.put(update ? ACTION_UPDATE : ACTION_REMOVE);
+            buffer.putInt(nameBytes.length);
+            buffer.put(nameBytes);
+            buffer.putInt(content.length);
+            buffer.put(content);
+        }
+        return buffer.array();
+    }
+
+    private boolean isWritable(TransactionElement element) {
+        int action = element.getAction();
+        String name = element.getName();
+        if (action == TransactionElement.ACTION_UPDATE) {
+            if (element.getContent().length == 0) {
+                throw new FileOperationException(String.format(ZERO_BYTES_MESSAGE, name));
+            }
+            return true;
+        }
+        return action == TransactionElement.ACTION_REMOVE && index.containsKey(name);
+    }
+
+    private ByteBuffer createFrame(byte[] body) {
+        CRC32 crc32 = new CRC32();
+        crc32.update(body, 0, body.length);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + body.length);
+        frame.putInt(body.length);
+        frame.putInt((int) crc32.getValue());
+        frame.put(body);
+        frame.flip();
+        return frame;
+    }
+
+    private void writeHeader(FileChannel channel, long newGeneration) throws Exception {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC);
+        header.putLong(newGeneration);
+        header.flip();
+        channel.write(header, 0);
+    }
+
+    private void reset(long newGeneration) {
+        index.clear();
+        generation = newGeneration;
+        position = HEADER_SIZE;
+        validPosition = HEADER_SIZE;
+        tornSize = 0;
+        liveBytes = 0;
+        deadBytes = 0;
+    }
+
+    private long recordSize(int nameLength, int valueLength) {
+        return RECORD_OVERHEAD + nameLength + valueLength;
+    }
+
+    private void readFully(FileChannel channel, ByteBuffer buffer, long offset) throws Exception {
+        long current = offset;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, current);
+            if (read < 0) {
+                throw new FileOperationException(String.format(UNEXPECTED_END_MESSAGE, logFile.getAbsolutePath()));
+            }
+            current += read;
+        }
+    }
+
+    private void close(RandomAccessFile randomAccessFile) {
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private static final class Entry {
+
+        private final long offset;
+        private final int length;
+
+        private Entry(long offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
@@ -5,6 +5,7 @@ import com.ironz.binaryprefs.file.directory.DirectoryProvider;
 
 import java.io.File;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
 
@@ -13,8 +14,24 @@ import java.nio.channels.FileChannel;
  * This implementation support backups for each file before new data
  * will be written. See {@link #backupAndSave(String, byte[])}.
  * After success write backup file will be removed.
- * If adapter detects backup file it will be replaced
- * to original file. See {@link #fetchBackupOrOriginal(String)}.
+ * If adapter detects backup file it will be read instead of
+ * original file. See {@link #fetchBackupOrOriginal(String)}.
+ * Fetch never modifies files, because it could be called concurrently
+ * from several processes, backups are replaced to original files
+ * by {@link #restoreBackups()} under exclusive process lock.
+ * Mapped file region stays valid after file has been replaced because
+ * each save writes new file instead of modifying existing one.
+ * <p>
+ * If checksum is enabled each file is saved with {@link ChecksumFormat} header and
+ * file which doesn't match it is rejected on fetch. Header is detected and stripped
+ * regardless of checksum flag, so files stay readable after checksum is turned off.
+ * Checksummed file is saved with atomic write instead of backup: content
+ * is written into temporary file of backup directory, synced and renamed over
+ * original file. See {@link AtomicFileWriter}.
+ * </p>
+ * Bytes are appended in place without backup, so appended content should tolerate
+ * torn tail. Mapped regions of previous readers aren't affected because they don't
+ * cover appended bytes. Appending is refused for checksummed files.
  */
 public final class NioFileAdapter implements FileAdapter {
 
@@ -28,10 +45,18 @@ public final class NioFileAdapter implements FileAdapter {
 
     private final File baseDir;
     private final File backupDir;
+    private final boolean checksum;
+    private final AtomicFileWriter atomicWriter;
 
     public NioFileAdapter(DirectoryProvider directoryProvider) {
+        this(directoryProvider, false);
+    }
+
+    public NioFileAdapter(DirectoryProvider directoryProvider, boolean checksum) {
         this.baseDir = directoryProvider.getStoreDirectory();
         this.backupDir = directoryProvider.getBackupDirectory();
+        this.checksum = checksum;
+        this.atomicWriter = new AtomicFileWriter(baseDir, backupDir, true);
     }
 
     @Override
@@ -49,30 +74,68 @@ public final class NioFileAdapter implements FileAdapter {
 
     @Override
     public byte[] fetch(String name) {
-        return fetchBackupOrOriginal(name);
+        ByteBuffer buffer = fetchVerified(name);
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Override
+    public ByteBuffer fetchBuffer(String name) {
+        return fetchVerified(name);
+    }
+
+    private ByteBuffer fetchVerified(String name) {
+        MappedByteBuffer buffer = fetchBackupOrOriginal(name);
+        return ChecksumFormat.verify(name, buffer, checksum);
     }
 
-    private byte[] fetchBackupOrOriginal(String name) {
+    /**
+     * Backup could be removed by concurrent save after it has been detected,
+     * in that case original file is read.
+     */
+    private MappedByteBuffer fetchBackupOrOriginal(String name) {
         File backupFile = new File(backupDir, name + BACKUP_EXTENSION);
-        File file = new File(baseDir, name);
         if (backupFile.exists()) {
+            try {
+                return fetchInternal(backupFile);
+            } catch (FileOperationException ignored) {
+            }
+        }
+        return fetchInternal(new File(baseDir, name));
+    }
+
+    /**
+     * Replaces original files by backups which has been left by interrupted saves.
+     * Should be called under exclusive process lock, so readers of other processes
+     * don't see original file removed.
+     */
+    @Override
+    public void restoreBackups() {
+        File[] backups = backupDir.listFiles();
+        if (backups == null) {
+            return;
+        }
+        for (File backupFile : backups) {
+            String backupName = backupFile.getName();
+            if (!backupName.endsWith(BACKUP_EXTENSION)) {
+                continue;
+            }
+            String name = backupName.substring(0, backupName.length() - BACKUP_EXTENSION.length());
+            File file = new File(baseDir, name);
             delete(file);
             swap(backupFile, file);
         }
-        return fetchInternal(file);
     }
 
-    private byte[] fetchInternal(File file) {
+    private MappedByteBuffer fetchInternal(File file) {
         FileChannel channel = null;
         RandomAccessFile randomAccessFile = null;
         try {
             randomAccessFile = new RandomAccessFile(file, R_MODE);
             channel = randomAccessFile.getChannel();
             int size = (int) randomAccessFile.length();
-            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
-            byte[] bytes = new byte[size];
-            buffer.get(bytes);
-            return bytes;
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
         } catch (Exception e) {
             throw new FileOperationException(e);
         } finally {
@@ -90,9 +153,83 @@ public final class NioFileAdapter implements FileAdapter {
 
     @Override
     public void save(String name, byte[] bytes) {
+        if (checksum) {
+            atomicWriter.save(name, bytes, true);
+            return;
+        }
         backupAndSave(name, bytes);
     }
 
+    /**
+     * Each file is always synced to disk.
+     */
+    @Override
+    public void save(String name, byte[] bytes, boolean sync) {
+        save(name, bytes);
+    }
+
+    /**
+     * File which has backup is refused because backup would replace it on fetch.
+     * File which has checksum header is refused because header covers whole content.
+     */
+    @Override
+    public boolean append(String name, byte[] bytes, int maxLength) {
+        if (checksum) {
+            return false;
+        }
+        File file = new File(baseDir, name);
+        File backupFile = new File(backupDir, name + BACKUP_EXTENSION);
+        if (backupFile.exists() || !file.exists() || file.length() + bytes.length > maxLength) {
+            return false;
+        }
+        if (hasHeader(file)) {
+            return false;
+        }
+        appendInternal(file, bytes);
+        return true;
+    }
+
+    private boolean hasHeader(File file) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, R_MODE);
+            long size = randomAccessFile.length();
+            return size >= ChecksumFormat.HEADER_SIZE && ChecksumFormat.isHeader(randomAccessFile.readInt(), size);
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            try {
+                if (randomAccessFile != null) {
+                    randomAccessFile.close();
+                }
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
+    private void appendInternal(File file, byte[] bytes) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, RW_MODE);
+            FileChannel channel = randomAccessFile.getChannel();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            long position = channel.size();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+            channel.force(false);
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            try {
+                if (randomAccessFile != null) {
+                    randomAccessFile.close();
+                }
+            } catch (Exception ignored) {
+            }
+        }
+    }
+
     private void backupAndSave(String name, byte[] bytes) {
         if (bytes.length == 0) {
             throw new FileOperationException(String.format(ZERO_BYTES_MESSAGE, name));
@@ -143,7 +280,7 @@ public final class NioFileAdapter implements FileAdapter {
     }
 
     private void delete(File file) {
-        if (!file.exists()) {
+        if (file == null || !file.exists()) {
             return;
         }
         //noinspection ResultOfMethodCallIgnored
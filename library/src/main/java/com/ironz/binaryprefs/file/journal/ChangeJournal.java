@@ -0,0 +1,58 @@
+package com.ironz.binaryprefs.file.journal;
+
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Describes journal of changed keys which is shared between processes.
+ * Keys are identified by {@link String#hashCode()}, so collisions are
+ * possible and should be treated as change of all matching keys.
+ */
+public interface ChangeJournal {
+
+    ChangeJournal NO_OP = new ChangeJournal() {
+        @Override
+        public void append(List<TransactionElement> transaction) {
+
+        }
+
+        @Override
+        public boolean isChanged() {
+            return false;
+        }
+
+        @Override
+        public boolean poll(Set<Integer> updated, Set<Integer> removed) {
+            return true;
+        }
+    };
+
+    /**
+     * Appends all keys of committed transaction into journal.
+     * Should be called after transaction has been written to disk.
+     *
+     * @param transaction committed transaction elements
+     */
+    void append(List<TransactionElement> transaction);
+
+    /**
+     * Checks if journal contains records which hasn't been polled yet.
+     * This check is cheap enough for calling before each cache read.
+     *
+     * @return {@code true} if other processes have changed some keys, {@code false} otherwise
+     */
+    boolean isChanged();
+
+    /**
+     * Collects key hashes which has been changed by other processes since previous poll.
+     * Last action wins if key has been changed multiple times.
+     *
+     * @param updated target set for updated key hashes
+     * @param removed target set for removed key hashes
+     * @return {@code true} if all records has been collected, {@code false} if some of them
+     * has been overwritten and all keys should be treated as changed
+     */
+    boolean poll(Set<Integer> updated, Set<Integer> removed);
+}
@@ -0,0 +1,195 @@
+package com.ironz.binaryprefs.file.journal;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Change journal implementation which keeps ring buffer of records inside memory mapped file
+ * in lock directory, so all processes share the same physical pages.
+ * File scheme: [sequence] + records, each record is [sequence] + [key_hash] + [action].
+ * Record with sequence {@code n} is stored in {@code n % CAPACITY} slot.
+ * <p>
+ * Records are appended under process lock. Readers don't take any locks: journal sequence is
+ * read with single access to mapped page and each record is validated by its own sequence
+ * before and after reading, so overwritten or partially visible records are treated as lost.
+ * </p>
+ */
+public final class MappedChangeJournal implements ChangeJournal {
+
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String RW_MODE = "rw";
+
+    private static final int CAPACITY = 256;
+    private static final int HEADER_SIZE = 16;
+    private static final int RECORD_SIZE = 16;
+    private static final int HASH_OFFSET = 8;
+    private static final int ACTION_OFFSET = 12;
+    private static final int JOURNAL_SIZE = HEADER_SIZE + CAPACITY * RECORD_SIZE;
+
+    private final Lock processLock;
+    private final MappedByteBuffer buffer;
+
+    /**
+     * Hashes of records of other processes which has been skipped while appending.
+     */
+    private final Set<Integer> pendingUpdated = new HashSet<>();
+    private final Set<Integer> pendingRemoved = new HashSet<>();
+    private boolean pendingLost;
+
+    /**
+     * Set while skipped records of other processes haven't been polled yet,
+     * so {@link #isChanged()} doesn't take monitor on each read.
+     */
+    private volatile boolean pending;
+
+    private volatile long lastSequence;
+
+    public MappedChangeJournal(String prefName, DirectoryProvider directoryProvider, LockFactory lockFactory) {
+        this.processLock = lockFactory.getProcessLock();
+        this.buffer = map(new File(directoryProvider.getLockDirectory(), prefName + JOURNAL_EXTENSION));
+        this.lastSequence = readSequence();
+    }
+
+    private MappedByteBuffer map(File file) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, RW_MODE);
+            FileChannel channel = randomAccessFile.getChannel();
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, JOURNAL_SIZE);
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    private void close(RandomAccessFile randomAccessFile) {
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    @Override
+    public void append(List<TransactionElement> transaction) {
+        if (transaction.isEmpty()) {
+            return;
+        }
+        processLock.lock();
+        try {
+            appendInternal(transaction);
+        } finally {
+            processLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isChanged() {
+        return pending || readSequence() != lastSequence;
+    }
+
+    @Override
+    public synchronized boolean poll(Set<Integer> updated, Set<Integer> removed) {
+        boolean complete = !pendingLost;
+        merge(pendingUpdated, pendingRemoved, updated, removed);
+        pendingUpdated.clear();
+        pendingRemoved.clear();
+        pendingLost = false;
+        pending = false;
+        return collect(readSequence(), updated, removed) && complete;
+    }
+
+    private synchronized void appendInternal(List<TransactionElement> transaction) {
+        long sequence = readSequence();
+        if (!collect(sequence, pendingUpdated, pendingRemoved)) {
+            pendingLost = true;
+        }
+        pending = pendingLost || !pendingUpdated.isEmpty() || !pendingRemoved.isEmpty();
+        for (TransactionElement element : transaction) {
+            sequence++;
+            writeRecord(sequence, element);
+        }
+        buffer.putLong(0, sequence);
+        lastSequence = sequence;
+    }
+
+    /**
+     * Sequence is written last, so record is never valid until it's completely written.
+     */
+    private void writeRecord(long sequence, TransactionElement element) {
+        int offset = offset(sequence);
+        buffer.putInt(offset + HASH_OFFSET, element.getName().hashCode());
+        buffer.putInt(offset + ACTION_OFFSET, element.getAction());
+        buffer.putLong(offset, sequence);
+    }
+
+    /**
+     * Reads all records after last sequence up to given one and moves last sequence forward.
+     */
+    private boolean collect(long sequence, Set<Integer> updated, Set<Integer> removed) {
+        long from = lastSequence;
+        lastSequence = sequence;
+        if (sequence == from) {
+            return true;
+        }
+        if (sequence < from || sequence - from > CAPACITY) {
+            return false;
+        }
+        for (long current = from + 1; current <= sequence; current++) {
+            int offset = offset(current);
+            if (buffer.getLong(offset) != current) {
+                return false;
+            }
+            int hash = buffer.getInt(offset + HASH_OFFSET);
+            int action = buffer.getInt(offset + ACTION_OFFSET);
+            if (buffer.getLong(offset) != current) {
+                return false;
+            }
+            apply(hash, action, updated, removed);
+        }
+        return true;
+    }
+
+    private void merge(Set<Integer> fromUpdated,
+                       Set<Integer> fromRemoved,
+                       Set<Integer> updated,
+                       Set<Integer> removed) {
+        for (Integer hash : fromUpdated) {
+            apply(hash, TransactionElement.ACTION_UPDATE, updated, removed);
+        }
+        for (Integer hash : fromRemoved) {
+            apply(hash, TransactionElement.ACTION_REMOVE, updated, removed);
+        }
+    }
+
+    private void apply(int hash, int action, Set<Integer> updated, Set<Integer> removed) {
+        if (action == TransactionElement.ACTION_REMOVE) {
+            updated.remove(hash);
+            removed.add(hash);
+            return;
+        }
+        removed.remove(hash);
+        updated.add(hash);
+    }
+
+    private long readSequence() {
+        return buffer.getLong(0);
+    }
+
+    private int offset(long sequence) {
+        return HEADER_SIZE + (int) (sequence % CAPACITY) * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,359 @@
+package com.ironz.binaryprefs.file.snapshot;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.adapter.FileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.task.TaskExecutor;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Snapshot implementation which keeps all value files in one file of backup directory
+ * and reads it through memory mapped buffer, so values are sliced without copying.
+ * File scheme: [magic] + [count] + [generation] + entries + [crc32 of all previous bytes],
+ * each entry is [name_length] + [utf-8 name] + [value_length] + [value].
+ * <p>
+ * Generation counter is shared by all processes through memory mapped file in lock directory:
+ * [generation] + [snapshot_generation]. Each commit increments generation, so snapshot is valid
+ * only while its generation is equal to the counter. Counter page is synced to disk only by the
+ * first commit after snapshot has been written, which is enough for outdated snapshot to never
+ * match counter after power loss.
+ * </p>
+ * Snapshot is rewritten in background task under shared process lock after given delay,
+ * so bursts of commits are coalesced into one rewrite.
+ */
+public final class MappedSnapshot implements Snapshot {
+
+    private static final String GENERATION_EXTENSION = ".generation";
+    private static final String SNAPSHOT_NAME = "values.snapshot";
+    private static final String TEMP_PREFIX = "snapshot";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String R_MODE = "r";
+    private static final String RW_MODE = "rw";
+    private static final String SCHEDULER_THREAD_NAME = "binaryprefs-snapshot";
+    private static final String RENAME_MESSAGE = "Can't rename %s to %s";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final int MAGIC = 0x42505331;
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 4;
+    private static final int GENERATION_OFFSET = 8;
+    private static final int CHECKSUM_SIZE = 4;
+    private static final int CHECKSUM_CHUNK_SIZE = 8192;
+    private static final int COUNTER_SIZE = 16;
+    private static final int SNAPSHOT_GENERATION_OFFSET = 8;
+
+    private final File snapshotFile;
+    private final File backupDir;
+    private final MappedByteBuffer counter;
+    private final FileAdapter fileAdapter;
+    private final Lock readLock;
+    private final TaskExecutor taskExecutor;
+    private final long delayMillis;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private final Object monitor = new Object();
+
+    private volatile boolean loaded;
+    private volatile Content content;
+
+    public MappedSnapshot(String prefName,
+                          DirectoryProvider directoryProvider,
+                          FileAdapter fileAdapter,
+                          LockFactory lockFactory,
+                          TaskExecutor taskExecutor,
+                          long delayMillis) {
+        this.backupDir = directoryProvider.getBackupDirectory();
+        this.snapshotFile = new File(backupDir, SNAPSHOT_NAME);
+        this.counter = map(new File(directoryProvider.getLockDirectory(), prefName + GENERATION_EXTENSION), RW_MODE, COUNTER_SIZE);
+        this.fileAdapter = fileAdapter;
+        this.readLock = lockFactory.getProcessReadLock();
+        this.taskExecutor = taskExecutor;
+        this.delayMillis = delayMillis;
+    }
+
+    @Override
+    public String[] names() {
+        Content actual = actualContent();
+        if (actual == null) {
+            return null;
+        }
+        return actual.values.keySet().toArray(new String[0]);
+    }
+
+    @Override
+    public ByteBuffer fetch(String name) {
+        Content actual = actualContent();
+        if (actual == null) {
+            return null;
+        }
+        ByteBuffer value = actual.values.get(name);
+        if (value == null) {
+            return null;
+        }
+        return value.duplicate();
+    }
+
+    @Override
+    public void invalidate() {
+        loaded = true;
+        content = null;
+        long generation = readGeneration();
+        counter.putLong(0, generation + 1);
+        if (generation == counter.getLong(SNAPSHOT_GENERATION_OFFSET)) {
+            counter.force();
+        }
+    }
+
+    @Override
+    public void update() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        if (delayMillis <= 0) {
+            submitWrite();
+            return;
+        }
+        SchedulerHolder.SCHEDULER.schedule(new Runnable() {
+            @Override
+            public void run() {
+                submitWrite();
+            }
+        }, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void submitWrite() {
+        taskExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                scheduled.set(false);
+                writeLocked();
+            }
+        });
+    }
+
+    private Content actualContent() {
+        Content current = loadOnce();
+        if (current == null || current.generation != readGeneration()) {
+            return null;
+        }
+        return current;
+    }
+
+    private Content loadOnce() {
+        if (loaded) {
+            return content;
+        }
+        synchronized (monitor) {
+            if (!loaded) {
+                content = load();
+                loaded = true;
+            }
+            return content;
+        }
+    }
+
+    /**
+     * Returns {@code null} instead of throwing if snapshot is absent, outdated or corrupted,
+     * because value files are always able to replace it.
+     */
+    private Content load() {
+        if (!snapshotFile.exists()) {
+            return null;
+        }
+        try {
+            MappedByteBuffer buffer = map(snapshotFile, R_MODE, snapshotFile.length());
+            if (buffer.limit() < HEADER_SIZE + CHECKSUM_SIZE || buffer.getInt(0) != MAGIC) {
+                return null;
+            }
+            long generation = buffer.getLong(GENERATION_OFFSET);
+            if (generation != readGeneration() || !isChecksumValid(buffer)) {
+                return null;
+            }
+            return new Content(generation, parse(buffer));
+        } catch (Exception ignored) {
+            return null;
+        }
+    }
+
+    private boolean isChecksumValid(ByteBuffer buffer) {
+        int checksumOffset = buffer.limit() - CHECKSUM_SIZE;
+        ByteBuffer data = buffer.duplicate();
+        data.position(0);
+        data.limit(checksumOffset);
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[CHECKSUM_CHUNK_SIZE];
+        while (data.hasRemaining()) {
+            int length = Math.min(chunk.length, data.remaining());
+            data.get(chunk, 0, length);
+            crc.update(chunk, 0, length);
+        }
+        return (int) crc.getValue() == buffer.getInt(checksumOffset);
+    }
+
+    private Map<String, ByteBuffer> parse(ByteBuffer buffer) {
+        int count = buffer.getInt(COUNT_OFFSET);
+        Map<String, ByteBuffer> values = new HashMap<>(count * 2);
+        ByteBuffer data = buffer.duplicate();
+        data.position(HEADER_SIZE);
+        data.limit(buffer.limit() - CHECKSUM_SIZE);
+        for (int i = 0; i < count; i++) {
+            byte[] nameBytes = new byte[data.getInt()];
+            data.get(nameBytes);
+            int valueLength = data.getInt();
+            ByteBuffer value = data.slice();
+            value.limit(valueLength);
+            data.position(data.position() + valueLength);
+            values.put(new String(nameBytes, UTF_8), value.asReadOnlyBuffer());
+        }
+        return values;
+    }
+
+    private void writeLocked() {
+        readLock.lock();
+        try {
+            if (actualContent() != null) {
+                return;
+            }
+            write(readGeneration());
+            reset();
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Written snapshot will be loaded again on next read.
+     */
+    private void reset() {
+        synchronized (monitor) {
+            content = null;
+            loaded = false;
+        }
+    }
+
+    /**
+     * Snapshot generation is marked in counter before rename, so the next commit
+     * always syncs counter if snapshot has been replaced.
+     */
+    private void write(long generation) {
+        File temp = null;
+        try {
+            temp = File.createTempFile(TEMP_PREFIX, TEMP_SUFFIX, backupDir);
+            writeTemp(temp, generation);
+            counter.putLong(SNAPSHOT_GENERATION_OFFSET, generation);
+            counter.force();
+            if (!temp.renameTo(snapshotFile)) {
+                throw new FileOperationException(String.format(RENAME_MESSAGE, temp, snapshotFile));
+            }
+        } catch (FileOperationException e) {
+            delete(temp);
+            throw e;
+        } catch (Exception e) {
+            delete(temp);
+            throw new FileOperationException(e);
+        }
+    }
+
+    private void writeTemp(File temp, long generation) throws Exception {
+        FileOutputStream stream = new FileOutputStream(temp);
+        try {
+            CRC32 crc = new CRC32();
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new CheckedOutputStream(stream, crc)));
+            String[] names = fileAdapter.names();
+            output.writeInt(MAGIC);
+            output.writeInt(names.length);
+            output.writeLong(generation);
+            for (String name : names) {
+                byte[] nameBytes = name.getBytes(UTF_8);
+                byte[] value = fileAdapter.fetch(name);
+                output.writeInt(nameBytes.length);
+                output.write(nameBytes);
+                output.writeInt(value.length);
+                output.write(value);
+            }
+            output.flush();
+            new DataOutputStream(stream).writeInt((int) crc.getValue());
+            stream.getFD().sync();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private long readGeneration() {
+        return counter.getLong(0);
+    }
+
+    private MappedByteBuffer map(File file, String mode, long size) {
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, mode);
+            FileChannel channel = randomAccessFile.getChannel();
+            FileChannel.MapMode mapMode = RW_MODE.equals(mode) ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY;
+            return channel.map(mapMode, 0, size);
+        } catch (Exception e) {
+            throw new FileOperationException(e);
+        } finally {
+            close(randomAccessFile);
+        }
+    }
+
+    private void close(RandomAccessFile randomAccessFile) {
+        try {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+        } catch (Exception ignored) {
+        }
+    }
+
+    private void delete(File file) {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        //noinspection ResultOfMethodCallIgnored
+        file.delete();
+    }
+
+    private static final class Content {
+
+        private final long generation;
+        private final Map<String, ByteBuffer> values;
+
+        private Content(long generation, Map<String, ByteBuffer> values) {
+            this.generation = generation;
+            this.values = values;
+        }
+    }
+
+    private static final class SchedulerHolder {
+
+        private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName(SCHEDULER_THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+}
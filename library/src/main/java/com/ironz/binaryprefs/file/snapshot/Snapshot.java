@@ -0,0 +1,62 @@
+package com.ironz.binaryprefs.file.snapshot;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Describes consolidated copy of all value files which could be read with
+ * one file access on start instead of listing and reading each file.
+ * Snapshot keeps file names and contents as they are stored, so encrypted
+ * keys and values stay encrypted inside snapshot too.
+ */
+public interface Snapshot {
+
+    Snapshot NO_OP = new Snapshot() {
+        @Override
+        public String[] names() {
+            return null;
+        }
+
+        @Override
+        public ByteBuffer fetch(String name) {
+            return null;
+        }
+
+        @Override
+        public void invalidate() {
+
+        }
+
+        @Override
+        public void update() {
+
+        }
+    };
+
+    /**
+     * Returns all file names of snapshot if it's up to date with value files.
+     * Should be called under shared process lock.
+     *
+     * @return file names or {@code null} if snapshot is absent or outdated
+     */
+    String[] names();
+
+    /**
+     * Returns read-only buffer of file content if snapshot is up to date with value files.
+     * Should be called under shared process lock.
+     *
+     * @param name file name
+     * @return file content or {@code null} if snapshot is absent, outdated or doesn't contain name
+     */
+    ByteBuffer fetch(String name);
+
+    /**
+     * Marks snapshot as outdated for all processes.
+     * Should be called under exclusive process lock before value files are changed.
+     */
+    void invalidate();
+
+    /**
+     * Schedules background rewrite of snapshot if it's absent or outdated.
+     */
+    void update();
+}
@@ -1,5 +1,6 @@
 package com.ironz.binaryprefs.file.transaction;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Set;
 
@@ -20,6 +21,17 @@ public interface FileTransaction {
      */
     void unlock();
 
+    /**
+     * Acquires shared global lock for read only operations. Readers in other processes
+     * aren't blocked, {@link #lock()} waits until lock is released by {@link #unlockRead()}.
+     */
+    void lockRead();
+
+    /**
+     * Release shared global lock which is acquired by {@link #lockRead()} method.
+     */
+    void unlockRead();
+
     /**
      * Retrieves all file adapter elements and creates {@code byte[]} elements by unique name.
      *
@@ -42,10 +54,31 @@ public interface FileTransaction {
      */
     TransactionElement fetchOne(String name);
 
+    /**
+     * Retrieves one file adapter element by unique name as decrypted buffer which
+     * should be treated as read-only.
+     * Buffer may be memory mapped view of the file if implementation supports it.
+     *
+     * @param name file name
+     * @return decrypted element content.
+     */
+    ByteBuffer fetchOneBuffer(String name);
+
     /**
      * Performs disk write for all transaction values sequentially.
+     * Values are synced to disk before return.
      *
      * @param elements target elements for transaction.
      */
     void commit(List<TransactionElement> elements);
+
+    /**
+     * Performs disk write for all transaction values sequentially.
+     * Implementation may skip disk sync if it isn't requested,
+     * depending on durability policy of its file adapter.
+     *
+     * @param elements target elements for transaction.
+     * @param sync     {@code true} if values should be synced to disk before return
+     */
+    void commit(List<TransactionElement> elements, boolean sync);
 }
\ No newline at end of file
@@ -0,0 +1,257 @@
+package com.ironz.binaryprefs.file.transaction;
+
+import com.ironz.binaryprefs.encryption.BufferValueEncryption;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.MigratingValueEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.file.adapter.LogFileAdapter;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.task.TaskExecutor;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Transaction implementation which writes all elements of one commit
+ * into {@link LogFileAdapter} as single frame with one disk sync.
+ * Uses the same process lock as {@link MultiProcessTransaction} but
+ * also acquires it during commit because log file is shared between
+ * all processes. Log compaction is performed in background task
+ * after commit if adapter reports about exceeded dead records.
+ */
+public final class LogFileTransaction implements FileTransaction {
+
+    private final LogFileAdapter fileAdapter;
+    private final Lock lock;
+    private final Lock readLock;
+    private final TaskExecutor taskExecutor;
+    private final KeyEncryption keyEncryption;
+    private final ValueEncryption valueEncryption;
+    private final boolean mappedReads;
+
+    public LogFileTransaction(LogFileAdapter fileAdapter,
+                              LockFactory lockFactory,
+                              TaskExecutor taskExecutor,
+                              KeyEncryption keyEncryption,
+                              ValueEncryption valueEncryption,
+                              boolean mappedReads) {
+        this.fileAdapter = fileAdapter;
+        this.lock = lockFactory.getProcessLock();
+        this.readLock = lockFactory.getProcessReadLock();
+        this.taskExecutor = taskExecutor;
+        this.keyEncryption = keyEncryption;
+        this.valueEncryption = valueEncryption;
+        this.mappedReads = mappedReads;
+    }
+
+    @Override
+    public void lock() {
+        lock.lock();
+    }
+
+    @Override
+    public void unlock() {
+        lock.unlock();
+    }
+
+    @Override
+    public void lockRead() {
+        readLock.lock();
+    }
+
+    @Override
+    public void unlockRead() {
+        readLock.unlock();
+    }
+
+    @Override
+    public List<TransactionElement> fetchAll() {
+        return fetchAllInternal();
+    }
+
+    @Override
+    public Set<String> fetchNames() {
+        return fetchNamesInternal();
+    }
+
+    @Override
+    public TransactionElement fetchOne(String name) {
+        return fetchOneInternal(name);
+    }
+
+    @Override
+    public ByteBuffer fetchOneBuffer(String name) {
+        return fetchOneBufferInternal(name);
+    }
+
+    @Override
+    public void commit(List<TransactionElement> elements) {
+        commitLocked(elements);
+        compactIfNeeded();
+    }
+
+    /**
+     * Each frame is always synced to disk.
+     */
+    @Override
+    public void commit(List<TransactionElement> elements, boolean sync) {
+        commit(elements);
+    }
+
+    private List<TransactionElement> fetchAllInternal() {
+        String[] names = fileAdapter.names();
+        List<TransactionElement> elements = new ArrayList<>(names.length);
+        for (String name : names) {
+            String decryptedName = keyEncryption.decrypt(name);
+            TransactionElement element = fetchOneInternal(decryptedName);
+            elements.add(element);
+        }
+        return elements;
+    }
+
+    private Set<String> fetchNamesInternal() {
+        String[] names = fileAdapter.names();
+        Set<String> temp = new HashSet<>();
+        for (String name : names) {
+            String decrypt = keyEncryption.decrypt(name);
+            temp.add(decrypt);
+        }
+        return temp;
+    }
+
+    private TransactionElement fetchOneInternal(String decryptedName) {
+        String encryptName = keyEncryption.encrypt(decryptedName);
+        byte[] content = fileAdapter.fetch(encryptName);
+        byte[] decryptValue = valueEncryption.decrypt(content);
+        if (isOutdated(ByteBuffer.wrap(content))) {
+            rewrite(encryptName, ByteBuffer.wrap(decryptValue));
+        }
+        return TransactionElement.createFetchElement(decryptedName, decryptValue);
+    }
+
+    private ByteBuffer fetchOneBufferInternal(String decryptedName) {
+        String encryptName = keyEncryption.encrypt(decryptedName);
+        ByteBuffer buffer = mappedReads
+                ? fileAdapter.fetchBuffer(encryptName)
+                : ByteBuffer.wrap(fileAdapter.fetch(encryptName));
+        if (!isOutdated(buffer)) {
+            return decrypt(buffer);
+        }
+        ByteBuffer decrypted = decrypt(buffer);
+        rewrite(encryptName, decrypted.duplicate());
+        return decrypted;
+    }
+
+    private ByteBuffer decrypt(ByteBuffer buffer) {
+        if (valueEncryption == ValueEncryption.NO_OP) {
+            return buffer;
+        }
+        if (valueEncryption instanceof BufferValueEncryption) {
+            return ((BufferValueEncryption) valueEncryption).decrypt(buffer);
+        }
+        byte[] content = toByteArray(buffer);
+        byte[] decryptValue = valueEncryption.decrypt(content);
+        return ByteBuffer.wrap(decryptValue);
+    }
+
+    private boolean isOutdated(ByteBuffer buffer) {
+        return valueEncryption instanceof MigratingValueEncryption
+                && ((MigratingValueEncryption) valueEncryption).isOutdated(buffer);
+    }
+
+    /**
+     * Saves value which has been read in outdated format with actual value encryption.
+     * Readers hold only shared process lock, so value is appended later under exclusive
+     * lock and only if it still has outdated format.
+     */
+    private void rewrite(final String encryptName, ByteBuffer decrypted) {
+        byte[] value = toByteArray(decrypted);
+        final byte[] encryptedValue = valueEncryption.encrypt(value);
+        taskExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                rewriteLocked(encryptName, encryptedValue);
+            }
+        });
+    }
+
+    private void rewriteLocked(String encryptName, byte[] encryptedValue) {
+        lock.lock();
+        try {
+            if (!Arrays.asList(fileAdapter.names()).contains(encryptName)) {
+                return;
+            }
+            if (isOutdated(fileAdapter.fetchBuffer(encryptName))) {
+                fileAdapter.save(encryptName, encryptedValue);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private void commitLocked(List<TransactionElement> elements) {
+        List<TransactionElement> encrypted = encrypt(elements);
+        lock.lock();
+        try {
+            fileAdapter.append(encrypted);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private List<TransactionElement> encrypt(List<TransactionElement> elements) {
+        List<TransactionElement> encrypted = new ArrayList<>(elements.size());
+        for (TransactionElement element : elements) {
+            int action = element.getAction();
+            String name = element.getName();
+            String encryptedName = keyEncryption.encrypt(name);
+            if (action == TransactionElement.ACTION_UPDATE) {
+                byte[] value = element.getContent();
+                byte[] encryptedValue = valueEncryption.encrypt(value);
+                encrypted.add(TransactionElement.createUpdateElement(encryptedName, encryptedValue));
+            }
+            if (action == TransactionElement.ACTION_REMOVE) {
+                encrypted.add(TransactionElement.createRemovalElement(encryptedName));
+            }
+        }
+        return encrypted;
+    }
+
+    private void compactIfNeeded() {
+        if (!fileAdapter.shouldCompact()) {
+            return;
+        }
+        taskExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                compactLocked();
+            }
+        });
+    }
+
+    private void compactLocked() {
+        lock.lock();
+        try {
+            if (fileAdapter.shouldCompact()) {
+                fileAdapter.compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -1,31 +1,89 @@
 package com.ironz.binaryprefs.file.transaction;
 
+import com.ironz.binaryprefs.encryption.BufferValueEncryption;
 import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.MigratingValueEncryption;
 import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.exception.FileOperationException;
 import com.ironz.binaryprefs.file.adapter.FileAdapter;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
 import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.serialization.serializer.StringSetSerializer;
+import com.ironz.binaryprefs.task.TaskExecutor;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.locks.Lock;
 
+/**
+ * Transaction implementation which stores each value in separate file of {@link FileAdapter}.
+ * Value files are written without process lock, unless {@link Snapshot} is used: in that case
+ * commit acquires process lock, so snapshot could be invalidated before value files are changed.
+ * Values which has been read in outdated encryption format are rewritten by background task
+ * under exclusive process lock, because readers hold only shared one. Commits acquire process
+ * lock too if {@link MigratingValueEncryption} is used, so rewrite never replaces newer value.
+ * Backups which could be left by interrupted saves are restored by the first background
+ * task under exclusive process lock, so instantiation never waits for other processes.
+ * Update delta is appended to value file while the file is less than {@link #COMPACTION_FACTOR}
+ * times longer than whole value and ends on complete block which has been written by this
+ * transaction, otherwise the file is compacted by saving whole value. Only the file tail is
+ * checked, so appending doesn't read whole file.
+ */
 public final class MultiProcessTransaction implements FileTransaction {
 
+    private static final int COMPACTION_FACTOR = 2;
+
     private final FileAdapter fileAdapter;
     private final Lock lock;
+    private final Lock readLock;
+    private final TaskExecutor taskExecutor;
     private final KeyEncryption keyEncryption;
     private final ValueEncryption valueEncryption;
+    private final boolean mappedReads;
+    private final Snapshot snapshot;
+    private final StringSetSerializer stringSetSerializer = new StringSetSerializer();
+    private final Map<String, Tail> tails = new ConcurrentHashMap<>();
 
     public MultiProcessTransaction(FileAdapter fileAdapter,
                                    LockFactory lockFactory,
+                                   TaskExecutor taskExecutor,
                                    KeyEncryption keyEncryption,
-                                   ValueEncryption valueEncryption) {
+                                   ValueEncryption valueEncryption,
+                                   boolean mappedReads,
+                                   Snapshot snapshot) {
         this.fileAdapter = fileAdapter;
+        this.snapshot = snapshot;
         this.lock = lockFactory.getProcessLock();
+        this.readLock = lockFactory.getProcessReadLock();
+        this.taskExecutor = taskExecutor;
         this.valueEncryption = valueEncryption;
+        this.mappedReads = mappedReads;
         this.keyEncryption = keyEncryption;
+        restoreBackups();
+    }
+
+    private void restoreBackups() {
+        taskExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                restoreBackupsLocked();
+            }
+        });
+    }
+
+    private void restoreBackupsLocked() {
+        lock.lock();
+        try {
+            fileAdapter.restoreBackups();
+        } finally {
+            lock.unlock();
+        }
     }
 
     @Override
@@ -38,6 +96,16 @@ public final class MultiProcessTransaction implements FileTransaction {
         lock.unlock();
     }
 
+    @Override
+    public void lockRead() {
+        readLock.lock();
+    }
+
+    @Override
+    public void unlockRead() {
+        readLock.unlock();
+    }
+
     @Override
     public List<TransactionElement> fetchAll() {
         return fetchAllInternal();
@@ -53,13 +121,28 @@ public final class MultiProcessTransaction implements FileTransaction {
         return fetchOneInternal(name);
     }
 
+    @Override
+    public ByteBuffer fetchOneBuffer(String name) {
+        return fetchOneBufferInternal(name);
+    }
+
     @Override
     public void commit(List<TransactionElement> elements) {
-        commitInternal(elements);
+        commit(elements, true);
+    }
+
+    @Override
+    public void commit(List<TransactionElement> elements, boolean sync) {
+        if (snapshot == Snapshot.NO_OP && !(valueEncryption instanceof MigratingValueEncryption)) {
+            commitInternal(elements, sync);
+            return;
+        }
+        commitLocked(elements, sync);
+        snapshot.update();
     }
 
     private List<TransactionElement> fetchAllInternal() {
-        String[] names = fileAdapter.names();
+        String[] names = names();
         List<TransactionElement> elements = new ArrayList<>(names.length);
         for (String name : names) {
             String decryptedName = keyEncryption.decrypt(name);
@@ -70,7 +153,7 @@ public final class MultiProcessTransaction implements FileTransaction {
     }
 
     private Set<String> fetchNamesInternal() {
-        String[] names = fileAdapter.names();
+        String[] names = names();
         Set<String> temp = new HashSet<>();
         for (String name : names) {
             String decrypt = keyEncryption.decrypt(name);
@@ -79,26 +162,199 @@ public final class MultiProcessTransaction implements FileTransaction {
         return temp;
     }
 
+    private String[] names() {
+        String[] names = snapshot.names();
+        if (names != null) {
+            return names;
+        }
+        snapshot.update();
+        return fileAdapter.names();
+    }
+
     private TransactionElement fetchOneInternal(String decryptedName) {
         String encryptName = keyEncryption.encrypt(decryptedName);
-        byte[] content = fileAdapter.fetch(encryptName);
+        ByteBuffer snapshotValue = snapshot.fetch(encryptName);
+        byte[] content = snapshotValue != null
+                ? toByteArray(snapshotValue)
+                : fileAdapter.fetch(encryptName);
+        if (isOutdated(ByteBuffer.wrap(content))) {
+            rewrite(encryptName);
+        }
         byte[] decryptValue = valueEncryption.decrypt(content);
         return TransactionElement.createFetchElement(decryptedName, decryptValue);
     }
 
-    private void commitInternal(List<TransactionElement> elements) {
+    private ByteBuffer fetchOneBufferInternal(String decryptedName) {
+        String encryptName = keyEncryption.encrypt(decryptedName);
+        ByteBuffer buffer = fetchBuffer(encryptName);
+        if (isOutdated(buffer)) {
+            rewrite(encryptName);
+        }
+        return decrypt(buffer);
+    }
+
+    private ByteBuffer fetchBuffer(String encryptName) {
+        ByteBuffer snapshotValue = snapshot.fetch(encryptName);
+        if (snapshotValue != null) {
+            return snapshotValue;
+        }
+        return mappedReads
+                ? fileAdapter.fetchBuffer(encryptName)
+                : ByteBuffer.wrap(fileAdapter.fetch(encryptName));
+    }
+
+    private ByteBuffer decrypt(ByteBuffer buffer) {
+        if (valueEncryption == ValueEncryption.NO_OP) {
+            return buffer;
+        }
+        if (valueEncryption instanceof BufferValueEncryption) {
+            return ((BufferValueEncryption) valueEncryption).decrypt(buffer);
+        }
+        byte[] content = toByteArray(buffer);
+        byte[] decryptValue = valueEncryption.decrypt(content);
+        return ByteBuffer.wrap(decryptValue);
+    }
+
+    private boolean isOutdated(ByteBuffer buffer) {
+        return valueEncryption instanceof MigratingValueEncryption
+                && ((MigratingValueEncryption) valueEncryption).isOutdated(buffer);
+    }
+
+    /**
+     * Saves value which has been read in outdated format with actual value encryption.
+     * Readers hold only shared process lock, so value is saved later under exclusive
+     * lock. Value is read again under the lock, because it could be changed or removed
+     * by commit in the meantime.
+     */
+    private void rewrite(final String encryptName) {
+        taskExecutor.submit(new Runnable() {
+            @Override
+            public void run() {
+                rewriteLocked(encryptName);
+            }
+        });
+    }
+
+    private void rewriteLocked(String encryptName) {
+        lock.lock();
+        try {
+            if (!Arrays.asList(fileAdapter.names()).contains(encryptName)) {
+                return;
+            }
+            byte[] content = fileAdapter.fetch(encryptName);
+            if (!isOutdated(ByteBuffer.wrap(content))) {
+                return;
+            }
+            byte[] encryptedValue = valueEncryption.encrypt(valueEncryption.decrypt(content));
+            snapshot.invalidate();
+            fileAdapter.save(encryptName, encryptedValue);
+        } finally {
+            lock.unlock();
+        }
+        snapshot.update();
+    }
+
+    private byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+                && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private void commitLocked(List<TransactionElement> elements, boolean sync) {
+        lock.lock();
+        try {
+            snapshot.invalidate();
+            commitInternal(elements, sync);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Encrypted value can't be extended, so delta is appended only without value encryption.
+     * Delta is appended only after complete blocks, so block which has been torn by crash
+     * is repaired by saving whole value.
+     */
+    private boolean appendDelta(String encryptedName, TransactionElement element) {
+        byte[] delta = element.getDelta();
+        if (delta == null || valueEncryption != ValueEncryption.NO_OP) {
+            return false;
+        }
+        Tail tail = tails.get(encryptedName);
+        if (tail == null || !isAppendable(encryptedName, tail)) {
+            return false;
+        }
+        int maxLength = element.getContentLength() * COMPACTION_FACTOR;
+        if (!fileAdapter.append(encryptedName, delta, maxLength)) {
+            return false;
+        }
+        tails.put(encryptedName, new Tail(tail.length, tail.length + delta.length));
+        return true;
+    }
+
+    /**
+     * Only the last block which has been written by this transaction is checked, file
+     * which has been changed by another process since then fails length check. Missing
+     * or unreadable value file is saved whole.
+     */
+    private boolean isAppendable(String encryptedName, Tail tail) {
+        try {
+            ByteBuffer buffer = fileAdapter.fetchBuffer(encryptedName);
+            return buffer.remaining() == tail.length && stringSetSerializer.isLastBlock(buffer, tail.offset);
+        } catch (FileOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Remembers length of saved string set, so the next delta could be appended
+     * without reading whole file.
+     */
+    private void updateTail(String encryptedName, byte[] value) {
+        if (valueEncryption == ValueEncryption.NO_OP && value.length > 0 && stringSetSerializer.isMatches(value[0])) {
+            tails.put(encryptedName, new Tail(0, value.length));
+            return;
+        }
+        tails.remove(encryptedName);
+    }
+
+    private void commitInternal(List<TransactionElement> elements, boolean sync) {
         for (TransactionElement element : elements) {
             int action = element.getAction();
             String name = element.getName();
             String encryptedName = keyEncryption.encrypt(name);
             if (action == TransactionElement.ACTION_UPDATE) {
+                if (appendDelta(encryptedName, element)) {
+                    continue;
+                }
                 byte[] value = element.getContent();
                 byte[] encryptedValue = valueEncryption.encrypt(value);
-                fileAdapter.save(encryptedName, encryptedValue);
+                tails.remove(encryptedName);
+                fileAdapter.save(encryptedName, encryptedValue, sync);
+                updateTail(encryptedName, value);
             }
             if (action == TransactionElement.ACTION_REMOVE) {
+                tails.remove(encryptedName);
                 fileAdapter.remove(encryptedName);
             }
         }
     }
+
+    /**
+     * Last complete block of string set file which has been written by this transaction.
+     */
+    private static final class Tail {
+
+        private final int offset;
+        private final int length;
+
+        private Tail(int offset, int length) {
+            this.offset = offset;
+            this.length = length;
+        }
+    }
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.file.transaction;
 
+import com.ironz.binaryprefs.serialization.strategy.SerializationStrategy;
+
 public final class TransactionElement {
 
     private static final byte[] EMPTY_CONTENT = {};
@@ -10,24 +12,54 @@ public final class TransactionElement {
 
     private final int action;
     private final String name;
-    private final byte[] content;
+    private final SerializationStrategy strategy;
+    private final int contentLength;
+    private final byte[] delta;
+    private byte[] content;
 
     static TransactionElement createFetchElement(String name, byte[] content) {
-        return new TransactionElement(ACTION_FETCH, name, content);
+        return new TransactionElement(ACTION_FETCH, name, content, null, content.length, null);
     }
 
     public static TransactionElement createUpdateElement(String name, byte[] content) {
-        return new TransactionElement(ACTION_UPDATE, name, content);
+        return new TransactionElement(ACTION_UPDATE, name, content, null, content.length, null);
+    }
+
+    /**
+     * Creates update element which could be persisted by appending delta
+     * to the previous content instead of writing whole content. Whole content
+     * is serialized only if it's requested, e.g. delta can't be appended.
+     *
+     * @param name          value name
+     * @param strategy      strategy which serializes whole value content
+     * @param contentLength length of whole value content
+     * @param delta         bytes which transform previous content into whole one
+     *                      if they are appended to it
+     * @return update element
+     */
+    public static TransactionElement createUpdateElement(String name,
+                                                         SerializationStrategy strategy,
+                                                         int contentLength,
+                                                         byte[] delta) {
+        return new TransactionElement(ACTION_UPDATE, name, null, strategy, contentLength, delta);
     }
 
     public static TransactionElement createRemovalElement(String name) {
-        return new TransactionElement(ACTION_REMOVE, name, EMPTY_CONTENT);
+        return new TransactionElement(ACTION_REMOVE, name, EMPTY_CONTENT, null, 0, null);
     }
 
-    private TransactionElement(int action, String name, byte[] content) {
+    private TransactionElement(int action,
+                               String name,
+                               byte[] content,
+                               SerializationStrategy strategy,
+                               int contentLength,
+                               byte[] delta) {
         this.action = action;
         this.name = name;
         this.content = content;
+        this.strategy = strategy;
+        this.contentLength = contentLength;
+        this.delta = delta;
     }
 
     public int getAction() {
@@ -38,7 +70,24 @@ public final class TransactionElement {
         return name;
     }
 
-    public byte[] getContent() {
+    public synchronized byte[] getContent() {
+        if (content == null) {
+            content = strategy.serialize();
+        }
         return content;
     }
+
+    /**
+     * @return length of whole content which doesn't require content serialization
+     */
+    public int getContentLength() {
+        return contentLength;
+    }
+
+    /**
+     * @return appendable delta of content or {@code null} if content should be written whole
+     */
+    public byte[] getDelta() {
+        return delta;
+    }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package com.ironz.binaryprefs.lock;
 
+import java.util.Collection;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -7,23 +8,59 @@ import java.util.concurrent.locks.Lock;
  */
 public interface LockFactory {
     /**
-     * Returns read lock object for synchronous operations.
+     * Returns global read lock object for synchronous operations.
      *
      * @return lock object, instantiated for concrete preference
      */
     Lock getReadLock();
 
     /**
-     * Returns write lock object for synchronous operations.
+     * Returns global write lock object for synchronous operations which
+     * affect whole preference. Waits for all key locks.
      *
      * @return lock object, instantiated for concrete preference
      */
     Lock getWriteLock();
 
     /**
-     * Returns VM lock for synchronous file operations.
+     * Returns read lock of one key for synchronous operations.
+     * Doesn't block operations on keys of other lock stripes.
+     *
+     * @param key preference key
+     * @return lock object, instantiated for concrete preference
+     */
+    Lock getReadLock(String key);
+
+    /**
+     * Returns write lock of given keys for synchronous operations.
+     * Doesn't block operations on keys of other lock stripes.
+     *
+     * @param keys preference keys
+     * @return lock object, instantiated for concrete preference
+     */
+    Lock getWriteLock(Collection<String> keys);
+
+    /**
+     * Returns read lock of all keys for synchronous read only operations which
+     * affect whole preference. Waits for key write locks, but not for readers.
+     *
+     * @return lock object, instantiated for concrete preference
+     */
+    Lock getAllKeysReadLock();
+
+    /**
+     * Returns exclusive inter-process lock for synchronous file operations.
      *
      * @return lock object, instantiated for concrete preference
      */
     Lock getProcessLock();
+
+    /**
+     * Returns shared inter-process lock for synchronous read only file operations.
+     * Readers in different processes don't block each other and wait only
+     * for {@link #getProcessLock()} owner.
+     *
+     * @return lock object, instantiated for concrete preference
+     */
+    Lock getProcessReadLock();
 }
\ No newline at end of file
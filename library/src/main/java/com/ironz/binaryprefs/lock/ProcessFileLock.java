@@ -3,85 +3,266 @@ package com.ironz.binaryprefs.lock;
 import com.ironz.binaryprefs.exception.LockOperationException;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Condition;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-final class ProcessFileLock implements Lock {
+/**
+ * Inter-process read/write lock which is backed by shared and exclusive {@link FileLock}
+ * of the whole lock file. Lock file channel is opened once and kept open while lock exists.
+ * <p>
+ * File locks are held on behalf of whole VM, so threads of current process are synchronized
+ * by local read/write lock first and all local readers share one shared file lock.
+ * </p>
+ * Both locks are reentrant. Read lock which is acquired by the write lock owner is covered
+ * by exclusive file lock and should be released before write lock.
+ */
+final class ProcessFileLock implements ReadWriteLock {
 
-    private static final String RWD_MODE = "rwd";
+    private static final String RW_MODE = "rw";
+    private static final long INFINITE_TIMEOUT = -1;
+    private static final long MIN_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final long MAX_RETRY_NANOS = TimeUnit.MILLISECONDS.toNanos(16);
 
     private final File lockFile;
+    private final ReentrantReadWriteLock localLock = new ReentrantReadWriteLock(true);
+    private final Lock readLock = new SharedLock();
+    private final Lock writeLock = new ExclusiveLock();
+    private final Object monitor = new Object();
 
-    private RandomAccessFile randomAccessFile;
     private FileChannel channel;
-    private FileLock lock;
+    private FileLock sharedLock;
+    private int readers;
+    private FileLock exclusiveLock;
 
     ProcessFileLock(File lockFile) {
         this.lockFile = lockFile;
     }
 
     @Override
-    public void lock() {
-        try {
-            randomAccessFile = new RandomAccessFile(lockFile, RWD_MODE);
-            channel = randomAccessFile.getChannel();
-            lock = channel.lock();
-        } catch (Exception e) {
-            try {
-                if (randomAccessFile != null) {
-                    randomAccessFile.close();
-                }
-                if (channel != null) {
-                    channel.close();
+    public Lock readLock() {
+        return readLock;
+    }
+
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    private boolean acquireShared(long timeoutNanos) throws IOException, InterruptedException {
+        if (localLock.isWriteLockedByCurrentThread()) {
+            return true;
+        }
+        synchronized (monitor) {
+            if (readers == 0) {
+                FileLock lock = lockFile(true, timeoutNanos);
+                if (lock == null) {
+                    return false;
                 }
-            } catch (Exception ignored) {
+                sharedLock = lock;
             }
-            throw new LockOperationException(e);
+            readers++;
+            return true;
         }
     }
 
-    @Override
-    public void unlock() {
-        try {
-            if (lock != null && lock.isValid()) {
+    private void releaseShared() throws IOException {
+        if (localLock.isWriteLockedByCurrentThread()) {
+            return;
+        }
+        synchronized (monitor) {
+            readers--;
+            if (readers == 0) {
+                FileLock lock = sharedLock;
+                sharedLock = null;
                 lock.release();
             }
-        } catch (Exception e) {
-            throw new LockOperationException(e);
-        } finally {
-            try {
-                if (randomAccessFile != null) {
-                    randomAccessFile.close();
-                }
-                if (channel != null) {
-                    channel.close();
-                }
-            } catch (Exception ignored) {
+        }
+    }
+
+    private boolean acquireExclusive(long timeoutNanos) throws IOException, InterruptedException {
+        if (localLock.getWriteHoldCount() > 1) {
+            return true;
+        }
+        FileLock lock = lockFile(false, timeoutNanos);
+        if (lock == null) {
+            return false;
+        }
+        exclusiveLock = lock;
+        return true;
+    }
+
+    private void releaseExclusive() throws IOException {
+        if (localLock.getWriteHoldCount() > 1) {
+            return;
+        }
+        FileLock lock = exclusiveLock;
+        exclusiveLock = null;
+        lock.release();
+    }
+
+    /**
+     * {@link FileChannel} doesn't support lock timeouts, so lock is polled
+     * with exponential backoff until timeout expires.
+     *
+     * @return file lock or {@code null} if timeout expired
+     */
+    private FileLock lockFile(boolean shared, long timeoutNanos) throws IOException, InterruptedException {
+        FileChannel fileChannel = channel();
+        if (timeoutNanos == INFINITE_TIMEOUT) {
+            return fileChannel.lock(0, Long.MAX_VALUE, shared);
+        }
+        long deadline = System.nanoTime() + timeoutNanos;
+        long pause = MIN_RETRY_NANOS;
+        while (true) {
+            FileLock lock = fileChannel.tryLock(0, Long.MAX_VALUE, shared);
+            if (lock != null) {
+                return lock;
             }
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return null;
+            }
+            TimeUnit.NANOSECONDS.sleep(Math.min(pause, left));
+            pause = Math.min(pause * 2, MAX_RETRY_NANOS);
         }
     }
 
-    @Override
-    public void lockInterruptibly() throws InterruptedException {
-        throw new UnsupportedOperationException("Not implemented!");
+    /**
+     * Channel is closed by thread interruption during blocking lock, so it's reopened if needed.
+     */
+    private FileChannel channel() throws IOException {
+        synchronized (monitor) {
+            if (channel == null || !channel.isOpen()) {
+                channel = new RandomAccessFile(lockFile, RW_MODE).getChannel();
+            }
+            return channel;
+        }
     }
 
-    @Override
-    public boolean tryLock() {
-        throw new UnsupportedOperationException("Not implemented!");
+    private long remaining(long timeoutNanos, long start) {
+        return Math.max(0, timeoutNanos - (System.nanoTime() - start));
     }
 
-    @Override
-    public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
-        throw new UnsupportedOperationException("Not implemented!");
+    private abstract class ProcessLock implements Lock {
+
+        abstract Lock localLock();
+
+        abstract boolean acquireFile(long timeoutNanos) throws IOException, InterruptedException;
+
+        abstract void releaseFile() throws IOException;
+
+        @Override
+        public void lock() {
+            localLock().lock();
+            try {
+                acquireLocked(INFINITE_TIMEOUT);
+            } catch (InterruptedException e) {
+                throw new LockOperationException(e);
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            localLock().lockInterruptibly();
+            acquireLocked(INFINITE_TIMEOUT);
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!localLock().tryLock()) {
+                return false;
+            }
+            try {
+                return acquireLocked(0);
+            } catch (InterruptedException e) {
+                throw new LockOperationException(e);
+            }
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long timeoutNanos = unit.toNanos(time);
+            long start = System.nanoTime();
+            if (!localLock().tryLock(time, unit)) {
+                return false;
+            }
+            return acquireLocked(remaining(timeoutNanos, start));
+        }
+
+        /**
+         * Acquires file lock after local lock, local lock is released if file lock isn't acquired.
+         */
+        private boolean acquireLocked(long timeoutNanos) throws InterruptedException {
+            boolean acquired = false;
+            try {
+                acquired = acquireFile(timeoutNanos);
+                return acquired;
+            } catch (IOException e) {
+                throw new LockOperationException(e);
+            } finally {
+                if (!acquired) {
+                    localLock().unlock();
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            try {
+                releaseFile();
+            } catch (IOException e) {
+                throw new LockOperationException(e);
+            } finally {
+                localLock().unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Not implemented!");
+        }
     }
 
-    @Override
-    public Condition newCondition() {
-        throw new UnsupportedOperationException("Not implemented!");
+    private final class SharedLock extends ProcessLock {
+
+        @Override
+        Lock localLock() {
+            return localLock.readLock();
+        }
+
+        @Override
+        boolean acquireFile(long timeoutNanos) throws IOException, InterruptedException {
+            return acquireShared(timeoutNanos);
+        }
+
+        @Override
+        void releaseFile() throws IOException {
+            releaseShared();
+        }
+    }
+
+    private final class ExclusiveLock extends ProcessLock {
+
+        @Override
+        Lock localLock() {
+            return localLock.writeLock();
+        }
+
+        @Override
+        boolean acquireFile(long timeoutNanos) throws IOException, InterruptedException {
+            return acquireExclusive(timeoutNanos);
+        }
+
+        @Override
+        void releaseFile() throws IOException {
+            releaseExclusive();
+        }
     }
-}
\ No newline at end of file
+}
@@ -3,10 +3,10 @@ package com.ironz.binaryprefs.lock;
 import com.ironz.binaryprefs.file.directory.DirectoryProvider;
 
 import java.io.File;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Simple lock factory for providing lock by instance and global lock by preference name.
@@ -17,33 +17,33 @@ public final class SimpleLockFactory implements LockFactory {
 
     private final File lockDirectory;
 
-    private final ReadWriteLock readWriteLock;
-    private final Lock processLock;
+    private final StripedReadWriteLock readWriteLock;
+    private final ReadWriteLock processLock;
 
     public SimpleLockFactory(String prefName,
                              DirectoryProvider provider,
-                             Map<String, ReadWriteLock> locks,
-                             Map<String, Lock> processLocks) {
+                             Map<String, StripedReadWriteLock> locks,
+                             Map<String, ReadWriteLock> processLocks) {
         this.lockDirectory = provider.getLockDirectory();
         this.readWriteLock = putIfAbsentLocalLock(prefName, locks);
         this.processLock = putIfAbsentProcessLock(prefName, processLocks);
     }
 
-    private ReadWriteLock putIfAbsentLocalLock(String name, Map<String, ReadWriteLock> locks) {
+    private StripedReadWriteLock putIfAbsentLocalLock(String name, Map<String, StripedReadWriteLock> locks) {
         if (locks.containsKey(name)) {
             return locks.get(name);
         }
-        ReadWriteLock lock = new ReentrantReadWriteLock(true);
+        StripedReadWriteLock lock = new StripedReadWriteLock();
         locks.put(name, lock);
         return lock;
     }
 
-    private Lock putIfAbsentProcessLock(String name, Map<String, Lock> processLocks) {
+    private ReadWriteLock putIfAbsentProcessLock(String name, Map<String, ReadWriteLock> processLocks) {
         if (processLocks.containsKey(name)) {
             return processLocks.get(name);
         }
         File file = new File(lockDirectory, name + LOCK_EXTENSION);
-        Lock lock = new ProcessFileLock(file);
+        ReadWriteLock lock = new ProcessFileLock(file);
         processLocks.put(name, lock);
         return lock;
     }
@@ -58,8 +58,28 @@ public final class SimpleLockFactory implements LockFactory {
         return readWriteLock.writeLock();
     }
 
+    @Override
+    public Lock getReadLock(String key) {
+        return readWriteLock.readLock(key);
+    }
+
+    @Override
+    public Lock getWriteLock(Collection<String> keys) {
+        return readWriteLock.writeLock(keys);
+    }
+
+    @Override
+    public Lock getAllKeysReadLock() {
+        return readWriteLock.readLockAll();
+    }
+
     @Override
     public Lock getProcessLock() {
-        return processLock;
+        return processLock.writeLock();
+    }
+
+    @Override
+    public Lock getProcessReadLock() {
+        return processLock.readLock();
     }
 }
\ No newline at end of file
@@ -0,0 +1,204 @@
+package com.ironz.binaryprefs.lock;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Preferences lock which consists of global read/write lock and fixed count of
+ * read/write lock stripes which are chosen by key hash.
+ * <p>
+ * {@link #readLock()} and {@link #writeLock()} are global locks. Key locks
+ * hold global read lock together with stripes of the keys, so operations on
+ * different keys don't block each other while global write lock waits for all
+ * of them and should be used only for whole preferences operations.
+ * </p>
+ * Stripes are always acquired in ascending order, so key locks of
+ * intersecting key sets never deadlock.
+ */
+public final class StripedReadWriteLock implements ReadWriteLock {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ReentrantReadWriteLock globalLock = new ReentrantReadWriteLock(true);
+    private final ReentrantReadWriteLock[] stripes;
+    private final Lock[] keyReadLocks;
+    private final Lock allKeysReadLock;
+    private final int mask;
+
+    public StripedReadWriteLock() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * @param stripes desirable stripes count, rounded up to power of two
+     */
+    public StripedReadWriteLock(int stripes) {
+        int size = stripes > 1 ? Integer.highestOneBit(stripes - 1) << 1 : 1;
+        this.stripes = new ReentrantReadWriteLock[size];
+        this.keyReadLocks = new Lock[size];
+        this.mask = size - 1;
+        int[] all = new int[size];
+        for (int i = 0; i < size; i++) {
+            this.stripes[i] = new ReentrantReadWriteLock(true);
+            this.keyReadLocks[i] = new KeysLock(new int[]{i}, false);
+            all[i] = i;
+        }
+        this.allKeysReadLock = new KeysLock(all, false);
+    }
+
+    @Override
+    public Lock readLock() {
+        return globalLock.readLock();
+    }
+
+    @Override
+    public Lock writeLock() {
+        return globalLock.writeLock();
+    }
+
+    /**
+     * Returns shared lock of one key. Lock instance is reused for all keys of one stripe.
+     *
+     * @param key key for locking
+     * @return lock object
+     */
+    public Lock readLock(String key) {
+        return keyReadLocks[stripe(key)];
+    }
+
+    /**
+     * Returns shared lock of all keys. It waits for key write locks, but doesn't
+     * block readers, so it should be used for read only operations on whole preferences.
+     *
+     * @return lock object
+     */
+    public Lock readLockAll() {
+        return allKeysReadLock;
+    }
+
+    /**
+     * Returns exclusive lock of all given keys.
+     *
+     * @param keys keys for locking
+     * @return lock object
+     */
+    public Lock writeLock(Collection<String> keys) {
+        return new KeysLock(stripes(keys), true);
+    }
+
+    private int stripe(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private int[] stripes(Collection<String> keys) {
+        int[] all = new int[keys.size()];
+        int i = 0;
+        for (String key : keys) {
+            all[i++] = stripe(key);
+        }
+        Arrays.sort(all);
+        int size = 0;
+        for (int j = 0; j < all.length; j++) {
+            if (size == 0 || all[size - 1] != all[j]) {
+                all[size++] = all[j];
+            }
+        }
+        return Arrays.copyOf(all, size);
+    }
+
+    private final class KeysLock implements Lock {
+
+        private final int[] indexes;
+        private final boolean exclusive;
+
+        private KeysLock(int[] indexes, boolean exclusive) {
+            this.indexes = indexes;
+            this.exclusive = exclusive;
+        }
+
+        private Lock lockAt(int position) {
+            if (position == 0) {
+                return globalLock.readLock();
+            }
+            ReentrantReadWriteLock stripe = stripes[indexes[position - 1]];
+            return exclusive ? stripe.writeLock() : stripe.readLock();
+        }
+
+        private int count() {
+            return indexes.length + 1;
+        }
+
+        @Override
+        public void lock() {
+            for (int i = 0; i < count(); i++) {
+                lockAt(i).lock();
+            }
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            int acquired = 0;
+            try {
+                for (; acquired < count(); acquired++) {
+                    lockAt(acquired).lockInterruptibly();
+                }
+            } finally {
+                if (acquired < count()) {
+                    unlock(acquired);
+                }
+            }
+        }
+
+        @Override
+        public boolean tryLock() {
+            for (int i = 0; i < count(); i++) {
+                if (!lockAt(i).tryLock()) {
+                    unlock(i);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long deadline = System.nanoTime() + unit.toNanos(time);
+            int acquired = 0;
+            try {
+                for (; acquired < count(); acquired++) {
+                    long left = deadline - System.nanoTime();
+                    if (!lockAt(acquired).tryLock(left, TimeUnit.NANOSECONDS)) {
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                if (acquired < count()) {
+                    unlock(acquired);
+                }
+            }
+        }
+
+        @Override
+        public void unlock() {
+            unlock(count());
+        }
+
+        private void unlock(int acquired) {
+            for (int i = acquired - 1; i >= 0; i--) {
+                lockAt(i).unlock();
+            }
+        }
+
+        @Override
+        public Condition newCondition() {
+            throw new UnsupportedOperationException("Not implemented!");
+        }
+    }
+}
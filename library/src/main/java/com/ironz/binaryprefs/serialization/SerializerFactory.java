@@ -5,6 +5,7 @@ import com.ironz.binaryprefs.serialization.serializer.*;
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
 import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
 
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -30,6 +31,15 @@ public final class SerializerFactory {
     private final PersistableSerializer persistableSerializer;
 
     public SerializerFactory(PersistableRegistry persistableRegistry) {
+        this(persistableRegistry, false);
+    }
+
+    /**
+     * @param persistableRegistry registry of persistable classes
+     * @param compactPersistable  {@code true} if persistable values should be written
+     *                            in compact protocol, see {@link PersistableSerializer#serialize(Persistable)}
+     */
+    public SerializerFactory(PersistableRegistry persistableRegistry, boolean compactPersistable) {
         this.booleanSerializer = new BooleanSerializer();
         this.byteSerializer = new ByteSerializer();
         this.charSerializer = new CharSerializer();
@@ -52,7 +62,8 @@ public final class SerializerFactory {
                 longSerializer,
                 shortSerializer,
                 stringSerializer,
-                persistableRegistry
+                persistableRegistry,
+                compactPersistable
         );
     }
 
@@ -102,6 +113,40 @@ public final class SerializerFactory {
         throw new UnsupportedClassVersionError(String.format("Flag verification failed. Incorrect flag '%s'", flag));
     }
 
+    /**
+     * Deserializes value directly from buffer. {@code byte[]} and {@link Persistable}
+     * values are read without intermediate copies, other types are small and
+     * deserialized from copied byte array.
+     *
+     * @param key    target key
+     * @param buffer buffer which remaining bytes contains serialized value
+     * @return deserialized value
+     */
+    public Object deserialize(String key, ByteBuffer buffer) {
+
+        if (!buffer.hasRemaining()) {
+            throw new SerializationException(String.format(ZERO_BYTES_MESSAGE, key));
+        }
+
+        byte flag = buffer.get(buffer.position());
+        if (byteArraySerializer.isMatches(flag)) {
+            return byteArraySerializer.deserialize(buffer);
+        }
+        if (persistableSerializer.isMatches(flag)) {
+            return persistableSerializer.deserialize(key, buffer);
+        }
+        return deserialize(key, toByteArray(buffer));
+    }
+
+    private byte[] toByteArray(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0 && buffer.remaining() == buffer.array().length) {
+            return buffer.array();
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
     public Object redefineMutable(Object o) {
         if (o instanceof Persistable) {
             return ((Persistable) o).deepClone();
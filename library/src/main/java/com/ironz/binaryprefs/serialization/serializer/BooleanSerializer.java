@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Boolean to byte array implementation of and backwards
  */
@@ -29,6 +31,19 @@ public final class BooleanSerializer {
         };
     }
 
+    /**
+     * Serialize {@code boolean} into given array by {@link #serialize(boolean)} convention
+     * without intermediate array.
+     *
+     * @param value  target boolean to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(boolean value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (value ? 1 : 0);
+    }
+
     /**
      * Deserialize {@code boolean} by {@link #serialize(boolean)} convention
      *
@@ -50,6 +65,18 @@ public final class BooleanSerializer {
         return bytes[1 + offset] != 0;
     }
 
+    /**
+     * Deserialize {@code boolean} by {@link #serialize(boolean)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized boolean
+     */
+    public boolean deserialize(ByteBuffer buffer, int offset) {
+        return buffer.get(1 + offset) != 0;
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
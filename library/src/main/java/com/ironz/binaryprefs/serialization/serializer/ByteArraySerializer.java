@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 public final class ByteArraySerializer {
 
     /**
@@ -31,6 +33,20 @@ public final class ByteArraySerializer {
         return b;
     }
 
+    /**
+     * Serialize {@code byte[]} into given array by {@link #serialize(byte[])} convention
+     * without intermediate array.
+     *
+     * @param value  target byte array to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} + value length
+     *               bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(byte[] value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        System.arraycopy(value, 0, bytes, offset + FLAG_OFFSET, value.length);
+    }
+
     /**
      * Deserialize byte by {@link #serialize(byte[])} convention
      *
@@ -55,6 +71,35 @@ public final class ByteArraySerializer {
         return raw;
     }
 
+    /**
+     * Deserialize byte by {@link #serialize(byte[])} convention directly
+     * from buffer without intermediate copies.
+     *
+     * @param buffer target buffer for deserialization, all remaining bytes are used
+     * @return deserialized {@code byte[]}
+     */
+    public byte[] deserialize(ByteBuffer buffer) {
+        int position = buffer.position();
+        return deserialize(buffer, position, buffer.limit() - position - FLAG_OFFSET);
+    }
+
+    /**
+     * Deserialize byte by {@link #serialize(byte[])} convention directly
+     * from buffer without intermediate copies. Buffer position is not changed.
+     *
+     * @param buffer target buffer for deserialization
+     * @param offset absolute buffer offset
+     * @param length bytes array length
+     * @return deserialized {@code byte[]}
+     */
+    public byte[] deserialize(ByteBuffer buffer, int offset, int length) {
+        byte[] raw = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(FLAG_OFFSET + offset);
+        duplicate.get(raw);
+        return raw;
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
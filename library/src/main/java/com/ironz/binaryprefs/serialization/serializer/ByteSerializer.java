@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Byte to byte array implementation and backwards
  */
@@ -29,6 +31,19 @@ public final class ByteSerializer {
         };
     }
 
+    /**
+     * Serialize {@code byte} into given array by {@link #serialize(byte)} convention
+     * without intermediate array.
+     *
+     * @param value  target byte to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(byte value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = value;
+    }
+
     /**
      * Deserialize {@code byte} by {@link #serialize(byte)}  convention
      *
@@ -50,6 +65,18 @@ public final class ByteSerializer {
         return bytes[offset + 1];
     }
 
+    /**
+     * Deserialize {@code byte} by {@link #serialize(byte)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized byte
+     */
+    public byte deserialize(ByteBuffer buffer, int offset) {
+        return buffer.get(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Char to byte array implementation and backwards
  */
@@ -30,6 +32,20 @@ public final class CharSerializer {
         };
     }
 
+    /**
+     * Serialize {@code char} into given array by {@link #serialize(char)} convention
+     * without intermediate array.
+     *
+     * @param value  target char to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(char value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) value;
+    }
+
     /**
      * Deserialize {@code char} by {@link #serialize(char)} convention
      *
@@ -53,6 +69,18 @@ public final class CharSerializer {
                 (bytes[2 + offset] & i));
     }
 
+    /**
+     * Deserialize {@code char} by {@link #serialize(char)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized char
+     */
+    public char deserialize(ByteBuffer buffer, int offset) {
+        return buffer.getChar(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
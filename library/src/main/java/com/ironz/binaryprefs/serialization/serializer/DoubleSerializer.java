@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 
 /**
  * Double to byte array implementation and backwards
@@ -38,6 +40,27 @@ public final class DoubleSerializer {
         };
     }
 
+    /**
+     * Serialize {@code double} into given array by {@link #serialize(double)} convention
+     * without intermediate array.
+     *
+     * @param value  target double to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(double value, byte[] bytes, int offset) {
+        long l = Double.doubleToLongBits(value);
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (l >>> 56);
+        bytes[offset + 2] = (byte) (l >>> 48);
+        bytes[offset + 3] = (byte) (l >>> 40);
+        bytes[offset + 4] = (byte) (l >>> 32);
+        bytes[offset + 5] = (byte) (l >>> 24);
+        bytes[offset + 6] = (byte) (l >>> 16);
+        bytes[offset + 7] = (byte) (l >>> 8);
+        bytes[offset + 8] = (byte) l;
+    }
+
     /**
      * Deserialize {@code double} by {@link #serialize(double)} convention
      *
@@ -68,6 +91,18 @@ public final class DoubleSerializer {
         return Double.longBitsToDouble(value);
     }
 
+    /**
+     * Deserialize {@code double} by {@link #serialize(double)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized double
+     */
+    public double deserialize(ByteBuffer buffer, int offset) {
+        return buffer.getDouble(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
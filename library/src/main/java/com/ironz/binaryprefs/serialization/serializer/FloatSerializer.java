@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Float to byte array implementation and backwards
  */
@@ -33,6 +35,23 @@ public final class FloatSerializer {
         };
     }
 
+    /**
+     * Serialize {@code float} into given array by {@link #serialize(float)} convention
+     * without intermediate array.
+     *
+     * @param value  target float to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(float value, byte[] bytes, int offset) {
+        int val = Float.floatToIntBits(value);
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (val >>> 24);
+        bytes[offset + 2] = (byte) (val >>> 16);
+        bytes[offset + 3] = (byte) (val >>> 8);
+        bytes[offset + 4] = (byte) val;
+    }
+
     /**
      * Deserialize {@code float} by {@link #serialize(float)} convention
      *
@@ -59,6 +78,18 @@ public final class FloatSerializer {
         return Float.intBitsToFloat(value);
     }
 
+    /**
+     * Deserialize {@code float} by {@link #serialize(float)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized float
+     */
+    public float deserialize(ByteBuffer buffer, int offset) {
+        return buffer.getFloat(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Integer to byte array implementation and backwards
  */
@@ -33,6 +35,22 @@ public final class IntegerSerializer {
         };
     }
 
+    /**
+     * Serialize {@code int} into given array by {@link #serialize(int)} convention
+     * without intermediate array.
+     *
+     * @param value  target int to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(int value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (value >>> 24);
+        bytes[offset + 2] = (byte) (value >>> 16);
+        bytes[offset + 3] = (byte) (value >>> 8);
+        bytes[offset + 4] = (byte) value;
+    }
+
     /**
      * Deserialize {@code int} by {@link #serialize(int)} convention
      *
@@ -58,6 +76,18 @@ public final class IntegerSerializer {
                 ((bytes[1 + offset]) << 24);
     }
 
+    /**
+     * Deserialize {@code int} by {@link #serialize(int)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized int
+     */
+    public int deserialize(ByteBuffer buffer, int offset) {
+        return buffer.getInt(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
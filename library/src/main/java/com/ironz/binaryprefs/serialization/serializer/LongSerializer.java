@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Long to byte array implementation and backwards
  */
@@ -36,6 +38,26 @@ public final class LongSerializer {
         };
     }
 
+    /**
+     * Serialize {@code long} into given array by {@link #serialize(long)} convention
+     * without intermediate array.
+     *
+     * @param value  target long to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(long value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (value >>> 56);
+        bytes[offset + 2] = (byte) (value >>> 48);
+        bytes[offset + 3] = (byte) (value >>> 40);
+        bytes[offset + 4] = (byte) (value >>> 32);
+        bytes[offset + 5] = (byte) (value >>> 24);
+        bytes[offset + 6] = (byte) (value >>> 16);
+        bytes[offset + 7] = (byte) (value >>> 8);
+        bytes[offset + 8] = (byte) value;
+    }
+
     /**
      * Deserialize {@code long} by {@link #serialize(long)} convention
      *
@@ -65,6 +87,18 @@ public final class LongSerializer {
                 (((long) bytes[1 + offset]) << 56);
     }
 
+    /**
+     * Deserialize {@code long} by {@link #serialize(long)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized long
+     */
+    public long deserialize(ByteBuffer buffer, int offset) {
+        return buffer.getLong(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
@@ -7,6 +7,8 @@ import com.ironz.binaryprefs.serialization.serializer.persistable.io.DataOutput;
 import com.ironz.binaryprefs.serialization.serializer.persistable.io.PersistableObjectInput;
 import com.ironz.binaryprefs.serialization.serializer.persistable.io.PersistableObjectOutput;
 
+import java.nio.ByteBuffer;
+
 /**
  * {@code Persistable} to byte array implementation and backwards
  */
@@ -28,6 +30,25 @@ public final class PersistableSerializer {
     private final ShortSerializer shortSerializer;
     private final StringSerializer stringSerializer;
     private final PersistableRegistry persistableRegistry;
+    private final boolean compact;
+    private final ThreadLocal<DataOutput> output = new ThreadLocal<DataOutput>() {
+        @Override
+        protected DataOutput initialValue() {
+            return new PersistableObjectOutput(
+                    booleanSerializer,
+                    byteSerializer,
+                    byteArraySerializer,
+                    charSerializer,
+                    doubleSerializer,
+                    floatSerializer,
+                    integerSerializer,
+                    longSerializer,
+                    shortSerializer,
+                    stringSerializer,
+                    compact
+            );
+        }
+    };
 
     public PersistableSerializer(BooleanSerializer booleanSerializer,
                                  ByteSerializer byteSerializer,
@@ -39,7 +60,8 @@ public final class PersistableSerializer {
                                  LongSerializer longSerializer,
                                  ShortSerializer shortSerializer,
                                  StringSerializer stringSerializer,
-                                 PersistableRegistry persistableRegistry) {
+                                 PersistableRegistry persistableRegistry,
+                                 boolean compact) {
         this.booleanSerializer = booleanSerializer;
         this.byteSerializer = byteSerializer;
         this.byteArraySerializer = byteArraySerializer;
@@ -51,29 +73,20 @@ public final class PersistableSerializer {
         this.shortSerializer = shortSerializer;
         this.stringSerializer = stringSerializer;
         this.persistableRegistry = persistableRegistry;
+        this.compact = compact;
     }
 
     /**
      * Serialize {@code Persistable} into byte array with following scheme:
-     * [{@link PersistableSerializer#FLAG}] + [sequential primitives bytes].
+     * [{@link PersistableSerializer#FLAG}] + [protocol version] + [sequential primitives bytes].
+     * Compact protocol is used if serializer is created with {@code compact} flag,
+     * both protocols are readable regardless of it. Output and its buffer are reused by each thread.
      *
      * @param value target persistable to serialize.
      * @return specific byte array with scheme.
      */
     public byte[] serialize(Persistable value) {
-        DataOutput output = new PersistableObjectOutput(
-                booleanSerializer,
-                byteSerializer,
-                byteArraySerializer,
-                charSerializer,
-                doubleSerializer,
-                floatSerializer,
-                integerSerializer,
-                longSerializer,
-                shortSerializer,
-                stringSerializer
-        );
-        return output.serialize(value);
+        return output.get().serialize(value);
     }
 
     /**
@@ -86,7 +99,27 @@ public final class PersistableSerializer {
      * @return deserialized {@link Persistable}
      */
     public Persistable deserialize(String key, byte[] bytes) {
-        DataInput input = new PersistableObjectInput(
+        DataInput input = createInput();
+        return input.deserialize(key, bytes);
+    }
+
+    /**
+     * Deserialize {@link Persistable} by {@link #serialize(Persistable)} convention
+     * directly from buffer without intermediate copies.
+     *
+     * @param key    key for determinate how to serialize
+     *               one type of class type or interface type by two or more
+     *               different serialization protocols.
+     * @param buffer target buffer for deserialization
+     * @return deserialized {@link Persistable}
+     */
+    public Persistable deserialize(String key, ByteBuffer buffer) {
+        DataInput input = createInput();
+        return input.deserialize(key, buffer);
+    }
+
+    private DataInput createInput() {
+        return new PersistableObjectInput(
                 booleanSerializer,
                 byteSerializer,
                 byteArraySerializer,
@@ -99,7 +132,6 @@ public final class PersistableSerializer {
                 stringSerializer,
                 persistableRegistry
         );
-        return input.deserialize(key, bytes);
     }
 
     public boolean isMatches(byte flag) {
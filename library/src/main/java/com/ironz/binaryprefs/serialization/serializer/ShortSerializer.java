@@ -1,5 +1,7 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
  * Short to byte array implementation and backwards
  */
@@ -30,6 +32,20 @@ public final class ShortSerializer {
         };
     }
 
+    /**
+     * Serialize {@code short} into given array by {@link #serialize(short)} convention
+     * without intermediate array.
+     *
+     * @param value  target short to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength()} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(short value, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        bytes[offset + 1] = (byte) (value >>> 8);
+        bytes[offset + 2] = (byte) value;
+    }
+
     /**
      * Deserialize {@code short} by {@link #serialize(short)}  convention
      *
@@ -53,6 +69,18 @@ public final class ShortSerializer {
                 (bytes[2 + offset] & i));
     }
 
+    /**
+     * Deserialize {@code short} by {@link #serialize(short)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target big-endian buffer for deserialization
+     * @param offset absolute buffer offset
+     * @return deserialized short
+     */
+    public short deserialize(ByteBuffer buffer, int offset) {
+        return buffer.getShort(1 + offset);
+    }
+
     public boolean isMatches(byte flag) {
         return flag == FLAG;
     }
@@ -1,7 +1,10 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import java.nio.ByteBuffer;
+
 /**
- * {@code String} to byte array implementation and backwards
+ * {@code String} to byte array implementation and backwards.
+ * Strings are encoded in UTF-8 regardless of platform default charset.
  */
 public final class StringSerializer {
 
@@ -27,13 +30,36 @@ public final class StringSerializer {
      * @return specific byte array with scheme.
      */
     public byte[] serialize(String s) {
-        byte[] stringBytes = s.getBytes();
-        byte[] b = new byte[stringBytes.length + FLAG_OFFSET];
-        b[0] = FLAG;
-        System.arraycopy(stringBytes, 0, b, FLAG_OFFSET, stringBytes.length);
+        byte[] b = new byte[FLAG_OFFSET + Utf8.length(s)];
+        serialize(s, b, 0);
         return b;
     }
 
+    /**
+     * Serialize {@code String} into given array by {@link #serialize(String)} convention
+     * without intermediate array.
+     *
+     * @param s      target String to serialize.
+     * @param bytes  target byte array with at least {@link #bytesLength(String)} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serialize(String s, byte[] bytes, int offset) {
+        bytes[offset] = FLAG;
+        serializeContent(s, bytes, offset + FLAG_OFFSET);
+    }
+
+    /**
+     * Serialize {@code String} bytes into given array without {@link #FLAG},
+     * for formats where type of value is known by reader.
+     *
+     * @param s      target String to serialize.
+     * @param bytes  target byte array with at least {@link #contentLength(String)} bytes after offset.
+     * @param offset bytes array offset
+     */
+    public void serializeContent(String s, byte[] bytes, int offset) {
+        Utf8.write(s, bytes, offset);
+    }
+
     /**
      * Deserialize {@link String} by {@link #serialize(String)} convention
      *
@@ -53,7 +79,40 @@ public final class StringSerializer {
      * @return deserialized String
      */
     public String deserialize(byte[] bytes, int offset, int length) {
-        return new String(bytes, FLAG_OFFSET + offset, length);
+        return new String(bytes, FLAG_OFFSET + offset, length, Utf8.UTF_8);
+    }
+
+    /**
+     * Deserialize {@link String} by {@link #serialize(String)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target buffer for deserialization
+     * @param offset absolute buffer offset
+     * @param length string bytes length
+     * @return deserialized String
+     */
+    public String deserialize(ByteBuffer buffer, int offset, int length) {
+        return deserializeContent(buffer, FLAG_OFFSET + offset, length);
+    }
+
+    /**
+     * Deserialize {@link String} by {@link #serializeContent(String, byte[], int)} convention.
+     * Buffer position is not changed.
+     *
+     * @param buffer target buffer for deserialization
+     * @param offset absolute buffer offset of string bytes
+     * @param length string bytes length
+     * @return deserialized String
+     */
+    public String deserializeContent(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + offset, length, Utf8.UTF_8);
+        }
+        byte[] stringBytes = new byte[length];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(offset);
+        duplicate.get(stringBytes);
+        return new String(stringBytes, Utf8.UTF_8);
     }
 
     public boolean isMatches(byte flag) {
@@ -63,4 +122,20 @@ public final class StringSerializer {
     public int bytesLength() {
         return SIZE;
     }
+
+    /**
+     * @param s target String
+     * @return size of serialized string in bytes
+     */
+    public int bytesLength(String s) {
+        return FLAG_OFFSET + contentLength(s);
+    }
+
+    /**
+     * @param s target String
+     * @return size of string bytes without flag
+     */
+    public int contentLength(String s) {
+        return Utf8.length(s);
+    }
 }
\ No newline at end of file
@@ -1,11 +1,17 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import com.ironz.binaryprefs.exception.SerializationException;
+
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.zip.CRC32;
 
 /**
- * {@code Set<String>} to byte array implementation and backwards
+ * {@code Set<String>} to byte array implementation and backwards.
+ * Strings are encoded in UTF-8 regardless of platform default charset.
+ * Serialized set could be followed by delta blocks, see {@link #serializeDelta(Set, Set)}.
  */
 public final class StringSetSerializer {
 
@@ -19,57 +25,118 @@ public final class StringSetSerializer {
      */
     private static final int SIZE = 1;
 
+    /**
+     * Size of string size prefix
+     */
+    private static final int INT_SIZE = 4;
+
+    /**
+     * Uses for detecting delta block instead of string size
+     */
+    private static final int DELTA_MARK = Integer.MIN_VALUE;
+
+    /**
+     * Size of delta block header: [{@link #DELTA_MARK}] + [records_size] + [crc32]
+     */
+    private static final int DELTA_HEADER_SIZE = 12;
+    private static final int DELTA_SIZE_OFFSET = 4;
+    private static final int DELTA_CRC_OFFSET = 8;
+
+    private static final String INCORRECT_SIZE_MESSAGE = "Set<String> contains string of incorrect size %s at %s offset";
+
     /**
      * Serialize {@code Set<String>} into byte array with following scheme:
      * [{@link #FLAG}] + (([string_size] + [string_byte_array]) * n).
+     * Strings are encoded directly into resulting array which size is counted before.
      *
      * @param set target Set to serialize.
      * @return specific byte array with scheme.
      */
     public byte[] serialize(Set<String> set) {
-        byte[][] bytes = new byte[set.size()][];
-        int i = 0;
-        int totalArraySize = 1;
-
+        byte[] bytes = new byte[serializedLength(set)];
+        bytes[0] = FLAG;
+        int offset = SIZE;
         for (String s : set) {
-            byte[] stringBytes = s.getBytes();
-            byte[] stringSizeBytes = intToBytes(stringBytes.length);
-
-            byte[] merged = new byte[stringBytes.length + stringSizeBytes.length];
-
-            System.arraycopy(stringSizeBytes, 0, merged, 0, stringSizeBytes.length);
-            System.arraycopy(stringBytes, 0, merged, stringSizeBytes.length, stringBytes.length);
-
-            bytes[i] = merged;
+            offset = writeRecord(bytes, offset, s, false);
+        }
+        return bytes;
+    }
 
-            totalArraySize += merged.length;
-            i++;
+    /**
+     * Serialize set changes into delta block which could be appended to byte array
+     * of {@link #serialize(Set)} or another delta block with following scheme:
+     * [{@link #DELTA_MARK}] + [records_size] + [crc32 of records] + records,
+     * where each record is [string_size] + [string_byte_array] for added string or
+     * [~string_size] + [string_byte_array] for removed one.
+     * Removed and added strings shouldn't intersect.
+     *
+     * @param added   strings which are added to set
+     * @param removed strings which are removed from set
+     * @return delta block byte array
+     */
+    public byte[] serializeDelta(Set<String> added, Set<String> removed) {
+        int recordsSize = recordsSize(added) + recordsSize(removed);
+        byte[] block = new byte[DELTA_HEADER_SIZE + recordsSize];
+        int offset = DELTA_HEADER_SIZE;
+        for (String s : removed) {
+            offset = writeRecord(block, offset, s, true);
+        }
+        for (String s : added) {
+            offset = writeRecord(block, offset, s, false);
         }
 
-        byte[] totalArray = new byte[totalArraySize];
-        totalArray[0] = FLAG;
+        CRC32 crc = new CRC32();
+        crc.update(block, DELTA_HEADER_SIZE, recordsSize);
+        writeInt(block, 0, DELTA_MARK);
+        writeInt(block, DELTA_SIZE_OFFSET, recordsSize);
+        writeInt(block, DELTA_CRC_OFFSET, (int) crc.getValue());
+        return block;
+    }
+
+    /**
+     * Counts length of {@link #serialize(Set)} result without encoding strings.
+     *
+     * @param set target Set
+     * @return serialized byte array length
+     */
+    public int serializedLength(Set<String> set) {
+        return SIZE + recordsSize(set);
+    }
 
-        int offset = 1;
-        for (byte[] b : bytes) {
-            System.arraycopy(b, 0, totalArray, offset, b.length);
-            offset = offset + b.length;
+    private int recordsSize(Set<String> set) {
+        int size = 0;
+        for (String s : set) {
+            size += INT_SIZE + Utf8.length(s);
         }
+        return size;
+    }
 
-        return totalArray;
+    /**
+     * Writes string after its size prefix and fills the prefix afterwards,
+     * so string length isn't counted twice.
+     *
+     * @return offset after written record
+     */
+    private int writeRecord(byte[] bytes, int offset, String s, boolean removed) {
+        int stringOffset = offset + INT_SIZE;
+        int end = Utf8.write(s, bytes, stringOffset);
+        int stringSize = end - stringOffset;
+        writeInt(bytes, offset, removed ? ~stringSize : stringSize);
+        return end;
     }
 
-    private byte[] intToBytes(int value) {
-        int i = 0xff;
-        return new byte[]{
-                (byte) ((value >>> 24) & i),
-                (byte) ((value >>> 16) & i),
-                (byte) ((value >>> 8) & i),
-                (byte) ((value) & i)
-        };
+    private void writeInt(byte[] bytes, int offset, int value) {
+        bytes[offset] = (byte) (value >>> 24);
+        bytes[offset + 1] = (byte) (value >>> 16);
+        bytes[offset + 2] = (byte) (value >>> 8);
+        bytes[offset + 3] = (byte) value;
     }
 
     /**
-     * Deserialize {@code Set<String>} by {@link #serialize(Set)} convention
+     * Deserialize {@code Set<String>} by {@link #serialize(Set)} convention,
+     * delta blocks which follow the set are applied in order. Strings are
+     * decoded straight from given array and resulting set is sized by
+     * count of serialized strings.
      *
      * @param bytes target byte array for deserialization
      * @return deserialized String Set
@@ -78,27 +145,26 @@ public final class StringSetSerializer {
         byte flag = bytes[0];
         if (flag == FLAG) {
 
-            Set<String> set = new HashSet<>();
+            Set<String> set = new HashSet<>(capacity(countStrings(bytes)));
 
-            int i = 1;
+            int i = SIZE;
 
-            while (i < bytes.length) {
+            while (bytes.length - i >= INT_SIZE) {
 
-                int integerBytesSize = Integer.SIZE / 8;
-                byte[] stringSizeBytes = new byte[integerBytesSize];
-                System.arraycopy(bytes, i, stringSizeBytes, 0, stringSizeBytes.length);
-                int stringSize = intFromBytes(stringSizeBytes);
+                int stringSize = readInt(bytes, i);
 
-                byte[] stringBytes = new byte[stringSize];
+                if (stringSize == DELTA_MARK) {
+                    i = applyDelta(set, bytes, i);
+                    continue;
+                }
 
-                for (int k = 0; k < stringBytes.length; k++) {
-                    int stringOffset = i + k + integerBytesSize;
-                    stringBytes[k] = bytes[stringOffset];
+                if (stringSize < 0 || stringSize > bytes.length - i - INT_SIZE) {
+                    throw new SerializationException(String.format(INCORRECT_SIZE_MESSAGE, stringSize, i));
                 }
 
-                set.add(new String(stringBytes));
+                set.add(new String(bytes, i + INT_SIZE, stringSize, Utf8.UTF_8));
 
-                i += integerBytesSize + stringSize;
+                i += INT_SIZE + stringSize;
             }
 
             return Collections.unmodifiableSet(set);
@@ -107,12 +173,117 @@ public final class StringSetSerializer {
         throw new ClassCastException(String.format("Set<String> cannot be deserialized in '%s' flag type", flag));
     }
 
-    private int intFromBytes(byte[] bytes) {
+    /**
+     * Counts strings of serialized set before the first delta block.
+     */
+    private int countStrings(byte[] bytes) {
+        int count = 0;
+        int i = SIZE;
+        while (bytes.length - i >= INT_SIZE) {
+            int stringSize = readInt(bytes, i);
+            if (stringSize < 0) {
+                break;
+            }
+            i += INT_SIZE + stringSize;
+            count++;
+        }
+        return count;
+    }
+
+    private int capacity(int count) {
+        return Math.max(count * 4 / 3 + 1, 16);
+    }
+
+    /**
+     * Applies delta block which starts from given offset. Block could be torn
+     * by crash while it was appended, such block and everything after it
+     * is ignored.
+     *
+     * @return offset of the next block or array length if block is torn
+     */
+    private int applyDelta(Set<String> set, byte[] bytes, int offset) {
+        int end = deltaEnd(bytes, offset);
+        if (end < 0) {
+            return bytes.length;
+        }
+        int i = offset + DELTA_HEADER_SIZE;
+        while (i < end) {
+            int size = readInt(bytes, i);
+            i += INT_SIZE;
+            if (size >= 0) {
+                set.add(new String(bytes, i, size, Utf8.UTF_8));
+                i += size;
+                continue;
+            }
+            set.remove(new String(bytes, i, ~size, Utf8.UTF_8));
+            i += ~size;
+        }
+        return end;
+    }
+
+    /**
+     * Validates delta block which starts from given offset.
+     *
+     * @return offset after the block or {@code -1} if block is torn
+     */
+    private int deltaEnd(byte[] bytes, int offset) {
+        if (bytes.length - offset < DELTA_HEADER_SIZE || readInt(bytes, offset) != DELTA_MARK) {
+            return -1;
+        }
+        int recordsSize = readInt(bytes, offset + DELTA_SIZE_OFFSET);
+        int checksum = readInt(bytes, offset + DELTA_CRC_OFFSET);
+        int start = offset + DELTA_HEADER_SIZE;
+        if (recordsSize < 0 || recordsSize > bytes.length - start) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes, start, recordsSize);
+        if ((int) crc.getValue() != checksum) {
+            return -1;
+        }
+        return start + recordsSize;
+    }
+
+    /**
+     * Checks that block which starts from given offset is the last complete block of
+     * serialized set, so the next delta block could be appended right after it. Only
+     * the tail block is read: offset {@code 0} means serialized set without delta
+     * blocks, which is written whole, otherwise delta block header, size and checksum
+     * of its records are validated against the buffer end.
+     *
+     * @param buffer serialized set with delta blocks
+     * @param offset offset of the last block from buffer position
+     * @return {@code true} if buffer ends on the block end, {@code false} otherwise
+     */
+    public boolean isLastBlock(ByteBuffer buffer, int offset) {
+        int start = buffer.position();
+        int length = buffer.remaining();
+        if (offset == 0) {
+            return length >= SIZE && buffer.get(start) == FLAG;
+        }
+        if (offset < SIZE || length - offset < DELTA_HEADER_SIZE || buffer.getInt(start + offset) != DELTA_MARK) {
+            return false;
+        }
+        int recordsSize = buffer.getInt(start + offset + DELTA_SIZE_OFFSET);
+        int checksum = buffer.getInt(start + offset + DELTA_CRC_OFFSET);
+        if (recordsSize != length - offset - DELTA_HEADER_SIZE) {
+            return false;
+        }
+        byte[] records = new byte[recordsSize];
+        ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(start + offset + DELTA_HEADER_SIZE);
+        duplicate.get(records);
+        CRC32 crc = new CRC32();
+        crc.update(records);
+        return (int) crc.getValue() == checksum;
+    }
+
+    private int readInt(byte[] bytes, int offset) {
         int i = 0xff;
-        return ((bytes[3] & i)) +
-                ((bytes[2] & i) << 8) +
-                ((bytes[1] & i) << 16) +
-                ((bytes[0]) << 24);
+        return ((bytes[offset + 3] & i)) +
+                ((bytes[offset + 2] & i) << 8) +
+                ((bytes[offset + 1] & i) << 16) +
+                ((bytes[offset]) << 24);
     }
 
     public boolean isMatches(byte flag) {
@@ -122,4 +293,4 @@ public final class StringSetSerializer {
     public int bytesLength() {
         return SIZE;
     }
-}
\ No newline at end of file
+}
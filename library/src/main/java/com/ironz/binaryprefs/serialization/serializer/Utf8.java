@@ -0,0 +1,88 @@
+package com.ironz.binaryprefs.serialization.serializer;
+
+import java.nio.charset.Charset;
+
+/**
+ * UTF-8 encoding of strings directly into target array without intermediate arrays.
+ * Unpaired surrogates are encoded as {@link #REPLACEMENT} like {@link String#getBytes(Charset)} does.
+ */
+final class Utf8 {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final byte REPLACEMENT = '?';
+
+    private Utf8() {
+
+    }
+
+    /**
+     * @param s target string
+     * @return count of bytes which string takes in UTF-8
+     */
+    static int length(String s) {
+        int length = s.length();
+        int size = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                size += 1;
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                size += 2;
+                i++;
+                continue;
+            }
+            if (Character.isSurrogate(c)) {
+                continue;
+            }
+            size += 2;
+        }
+        return size;
+    }
+
+    /**
+     * Encodes string into target array which should have {@link #length(String)} bytes after offset.
+     *
+     * @param s      target string
+     * @param bytes  target byte array
+     * @param offset bytes array offset
+     * @return offset after encoded string
+     */
+    static int write(String s, byte[] bytes, int offset) {
+        int length = s.length();
+        int i = offset;
+        for (int k = 0; k < length; k++) {
+            char c = s.charAt(k);
+            if (c < 0x80) {
+                bytes[i++] = (byte) c;
+                continue;
+            }
+            if (c < 0x800) {
+                bytes[i++] = (byte) (0xc0 | (c >> 6));
+                bytes[i++] = (byte) (0x80 | (c & 0x3f));
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && k + 1 < length && Character.isLowSurrogate(s.charAt(k + 1))) {
+                int codePoint = Character.toCodePoint(c, s.charAt(++k));
+                bytes[i++] = (byte) (0xf0 | (codePoint >> 18));
+                bytes[i++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                bytes[i++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                bytes[i++] = (byte) (0x80 | (codePoint & 0x3f));
+                continue;
+            }
+            if (Character.isSurrogate(c)) {
+                bytes[i++] = REPLACEMENT;
+                continue;
+            }
+            bytes[i++] = (byte) (0xe0 | (c >> 12));
+            bytes[i++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            bytes[i++] = (byte) (0x80 | (c & 0x3f));
+        }
+        return i;
+    }
+}
@@ -0,0 +1,17 @@
+package com.ironz.binaryprefs.serialization.serializer.persistable;
+
+/**
+ * {@link Persistable} which knows approximate size of its serialized content,
+ * so output buffer is sized once before {@link #writeExternal} instead of
+ * growing while large object graph is written.
+ */
+public interface SizedPersistable extends Persistable {
+    /**
+     * Returns estimated size of content which is written by {@link #writeExternal}
+     * in bytes. Estimation isn't required to be exact, buffer still grows if
+     * content doesn't fit.
+     *
+     * @return estimated size in bytes
+     */
+    int sizeHint();
+}
@@ -2,6 +2,8 @@ package com.ironz.binaryprefs.serialization.serializer.persistable.io;
 
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
 
+import java.nio.ByteBuffer;
+
 public interface DataInput {
 
     /**
@@ -107,4 +109,15 @@ public interface DataInput {
      * @return deserialized object
      */
     Persistable deserialize(String key, byte[] bytes);
+
+    /**
+     * Deserializes buffer into given {@link Persistable} object by given key.
+     * All remaining bytes of the buffer are used, buffer position is not changed.
+     *
+     * @param key    given preference key for {@link Persistable} object define
+     *               see {@link com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry}.
+     * @param buffer given buffer created by specific output scheme
+     * @return deserialized object
+     */
+    Persistable deserialize(String key, ByteBuffer buffer);
 }
\ No newline at end of file
@@ -4,6 +4,12 @@ import com.ironz.binaryprefs.serialization.serializer.*;
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
 import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
 
+import java.nio.ByteBuffer;
+
+/**
+ * Reads values which are written by {@link PersistableObjectOutput} in any protocol version,
+ * version is detected by byte after {@link PersistableSerializer#FLAG}.
+ */
 public final class PersistableObjectInput implements DataInput {
 
     private static final String BASE_INCORRECT_TYPE_MESSAGE = "cannot be deserialized in '%s' flag type";
@@ -21,6 +27,9 @@ public final class PersistableObjectInput implements DataInput {
     private static final String INCORRECT_STRING_MESSAGE = "String " + BASE_INCORRECT_TYPE_MESSAGE;
     private static final String OUT_OF_BOUNDS_MESSAGE = "Can't read out of bounds array (expected size: %s bytes > disk size: %s bytes) for %s! key" +
             BASE_NOT_MIRRORED_MESSAGE;
+    private static final String UNSUPPORTED_VERSION_MESSAGE = "Unsupported serialization protocol version '%s' for %s key!";
+    private static final String MALFORMED_VARINT_MESSAGE = "Malformed varint at %s offset for %s key! " +
+            BASE_NOT_MIRRORED_MESSAGE;
     private static final String EMPTY_BYTE_ARRAY_MESSAGE = "Cannot deserialize empty byte array for %s key! " +
             BASE_NOT_MIRRORED_MESSAGE;
 
@@ -37,8 +46,9 @@ public final class PersistableObjectInput implements DataInput {
     private final PersistableRegistry persistableRegistry;
 
     private int offset = 0;
-    private byte[] bytes;
+    private ByteBuffer buffer;
     private String key;
+    private boolean compact;
 
     public PersistableObjectInput(BooleanSerializer booleanSerializer,
                                   ByteSerializer byteSerializer,
@@ -66,13 +76,17 @@ public final class PersistableObjectInput implements DataInput {
 
     @Override
     public Persistable deserialize(String key, byte[] bytes) {
+        return deserialize(key, ByteBuffer.wrap(bytes));
+    }
+
+    @Override
+    public Persistable deserialize(String key, ByteBuffer buffer) {
         this.offset = 0;
         this.key = key;
-        this.bytes = bytes;
+        this.buffer = buffer.slice();
         checkBytes();
         skipPersistableFlag();
-        //noinspection unused
-        int versionStub = readInt(); // TODO: 7/11/17 implement v.2 serialization protocol migration
+        readVersion();
         return constructPersistable();
     }
 
@@ -84,7 +98,7 @@ public final class PersistableObjectInput implements DataInput {
     }
 
     private void checkBytes() {
-        if (bytes.length == 0) {
+        if (buffer.limit() == 0) {
             throw new UnsupportedOperationException(String.format(EMPTY_BYTE_ARRAY_MESSAGE, key));
         }
     }
@@ -93,6 +107,20 @@ public final class PersistableObjectInput implements DataInput {
         offset++;
     }
 
+    private void readVersion() {
+        this.compact = false;
+        checkBounds(1);
+        byte flag = buffer.get(offset);
+        int version = integerSerializer.isMatches(flag) ? readInt() : buffer.get(offset++);
+        if (version == PersistableObjectOutput.VERSION_2) {
+            this.compact = true;
+            return;
+        }
+        if (version != PersistableObjectOutput.VERSION_1) {
+            throw new UnsupportedClassVersionError(String.format(UNSUPPORTED_VERSION_MESSAGE, version, key));
+        }
+    }
+
     private Persistable newInstance(Class<? extends Persistable> clazz) {
         try {
             return clazz.newInstance();
@@ -103,26 +131,32 @@ public final class PersistableObjectInput implements DataInput {
 
     @Override
     public boolean readBoolean() {
+        if (compact) {
+            return readRawByte() != 0;
+        }
         int length = booleanSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!booleanSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_BOOLEAN_MESSAGE, flag));
         }
-        boolean b = booleanSerializer.deserialize(bytes, offset);
+        boolean b = booleanSerializer.deserialize(buffer, offset);
         offset += length;
         return b;
     }
 
     @Override
     public byte readByte() {
+        if (compact) {
+            return readRawByte();
+        }
         int length = byteSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!byteSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_BYTE_MESSAGE, flag));
         }
-        byte b = byteSerializer.deserialize(bytes, offset);
+        byte b = byteSerializer.deserialize(buffer, offset);
         offset += length;
         return b;
     }
@@ -133,91 +167,124 @@ public final class PersistableObjectInput implements DataInput {
         if (bytesArraySize == -1) {
             return null;
         }
+        if (compact) {
+            checkBounds(bytesArraySize);
+            byte[] a = new byte[bytesArraySize];
+            ByteBuffer duplicate = buffer.duplicate();
+            duplicate.position(offset);
+            duplicate.get(a);
+            offset += bytesArraySize;
+            return a;
+        }
         int length = byteArraySerializer.bytesLength() + bytesArraySize;
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!byteArraySerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_BYTE_ARRAY_MESSAGE, flag));
         }
-        byte[] a = byteArraySerializer.deserialize(bytes, offset, bytesArraySize);
+        byte[] a = byteArraySerializer.deserialize(buffer, offset, bytesArraySize);
         offset += length;
         return a;
     }
 
     @Override
     public short readShort() {
+        if (compact) {
+            return (short) zigZag(readVarInt());
+        }
         int length = shortSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!shortSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_SHORT_MESSAGE, flag));
         }
-        short s = shortSerializer.deserialize(bytes, offset);
+        short s = shortSerializer.deserialize(buffer, offset);
         offset += length;
         return s;
     }
 
     @Override
     public char readChar() {
+        if (compact) {
+            return (char) readVarInt();
+        }
         int length = charSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!charSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_CHAR_MESSAGE, flag));
         }
-        char c = charSerializer.deserialize(bytes, offset);
+        char c = charSerializer.deserialize(buffer, offset);
         offset += length;
         return c;
     }
 
     @Override
     public int readInt() {
+        if (compact) {
+            return zigZag(readVarInt());
+        }
         int length = integerSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!integerSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_INT_MESSAGE, flag));
         }
-        int i = integerSerializer.deserialize(bytes, offset);
+        int i = integerSerializer.deserialize(buffer, offset);
         offset += length;
         return i;
     }
 
     @Override
     public long readLong() {
+        if (compact) {
+            return zigZag(readVarLong());
+        }
         int length = longSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!longSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_LONG_MESSAGE, flag));
         }
-        long l = longSerializer.deserialize(bytes, offset);
+        long l = longSerializer.deserialize(buffer, offset);
         offset += length;
         return l;
     }
 
     @Override
     public float readFloat() {
+        if (compact) {
+            checkBounds(4);
+            float f = Float.intBitsToFloat(buffer.getInt(offset));
+            offset += 4;
+            return f;
+        }
         int length = floatSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!floatSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_FLOAT_MESSAGE, flag));
         }
-        float f = floatSerializer.deserialize(bytes, offset);
+        float f = floatSerializer.deserialize(buffer, offset);
         offset += length;
         return f;
     }
 
     @Override
     public double readDouble() {
+        if (compact) {
+            checkBounds(8);
+            double d = Double.longBitsToDouble(buffer.getLong(offset));
+            offset += 8;
+            return d;
+        }
         int length = doubleSerializer.bytesLength();
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!doubleSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_DOUBLE_MESSAGE, flag));
         }
-        double d = doubleSerializer.deserialize(bytes, offset);
+        double d = doubleSerializer.deserialize(buffer, offset);
         offset += length;
         return d;
     }
@@ -228,20 +295,65 @@ public final class PersistableObjectInput implements DataInput {
         if (bytesStringSize == -1) {
             return null;
         }
+        if (compact) {
+            checkBounds(bytesStringSize);
+            String s = stringSerializer.deserializeContent(buffer, offset, bytesStringSize);
+            offset += bytesStringSize;
+            return s;
+        }
         int length = stringSerializer.bytesLength() + bytesStringSize;
         checkBounds(length);
-        byte flag = bytes[offset];
+        byte flag = buffer.get(offset);
         if (!stringSerializer.isMatches(flag)) {
             throw new ClassCastException(String.format(INCORRECT_STRING_MESSAGE, flag));
         }
-        String s = stringSerializer.deserialize(bytes, offset, bytesStringSize);
+        String s = stringSerializer.deserialize(buffer, offset, bytesStringSize);
         offset += length;
         return s;
     }
 
+    private byte readRawByte() {
+        checkBounds(1);
+        return buffer.get(offset++);
+    }
+
+    private int zigZag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long zigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private int readVarInt() {
+        int start = offset;
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = readRawByte();
+            value |= (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ClassCastException(String.format(MALFORMED_VARINT_MESSAGE, start, key));
+    }
+
+    private long readVarLong() {
+        int start = offset;
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = readRawByte();
+            value |= (long) (b & 0x7f) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new ClassCastException(String.format(MALFORMED_VARINT_MESSAGE, start, key));
+    }
+
     private void checkBounds(int requiredLength) {
         int requiredBound = offset + requiredLength;
-        int length = bytes.length;
+        int length = buffer.limit();
         if (requiredBound > length) {
             throw new ArrayIndexOutOfBoundsException(String.format(OUT_OF_BOUNDS_MESSAGE, key, requiredBound, length));
         }
@@ -2,12 +2,38 @@ package com.ironz.binaryprefs.serialization.serializer.persistable.io;
 
 import com.ironz.binaryprefs.serialization.serializer.*;
 import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
+import com.ironz.binaryprefs.serialization.serializer.persistable.SizedPersistable;
 
+/**
+ * Writes primitives directly into one growable buffer without intermediate arrays.
+ * Buffer is reused by the next {@link #serialize(Persistable)} call, so one instance
+ * should be used by one thread only. Only buffers up to {@link #MAX_RETAINED_CAPACITY}
+ * are retained after serialization.
+ * <p>
+ * Values are written in one of two protocol versions which are distinguished by
+ * byte after {@link PersistableSerializer#FLAG}:
+ * </p>
+ * <ul>
+ * <li>{@link #VERSION_1}: [int version] + ([flag] + [big-endian value]) per field.
+ * Strings and byte arrays are prefixed by int length.</li>
+ * <li>{@link #VERSION_2}: [version byte] + values without flags, because reader
+ * knows schema from {@link Persistable#readExternal}. Shorts, ints, longs and
+ * lengths are zig-zag varints, chars are varints, floats and doubles are
+ * big-endian bits.</li>
+ * </ul>
+ */
 public final class PersistableObjectOutput implements DataOutput {
 
-    //bytes capacity for initial array size, buffer array are resizable to (buffer.length + len + GROW_ARRAY_CAPACITY) * 2 after reaching limit.
-    private static final int GROW_ARRAY_CAPACITY = 128;
-    private static final int VERSION_STUB = 1; // TODO: 7/11/17 implement v.2 serialization protocol migration
+    static final int VERSION_1 = 1;
+    static final int VERSION_2 = 2;
+
+    private static final int INITIAL_CAPACITY = 128;
+    private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+    private static final int VARINT_MASK = 0x7f;
+    private static final int VARINT_CONTINUATION = 0x80;
+    private static final int VARINT_MAX_SIZE = 5;
+    private static final int VARLONG_MAX_SIZE = 10;
 
     private final BooleanSerializer booleanSerializer;
     private final ByteSerializer byteSerializer;
@@ -19,9 +45,11 @@ public final class PersistableObjectOutput implements DataOutput {
     private final LongSerializer longSerializer;
     private final ShortSerializer shortSerializer;
     private final StringSerializer stringSerializer;
+    private final boolean compact;
 
     private int offset = 0;
-    private byte[] buffer = new byte[GROW_ARRAY_CAPACITY];
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+    private boolean writing;
 
     public PersistableObjectOutput(BooleanSerializer booleanSerializer,
                                    ByteSerializer byteSerializer,
@@ -32,7 +60,8 @@ public final class PersistableObjectOutput implements DataOutput {
                                    IntegerSerializer integerSerializer,
                                    LongSerializer longSerializer,
                                    ShortSerializer shortSerializer,
-                                   StringSerializer stringSerializer) {
+                                   StringSerializer stringSerializer,
+                                   boolean compact) {
         this.booleanSerializer = booleanSerializer;
         this.byteSerializer = byteSerializer;
         this.byteArraySerializer = byteArraySerializer;
@@ -43,18 +72,69 @@ public final class PersistableObjectOutput implements DataOutput {
         this.longSerializer = longSerializer;
         this.shortSerializer = shortSerializer;
         this.stringSerializer = stringSerializer;
+        this.compact = compact;
     }
 
+    /**
+     * Nested serialization which is called from {@link Persistable#writeExternal(DataOutput)}
+     * is performed by separate output, so buffer of outer object isn't overwritten.
+     */
     @Override
     public byte[] serialize(Persistable value) {
+        if (writing) {
+            return createNested().serialize(value);
+        }
+        writing = true;
+        try {
+            return serializeInternal(value);
+        } finally {
+            writing = false;
+            if (buffer.length > MAX_RETAINED_CAPACITY) {
+                buffer = new byte[INITIAL_CAPACITY];
+            }
+        }
+    }
+
+    private byte[] serializeInternal(Persistable value) {
         this.offset = 0;
-        this.buffer = new byte[GROW_ARRAY_CAPACITY];
-        write(new byte[]{PersistableSerializer.FLAG});
-        writeInt(VERSION_STUB); // TODO: 7/11/17 implement v.2 serialization protocol migration
+        ensureCapacity(1 + integerSerializer.bytesLength() + sizeHint(value));
+        buffer[offset++] = PersistableSerializer.FLAG;
+        writeVersion();
         value.writeExternal(this);
         return trimFinalArray();
     }
 
+    private void writeVersion() {
+        if (compact) {
+            buffer[offset++] = VERSION_2;
+            return;
+        }
+        writeInt(VERSION_1);
+    }
+
+    private int sizeHint(Persistable value) {
+        if (value instanceof SizedPersistable) {
+            return Math.max(((SizedPersistable) value).sizeHint(), 0);
+        }
+        return 0;
+    }
+
+    private PersistableObjectOutput createNested() {
+        return new PersistableObjectOutput(
+                booleanSerializer,
+                byteSerializer,
+                byteArraySerializer,
+                charSerializer,
+                doubleSerializer,
+                floatSerializer,
+                integerSerializer,
+                longSerializer,
+                shortSerializer,
+                stringSerializer,
+                compact
+        );
+    }
+
     private byte[] trimFinalArray() {
         byte[] bytes = new byte[offset];
         System.arraycopy(buffer, 0, bytes, 0, offset);
@@ -63,14 +143,26 @@ public final class PersistableObjectOutput implements DataOutput {
 
     @Override
     public void writeBoolean(boolean value) {
-        byte[] serialize = booleanSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeRawByte(value ? (byte) 1 : (byte) 0);
+            return;
+        }
+        int length = booleanSerializer.bytesLength();
+        ensureCapacity(length);
+        booleanSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeByte(byte value) {
-        byte[] serialize = byteSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeRawByte(value);
+            return;
+        }
+        int length = byteSerializer.bytesLength();
+        ensureCapacity(length);
+        byteSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
@@ -79,46 +171,89 @@ public final class PersistableObjectOutput implements DataOutput {
             writeInt(-1);
             return;
         }
-        byte[] serialize = byteArraySerializer.serialize(value);
-        int length = serialize.length - byteArraySerializer.bytesLength();
-        writeInt(length);
-        write(serialize);
+        writeInt(value.length);
+        if (compact) {
+            ensureCapacity(value.length);
+            System.arraycopy(value, 0, buffer, offset, value.length);
+            offset += value.length;
+            return;
+        }
+        int length = byteArraySerializer.bytesLength() + value.length;
+        ensureCapacity(length);
+        byteArraySerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeShort(short value) {
-        byte[] serialize = shortSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeVarInt(zigZag(value));
+            return;
+        }
+        int length = shortSerializer.bytesLength();
+        ensureCapacity(length);
+        shortSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeChar(char value) {
-        byte[] serialize = charSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeVarInt(value);
+            return;
+        }
+        int length = charSerializer.bytesLength();
+        ensureCapacity(length);
+        charSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeInt(int value) {
-        byte[] serialize = integerSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeVarInt(zigZag(value));
+            return;
+        }
+        int length = integerSerializer.bytesLength();
+        ensureCapacity(length);
+        integerSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeLong(long value) {
-        byte[] serialize = longSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeVarLong(zigZag(value));
+            return;
+        }
+        int length = longSerializer.bytesLength();
+        ensureCapacity(length);
+        longSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeFloat(float value) {
-        byte[] serialize = floatSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeFixedInt(Float.floatToIntBits(value));
+            return;
+        }
+        int length = floatSerializer.bytesLength();
+        ensureCapacity(length);
+        floatSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
     public void writeDouble(double value) {
-        byte[] serialize = doubleSerializer.serialize(value);
-        write(serialize);
+        if (compact) {
+            writeFixedLong(Double.doubleToLongBits(value));
+            return;
+        }
+        int length = doubleSerializer.bytesLength();
+        ensureCapacity(length);
+        doubleSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
     @Override
@@ -127,30 +262,76 @@ public final class PersistableObjectOutput implements DataOutput {
             writeInt(-1);
             return;
         }
-        byte[] serialize = stringSerializer.serialize(value);
-        int length = serialize.length - stringSerializer.bytesLength();
-        writeInt(length);
-        write(serialize);
+        if (compact) {
+            int length = stringSerializer.contentLength(value);
+            writeInt(length);
+            ensureCapacity(length);
+            stringSerializer.serializeContent(value, buffer, offset);
+            offset += length;
+            return;
+        }
+        int length = stringSerializer.bytesLength(value);
+        writeInt(length - stringSerializer.bytesLength());
+        ensureCapacity(length);
+        stringSerializer.serialize(value, buffer, offset);
+        offset += length;
     }
 
-    private void write(byte[] value) {
-        int length = value.length;
-        tryGrowArray(length);
-        System.arraycopy(value, 0, buffer, offset, length);
-        offset += length;
+    private void writeRawByte(byte value) {
+        ensureCapacity(1);
+        buffer[offset++] = value;
     }
 
-    private void tryGrowArray(int length) {
-        boolean isOutOfBounds = offset + length >= buffer.length - 1;
-        if (isOutOfBounds) {
-            growArray(length);
+    private int zigZag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private void writeVarInt(int value) {
+        ensureCapacity(VARINT_MAX_SIZE);
+        while ((value & ~VARINT_MASK) != 0) {
+            buffer[offset++] = (byte) ((value & VARINT_MASK) | VARINT_CONTINUATION);
+            value >>>= 7;
         }
+        buffer[offset++] = (byte) value;
     }
 
-    private void growArray(int length) {
-        int newLength = (buffer.length + length + GROW_ARRAY_CAPACITY) * 2;
+    private void writeVarLong(long value) {
+        ensureCapacity(VARLONG_MAX_SIZE);
+        while ((value & ~VARINT_MASK) != 0) {
+            buffer[offset++] = (byte) ((value & VARINT_MASK) | VARINT_CONTINUATION);
+            value >>>= 7;
+        }
+        buffer[offset++] = (byte) value;
+    }
+
+    private void writeFixedInt(int value) {
+        ensureCapacity(4);
+        buffer[offset++] = (byte) (value >>> 24);
+        buffer[offset++] = (byte) (value >>> 16);
+        buffer[offset++] = (byte) (value >>> 8);
+        buffer[offset++] = (byte) value;
+    }
+
+    private void writeFixedLong(long value) {
+        writeFixedInt((int) (value >>> 32));
+        writeFixedInt((int) value);
+    }
+
+    private void ensureCapacity(int length) {
+        int required = offset + length;
+        if (required > buffer.length) {
+            growArray(required);
+        }
+    }
+
+    private void growArray(int required) {
+        int newLength = Math.max(buffer.length * 2, required);
         byte[] bytes = new byte[newLength];
-        System.arraycopy(buffer, 0, bytes, 0, buffer.length);
+        System.arraycopy(buffer, 0, bytes, 0, offset);
         buffer = bytes;
     }
 }
\ No newline at end of file
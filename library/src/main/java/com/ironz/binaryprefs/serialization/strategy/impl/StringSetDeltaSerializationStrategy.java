@@ -0,0 +1,84 @@
+package com.ironz.binaryprefs.serialization.strategy.impl;
+
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.StringSetSerializer;
+import com.ironz.binaryprefs.serialization.strategy.SerializationStrategy;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * String set strategy which keeps resulting set together with changes which
+ * have been applied to the previous one, so changes could be persisted as
+ * delta block instead of whole set. See {@link StringSetSerializer#serializeDelta(Set, Set)}.
+ */
+public final class StringSetDeltaSerializationStrategy implements SerializationStrategy {
+
+    private final Set<String> value;
+    private final Set<String> added;
+    private final Set<String> removed;
+    private final SerializerFactory serializerFactory;
+    private final StringSetSerializer stringSetSerializer;
+
+    /**
+     * @param value             resulting set
+     * @param added             strings which are added to the previous set
+     * @param removed           strings which are removed from the previous set,
+     *                          shouldn't intersect with added ones
+     * @param serializerFactory serializer factory
+     */
+    public StringSetDeltaSerializationStrategy(Set<String> value,
+                                               Set<String> added,
+                                               Set<String> removed,
+                                               SerializerFactory serializerFactory) {
+        this.value = value;
+        this.added = added;
+        this.removed = removed;
+        this.serializerFactory = serializerFactory;
+        this.stringSetSerializer = serializerFactory.getStringSetSerializer();
+    }
+
+    @Override
+    public byte[] serialize() {
+        return stringSetSerializer.serialize(value);
+    }
+
+    @Override
+    public Object getValue() {
+        return new HashSet<>(value);
+    }
+
+    /**
+     * @return length of {@link #serialize()} result which is counted without serialization
+     */
+    public int serializedLength() {
+        return stringSetSerializer.serializedLength(value);
+    }
+
+    public byte[] serializeDelta() {
+        return stringSetSerializer.serializeDelta(added, removed);
+    }
+
+    /**
+     * Combines changes of this strategy with changes of the next one.
+     *
+     * @param next strategy which changes are applied after this one
+     * @return strategy with resulting set of the next strategy
+     */
+    public StringSetDeltaSerializationStrategy merge(StringSetDeltaSerializationStrategy next) {
+        Set<String> mergedAdded = new HashSet<>(added);
+        mergedAdded.removeAll(next.removed);
+        mergedAdded.addAll(next.added);
+        Set<String> mergedRemoved = new HashSet<>(removed);
+        mergedRemoved.removeAll(next.added);
+        mergedRemoved.addAll(next.removed);
+        return new StringSetDeltaSerializationStrategy(next.value, mergedAdded, mergedRemoved, serializerFactory);
+    }
+
+    /**
+     * @return strategy which persists resulting set without changes
+     */
+    public SerializationStrategy toFull() {
+        return new StringSetSerializationStrategy(value, serializerFactory);
+    }
+}
@@ -0,0 +1,221 @@
+package com.ironz.binaryprefs.task;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Executor which keeps order of tasks per preference key, but runs tasks
+ * of different keys in parallel on given bounded pool.
+ * <p>
+ * Tasks which are submitted with {@link #submit(Runnable)} or {@link #submit(Callable)}
+ * are performed sequentially in submission order. {@link KeyedTask} starts as soon as
+ * previous sequential task is finished and no previously submitted read of its keys
+ * is running, any other task additionally waits for all previously submitted reads.
+ * </p>
+ * Reads which are submitted with {@link #submitRead(String, Callable)} are distributed
+ * between lanes by key hash and performed sequentially within one lane. Read overtakes
+ * all queued sequential tasks if none of them touches its key, otherwise read is queued
+ * after them as sequential task. Editors publish values into cache before transaction is
+ * submitted, so queued writes never delay reads of keys which are missing in cache.
+ */
+public final class KeyPartitionedExecutor {
+
+    private static final int LANES_COUNT = 16;
+
+    private final Object monitor = new Object();
+    private final Executor pool;
+    private final Queue<Task<?>> tasks = new ArrayDeque<>();
+    private final Lane[] lanes = new Lane[LANES_COUNT];
+    private final Map<String, Integer> readKeys = new HashMap<>();
+    private final Runnable sequentialRunner = new Runnable() {
+        @Override
+        public void run() {
+            runSequential();
+        }
+    };
+
+    private Task<?> active;
+    private int reads;
+
+    /**
+     * @param pool executor which runs lanes and sequential tasks,
+     *             parallelism is bounded by its threads count
+     */
+    public KeyPartitionedExecutor(Executor pool) {
+        this.pool = pool;
+        for (int i = 0; i < LANES_COUNT; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    public Future<?> submit(Runnable runnable) {
+        KeyedTask keyedTask = runnable instanceof KeyedTask ? (KeyedTask) runnable : null;
+        Task<Object> task = new Task<>(runnable, keyedTask);
+        enqueue(task);
+        return task;
+    }
+
+    public <T> Future<T> submit(Callable<T> callable) {
+        Task<T> task = new Task<>(callable, null);
+        enqueue(task);
+        return task;
+    }
+
+    public <T> Future<T> submitRead(String key, Callable<T> callable) {
+        Task<T> task = new Task<>(callable, key);
+        synchronized (monitor) {
+            if (isChanging(key)) {
+                enqueueLocked(task);
+                return task;
+            }
+            reads++;
+            Integer count = readKeys.get(key);
+            readKeys.put(key, count == null ? 1 : count + 1);
+            lanes[laneIndex(key)].add(task);
+        }
+        return task;
+    }
+
+    private void enqueue(Task<?> task) {
+        synchronized (monitor) {
+            enqueueLocked(task);
+        }
+    }
+
+    private void enqueueLocked(Task<?> task) {
+        tasks.add(task);
+        scheduleNextLocked();
+    }
+
+    private boolean isChanging(String key) {
+        if (active != null && active.containsKey(key)) {
+            return true;
+        }
+        for (Task<?> task : tasks) {
+            if (task.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void scheduleNextLocked() {
+        if (active != null) {
+            return;
+        }
+        Task<?> next = tasks.peek();
+        if (next == null || isBlockedByReads(next)) {
+            return;
+        }
+        active = tasks.poll();
+        pool.execute(sequentialRunner);
+    }
+
+    private boolean isBlockedByReads(Task<?> task) {
+        if (!task.isKeyed()) {
+            return reads > 0;
+        }
+        for (String key : readKeys.keySet()) {
+            if (task.containsKey(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void runSequential() {
+        Task<?> task;
+        synchronized (monitor) {
+            task = active;
+        }
+        task.run();
+        synchronized (monitor) {
+            active = null;
+            scheduleNextLocked();
+        }
+    }
+
+    private void completeRead(String key) {
+        synchronized (monitor) {
+            reads--;
+            Integer count = readKeys.remove(key);
+            if (count > 1) {
+                readKeys.put(key, count - 1);
+            }
+            scheduleNextLocked();
+        }
+    }
+
+    private int laneIndex(String key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (LANES_COUNT - 1);
+    }
+
+    /**
+     * Sequential queue of reads which is drained by one pool thread at a time.
+     */
+    private final class Lane implements Runnable {
+
+        private final Queue<Task<?>> queue = new ArrayDeque<>();
+        private boolean running;
+
+        private void add(Task<?> task) {
+            queue.add(task);
+            if (!running) {
+                running = true;
+                pool.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                Task<?> task;
+                synchronized (monitor) {
+                    task = queue.poll();
+                    if (task == null) {
+                        running = false;
+                        return;
+                    }
+                }
+                task.run();
+                completeRead(task.key);
+            }
+        }
+    }
+
+    private static final class Task<T> extends FutureTask<T> {
+
+        private final KeyedTask keyedTask;
+        private final String key;
+
+        private Task(Runnable runnable, KeyedTask keyedTask) {
+            super(runnable, null);
+            this.keyedTask = keyedTask;
+            this.key = null;
+        }
+
+        private Task(Callable<T> callable, String key) {
+            super(callable);
+            this.keyedTask = null;
+            this.key = key;
+        }
+
+        private boolean isKeyed() {
+            return keyedTask != null || key != null;
+        }
+
+        private boolean containsKey(String other) {
+            if (key != null) {
+                return key.equals(other);
+            }
+            return keyedTask == null || keyedTask.containsKey(other);
+        }
+    }
+}
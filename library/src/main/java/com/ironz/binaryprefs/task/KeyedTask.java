@@ -0,0 +1,16 @@
+package com.ironz.binaryprefs.task;
+
+/**
+ * Task which reads or changes only known set of preference keys.
+ * Tasks without this contract are treated as tasks which could touch all keys.
+ */
+public interface KeyedTask extends Runnable {
+    /**
+     * Checks if task reads or changes given key. Set of keys could grow
+     * until task is started, so method could be called concurrently.
+     *
+     * @param key preference key
+     * @return {@code true} if task touches the key
+     */
+    boolean containsKey(String key);
+}
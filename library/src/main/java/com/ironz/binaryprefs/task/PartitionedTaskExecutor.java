@@ -0,0 +1,59 @@
+package com.ironz.binaryprefs.task;
+
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.task.barrier.FutureBarrier;
+import com.ironz.binaryprefs.task.barrierprovider.FutureBarrierProvider;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Performs submitted tasks with {@link KeyPartitionedExecutor}: tasks are ordered
+ * per key, reads of different keys run in parallel with each other and with writes.
+ * Parallelism is bounded by given pool which could be shared between preferences.
+ */
+public final class PartitionedTaskExecutor implements TaskExecutor {
+
+    private final ExceptionHandler exceptionHandler;
+    private final KeyPartitionedExecutor currentExecutor;
+    private final FutureBarrierProvider barrierProvider;
+
+    public PartitionedTaskExecutor(String prefName,
+                                   ExceptionHandler exceptionHandler,
+                                   Map<String, KeyPartitionedExecutor> executors,
+                                   Executor pool,
+                                   FutureBarrierProvider barrierProvider) {
+        this.exceptionHandler = exceptionHandler;
+        this.currentExecutor = putIfAbsentExecutor(prefName, executors, pool);
+        this.barrierProvider = barrierProvider;
+    }
+
+    private KeyPartitionedExecutor putIfAbsentExecutor(String prefName, Map<String, KeyPartitionedExecutor> executors, Executor pool) {
+        if (executors.containsKey(prefName)) {
+            return executors.get(prefName);
+        }
+        KeyPartitionedExecutor executor = new KeyPartitionedExecutor(pool);
+        executors.put(prefName, executor);
+        return executor;
+    }
+
+    @Override
+    public FutureBarrier<?> submit(Runnable runnable) {
+        Future<?> submit = currentExecutor.submit(runnable);
+        return barrierProvider.get(submit, exceptionHandler);
+    }
+
+    @Override
+    public <T> FutureBarrier<T> submit(Callable<T> callable) {
+        Future<T> submit = currentExecutor.submit(callable);
+        return barrierProvider.get(submit, exceptionHandler);
+    }
+
+    @Override
+    public <T> FutureBarrier<T> submitRead(String key, Callable<T> callable) {
+        Future<T> submit = currentExecutor.submitRead(key, callable);
+        return barrierProvider.get(submit, exceptionHandler);
+    }
+}
@@ -0,0 +1,61 @@
+package com.ironz.binaryprefs.task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded thread pool which is shared by all preferences. Tasks order of each
+ * preferences is kept by {@link KeyPartitionedExecutor}, so pool threads aren't
+ * bound to preferences name. Idle threads are stopped after keep alive timeout.
+ */
+public final class SharedThreadPool {
+
+    private static final int THREADS_COUNT = Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    private static final long KEEP_ALIVE_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final String THREAD_NAME_PREFIX = "binaryprefs-pool-%d";
+
+    private SharedThreadPool() {
+    }
+
+    /**
+     * @return pool instance which is created on first call
+     */
+    public static ExecutorService getInstance() {
+        return PoolHolder.POOL;
+    }
+
+    static ThreadPoolExecutor create(int threadsCount, long keepAliveMillis) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                threadsCount,
+                threadsCount,
+                keepAliveMillis,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                createThreadFactory()
+        );
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private static ThreadFactory createThreadFactory() {
+        final AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r);
+                thread.setName(String.format(THREAD_NAME_PREFIX, threadNumber.incrementAndGet()));
+                thread.setPriority(Thread.MAX_PRIORITY);
+                return thread;
+            }
+        };
+    }
+
+    private static final class PoolHolder {
+
+        private static final ExecutorService POOL = create(THREADS_COUNT, KEEP_ALIVE_MILLIS);
+    }
+}
@@ -29,4 +29,15 @@ public interface TaskExecutor {
      * @return future barrier for task blocking
      */
     <T> FutureBarrier<T> submit(Callable<T> callable);
-}
\ No newline at end of file
+
+    /**
+     * Submits callable which only reads given key into task executor.
+     * Executor may run it in parallel with tasks which don't touch this key,
+     * but never before previously submitted tasks which could change it.
+     *
+     * @param key      preference key which is read by task
+     * @param callable instance for task execution
+     * @return future barrier for task blocking
+     */
+    <T> FutureBarrier<T> submitRead(String key, Callable<T> callable);
+}
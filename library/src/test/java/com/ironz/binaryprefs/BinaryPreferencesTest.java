@@ -351,6 +351,37 @@ public final class BinaryPreferencesTest {
         assertEquals(value, restored);
     }
 
+    @Test
+    public void stringSetDeltaValue() {
+        Set<String> value = new HashSet<>(Arrays.asList("one", "two", "three"));
+        preferences.edit()
+                .putStringSet(key, value)
+                .apply();
+
+        preferences.edit()
+                .addToStringSet(key, new HashSet<>(Arrays.asList("four", "five")))
+                .removeFromStringSet(key, new HashSet<>(Arrays.asList("one", "five")))
+                .apply();
+        Set<String> restored = preferences.getStringSet(key, new HashSet<String>());
+
+        assertEquals(new HashSet<>(Arrays.asList("two", "three", "four")), restored);
+    }
+
+    @Test
+    public void stringSetDeltaAfterRemove() {
+        preferences.edit()
+                .putStringSet(key, new HashSet<>(Arrays.asList("one", "two")))
+                .apply();
+
+        preferences.edit()
+                .addToStringSet(key, new HashSet<>(Arrays.asList("three")))
+                .remove(key)
+                .apply();
+        Set<String> restored = preferences.getStringSet(key, new HashSet<String>());
+
+        assertEquals(new HashSet<>(Arrays.asList("three")), restored);
+    }
+
     @Test
     public void stringSetNullValue() {
         Set<String> defaultValue = new HashSet<>();
@@ -614,6 +645,40 @@ public final class BinaryPreferencesTest {
         assertEquals(value, restored);
     }
 
+    @Test
+    public void clearAndPutIsNeverMissingForReaders() throws Exception {
+        final String undefined = "undefined";
+        final AtomicBoolean missing = new AtomicBoolean(false);
+        final AtomicBoolean running = new AtomicBoolean(true);
+
+        preferences.edit()
+                .putString(key, "value")
+                .commit();
+
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (running.get()) {
+                    if (undefined.equals(preferences.getString(key, undefined))) {
+                        missing.set(true);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 1000; i++) {
+            preferences.edit()
+                    .clear()
+                    .putString(key, "value" + i)
+                    .apply();
+        }
+        running.set(false);
+        reader.join();
+
+        assertFalse(missing.get());
+        assertEquals("value999", preferences.getString(key, undefined));
+    }
+
     @Test
     public void commitTrue() {
         String value = "value";
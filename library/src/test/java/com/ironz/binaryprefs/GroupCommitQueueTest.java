@@ -0,0 +1,350 @@
+package com.ironz.binaryprefs;
+
+import com.ironz.binaryprefs.cache.provider.BoundedCacheProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.cache.provider.SegmentedCache;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.event.SimpleEventBridge;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.serialization.strategy.SerializationStrategy;
+import com.ironz.binaryprefs.serialization.strategy.impl.StringSerializationStrategy;
+import com.ironz.binaryprefs.serialization.strategy.impl.StringSetDeltaSerializationStrategy;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.barrier.FutureBarrier;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.Assert.*;
+
+public final class GroupCommitQueueTest {
+
+    private static final String KEY = "key";
+    private static final String KEY_1 = "key.1";
+    private static final String KEY_2 = "key.2";
+
+    private final SerializerFactory serializerFactory = new SerializerFactory(new PersistableRegistry());
+    private final List<List<TransactionElement>> commits = new ArrayList<>();
+    private final List<Boolean> syncs = new ArrayList<>();
+    private final List<Runnable> tasks = new LinkedList<>();
+    private final CacheProvider cacheProvider = new BoundedCacheProvider(
+            GroupCommitQueueTest.class.getName(),
+            new ConcurrentHashMap<String, SegmentedCache>(),
+            1
+    );
+
+    private boolean failCommit;
+
+    @Before
+    public void setUp() {
+        commits.clear();
+        syncs.clear();
+        tasks.clear();
+        failCommit = false;
+    }
+
+    @Test
+    public void appliesAreMergedWhileQueued() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "first"), false);
+        queue.enqueue(Collections.<String>emptySet(), update(KEY_1, "value"), false);
+        queue.enqueue(Collections.singleton(KEY_2), update(KEY, "second"), false);
+        runTasks();
+
+        assertEquals(1, commits.size());
+        Map<String, String> written = written(commits.get(0));
+        assertEquals(3, written.size());
+        assertEquals("second", written.get(KEY));
+        assertEquals("value", written.get(KEY_1));
+        assertTrue(written.containsKey(KEY_2));
+        assertNull(written.get(KEY_2));
+    }
+
+    @Test
+    public void removalAfterUpdateWins() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), false);
+        queue.enqueue(Collections.singleton(KEY), Collections.<String, SerializationStrategy>emptyMap(), false);
+        runTasks();
+
+        Map<String, String> written = written(commits.get(0));
+        assertTrue(written.containsKey(KEY));
+        assertNull(written.get(KEY));
+    }
+
+    @Test
+    public void runningBatchIsClosed() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "first"), false);
+        runTasks();
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "second"), false);
+        runTasks();
+
+        assertEquals(2, commits.size());
+        assertEquals("second", written(commits.get(1)).get(KEY));
+    }
+
+    @Test
+    public void windowDelaysSubmitUntilCommit() {
+        GroupCommitQueue queue = createQueue(60000, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), false);
+
+        assertTrue(tasks.isEmpty());
+
+        FutureBarrier<?> barrier = queue.enqueue(Collections.<String>emptySet(), update(KEY_1, "value"), true);
+        runTasks();
+
+        assertTrue(barrier.completeBlockingWithStatus());
+        assertEquals(1, commits.size());
+        assertEquals(2, commits.get(0).size());
+    }
+
+    @Test
+    public void onlyCommittedBatchIsSynced() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "first"), false);
+        runTasks();
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "second"), false);
+        queue.enqueue(Collections.<String>emptySet(), update(KEY_1, "value"), true);
+        runTasks();
+
+        assertEquals(2, commits.size());
+        assertFalse(syncs.get(0));
+        assertTrue(syncs.get(1));
+    }
+
+    @Test
+    public void deltasAreMergedWhileQueued() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.<String>emptySet(), delta(setOf("a", "b"), setOf("b"), setOf("c")), false);
+        queue.enqueue(Collections.<String>emptySet(), delta(setOf("a"), setOf(), setOf("b")), false);
+        runTasks();
+
+        TransactionElement element = commits.get(0).get(0);
+        byte[] base = serializerFactory.getStringSetSerializer().serialize(setOf("a", "b", "c"));
+        byte[] appended = concat(base, element.getDelta());
+        assertEquals(setOf("a"), serializerFactory.getStringSetSerializer().deserialize(appended));
+        assertEquals(setOf("a"), serializerFactory.getStringSetSerializer().deserialize(element.getContent()));
+    }
+
+    @Test
+    public void deltaAfterRemovalIsWrittenWhole() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        queue.enqueue(Collections.singleton(KEY), Collections.<String, SerializationStrategy>emptyMap(), false);
+        queue.enqueue(Collections.<String>emptySet(), delta(setOf("a"), setOf("a"), setOf()), false);
+        runTasks();
+
+        TransactionElement element = commits.get(0).get(0);
+        assertNull(element.getDelta());
+        assertEquals(setOf("a"), serializerFactory.getStringSetSerializer().deserialize(element.getContent()));
+    }
+
+    @Test
+    public void windowSubmitsFullBatch() {
+        GroupCommitQueue queue = createQueue(60000, 2);
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), false);
+
+        assertTrue(tasks.isEmpty());
+
+        queue.enqueue(Collections.<String>emptySet(), update(KEY_1, "value"), false);
+
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void failedWriteFailsAllCommitters() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+        failCommit = true;
+
+        FutureBarrier<?> first = queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), true);
+        FutureBarrier<?> second = queue.enqueue(Collections.<String>emptySet(), update(KEY_1, "value"), true);
+        runTasks();
+
+        assertFalse(first.completeBlockingWithStatus());
+        assertFalse(second.completeBlockingWithStatus());
+    }
+
+    @Test
+    public void writtenValuesAreReleased() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+
+        cacheProvider.put(KEY, "value");
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), false);
+        cacheProvider.put(KEY, "value");
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), false);
+        assertTrue(cacheProvider.keys().contains(KEY));
+
+        runTasks();
+
+        assertFalse(cacheProvider.keys().contains(KEY));
+    }
+
+    @Test
+    public void failedValuesAreKept() {
+        GroupCommitQueue queue = createQueue(0, Integer.MAX_VALUE);
+        failCommit = true;
+
+        cacheProvider.put(KEY, "value");
+        queue.enqueue(Collections.<String>emptySet(), update(KEY, "value"), true);
+        runTasks();
+
+        assertTrue(cacheProvider.keys().contains(KEY));
+    }
+
+    private GroupCommitQueue createQueue(long windowMillis, int maxBatchSize) {
+        return new GroupCommitQueue(
+                new RecordingTransaction(),
+                cacheProvider,
+                new SimpleEventBridge(GroupCommitQueueTest.class.getName()),
+                ChangeJournal.NO_OP,
+                new DeferredTaskExecutor(),
+                new InterruptableFutureBarrierProvider(),
+                ExceptionHandler.IGNORE,
+                windowMillis,
+                maxBatchSize
+        );
+    }
+
+    private Map<String, SerializationStrategy> update(String key, String value) {
+        Map<String, SerializationStrategy> map = new HashMap<>();
+        map.put(key, new StringSerializationStrategy(value, serializerFactory));
+        return map;
+    }
+
+    private Map<String, SerializationStrategy> delta(Set<String> value, Set<String> added, Set<String> removed) {
+        Map<String, SerializationStrategy> map = new HashMap<>();
+        map.put(KEY, new StringSetDeltaSerializationStrategy(value, added, removed, serializerFactory));
+        return map;
+    }
+
+    private Set<String> setOf(String... strings) {
+        return new HashSet<>(Arrays.asList(strings));
+    }
+
+    private byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    private Map<String, String> written(List<TransactionElement> elements) {
+        Map<String, String> map = new HashMap<>();
+        for (TransactionElement element : elements) {
+            if (element.getAction() == TransactionElement.ACTION_REMOVE) {
+                map.put(element.getName(), null);
+                continue;
+            }
+            map.put(element.getName(), serializerFactory.getStringSerializer().deserialize(element.getContent()));
+        }
+        return map;
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    private final class DeferredTaskExecutor implements TaskExecutor {
+
+        @Override
+        public FutureBarrier<?> submit(Runnable runnable) {
+            tasks.add(runnable);
+            return null;
+        }
+
+        @Override
+        public <T> FutureBarrier<T> submit(Callable<T> callable) {
+            tasks.add(new FutureTask<>(callable));
+            return null;
+        }
+
+        @Override
+        public <T> FutureBarrier<T> submitRead(String key, Callable<T> callable) {
+            return submit(callable);
+        }
+    }
+
+    private final class RecordingTransaction implements FileTransaction {
+
+        @Override
+        public void lock() {
+
+        }
+
+        @Override
+        public void unlock() {
+
+        }
+
+        @Override
+        public void lockRead() {
+
+        }
+
+        @Override
+        public void unlockRead() {
+
+        }
+
+        @Override
+        public List<TransactionElement> fetchAll() {
+            return Collections.emptyList();
+        }
+
+        @Override
+        public Set<String> fetchNames() {
+            return Collections.emptySet();
+        }
+
+        @Override
+        public TransactionElement fetchOne(String name) {
+            return null;
+        }
+
+        @Override
+        public ByteBuffer fetchOneBuffer(String name) {
+            return null;
+        }
+
+        @Override
+        public void commit(List<TransactionElement> elements) {
+            commit(elements, true);
+        }
+
+        @Override
+        public void commit(List<TransactionElement> elements, boolean sync) {
+            if (failCommit) {
+                throw new IllegalStateException();
+            }
+            commits.add(elements);
+            syncs.add(sync);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package com.ironz.binaryprefs;
 
 import android.content.SharedPreferences;
 import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -14,7 +15,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import static org.junit.Assert.*;
@@ -39,8 +39,8 @@ public final class MultipleBinaryPreferencesTest {
         srcDir = folder.newFolder("preferences");
         backupDir = folder.newFolder("backup");
         lockDir = folder.newFolder("lock");
-        Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
-        Map<String, Lock> globalLocks = new ConcurrentHashMap<>();
+        Map<String, StripedReadWriteLock> locks = new ConcurrentHashMap<>();
+        Map<String, ReadWriteLock> globalLocks = new ConcurrentHashMap<>();
         Map<String, Map<String, Object>> allCaches = new ConcurrentHashMap<>();
         Map<String, Set<String>> cacheCandidates = new HashMap<>();
         firstPreferencesInstance = createPreferences("user_preferences", locks, globalLocks, allCaches, cacheCandidates);
@@ -49,8 +49,8 @@ public final class MultipleBinaryPreferencesTest {
     }
 
     private Preferences createPreferences(String name,
-                                          Map<String, ReadWriteLock> locks,
-                                          Map<String, Lock> globalLocks,
+                                          Map<String, StripedReadWriteLock> locks,
+                                          Map<String, ReadWriteLock> globalLocks,
                                           Map<String, Map<String, Object>> allCaches,
                                           Map<String, Set<String>> cacheCandidates) throws IOException {
 
@@ -120,6 +120,31 @@ public final class MultipleBinaryPreferencesTest {
         assertFalse(secondPreferencesInstance.contains(key));
     }
 
+    @Test
+    public void primitiveValuesFromDisk() throws Exception {
+        String intKey = int.class.getSimpleName() + KEY_SUFFIX;
+        String longKey = long.class.getSimpleName() + KEY_SUFFIX;
+        String booleanKey = boolean.class.getSimpleName() + KEY_SUFFIX;
+
+        firstPreferencesInstance.edit()
+                .putInt(intKey, 100500)
+                .putLong(longKey, Long.MAX_VALUE)
+                .putBoolean(booleanKey, true)
+                .commit();
+        Preferences restoredInstance = createPreferences(
+                "user_preferences",
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>(),
+                new ConcurrentHashMap<String, Map<String, Object>>(),
+                new HashMap<String, Set<String>>()
+        );
+
+        assertEquals(100500, restoredInstance.getInt(intKey, 0));
+        assertEquals(Long.MAX_VALUE, restoredInstance.getLong(longKey, 0L));
+        assertTrue(restoredInstance.getBoolean(booleanKey, false));
+        assertEquals(-1, restoredInstance.getInt("undefined" + KEY_SUFFIX, -1));
+    }
+
     @Test
     public void registeredListenerChanges() {
         final String key = String.class.getSimpleName().toLowerCase() + KEY_SUFFIX;
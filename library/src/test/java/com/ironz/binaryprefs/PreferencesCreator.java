@@ -14,6 +14,8 @@ import com.ironz.binaryprefs.event.SimpleEventBridge;
 import com.ironz.binaryprefs.file.adapter.FileAdapter;
 import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
 import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
 import com.ironz.binaryprefs.file.transaction.FileTransaction;
 import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
 import com.ironz.binaryprefs.impl.TestUser;
@@ -21,6 +23,7 @@ import com.ironz.binaryprefs.fetch.FetchStrategy;
 import com.ironz.binaryprefs.fetch.LazyFetchStrategy;
 import com.ironz.binaryprefs.lock.LockFactory;
 import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
 import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
 import com.ironz.binaryprefs.task.TaskExecutor;
@@ -34,7 +37,6 @@ import java.io.File;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 
 public final class PreferencesCreator {
@@ -72,8 +74,8 @@ public final class PreferencesCreator {
     }
 
     Preferences create(String name, DirectoryProvider directoryProvider, FutureBarrierProvider barrierProvider) {
-        Map<String, ReadWriteLock> locks = new ConcurrentHashMap<>();
-        Map<String, Lock> processLocks = new ConcurrentHashMap<>();
+        Map<String, StripedReadWriteLock> locks = new ConcurrentHashMap<>();
+        Map<String, ReadWriteLock> processLocks = new ConcurrentHashMap<>();
         Map<String, Set<String>> allCacheCandidates = new ConcurrentHashMap<>();
         Map<String, Map<String, Object>> allCaches = new ConcurrentHashMap<>();
         return create(name, directoryProvider, locks, processLocks, allCacheCandidates, allCaches, barrierProvider);
@@ -81,8 +83,8 @@ public final class PreferencesCreator {
 
     Preferences create(String name,
                        DirectoryProvider directoryProvider,
-                       Map<String, ReadWriteLock> locks,
-                       Map<String, Lock> processLocks,
+                       Map<String, StripedReadWriteLock> locks,
+                       Map<String, ReadWriteLock> processLocks,
                        Map<String, Set<String>> allCacheCandidates,
                        Map<String, Map<String, Object>> allCaches) {
         FutureBarrierProvider barrierProvider = new InterruptableFutureBarrierProvider();
@@ -91,8 +93,8 @@ public final class PreferencesCreator {
 
     private Preferences create(String name,
                                DirectoryProvider directoryProvider,
-                               Map<String, ReadWriteLock> locks,
-                               Map<String, Lock> processLocks,
+                               Map<String, StripedReadWriteLock> locks,
+                               Map<String, ReadWriteLock> processLocks,
                                Map<String, Set<String>> allCacheCandidates,
                                Map<String, Map<String, Object>> allCaches,
                                FutureBarrierProvider barrierProvider) {
@@ -101,10 +103,10 @@ public final class PreferencesCreator {
         LockFactory lockFactory = new SimpleLockFactory(name, directoryProvider, locks, processLocks);
         ValueEncryption valueEncryption = new AesValueEncryption("1111111111111111".getBytes(), "0000000000000000".getBytes());
         KeyEncryption keyEncryption = new XorKeyEncryption("1111111111111110".getBytes());
-        FileTransaction fileTransaction = new MultiProcessTransaction(fileAdapter, lockFactory, keyEncryption, valueEncryption);
+        TaskExecutor taskExecutor = new TestTaskExecutor(barrierProvider, exceptionHandler);
+        FileTransaction fileTransaction = new MultiProcessTransaction(fileAdapter, lockFactory, taskExecutor, keyEncryption, valueEncryption, false, Snapshot.NO_OP);
         CacheCandidateProvider candidateProvider = new ConcurrentCacheCandidateProvider(name, allCacheCandidates);
         CacheProvider cacheProvider = new ConcurrentCacheProvider(name, allCaches);
-        TaskExecutor taskExecutor = new TestTaskExecutor(barrierProvider, exceptionHandler);
         PersistableRegistry persistableRegistry = new PersistableRegistry();
         persistableRegistry.register(TestUser.KEY, TestUser.class);
         SerializerFactory serializerFactory = new SerializerFactory(persistableRegistry);
@@ -117,12 +119,22 @@ public final class PreferencesCreator {
                 fileTransaction,
                 serializerFactory
         );
-        return new BinaryPreferences(
+        GroupCommitQueue commitQueue = new GroupCommitQueue(
                 fileTransaction,
+                cacheProvider,
+                eventsBridge,
+                ChangeJournal.NO_OP,
+                taskExecutor,
+                barrierProvider,
+                exceptionHandler,
+                0,
+                Integer.MAX_VALUE
+        );
+        return new BinaryPreferences(
+                commitQueue,
                 eventsBridge,
                 candidateProvider,
                 cacheProvider,
-                taskExecutor,
                 serializerFactory,
                 lockFactory,
                 fetchStrategy
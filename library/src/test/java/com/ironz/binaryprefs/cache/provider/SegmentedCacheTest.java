@@ -0,0 +1,128 @@
+package com.ironz.binaryprefs.cache.provider;
+
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class SegmentedCacheTest {
+
+    private static final int VALUE_SIZE = 10;
+    private static final int CAPACITY = 10;
+
+    private final SegmentedCache cache = new SegmentedCache(VALUE_SIZE * CAPACITY);
+
+    @Test
+    public void leastRecentlyUsedIsEvicted() {
+        for (int i = 0; i <= CAPACITY; i++) {
+            cache.put(key(i), i, VALUE_SIZE, false);
+        }
+
+        assertFalse(cache.keys().contains(key(0)));
+        assertTrue(cache.keys().contains(key(CAPACITY)));
+        assertEquals(VALUE_SIZE * CAPACITY, cache.bytes());
+    }
+
+    @Test
+    public void hotValueSurvivesScan() {
+        cache.put(key(0), 0, VALUE_SIZE, false);
+        cache.get(key(0));
+
+        for (int i = 1; i < CAPACITY * 5; i++) {
+            cache.put(key(i), i, VALUE_SIZE, false);
+        }
+
+        assertTrue(cache.keys().contains(key(0)));
+    }
+
+    @Test
+    public void pinnedValueIsEvictedAfterRelease() {
+        cache.put(key(0), 0, VALUE_SIZE, true);
+        cache.put(key(0), 0, VALUE_SIZE, true);
+        for (int i = 1; i <= CAPACITY; i++) {
+            cache.put(key(i), i, VALUE_SIZE, false);
+        }
+        assertTrue(cache.keys().contains(key(0)));
+
+        cache.release(key(0), VALUE_SIZE);
+        assertTrue(cache.keys().contains(key(0)));
+
+        cache.release(key(0), VALUE_SIZE);
+        for (int i = CAPACITY + 1; i <= CAPACITY * 2; i++) {
+            cache.put(key(i), i, VALUE_SIZE, false);
+        }
+        assertFalse(cache.keys().contains(key(0)));
+        assertEquals(VALUE_SIZE * CAPACITY, cache.bytes());
+    }
+
+    @Test
+    public void evictedValueIsRestored() {
+        for (int i = 0; i <= CAPACITY; i++) {
+            cache.put(key(i), i, VALUE_SIZE, false);
+        }
+
+        assertEquals(0, cache.get(key(0)));
+        assertTrue(cache.keys().contains(key(0)));
+        assertEquals(VALUE_SIZE * CAPACITY, cache.bytes());
+    }
+
+    @Test
+    public void softenColdKeepsHotValues() {
+        cache.put(key(0), 0, VALUE_SIZE, false);
+        cache.put(key(1), 1, VALUE_SIZE, false);
+        cache.get(key(0));
+        for (int i = 2; i < CAPACITY * 2; i++) {
+            cache.put(key(i), i, VALUE_SIZE, false);
+        }
+
+        cache.softenCold();
+
+        assertEquals(Collections.singleton(key(0)), cache.keys());
+        assertEquals(VALUE_SIZE, cache.bytes());
+    }
+
+    @Test
+    public void clearKeepsPinnedValues() {
+        cache.put(key(0), 0, VALUE_SIZE, true);
+        cache.put(key(1), 1, VALUE_SIZE, false);
+        cache.put(key(2), 2, VALUE_SIZE, false);
+        cache.get(key(2));
+        cache.softenAll();
+
+        cache.clear();
+
+        assertEquals(0, cache.get(key(0)));
+        assertNull(cache.get(key(1)));
+        assertNull(cache.get(key(2)));
+        assertEquals(VALUE_SIZE, cache.bytes());
+    }
+
+    @Test
+    public void putReplacesSoftValue() {
+        cache.put(key(0), 0, VALUE_SIZE, false);
+        cache.softenAll();
+
+        cache.put(key(0), 1, VALUE_SIZE, true);
+        cache.release(key(0), VALUE_SIZE);
+        cache.softenAll();
+
+        assertEquals(1, cache.get(key(0)));
+    }
+
+    @Test
+    public void removeFreesBudget() {
+        cache.put(key(0), 0, VALUE_SIZE * CAPACITY, false);
+        cache.remove(key(0));
+
+        assertFalse(cache.contains(key(0)));
+        assertEquals(0, cache.bytes());
+    }
+
+    private String key(int i) {
+        return "key" + i;
+    }
+}
@@ -0,0 +1,116 @@
+package com.ironz.binaryprefs.encryption;
+
+import com.ironz.binaryprefs.exception.EncryptionException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class AesGcmValueEncryptionTest {
+
+    private static final byte[] SECRET_KEY_BYTES = "LZN8KKF7KH816D0U".getBytes();
+    private static final byte[] INITIAL_VECTOR = "AG6PJGG7AZJD8QPH".getBytes();
+    private static final byte[] BAD_SECRET_KEY_BYTES = "0000000000000000".getBytes();
+
+    private final ValueEncryption cbcEncryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+    private final AesGcmValueEncryption encryption = new AesGcmValueEncryption(SECRET_KEY_BYTES, cbcEncryption);
+
+    @Test
+    public void encryptDecrypt() {
+        String original = "some string";
+        byte[] originalBytes = original.getBytes();
+
+        byte[] encrypt = encryption.encrypt(originalBytes);
+        byte[] decrypt = encryption.decrypt(encrypt);
+
+        assertEquals(originalBytes.length + 32, encrypt.length);
+        assertNotEquals(original, new String(encrypt));
+        assertEquals(original, new String(decrypt));
+    }
+
+    @Test
+    public void nonceIsUniquePerValue() {
+        byte[] originalBytes = "some string".getBytes();
+
+        byte[] first = encryption.encrypt(originalBytes);
+        byte[] second = encryption.encrypt(originalBytes);
+
+        assertNotEquals(new String(first), new String(second));
+        assertArrayEquals(encryption.decrypt(first), encryption.decrypt(second));
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void corruptedValue() {
+        byte[] encrypt = encryption.encrypt("some string".getBytes());
+        encrypt[encrypt.length / 2] ^= 1;
+
+        encryption.decrypt(encrypt);
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void badDecrypt() {
+        byte[] encrypt = encryption.encrypt("some string".getBytes());
+
+        new AesGcmValueEncryption(BAD_SECRET_KEY_BYTES).decrypt(encrypt);
+    }
+
+    @Test
+    public void bufferEncryptDecrypt() {
+        byte[] original = new byte[4096];
+        new Random(1).nextBytes(original);
+
+        ByteBuffer encrypt = encryption.encrypt(ByteBuffer.wrap(original));
+        ByteBuffer mapped = ByteBuffer.allocateDirect(encrypt.remaining());
+        mapped.put(encrypt);
+        mapped.flip();
+        ByteBuffer decrypt = encryption.decrypt(mapped.asReadOnlyBuffer());
+        byte[] decryptBytes = new byte[decrypt.remaining()];
+        decrypt.get(decryptBytes);
+
+        assertArrayEquals(original, decryptBytes);
+    }
+
+    @Test
+    public void bufferDecryptInPlace() {
+        byte[] original = "some string".getBytes();
+        byte[] encrypt = encryption.encrypt(original);
+
+        ByteBuffer decrypt = encryption.decrypt(ByteBuffer.wrap(encrypt));
+        byte[] decryptBytes = new byte[decrypt.remaining()];
+        decrypt.get(decryptBytes);
+
+        assertArrayEquals(original, decryptBytes);
+    }
+
+    @Test
+    public void fallbackDecrypt() {
+        byte[] original = "some string".getBytes();
+        byte[] legacy = cbcEncryption.encrypt(original);
+
+        assertTrue(encryption.isOutdated(ByteBuffer.wrap(legacy)));
+        assertFalse(encryption.isOutdated(ByteBuffer.wrap(encryption.encrypt(original))));
+        assertArrayEquals(original, encryption.decrypt(legacy));
+        ByteBuffer decrypt = encryption.decrypt(ByteBuffer.wrap(legacy));
+        byte[] decryptBytes = new byte[decrypt.remaining()];
+        decrypt.get(decryptBytes);
+        assertArrayEquals(original, decryptBytes);
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void noFallback() {
+        byte[] legacy = cbcEncryption.encrypt("some string".getBytes());
+
+        new AesGcmValueEncryption(SECRET_KEY_BYTES).decrypt(legacy);
+    }
+
+    @Test(expected = EncryptionException.class)
+    public void incorrectKeySize() {
+        new AesGcmValueEncryption(new byte[15]);
+    }
+}
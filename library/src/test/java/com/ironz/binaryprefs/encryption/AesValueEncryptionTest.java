@@ -3,7 +3,13 @@ package com.ironz.binaryprefs.encryption;
 import com.ironz.binaryprefs.exception.EncryptionException;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 
 public final class AesValueEncryptionTest {
@@ -13,7 +19,7 @@ public final class AesValueEncryptionTest {
     private static final byte[] BAD_SECRET_KEY_BYTES = "0000000000000000".getBytes();
     private static final byte[] BAD_INITIAL_VECTOR = "0000000000000000".getBytes();
 
-    private final ValueEncryption encryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+    private final AesValueEncryption encryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
     private final ValueEncryption badEncryption = new AesValueEncryption(BAD_SECRET_KEY_BYTES, BAD_INITIAL_VECTOR);
 
     @Test
@@ -30,6 +36,79 @@ public final class AesValueEncryptionTest {
         assertEquals(original, restored);
     }
 
+    @Test
+    public void bufferEncryptDecrypt() {
+        byte[] original = new byte[4096];
+        new Random(1).nextBytes(original);
+
+        ByteBuffer encrypt = encryption.encrypt(ByteBuffer.wrap(original));
+        byte[] encryptBytes = new byte[encrypt.remaining()];
+        encrypt.get(encryptBytes);
+        ByteBuffer mapped = ByteBuffer.allocateDirect(encryptBytes.length);
+        mapped.put(encryptBytes);
+        mapped.flip();
+        ByteBuffer decrypt = encryption.decrypt(mapped.asReadOnlyBuffer());
+        byte[] decryptBytes = new byte[decrypt.remaining()];
+        decrypt.get(decryptBytes);
+
+        assertArrayEquals(encryption.encrypt(original), encryptBytes);
+        assertArrayEquals(original, decryptBytes);
+    }
+
+    @Test
+    public void bufferDecryptInPlace() {
+        byte[] original = "some string".getBytes();
+        byte[] encrypt = encryption.encrypt(original);
+
+        ByteBuffer decrypt = encryption.decrypt(ByteBuffer.wrap(encrypt));
+        byte[] decryptBytes = new byte[decrypt.remaining()];
+        decrypt.get(decryptBytes);
+
+        assertArrayEquals(original, decryptBytes);
+    }
+
+    @Test
+    public void cipherIsRestoredAfterFailure() {
+        byte[] original = "some string".getBytes();
+        byte[] encrypt = encryption.encrypt(original);
+        byte[] broken = Arrays.copyOf(encrypt, encrypt.length - 1);
+
+        try {
+            encryption.decrypt(broken);
+        } catch (EncryptionException ignored) {
+        }
+
+        assertArrayEquals(original, encryption.decrypt(encrypt));
+    }
+
+    @Test
+    public void concurrentEncryptDecrypt() throws Exception {
+        final byte[] original = new byte[1024];
+        new Random(2).nextBytes(original);
+        final byte[] encrypt = encryption.encrypt(original);
+        final boolean[] failed = new boolean[1];
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 500; j++) {
+                        if (!Arrays.equals(encrypt, encryption.encrypt(original))
+                                || !Arrays.equals(original, encryption.decrypt(encrypt))) {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertFalse(failed[0]);
+    }
+
     @Test(expected = EncryptionException.class)
     public void badDecrypt() {
         String original = "some string";
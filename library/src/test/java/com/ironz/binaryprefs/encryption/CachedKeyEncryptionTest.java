@@ -0,0 +1,70 @@
+package com.ironz.binaryprefs.encryption;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+
+public final class CachedKeyEncryptionTest {
+
+    private final XorKeyEncryption xorEncryption = new XorKeyEncryption("LZN8KKF7KH816D0U".getBytes());
+    private final CountingKeyEncryption counting = new CountingKeyEncryption(xorEncryption);
+
+    @Test
+    public void mappingIsRemembered() {
+        KeyEncryption encryption = new CachedKeyEncryption(counting, 16);
+
+        String encrypted = encryption.encrypt("user_id");
+
+        assertEquals(xorEncryption.encrypt("user_id"), encrypted);
+        assertEquals(encrypted, encryption.encrypt("user_id"));
+        assertEquals("user_id", encryption.decrypt(encrypted));
+        assertEquals(1, counting.calls.get());
+    }
+
+    @Test
+    public void decryptedNameIsRemembered() {
+        KeyEncryption encryption = new CachedKeyEncryption(counting, 16);
+        String encrypted = xorEncryption.encrypt("user_id");
+
+        assertEquals("user_id", encryption.decrypt(encrypted));
+        assertEquals(encrypted, encryption.encrypt("user_id"));
+        assertEquals(1, counting.calls.get());
+    }
+
+    @Test
+    public void sizeIsBounded() {
+        KeyEncryption encryption = new CachedKeyEncryption(counting, 1);
+
+        encryption.encrypt("first");
+        encryption.encrypt("second");
+        String encrypted = encryption.encrypt("second");
+
+        assertEquals(xorEncryption.encrypt("second"), encrypted);
+        assertEquals("second", encryption.decrypt(encrypted));
+        assertEquals(4, counting.calls.get());
+    }
+
+    private static final class CountingKeyEncryption implements KeyEncryption {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private final KeyEncryption keyEncryption;
+
+        private CountingKeyEncryption(KeyEncryption keyEncryption) {
+            this.keyEncryption = keyEncryption;
+        }
+
+        @Override
+        public String encrypt(String name) {
+            calls.incrementAndGet();
+            return keyEncryption.encrypt(name);
+        }
+
+        @Override
+        public String decrypt(String name) {
+            calls.incrementAndGet();
+            return keyEncryption.decrypt(name);
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.ironz.binaryprefs.encryption;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class SafeEncoderTest {
+
+    private static final String[] ENCODED = {
+            "",
+            "s0",
+            "s3pg",
+            "s3ph4",
+            "s3ph4dr",
+            "s3ph4dtw",
+            "s3ph4dtwg4",
+            "s3ph4dtwg6k0",
+            "s3ph4dtwg6kcp",
+            "s3ph4dtwg6kcqw0",
+            "s3ph4dtwg6kcqw0n",
+            "s3ph4dtwg6kcqw0n78"
+    };
+
+    private final SafeEncoder encoder = new SafeEncoder();
+
+    @Test
+    public void encodeTail() {
+        for (int length = 0; length < ENCODED.length; length++) {
+            byte[] bytes = bytes(length);
+
+            assertEquals(ENCODED[length], encoder.encodeToString(bytes));
+            assertArrayEquals(bytes, encoder.decode(ENCODED[length]));
+        }
+    }
+
+    @Test
+    public void encodeDecode() {
+        Random random = new Random(1);
+        for (int length = 0; length < 256; length++) {
+            byte[] bytes = new byte[length];
+            random.nextBytes(bytes);
+
+            assertArrayEquals(bytes, encoder.decode(encoder.encodeToString(bytes)));
+        }
+    }
+
+    @Test
+    public void invalidCharactersAreSkipped() {
+        assertArrayEquals(
+                new byte[]{82, -40, -41, 62, 17, 12, -90, 26, 84, 22, -66, 51, -83, -17, -99, -9, -64, 16},
+                encoder.decode("ABCDEFGHIJKLMNOPQRSTUVWXYZ-oil")
+        );
+    }
+
+    private byte[] bytes(int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 37 + 200);
+        }
+        return bytes;
+    }
+}
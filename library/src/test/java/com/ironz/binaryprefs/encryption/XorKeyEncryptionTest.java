@@ -22,6 +22,14 @@ public final class XorKeyEncryptionTest {
         assertEquals(UTF_CHARACTERS, decrypt);
     }
 
+    @Test
+    public void fileNamesAreStable() {
+        assertEquals("f5zpjzjkcnm0", encryption.encrypt("user_id"));
+        assertEquals("dm", encryption.encrypt("a"));
+        assertEquals("fxhp2takfhz6jtk9fsmp4vv9adkpjxakc9pp2t8", encryption.encrypt("some_preference_key_name"));
+        assertEquals("user_id", encryption.decrypt("f5zpjzjkcnm0"));
+    }
+
     @Test
     public void anotherEncryption() {
         String encrypted = encryption.encrypt(UTF_CHARACTERS);
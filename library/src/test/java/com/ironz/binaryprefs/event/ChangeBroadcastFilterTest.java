@@ -0,0 +1,58 @@
+package com.ironz.binaryprefs.event;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class ChangeBroadcastFilterTest {
+
+    private static final String NAME = "preferences";
+    private static final String OTHER_NAME = "other_preferences";
+    private static final int PROCESS_ID = 1;
+    private static final int SENDER_PROCESS_ID = 2;
+    private static final String SENDER = "sender";
+    private static final String OTHER_SENDER = "other_sender";
+
+    private final ChangeBroadcastFilter filter = new ChangeBroadcastFilter(NAME, PROCESS_ID);
+
+    @Test
+    public void duplicatesAreSkipped() {
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 1));
+        assertFalse(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 1));
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, OTHER_SENDER, 1));
+        assertFalse(filter.accept(NAME, SENDER_PROCESS_ID, OTHER_SENDER, 1));
+    }
+
+    @Test
+    public void reorderedBroadcastsAreAccepted() {
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 1));
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 3));
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 2));
+        assertFalse(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 2));
+        assertFalse(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 3));
+    }
+
+    @Test
+    public void broadcastsOutOfWindowAreAccepted() {
+        for (int i = 1; i <= ChangeBroadcastFilter.WINDOW_SIZE + 1; i++) {
+            assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, i));
+        }
+
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 1));
+        assertFalse(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, ChangeBroadcastFilter.WINDOW_SIZE + 1));
+    }
+
+    @Test
+    public void ownBroadcastsAreSkipped() {
+        assertFalse(filter.accept(NAME, PROCESS_ID, SENDER, 1));
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 1));
+    }
+
+    @Test
+    public void otherPreferencesAreSkipped() {
+        assertFalse(filter.accept(OTHER_NAME, SENDER_PROCESS_ID, SENDER, 1));
+        assertFalse(filter.accept(null, SENDER_PROCESS_ID, SENDER, 1));
+        assertTrue(filter.accept(NAME, SENDER_PROCESS_ID, SENDER, 1));
+    }
+}
@@ -0,0 +1,147 @@
+package com.ironz.binaryprefs.event;
+
+import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
+import com.ironz.binaryprefs.cache.candidates.ConcurrentCacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.cache.provider.ConcurrentCacheProvider;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.IntegerSerializer;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.task.TestTaskExecutor;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public final class ChangeReloaderTest {
+
+    private static final String NAME = "preferences";
+    private static final String KEY = "key";
+    private static final String REMOVED_KEY = "removed_key";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final SerializerFactory serializerFactory = new SerializerFactory(new PersistableRegistry());
+    private final IntegerSerializer integerSerializer = new IntegerSerializer();
+    private final CacheCandidateProvider candidateProvider = new ConcurrentCacheCandidateProvider(NAME, new ConcurrentHashMap<String, Set<String>>());
+    private final CacheProvider cacheProvider = new ConcurrentCacheProvider(NAME, new ConcurrentHashMap<String, Map<String, Object>>());
+
+    private FileTransaction fileTransaction;
+
+    @Before
+    public void setUp() throws Exception {
+        final File srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        DirectoryProvider directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+        fileTransaction = new MultiProcessTransaction(
+                new NioFileAdapter(directoryProvider),
+                new SimpleLockFactory(
+                        NAME,
+                        directoryProvider,
+                        new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                        new ConcurrentHashMap<String, ReadWriteLock>()
+                ),
+                new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE),
+                KeyEncryption.NO_OP,
+                ValueEncryption.NO_OP,
+                false,
+                Snapshot.NO_OP
+        );
+        candidateProvider.put(KEY);
+        candidateProvider.put(REMOVED_KEY);
+        cacheProvider.put(KEY, 1);
+        cacheProvider.put(REMOVED_KEY, 1);
+        fileTransaction.commit(Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, integerSerializer.serialize(2)),
+                TransactionElement.createRemovalElement(REMOVED_KEY)
+        ));
+    }
+
+    @Test
+    public void eagerReload() {
+        ChangeReloader reloader = new ChangeReloader(candidateProvider, cacheProvider, serializerFactory, fileTransaction, false);
+
+        assertEquals(Arrays.asList(REMOVED_KEY, KEY), reloader.reload(new String[]{KEY}, new String[]{REMOVED_KEY}));
+
+        assertTrue(candidateProvider.contains(KEY));
+        assertTrue(cacheProvider.contains(KEY));
+        assertEquals(2, cacheProvider.get(KEY));
+        assertFalse(candidateProvider.contains(REMOVED_KEY));
+        assertFalse(cacheProvider.contains(REMOVED_KEY));
+    }
+
+    @Test
+    public void lazyReload() {
+        ChangeReloader reloader = new ChangeReloader(candidateProvider, cacheProvider, serializerFactory, fileTransaction, true);
+
+        assertEquals(Arrays.asList(REMOVED_KEY, KEY), reloader.reload(new String[]{KEY}, new String[]{REMOVED_KEY}));
+
+        assertTrue(candidateProvider.contains(KEY));
+        assertFalse(cacheProvider.contains(KEY));
+        assertNull(cacheProvider.get(KEY));
+        assertFalse(candidateProvider.contains(REMOVED_KEY));
+        assertFalse(cacheProvider.contains(REMOVED_KEY));
+    }
+
+    @Test
+    public void outdatedRemovalKeepsValueOnDisk() {
+        ChangeReloader reloader = new ChangeReloader(candidateProvider, cacheProvider, serializerFactory, fileTransaction, false);
+
+        assertEquals(Collections.singletonList(KEY), reloader.reload(new String[0], new String[]{KEY}));
+
+        assertTrue(candidateProvider.contains(KEY));
+        assertEquals(2, cacheProvider.get(KEY));
+    }
+
+    @Test
+    public void outdatedUpdateOfMissingValueIsRemoval() {
+        ChangeReloader reloader = new ChangeReloader(candidateProvider, cacheProvider, serializerFactory, fileTransaction, false);
+
+        assertEquals(Arrays.asList(REMOVED_KEY, KEY), reloader.reload(new String[]{REMOVED_KEY, KEY}, new String[0]));
+
+        assertFalse(candidateProvider.contains(REMOVED_KEY));
+        assertFalse(cacheProvider.contains(REMOVED_KEY));
+        assertEquals(2, cacheProvider.get(KEY));
+    }
+}
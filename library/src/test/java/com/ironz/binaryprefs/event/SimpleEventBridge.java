@@ -2,6 +2,8 @@ package com.ironz.binaryprefs.event;
 
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
 
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -40,13 +42,10 @@ public final class SimpleEventBridge implements EventBridge {
     }
 
     @Override
-    public void notifyListenersUpdate(String key, byte[] bytes) {
-        notifyListeners(key);
-    }
-
-    @Override
-    public void notifyListenersRemove(String key) {
-        notifyListeners(key);
+    public void notifyListenersCommit(List<TransactionElement> transaction) {
+        for (TransactionElement element : transaction) {
+            notifyListeners(element.getName());
+        }
     }
 
     private void notifyListeners(String key) {
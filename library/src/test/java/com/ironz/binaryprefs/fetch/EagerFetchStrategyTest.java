@@ -0,0 +1,142 @@
+package com.ironz.binaryprefs.fetch;
+
+import com.ironz.binaryprefs.cache.candidates.ConcurrentCacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.cache.provider.ConcurrentCacheProvider;
+import com.ironz.binaryprefs.encryption.AesValueEncryption;
+import com.ironz.binaryprefs.encryption.XorKeyEncryption;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.task.SharedThreadPool;
+import com.ironz.binaryprefs.task.TestTaskExecutor;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertEquals;
+
+public final class EagerFetchStrategyTest {
+
+    private static final String NAME = "preferences";
+    private static final String KEY_PREFIX = "key_";
+    private static final int KEYS_COUNT = 500;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final SerializerFactory serializerFactory = new SerializerFactory(new PersistableRegistry());
+
+    private File srcDir;
+    private LockFactory lockFactory;
+    private FileTransaction fileTransaction;
+
+    @Before
+    public void setUp() throws Exception {
+        srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        DirectoryProvider directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+        lockFactory = new SimpleLockFactory(
+                NAME,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+        fileTransaction = new MultiProcessTransaction(
+                new NioFileAdapter(directoryProvider),
+                lockFactory,
+                new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE),
+                new XorKeyEncryption("1111111111111110".getBytes()),
+                new AesValueEncryption("1111111111111111".getBytes(), "0000000000000000".getBytes()),
+                false,
+                Snapshot.NO_OP
+        );
+        List<TransactionElement> elements = new ArrayList<>();
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            byte[] bytes = serializerFactory.getIntegerSerializer().serialize(i);
+            elements.add(TransactionElement.createUpdateElement(KEY_PREFIX + i, bytes));
+        }
+        fileTransaction.commit(elements);
+    }
+
+    @Test
+    public void sequentialLoad() {
+        CacheProvider cacheProvider = new ConcurrentCacheProvider(NAME, new ConcurrentHashMap<String, Map<String, Object>>());
+        FetchStrategy strategy = createStrategy(cacheProvider, false);
+
+        assertEquals(KEYS_COUNT, cacheProvider.keys().size());
+        assertEquals(KEYS_COUNT - 1, strategy.getInt(KEY_PREFIX + (KEYS_COUNT - 1), -1));
+    }
+
+    @Test
+    public void parallelLoad() {
+        CacheProvider cacheProvider = new ConcurrentCacheProvider(NAME, new ConcurrentHashMap<String, Map<String, Object>>());
+        FetchStrategy strategy = createStrategy(cacheProvider, true);
+
+        assertEquals(KEYS_COUNT, cacheProvider.keys().size());
+        for (int i = 0; i < KEYS_COUNT; i++) {
+            assertEquals(i, strategy.getInt(KEY_PREFIX + i, -1));
+        }
+    }
+
+    @Test(expected = FileOperationException.class)
+    public void parallelLoadFailure() throws Exception {
+        File file = srcDir.listFiles()[KEYS_COUNT / 2];
+        FileOutputStream stream = new FileOutputStream(file);
+        stream.write(new byte[]{1, 2, 3});
+        stream.close();
+
+        CacheProvider cacheProvider = new ConcurrentCacheProvider(NAME, new ConcurrentHashMap<String, Map<String, Object>>());
+        createStrategy(cacheProvider, true);
+    }
+
+    private FetchStrategy createStrategy(CacheProvider cacheProvider, boolean parallelLoad) {
+        return new EagerFetchStrategy(
+                lockFactory,
+                new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE),
+                SharedThreadPool.getInstance(),
+                new ConcurrentCacheCandidateProvider(NAME, new ConcurrentHashMap<String, Set<String>>()),
+                cacheProvider,
+                fileTransaction,
+                serializerFactory,
+                parallelLoad
+        );
+    }
+}
@@ -0,0 +1,239 @@
+package com.ironz.binaryprefs.fetch;
+
+import com.ironz.binaryprefs.cache.candidates.CacheCandidateProvider;
+import com.ironz.binaryprefs.cache.candidates.ConcurrentCacheCandidateProvider;
+import com.ironz.binaryprefs.cache.provider.CacheProvider;
+import com.ironz.binaryprefs.cache.provider.ConcurrentCacheProvider;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.journal.MappedChangeJournal;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.IntegerSerializer;
+import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.task.SharedThreadPool;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.TestTaskExecutor;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class JournalFetchStrategyTest {
+
+    private static final String NAME = "preferences";
+    private static final String KEY = "key";
+    private static final String REMOVED_KEY = "removed_key";
+    private static final String NEW_KEY = "new_key";
+    private static final String COLLIDING_KEY = "Aa";
+    private static final String OTHER_COLLIDING_KEY = "BB";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final SerializerFactory serializerFactory = new SerializerFactory(new PersistableRegistry());
+    private final TaskExecutor taskExecutor = new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE);
+    private final IntegerSerializer integerSerializer = new IntegerSerializer();
+
+    private DirectoryProvider directoryProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        final File srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+    }
+
+    @Test
+    public void lazyReload() {
+        changesOfAnotherProcess(true);
+    }
+
+    @Test
+    public void eagerReload() {
+        changesOfAnotherProcess(false);
+    }
+
+    @Test
+    public void lazyCollidingRemoval() {
+        collidingRemoval(true);
+    }
+
+    @Test
+    public void eagerCollidingRemoval() {
+        collidingRemoval(false);
+    }
+
+    @Test
+    public void missingFileIsRemovedOnEagerReload() {
+        LockFactory writerLocks = createLockFactory();
+        FileTransaction writerTransaction = createTransaction(writerLocks);
+        ChangeJournal writerJournal = new MappedChangeJournal(NAME, directoryProvider, writerLocks);
+        commit(writerTransaction, writerJournal, Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, integerSerializer.serialize(1)),
+                TransactionElement.createUpdateElement(REMOVED_KEY, integerSerializer.serialize(1))
+        ));
+        FetchStrategy reader = createReader(false);
+        assertEquals(1, reader.getInt(REMOVED_KEY, 0));
+
+        commit(writerTransaction, writerJournal, Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, integerSerializer.serialize(2)),
+                TransactionElement.createUpdateElement(REMOVED_KEY, integerSerializer.serialize(2))
+        ));
+        writerTransaction.commit(Collections.singletonList(
+                TransactionElement.createRemovalElement(REMOVED_KEY)
+        ));
+
+        assertEquals(2, reader.getInt(KEY, 0));
+        assertFalse(reader.contains(REMOVED_KEY));
+    }
+
+    private void collidingRemoval(boolean lazyReload) {
+        assertEquals(COLLIDING_KEY.hashCode(), OTHER_COLLIDING_KEY.hashCode());
+        LockFactory writerLocks = createLockFactory();
+        FileTransaction writerTransaction = createTransaction(writerLocks);
+        ChangeJournal writerJournal = new MappedChangeJournal(NAME, directoryProvider, writerLocks);
+        commit(writerTransaction, writerJournal, Arrays.asList(
+                TransactionElement.createUpdateElement(COLLIDING_KEY, integerSerializer.serialize(1)),
+                TransactionElement.createUpdateElement(OTHER_COLLIDING_KEY, integerSerializer.serialize(2))
+        ));
+        FetchStrategy reader = createReader(lazyReload);
+        assertEquals(1, reader.getInt(COLLIDING_KEY, 0));
+        assertEquals(2, reader.getInt(OTHER_COLLIDING_KEY, 0));
+
+        commit(writerTransaction, writerJournal, Collections.singletonList(
+                TransactionElement.createRemovalElement(COLLIDING_KEY)
+        ));
+
+        assertTrue(reader.contains(OTHER_COLLIDING_KEY));
+        assertEquals(2, reader.getInt(OTHER_COLLIDING_KEY, 0));
+        assertFalse(reader.contains(COLLIDING_KEY));
+    }
+
+    private void changesOfAnotherProcess(boolean lazyReload) {
+        LockFactory writerLocks = createLockFactory();
+        FileTransaction writerTransaction = createTransaction(writerLocks);
+        ChangeJournal writerJournal = new MappedChangeJournal(NAME, directoryProvider, writerLocks);
+        commit(writerTransaction, writerJournal, Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, integerSerializer.serialize(1)),
+                TransactionElement.createUpdateElement(REMOVED_KEY, integerSerializer.serialize(1))
+        ));
+        FetchStrategy reader = createReader(lazyReload);
+        assertEquals(1, reader.getInt(KEY, 0));
+        assertEquals(1, reader.getInt(REMOVED_KEY, 0));
+
+        commit(writerTransaction, writerJournal, Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, integerSerializer.serialize(2)),
+                TransactionElement.createRemovalElement(REMOVED_KEY),
+                TransactionElement.createUpdateElement(NEW_KEY, integerSerializer.serialize(3))
+        ));
+
+        assertEquals(2, reader.getInt(KEY, 0));
+        assertFalse(reader.contains(REMOVED_KEY));
+        assertEquals(0, reader.getInt(REMOVED_KEY, 0));
+        assertTrue(reader.contains(NEW_KEY));
+        assertEquals(3, reader.getInt(NEW_KEY, 0));
+    }
+
+    private void commit(FileTransaction transaction, ChangeJournal journal, List<TransactionElement> elements) {
+        transaction.commit(elements);
+        journal.append(elements);
+    }
+
+    private FetchStrategy createReader(boolean lazyReload) {
+        LockFactory lockFactory = createLockFactory();
+        FileTransaction fileTransaction = createTransaction(lockFactory);
+        ChangeJournal journal = new MappedChangeJournal(NAME, directoryProvider, lockFactory);
+        CacheCandidateProvider candidateProvider = new ConcurrentCacheCandidateProvider(NAME, new ConcurrentHashMap<String, Set<String>>());
+        CacheProvider cacheProvider = new ConcurrentCacheProvider(NAME, new ConcurrentHashMap<String, Map<String, Object>>());
+        FetchStrategy strategy = lazyReload ? new LazyFetchStrategy(
+                lockFactory,
+                taskExecutor,
+                candidateProvider,
+                cacheProvider,
+                fileTransaction,
+                serializerFactory
+        ) : new EagerFetchStrategy(
+                lockFactory,
+                taskExecutor,
+                SharedThreadPool.getInstance(),
+                candidateProvider,
+                cacheProvider,
+                fileTransaction,
+                serializerFactory,
+                false
+        );
+        return new JournalFetchStrategy(
+                strategy,
+                journal,
+                lockFactory,
+                taskExecutor,
+                candidateProvider,
+                cacheProvider,
+                fileTransaction,
+                serializerFactory,
+                lazyReload
+        );
+    }
+
+    private LockFactory createLockFactory() {
+        return new SimpleLockFactory(
+                NAME,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+    }
+
+    private FileTransaction createTransaction(LockFactory lockFactory) {
+        return new MultiProcessTransaction(
+                new NioFileAdapter(directoryProvider),
+                lockFactory,
+                taskExecutor,
+                KeyEncryption.NO_OP,
+                ValueEncryption.NO_OP,
+                false,
+                Snapshot.NO_OP
+        );
+    }
+}
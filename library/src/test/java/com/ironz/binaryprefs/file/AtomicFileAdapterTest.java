@@ -0,0 +1,118 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.adapter.AtomicFileAdapter;
+import com.ironz.binaryprefs.file.adapter.FileAdapter;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public final class AtomicFileAdapterTest {
+
+    private static final String FILE_NAME = "file.name";
+    private static final String BACKUP_NAME = "file.name.bak";
+
+    private final byte[] bytes = "value".getBytes();
+    private final byte[] bytesTwo = "eulav123".getBytes();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DirectoryProvider directoryProvider;
+    private File srcDir;
+    private File backupDir;
+
+    @Before
+    public void setUp() throws Exception {
+        srcDir = folder.newFolder("preferences");
+        backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+    }
+
+    @Test
+    public void restore() {
+        FileAdapter fileAdapter = new AtomicFileAdapter(directoryProvider, false, true, false);
+        fileAdapter.save(FILE_NAME, bytesTwo, false);
+        fileAdapter.save(FILE_NAME, bytes, true);
+
+        assertArrayEquals(bytes, fileAdapter.fetch(FILE_NAME));
+        assertArrayEquals(bytes, new NioFileAdapter(directoryProvider).fetch(FILE_NAME));
+        assertArrayEquals(new String[]{FILE_NAME}, srcDir.list());
+        assertEquals(0, backupDir.list().length);
+    }
+
+    @Test
+    public void restoreLargerThanBuffer() {
+        FileAdapter fileAdapter = new AtomicFileAdapter(directoryProvider, true, true, true);
+        byte[] large = new byte[100 * 1024];
+        Arrays.fill(large, (byte) 1);
+        fileAdapter.save(FILE_NAME, large);
+        fileAdapter.save(FILE_NAME, bytes);
+        fileAdapter.save(FILE_NAME, large);
+
+        ByteBuffer buffer = fileAdapter.fetchBuffer(FILE_NAME);
+        byte[] fetch = new byte[buffer.remaining()];
+        buffer.get(fetch);
+
+        assertArrayEquals(large, fetch);
+    }
+
+    @Test
+    public void backupIsRemoved() throws Exception {
+        FileAdapter fileAdapter = new AtomicFileAdapter(directoryProvider, false, false, false);
+        FileOutputStream backup = new FileOutputStream(new File(backupDir, BACKUP_NAME));
+        backup.write(bytesTwo);
+        backup.close();
+
+        fileAdapter.save(FILE_NAME, bytes);
+
+        assertEquals(0, backupDir.list().length);
+        assertArrayEquals(bytes, fileAdapter.fetch(FILE_NAME));
+    }
+
+    @Test
+    public void restoreBackups() throws Exception {
+        FileAdapter fileAdapter = new AtomicFileAdapter(directoryProvider, false, false, false);
+        fileAdapter.save(FILE_NAME, bytes);
+        FileOutputStream backup = new FileOutputStream(new File(backupDir, BACKUP_NAME));
+        backup.write(bytesTwo);
+        backup.close();
+
+        fileAdapter.restoreBackups();
+
+        assertEquals(0, backupDir.list().length);
+        assertArrayEquals(bytesTwo, fileAdapter.fetch(FILE_NAME));
+    }
+
+    @Test(expected = FileOperationException.class)
+    public void savingEmptyBytes() {
+        new AtomicFileAdapter(directoryProvider, true, true, false).save(FILE_NAME, new byte[0]);
+    }
+}
@@ -0,0 +1,32 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.file.adapter.Crc32c;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+public final class Crc32cTest {
+
+    private static final byte[] CHECK_BYTES = "123456789".getBytes();
+    private static final long CHECK_VALUE = 0xE3069283L;
+
+    @Test
+    public void checkValue() {
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(CHECK_BYTES, 0, CHECK_BYTES.length);
+
+        assertEquals(CHECK_VALUE, crc32c.getValue());
+    }
+
+    @Test
+    public void bufferUpdate() {
+        Crc32c crc32c = new Crc32c();
+        ByteBuffer buffer = ByteBuffer.wrap(CHECK_BYTES);
+        crc32c.update(buffer);
+
+        assertEquals(CHECK_VALUE, crc32c.getValue());
+        assertEquals(0, buffer.position());
+    }
+}
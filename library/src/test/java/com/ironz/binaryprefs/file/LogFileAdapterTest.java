@@ -0,0 +1,203 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.exception.FileOperationException;
+import com.ironz.binaryprefs.file.adapter.LogFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+@SuppressWarnings("FieldCanBeLocal")
+public final class LogFileAdapterTest {
+
+    private static final String FILE_NAME = "file.name";
+    private static final String FILE_NAME_1 = "file.name.1";
+    private final byte[] bytes = "value".getBytes();
+    private final byte[] bytesTwo = "eulav123".getBytes();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File srcDir;
+    private DirectoryProvider directoryProvider;
+    private LogFileAdapter fileAdapter;
+
+    @Before
+    public void setUp() throws Exception {
+        srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+        fileAdapter = new LogFileAdapter(directoryProvider);
+    }
+
+    @Test
+    public void emptyNames() {
+        assertEquals(0, fileAdapter.names().length);
+    }
+
+    @Test(expected = FileOperationException.class)
+    public void savingEmptyBytes() {
+        byte[] bytes = {};
+        fileAdapter.save(FILE_NAME, bytes);
+    }
+
+    @Test
+    public void restore() {
+        fileAdapter.save(FILE_NAME, bytes);
+
+        byte[] fetch = fileAdapter.fetch(FILE_NAME);
+
+        assertEquals(new String(bytes), new String(fetch));
+    }
+
+    @Test
+    public void restoreOverwritten() {
+        fileAdapter.save(FILE_NAME, bytesTwo);
+        fileAdapter.save(FILE_NAME, bytes);
+
+        byte[] fetch = fileAdapter.fetch(FILE_NAME);
+
+        assertEquals(new String(bytes), new String(fetch));
+    }
+
+    @Test
+    public void restoreBuffer() {
+        fileAdapter.save(FILE_NAME_1, bytesTwo);
+        fileAdapter.save(FILE_NAME, bytes);
+
+        ByteBuffer buffer = fileAdapter.fetchBuffer(FILE_NAME);
+        fileAdapter.save(FILE_NAME, bytesTwo);
+        byte[] fetch = new byte[buffer.remaining()];
+        buffer.get(fetch);
+
+        assertTrue(buffer.isReadOnly());
+        assertArrayEquals(bytes, fetch);
+    }
+
+    @Test
+    public void appendIsOneFile() {
+        fileAdapter.append(Arrays.asList(
+                TransactionElement.createUpdateElement(FILE_NAME, bytes),
+                TransactionElement.createUpdateElement(FILE_NAME_1, bytesTwo)
+        ));
+
+        assertEquals(1, srcDir.list().length);
+        assertEquals(new HashSet<>(Arrays.asList(FILE_NAME, FILE_NAME_1)), new HashSet<>(Arrays.asList(fileAdapter.names())));
+        assertArrayEquals(bytesTwo, fileAdapter.fetch(FILE_NAME_1));
+    }
+
+    @Test(expected = FileOperationException.class)
+    public void deleteOne() {
+        fileAdapter.save(FILE_NAME, bytes);
+        fileAdapter.save(FILE_NAME_1, bytes);
+
+        fileAdapter.remove(FILE_NAME_1);
+
+        assertNotNull(fileAdapter.fetch(FILE_NAME));
+        fileAdapter.fetch(FILE_NAME_1);
+    }
+
+    @Test
+    public void anotherInstanceSeesAppends() {
+        LogFileAdapter another = new LogFileAdapter(directoryProvider);
+        fileAdapter.save(FILE_NAME, bytes);
+
+        assertArrayEquals(bytes, another.fetch(FILE_NAME));
+
+        fileAdapter.save(FILE_NAME, bytesTwo);
+        fileAdapter.remove(FILE_NAME_1);
+
+        assertArrayEquals(bytesTwo, another.fetch(FILE_NAME));
+        assertEquals(1, another.names().length);
+    }
+
+    @Test
+    public void tornTailIsSkipped() throws Exception {
+        fileAdapter.save(FILE_NAME, bytes);
+        fileAdapter.save(FILE_NAME_1, bytesTwo);
+        File logFile = srcDir.listFiles()[0];
+        RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw");
+        randomAccessFile.setLength(randomAccessFile.length() - 1);
+        randomAccessFile.close();
+
+        LogFileAdapter restored = new LogFileAdapter(directoryProvider);
+
+        assertArrayEquals(new String[]{FILE_NAME}, restored.names());
+
+        restored.save(FILE_NAME_1, bytes);
+
+        assertArrayEquals(bytes, new LogFileAdapter(directoryProvider).fetch(FILE_NAME_1));
+    }
+
+    @Test
+    public void frameReplacingTornTailOfSameSizeIsRead() throws Exception {
+        byte[] replacement = "12345678".getBytes();
+        fileAdapter.save(FILE_NAME, bytes);
+        fileAdapter.save(FILE_NAME_1, bytesTwo);
+        File logFile = srcDir.listFiles()[0];
+        RandomAccessFile randomAccessFile = new RandomAccessFile(logFile, "rw");
+        randomAccessFile.seek(randomAccessFile.length() - 1);
+        randomAccessFile.write(0);
+        randomAccessFile.close();
+        long tornSize = logFile.length();
+
+        LogFileAdapter restored = new LogFileAdapter(directoryProvider);
+
+        assertArrayEquals(new String[]{FILE_NAME}, restored.names());
+        assertArrayEquals(new String[]{FILE_NAME}, restored.names());
+
+        new LogFileAdapter(directoryProvider).save(FILE_NAME_1, replacement);
+
+        assertEquals(tornSize, logFile.length());
+        assertArrayEquals(replacement, restored.fetch(FILE_NAME_1));
+    }
+
+    @Test
+    public void compaction() {
+        byte[] big = new byte[4096];
+        for (int i = 0; i < 16; i++) {
+            fileAdapter.save(FILE_NAME, big);
+        }
+        fileAdapter.save(FILE_NAME_1, bytes);
+        File logFile = srcDir.listFiles()[0];
+        long sizeBefore = logFile.length();
+        LogFileAdapter another = new LogFileAdapter(directoryProvider);
+        assertArrayEquals(bytes, another.fetch(FILE_NAME_1));
+
+        assertTrue(fileAdapter.shouldCompact());
+
+        fileAdapter.compact();
+
+        assertFalse(fileAdapter.shouldCompact());
+        assertTrue(logFile.length() < sizeBefore);
+        assertArrayEquals(big, fileAdapter.fetch(FILE_NAME));
+        assertArrayEquals(bytes, another.fetch(FILE_NAME_1));
+        assertArrayEquals(big, another.fetch(FILE_NAME));
+    }
+}
@@ -0,0 +1,112 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.encryption.AesGcmValueEncryption;
+import com.ironz.binaryprefs.encryption.AesValueEncryption;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.file.adapter.LogFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.LogFileTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.TestTaskExecutor;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class LogFileTransactionTest {
+
+    private static final String NAME = "name";
+    private static final byte[] SECRET_KEY_BYTES = "LZN8KKF7KH816D0U".getBytes();
+    private static final byte[] INITIAL_VECTOR = "AG6PJGG7AZJD8QPH".getBytes();
+
+    private final byte[] bytes = "value".getBytes();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final TaskExecutor taskExecutor = new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE);
+    private final AesValueEncryption cbcEncryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+    private final AesGcmValueEncryption gcmEncryption = new AesGcmValueEncryption(SECRET_KEY_BYTES, cbcEncryption);
+
+    private LogFileAdapter fileAdapter;
+    private LockFactory lockFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        final File srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        DirectoryProvider directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+        fileAdapter = new LogFileAdapter(directoryProvider);
+        lockFactory = new SimpleLockFactory(
+                "preferences",
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+        createTransaction(cbcEncryption).commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, bytes)
+        ));
+    }
+
+    @Test
+    public void outdatedValueIsRewrittenOnRead() {
+        assertTrue(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+
+        ByteBuffer buffer = createTransaction(gcmEncryption).fetchOneBuffer(NAME);
+        byte[] fetched = new byte[buffer.remaining()];
+        buffer.get(fetched);
+
+        assertArrayEquals(bytes, fetched);
+        assertFalse(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+        assertArrayEquals(bytes, gcmEncryption.decrypt(fileAdapter.fetch(NAME)));
+    }
+
+    @Test
+    public void outdatedValueIsRewrittenOnArrayRead() {
+        assertTrue(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+
+        byte[] fetched = createTransaction(gcmEncryption).fetchOne(NAME).getContent();
+
+        assertArrayEquals(bytes, fetched);
+        assertFalse(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+        assertArrayEquals(bytes, gcmEncryption.decrypt(fileAdapter.fetch(NAME)));
+    }
+
+    private FileTransaction createTransaction(ValueEncryption valueEncryption) {
+        return new LogFileTransaction(fileAdapter, lockFactory, taskExecutor, KeyEncryption.NO_OP, valueEncryption, false);
+    }
+}
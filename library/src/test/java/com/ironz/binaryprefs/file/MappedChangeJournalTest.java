@@ -0,0 +1,141 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.journal.ChangeJournal;
+import com.ironz.binaryprefs.file.journal.MappedChangeJournal;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class MappedChangeJournalTest {
+
+    private static final String NAME = "preferences";
+    private static final String KEY = "key";
+    private static final String ANOTHER_KEY = "another_key";
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DirectoryProvider directoryProvider;
+
+    @Before
+    public void setUp() throws Exception {
+        final File srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+    }
+
+    @Test
+    public void changesAreVisibleForOtherJournal() {
+        ChangeJournal writer = createJournal();
+        ChangeJournal reader = createJournal();
+
+        writer.append(Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, new byte[]{1}),
+                TransactionElement.createRemovalElement(ANOTHER_KEY)
+        ));
+
+        assertFalse(writer.isChanged());
+        assertTrue(reader.isChanged());
+        Set<Integer> updated = new HashSet<>();
+        Set<Integer> removed = new HashSet<>();
+        assertTrue(reader.poll(updated, removed));
+        assertEquals(Collections.singleton(KEY.hashCode()), updated);
+        assertEquals(Collections.singleton(ANOTHER_KEY.hashCode()), removed);
+        assertFalse(reader.isChanged());
+    }
+
+    @Test
+    public void lastActionWins() {
+        ChangeJournal writer = createJournal();
+        ChangeJournal reader = createJournal();
+
+        writer.append(Collections.singletonList(TransactionElement.createUpdateElement(KEY, new byte[]{1})));
+        writer.append(Collections.singletonList(TransactionElement.createRemovalElement(KEY)));
+
+        Set<Integer> updated = new HashSet<>();
+        Set<Integer> removed = new HashSet<>();
+        assertTrue(reader.poll(updated, removed));
+        assertTrue(updated.isEmpty());
+        assertEquals(Collections.singleton(KEY.hashCode()), removed);
+    }
+
+    @Test
+    public void ownChangesAreSkipped() {
+        ChangeJournal first = createJournal();
+        ChangeJournal second = createJournal();
+
+        first.append(Collections.singletonList(TransactionElement.createUpdateElement(KEY, new byte[]{1})));
+        second.append(Collections.singletonList(TransactionElement.createUpdateElement(ANOTHER_KEY, new byte[]{1})));
+
+        Set<Integer> updated = new HashSet<>();
+        Set<Integer> removed = new HashSet<>();
+        assertTrue(first.isChanged());
+        assertTrue(first.poll(updated, removed));
+        assertEquals(Collections.singleton(ANOTHER_KEY.hashCode()), updated);
+        updated.clear();
+        assertTrue(second.isChanged());
+        assertTrue(second.poll(updated, removed));
+        assertEquals(Collections.singleton(KEY.hashCode()), updated);
+        assertFalse(second.isChanged());
+    }
+
+    @Test
+    public void overwrittenRecordsAreReported() {
+        ChangeJournal writer = createJournal();
+        ChangeJournal reader = createJournal();
+        List<TransactionElement> elements = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            elements.add(TransactionElement.createUpdateElement(KEY + i, new byte[]{1}));
+        }
+
+        writer.append(elements);
+
+        assertFalse(reader.poll(new HashSet<Integer>(), new HashSet<Integer>()));
+        assertTrue(reader.poll(new HashSet<Integer>(), new HashSet<Integer>()));
+    }
+
+    private ChangeJournal createJournal() {
+        SimpleLockFactory lockFactory = new SimpleLockFactory(
+                NAME,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+        return new MappedChangeJournal(NAME, directoryProvider, lockFactory);
+    }
+}
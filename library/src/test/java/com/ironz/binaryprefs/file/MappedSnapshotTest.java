@@ -0,0 +1,169 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.file.adapter.FileAdapter;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.snapshot.MappedSnapshot;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.TestTaskExecutor;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public final class MappedSnapshotTest {
+
+    private static final String NAME = "preferences";
+    private static final String KEY = "key";
+    private static final String ANOTHER_KEY = "another_key";
+
+    private final byte[] value = "value".getBytes();
+    private final byte[] anotherValue = "another_value".getBytes();
+    private final TaskExecutor taskExecutor = new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE);
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private DirectoryProvider directoryProvider;
+    private FileAdapter fileAdapter;
+    private LockFactory lockFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        final File srcDir = folder.newFolder("preferences");
+        final File backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+        fileAdapter = new NioFileAdapter(directoryProvider);
+        lockFactory = new SimpleLockFactory(
+                NAME,
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+    }
+
+    @Test
+    public void valuesAreReadFromSnapshot() {
+        createTransaction(createSnapshot()).commit(Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, value),
+                TransactionElement.createUpdateElement(ANOTHER_KEY, anotherValue)
+        ));
+        fileAdapter.remove(ANOTHER_KEY);
+
+        FileTransaction transaction = createTransaction(createSnapshot());
+
+        assertEquals(new HashSet<>(Arrays.asList(KEY, ANOTHER_KEY)), transaction.fetchNames());
+        assertArrayEquals(anotherValue, toByteArray(transaction.fetchOneBuffer(ANOTHER_KEY)));
+        assertArrayEquals(value, transaction.fetchOne(KEY).getContent());
+    }
+
+    @Test
+    public void outdatedSnapshotIsIgnored() {
+        createTransaction(createSnapshot()).commit(Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, value)
+        ));
+        Snapshot snapshot = createSnapshot();
+        assertNotNull(snapshot.fetch(KEY));
+
+        createSnapshot().invalidate();
+
+        assertNull(snapshot.names());
+        assertNull(snapshot.fetch(KEY));
+        assertNull(createSnapshot().names());
+    }
+
+    @Test
+    public void snapshotIsRewrittenAfterCommit() {
+        FileTransaction transaction = createTransaction(createSnapshot());
+        transaction.commit(Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, value),
+                TransactionElement.createUpdateElement(ANOTHER_KEY, anotherValue)
+        ));
+        transaction.commit(Arrays.asList(
+                TransactionElement.createRemovalElement(ANOTHER_KEY),
+                TransactionElement.createUpdateElement(KEY, anotherValue)
+        ));
+
+        Snapshot snapshot = createSnapshot();
+
+        assertArrayEquals(new String[]{KEY}, snapshot.names());
+        assertArrayEquals(anotherValue, toByteArray(snapshot.fetch(KEY)));
+    }
+
+    @Test
+    public void corruptedSnapshotIsIgnored() throws Exception {
+        createTransaction(createSnapshot()).commit(Arrays.asList(
+                TransactionElement.createUpdateElement(KEY, value)
+        ));
+        File[] files = directoryProvider.getBackupDirectory().listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        RandomAccessFile snapshotFile = new RandomAccessFile(files[0], "rw");
+        long lastByte = snapshotFile.length() - 1;
+        snapshotFile.seek(lastByte);
+        int checksum = snapshotFile.read();
+        snapshotFile.seek(lastByte);
+        snapshotFile.write(checksum + 1);
+        snapshotFile.close();
+
+        FileTransaction transaction = createTransaction(createSnapshot());
+
+        assertEquals(new HashSet<>(Arrays.asList(KEY)), transaction.fetchNames());
+        assertArrayEquals(value, toByteArray(transaction.fetchOneBuffer(KEY)));
+        assertArrayEquals(new String[]{KEY}, createSnapshot().names());
+    }
+
+    private Snapshot createSnapshot() {
+        return new MappedSnapshot(NAME, directoryProvider, fileAdapter, lockFactory, taskExecutor, 0);
+    }
+
+    private FileTransaction createTransaction(Snapshot snapshot) {
+        return new MultiProcessTransaction(fileAdapter, lockFactory, taskExecutor, KeyEncryption.NO_OP, ValueEncryption.NO_OP, false, snapshot);
+    }
+
+    private byte[] toByteArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,333 @@
+package com.ironz.binaryprefs.file;
+
+import com.ironz.binaryprefs.encryption.AesGcmValueEncryption;
+import com.ironz.binaryprefs.encryption.AesValueEncryption;
+import com.ironz.binaryprefs.encryption.KeyEncryption;
+import com.ironz.binaryprefs.encryption.ValueEncryption;
+import com.ironz.binaryprefs.event.ExceptionHandler;
+import com.ironz.binaryprefs.file.adapter.FileAdapter;
+import com.ironz.binaryprefs.file.adapter.NioFileAdapter;
+import com.ironz.binaryprefs.file.directory.DirectoryProvider;
+import com.ironz.binaryprefs.file.snapshot.Snapshot;
+import com.ironz.binaryprefs.file.transaction.FileTransaction;
+import com.ironz.binaryprefs.file.transaction.MultiProcessTransaction;
+import com.ironz.binaryprefs.file.transaction.TransactionElement;
+import com.ironz.binaryprefs.lock.LockFactory;
+import com.ironz.binaryprefs.lock.SimpleLockFactory;
+import com.ironz.binaryprefs.lock.StripedReadWriteLock;
+import com.ironz.binaryprefs.serialization.serializer.StringSetSerializer;
+import com.ironz.binaryprefs.serialization.strategy.SerializationStrategy;
+import com.ironz.binaryprefs.task.TaskExecutor;
+import com.ironz.binaryprefs.task.TestTaskExecutor;
+import com.ironz.binaryprefs.task.barrier.FutureBarrier;
+import com.ironz.binaryprefs.task.barrierprovider.impl.InterruptableFutureBarrierProvider;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class MultiProcessTransactionTest {
+
+    private static final String NAME = "name";
+    private static final byte[] SECRET_KEY_BYTES = "LZN8KKF7KH816D0U".getBytes();
+    private static final byte[] INITIAL_VECTOR = "AG6PJGG7AZJD8QPH".getBytes();
+
+    private final byte[] bytes = "value".getBytes();
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final TaskExecutor taskExecutor = new TestTaskExecutor(new InterruptableFutureBarrierProvider(), ExceptionHandler.IGNORE);
+
+    private File backupDir;
+    private FileAdapter fileAdapter;
+    private LockFactory lockFactory;
+
+    @Before
+    public void setUp() throws Exception {
+        final File srcDir = folder.newFolder("preferences");
+        backupDir = folder.newFolder("backup");
+        final File lockDir = folder.newFolder("lock");
+        DirectoryProvider directoryProvider = new DirectoryProvider() {
+            @Override
+            public File getStoreDirectory() {
+                return srcDir;
+            }
+
+            @Override
+            public File getBackupDirectory() {
+                return backupDir;
+            }
+
+            @Override
+            public File getLockDirectory() {
+                return lockDir;
+            }
+        };
+        fileAdapter = new NioFileAdapter(directoryProvider);
+        lockFactory = new SimpleLockFactory(
+                "preferences",
+                directoryProvider,
+                new ConcurrentHashMap<String, StripedReadWriteLock>(),
+                new ConcurrentHashMap<String, ReadWriteLock>()
+        );
+    }
+
+    @Test
+    public void outdatedValueIsRewrittenOnRead() {
+        AesValueEncryption cbcEncryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+        AesGcmValueEncryption gcmEncryption = new AesGcmValueEncryption(SECRET_KEY_BYTES, cbcEncryption);
+        createTransaction(cbcEncryption, false).commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, bytes)
+        ));
+
+        assertTrue(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+
+        ByteBuffer buffer = createTransaction(gcmEncryption, true).fetchOneBuffer(NAME);
+        byte[] fetched = new byte[buffer.remaining()];
+        buffer.get(fetched);
+
+        assertArrayEquals(bytes, fetched);
+        assertFalse(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+        assertArrayEquals(bytes, gcmEncryption.decrypt(fileAdapter.fetch(NAME)));
+    }
+
+    @Test
+    public void outdatedValueIsRewrittenOnArrayRead() {
+        AesValueEncryption cbcEncryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+        AesGcmValueEncryption gcmEncryption = new AesGcmValueEncryption(SECRET_KEY_BYTES, cbcEncryption);
+        createTransaction(cbcEncryption, false).commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, bytes)
+        ));
+
+        byte[] fetched = createTransaction(gcmEncryption, false).fetchOne(NAME).getContent();
+
+        assertArrayEquals(bytes, fetched);
+        assertFalse(gcmEncryption.isOutdated(ByteBuffer.wrap(fileAdapter.fetch(NAME))));
+        assertArrayEquals(bytes, gcmEncryption.decrypt(fileAdapter.fetch(NAME)));
+    }
+
+    @Test
+    public void rewriteDoesNotReplaceNewerValue() {
+        AesValueEncryption cbcEncryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+        AesGcmValueEncryption gcmEncryption = new AesGcmValueEncryption(SECRET_KEY_BYTES, cbcEncryption);
+        byte[] newer = "newer".getBytes();
+        List<Runnable> tasks = new ArrayList<>();
+        createTransaction(cbcEncryption, false).commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, bytes)
+        ));
+        FileTransaction reader = new MultiProcessTransaction(fileAdapter, lockFactory, new DeferredTaskExecutor(tasks), KeyEncryption.NO_OP, gcmEncryption, false, Snapshot.NO_OP);
+        tasks.remove(0).run();
+
+        reader.fetchOneBuffer(NAME);
+        createTransaction(gcmEncryption, false).commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, newer)
+        ));
+        for (Runnable task : tasks) {
+            task.run();
+        }
+
+        assertEquals(1, tasks.size());
+        assertArrayEquals(newer, gcmEncryption.decrypt(fileAdapter.fetch(NAME)));
+    }
+
+    @Test
+    public void backupsAreRestoredByFirstTask() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        fileAdapter.save(NAME, bytes);
+        FileOutputStream backup = new FileOutputStream(new File(backupDir, NAME + ".bak"));
+        backup.write("backup".getBytes());
+        backup.close();
+
+        FileTransaction transaction = new MultiProcessTransaction(fileAdapter, lockFactory, new DeferredTaskExecutor(tasks), KeyEncryption.NO_OP, ValueEncryption.NO_OP, false, Snapshot.NO_OP);
+
+        assertEquals(1, backupDir.list().length);
+        assertArrayEquals("backup".getBytes(), transaction.fetchOne(NAME).getContent());
+
+        tasks.remove(0).run();
+
+        assertEquals(0, backupDir.list().length);
+        assertArrayEquals("backup".getBytes(), fileAdapter.fetch(NAME));
+    }
+
+    @Test
+    public void deltaIsAppendedUntilCompaction() {
+        FileTransaction transaction = createTransaction(ValueEncryption.NO_OP, false);
+        StringSetSerializer serializer = new StringSetSerializer();
+        byte[] base = serializer.serialize(new HashSet<>(Arrays.asList("One", "Two")));
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Three"), Collections.<String>emptySet());
+        byte[] content = serializer.serialize(new HashSet<>(Arrays.asList("One", "Two", "Three")));
+        CountingStrategy strategy = new CountingStrategy(content);
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, base)
+        ));
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, strategy, content.length, delta)
+        ));
+
+        assertArrayEquals(concat(base, delta), fileAdapter.fetch(NAME));
+        assertEquals(0, strategy.count);
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, strategy, content.length, delta)
+        ));
+
+        assertArrayEquals(content, fileAdapter.fetch(NAME));
+        assertEquals(1, strategy.count);
+    }
+
+    @Test
+    public void deltaIsNotAppendedToFileChangedOutside() {
+        FileTransaction transaction = createTransaction(ValueEncryption.NO_OP, false);
+        StringSetSerializer serializer = new StringSetSerializer();
+        byte[] base = serializer.serialize(Collections.singleton("One"));
+        byte[] torn = serializer.serializeDelta(Collections.singleton("Two"), Collections.<String>emptySet());
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Three"), Collections.<String>emptySet());
+        byte[] content = serializer.serialize(new HashSet<>(Arrays.asList("One", "Three")));
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, base)
+        ));
+        fileAdapter.append(NAME, Arrays.copyOf(torn, torn.length - 1), Integer.MAX_VALUE);
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, new CountingStrategy(content), content.length, delta)
+        ));
+
+        assertArrayEquals(content, fileAdapter.fetch(NAME));
+    }
+
+    @Test
+    public void deltaIsNotAppendedToUnknownFile() {
+        FileTransaction transaction = createTransaction(ValueEncryption.NO_OP, false);
+        StringSetSerializer serializer = new StringSetSerializer();
+        byte[] base = serializer.serialize(Collections.singleton("One"));
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Two"), Collections.<String>emptySet());
+        byte[] content = serializer.serialize(new HashSet<>(Arrays.asList("One", "Two")));
+        fileAdapter.save(NAME, base);
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, new CountingStrategy(content), content.length, delta)
+        ));
+
+        assertArrayEquals(content, fileAdapter.fetch(NAME));
+    }
+
+    @Test
+    public void tornDeltaIsRepairedBySave() {
+        FileTransaction transaction = createTransaction(ValueEncryption.NO_OP, false);
+        StringSetSerializer serializer = new StringSetSerializer();
+        byte[] base = serializer.serialize(Collections.singleton("One"));
+        byte[] torn = serializer.serializeDelta(Collections.singleton("Two"), Collections.<String>emptySet());
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Three"), Collections.<String>emptySet());
+        byte[] next = serializer.serializeDelta(Collections.singleton("Four"), Collections.<String>emptySet());
+        Set<String> content = new HashSet<>(Arrays.asList("One", "Three"));
+        Set<String> nextContent = new HashSet<>(Arrays.asList("One", "Three", "Four"));
+        fileAdapter.save(NAME, concat(base, Arrays.copyOf(torn, torn.length - 1)));
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, new CountingStrategy(serializer.serialize(content)), serializer.serializedLength(content), delta)
+        ));
+
+        assertArrayEquals(serializer.serialize(content), fileAdapter.fetch(NAME));
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, new CountingStrategy(serializer.serialize(nextContent)), serializer.serializedLength(nextContent), next)
+        ));
+
+        assertEquals(nextContent, serializer.deserialize(fileAdapter.fetch(NAME)));
+    }
+
+    @Test
+    public void deltaIsNotAppendedToEncryptedValue() {
+        AesValueEncryption encryption = new AesValueEncryption(SECRET_KEY_BYTES, INITIAL_VECTOR);
+        FileTransaction transaction = createTransaction(encryption, false);
+        byte[] content = Arrays.copyOf(bytes, bytes.length * 2);
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, bytes)
+        ));
+
+        transaction.commit(Collections.singletonList(
+                TransactionElement.createUpdateElement(NAME, new CountingStrategy(content), content.length, bytes)
+        ));
+
+        assertEquals(content.length, transaction.fetchOne(NAME).getContent().length);
+        assertArrayEquals(content, encryption.decrypt(fileAdapter.fetch(NAME)));
+    }
+
+    private FileTransaction createTransaction(ValueEncryption valueEncryption, boolean mappedReads) {
+        return new MultiProcessTransaction(fileAdapter, lockFactory, taskExecutor, KeyEncryption.NO_OP, valueEncryption, mappedReads, Snapshot.NO_OP);
+    }
+
+    private byte[] concat(byte[] first, byte[] second) {
+        byte[] bytes = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, bytes, first.length, second.length);
+        return bytes;
+    }
+
+    private static final class CountingStrategy implements SerializationStrategy {
+
+        private final byte[] content;
+        private int count;
+
+        CountingStrategy(byte[] content) {
+            this.content = content;
+        }
+
+        @Override
+        public byte[] serialize() {
+            count++;
+            return content;
+        }
+
+        @Override
+        public Object getValue() {
+            return content;
+        }
+    }
+
+    private static final class DeferredTaskExecutor implements TaskExecutor {
+
+        private final List<Runnable> tasks;
+
+        DeferredTaskExecutor(List<Runnable> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        public FutureBarrier<?> submit(Runnable runnable) {
+            tasks.add(runnable);
+            return null;
+        }
+
+        @Override
+        public <T> FutureBarrier<T> submit(Callable<T> callable) {
+            tasks.add(new FutureTask<>(callable));
+            return null;
+        }
+
+        @Override
+        public <T> FutureBarrier<T> submitRead(String key, Callable<T> callable) {
+            return submit(callable);
+        }
+    }
+}
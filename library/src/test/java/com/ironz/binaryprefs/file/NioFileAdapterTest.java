@@ -10,9 +10,15 @@ import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 @SuppressWarnings("FieldCanBeLocal")
 public final class NioFileAdapterTest {
@@ -26,11 +32,14 @@ public final class NioFileAdapterTest {
     public final TemporaryFolder folder = new TemporaryFolder();
 
     private FileAdapter fileAdapter;
+    private FileAdapter checksumFileAdapter;
+    private File srcDir;
+    private File backupDir;
 
     @Before
     public void setUp() throws Exception {
-        final File srcDir = folder.newFolder("preferences");
-        final File backupDir = folder.newFolder("backup");
+        srcDir = folder.newFolder("preferences");
+        backupDir = folder.newFolder("backup");
         final File lockDir = folder.newFolder("lock");
         DirectoryProvider directoryProvider = new DirectoryProvider() {
             @Override
@@ -49,6 +58,7 @@ public final class NioFileAdapterTest {
             }
         };
         fileAdapter = new NioFileAdapter(directoryProvider);
+        checksumFileAdapter = new NioFileAdapter(directoryProvider, true);
     }
 
     @Test
@@ -91,6 +101,19 @@ public final class NioFileAdapterTest {
         assertEquals(new String(bytesTwo), new String(fetch));
     }
 
+    @Test
+    public void restoreBufferAfterOverwrite() {
+        fileAdapter.save(FILE_NAME, bytes);
+
+        ByteBuffer buffer = fileAdapter.fetchBuffer(FILE_NAME);
+        fileAdapter.save(FILE_NAME, bytesTwo);
+        byte[] fetch = new byte[buffer.remaining()];
+        buffer.get(fetch);
+
+        assertTrue(buffer.isReadOnly());
+        assertEquals(new String(bytes), new String(fetch));
+    }
+
     @Test(expected = FileOperationException.class)
     public void deleteOne() {
         fileAdapter.save(FILE_NAME, bytes);
@@ -114,4 +137,123 @@ public final class NioFileAdapterTest {
         assertNotNull(fileAdapter.fetch(FILE_NAME));
         fileAdapter.fetch(FILE_NAME_1);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void append() {
+        fileAdapter.save(FILE_NAME, bytes);
+        ByteBuffer mapped = fileAdapter.fetchBuffer(FILE_NAME);
+
+        boolean appended = fileAdapter.append(FILE_NAME, bytesTwo, bytes.length + bytesTwo.length);
+
+        assertTrue(appended);
+        assertArrayEquals("valueeulav123".getBytes(), fileAdapter.fetch(FILE_NAME));
+        assertEquals(bytes.length, mapped.remaining());
+    }
+
+    @Test
+    public void appendIsRefused() {
+        fileAdapter.save(FILE_NAME, bytes);
+        checksumFileAdapter.save(FILE_NAME_1, bytes);
+
+        assertFalse(fileAdapter.append(FILE_NAME, bytesTwo, bytes.length + bytesTwo.length - 1));
+        assertFalse(fileAdapter.append("missing", bytesTwo, Integer.MAX_VALUE));
+        assertFalse(checksumFileAdapter.append(FILE_NAME_1, bytesTwo, Integer.MAX_VALUE));
+        assertArrayEquals(bytes, fileAdapter.fetch(FILE_NAME));
+    }
+
+    @Test
+    public void backupIsFetchedWithoutRestoring() throws Exception {
+        fileAdapter.save(FILE_NAME, bytes);
+        writeFile(new File(backupDir, FILE_NAME + ".bak"), bytesTwo);
+
+        byte[] fetch = fileAdapter.fetch(FILE_NAME);
+
+        assertArrayEquals(bytesTwo, fetch);
+        assertArrayEquals(new String[]{FILE_NAME}, srcDir.list());
+        assertArrayEquals(new String[]{FILE_NAME + ".bak"}, backupDir.list());
+    }
+
+    @Test
+    public void restoreBackups() throws Exception {
+        fileAdapter.save(FILE_NAME, bytes);
+        writeFile(new File(backupDir, FILE_NAME + ".bak"), bytesTwo);
+        writeFile(new File(backupDir, FILE_NAME_1 + ".bak"), bytes);
+
+        fileAdapter.restoreBackups();
+
+        assertArrayEquals(bytesTwo, fileAdapter.fetch(FILE_NAME));
+        assertArrayEquals(bytes, fileAdapter.fetch(FILE_NAME_1));
+        assertEquals(0, backupDir.list().length);
+    }
+
+    @Test
+    public void restoreChecksummed() {
+        checksumFileAdapter.save(FILE_NAME, bytesTwo);
+        checksumFileAdapter.save(FILE_NAME, bytes);
+
+        ByteBuffer buffer = checksumFileAdapter.fetchBuffer(FILE_NAME);
+        byte[] fetch = new byte[buffer.remaining()];
+        buffer.get(fetch);
+
+        assertArrayEquals(bytes, fetch);
+        assertArrayEquals(bytes, checksumFileAdapter.fetch(FILE_NAME));
+        assertArrayEquals(new String[]{FILE_NAME}, srcDir.list());
+        assertEquals(0, backupDir.list().length);
+    }
+
+    @Test
+    public void restoreWithoutChecksum() {
+        fileAdapter.save(FILE_NAME, bytes);
+
+        assertArrayEquals(bytes, checksumFileAdapter.fetch(FILE_NAME));
+    }
+
+    @Test
+    public void checksummedFileWithoutChecksum() {
+        checksumFileAdapter.save(FILE_NAME, bytes);
+
+        ByteBuffer buffer = fileAdapter.fetchBuffer(FILE_NAME);
+        byte[] fetch = new byte[buffer.remaining()];
+        buffer.get(fetch);
+
+        assertArrayEquals(bytes, fileAdapter.fetch(FILE_NAME));
+        assertArrayEquals(bytes, fetch);
+        assertFalse(fileAdapter.append(FILE_NAME, bytesTwo, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void legacyFileStartingWithMagic() throws Exception {
+        byte[] legacy = {0x42, 0x50, 0x56, 0x01, 0, 0, 0, 4, 1, 2, 3, 4, 5, 6, 7, 8};
+        writeFile(new File(srcDir, FILE_NAME), legacy);
+
+        assertArrayEquals(legacy, fileAdapter.fetch(FILE_NAME));
+    }
+
+    @Test(expected = FileOperationException.class)
+    public void legacyFileStartingWithMagicWithChecksum() throws Exception {
+        byte[] legacy = {0x42, 0x50, 0x56, 0x01, 0, 0, 0, 4, 1, 2, 3, 4, 5, 6, 7, 8};
+        writeFile(new File(srcDir, FILE_NAME), legacy);
+
+        checksumFileAdapter.fetch(FILE_NAME);
+    }
+
+    @Test(expected = FileOperationException.class)
+    public void corruptedChecksummedFile() throws Exception {
+        checksumFileAdapter.save(FILE_NAME, bytes);
+        RandomAccessFile file = new RandomAccessFile(new File(srcDir, FILE_NAME), "rw");
+        long lastByte = file.length() - 1;
+        file.seek(lastByte);
+        int value = file.read();
+        file.seek(lastByte);
+        file.write(value + 1);
+        file.close();
+
+        checksumFileAdapter.fetch(FILE_NAME);
+    }
+
+    private void writeFile(File file, byte[] content) throws Exception {
+        FileOutputStream stream = new FileOutputStream(file);
+        stream.write(content);
+        stream.close();
+    }
+}
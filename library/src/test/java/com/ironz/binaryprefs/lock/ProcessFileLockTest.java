@@ -0,0 +1,98 @@
+package com.ironz.binaryprefs.lock;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class ProcessFileLockTest {
+
+    private static final long TIMEOUT_MILLIS = 50;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    private ReadWriteLock lock;
+
+    @Before
+    public void setUp() throws Exception {
+        lock = new ProcessFileLock(folder.newFile("preferences.lock"));
+    }
+
+    @Test
+    public void readersDoNotBlockEachOther() throws Exception {
+        lock.readLock().lock();
+        try {
+            assertTrue(tryLockInAnotherThread(lock.readLock()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Test
+    public void writerWaitsForReaders() throws Exception {
+        lock.readLock().lock();
+        try {
+            long start = System.nanoTime();
+            assertFalse(tryLockInAnotherThread(lock.writeLock()));
+            assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(TIMEOUT_MILLIS));
+        } finally {
+            lock.readLock().unlock();
+        }
+        assertTrue(tryLockInAnotherThread(lock.writeLock()));
+    }
+
+    @Test
+    public void readerWaitsForWriter() throws Exception {
+        lock.writeLock().lock();
+        try {
+            assertFalse(tryLockInAnotherThread(lock.readLock()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        assertTrue(tryLockInAnotherThread(lock.readLock()));
+    }
+
+    @Test
+    public void reentrant() {
+        for (int i = 0; i < 100; i++) {
+            lock.writeLock().lock();
+            lock.writeLock().lock();
+            lock.readLock().lock();
+            lock.readLock().unlock();
+            lock.writeLock().unlock();
+            lock.writeLock().unlock();
+            lock.readLock().lock();
+            lock.readLock().lock();
+            lock.readLock().unlock();
+            lock.readLock().unlock();
+        }
+        assertTrue(lock.writeLock().tryLock());
+        lock.writeLock().unlock();
+    }
+
+    private boolean tryLockInAnotherThread(final Lock target) throws Exception {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                if (!target.tryLock(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                target.unlock();
+                return true;
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,150 @@
+package com.ironz.binaryprefs.lock;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class StripedReadWriteLockTest {
+
+    private static final long TIMEOUT_MILLIS = 50;
+    private static final String KEY = "key";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+    private final StripedReadWriteLock lock = new StripedReadWriteLock(64);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void differentKeysDoNotBlockEachOther() throws Exception {
+        String other = otherStripeKey(KEY);
+        Lock writeLock = lock.writeLock(Collections.singleton(KEY));
+        writeLock.lock();
+        try {
+            assertTrue(tryLockInAnotherThread(lock.writeLock(Collections.singleton(other))));
+            assertTrue(tryLockInAnotherThread(lock.readLock(other)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Test
+    public void sameKeyIsExclusive() throws Exception {
+        Lock writeLock = lock.writeLock(Arrays.asList(KEY, otherStripeKey(KEY)));
+        writeLock.lock();
+        try {
+            assertFalse(tryLockInAnotherThread(lock.readLock(KEY)));
+            assertFalse(tryLockInAnotherThread(lock.writeLock(Collections.singleton(KEY))));
+        } finally {
+            writeLock.unlock();
+        }
+        assertTrue(tryLockInAnotherThread(lock.readLock(KEY)));
+    }
+
+    @Test
+    public void globalWriteLockWaitsForKeys() throws Exception {
+        Lock readLock = lock.readLock(KEY);
+        readLock.lock();
+        try {
+            assertFalse(tryLockInAnotherThread(lock.writeLock()));
+        } finally {
+            readLock.unlock();
+        }
+        lock.writeLock().lock();
+        try {
+            assertFalse(tryLockInAnotherThread(lock.readLock(otherStripeKey(KEY))));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Test
+    public void allKeysReadLockWaitsOnlyForWriters() throws Exception {
+        Lock readLockAll = lock.readLockAll();
+        readLockAll.lock();
+        try {
+            assertTrue(tryLockInAnotherThread(lock.readLockAll()));
+            assertTrue(tryLockInAnotherThread(lock.readLock(KEY)));
+            assertFalse(tryLockInAnotherThread(lock.writeLock(Collections.singleton(otherStripeKey(KEY)))));
+        } finally {
+            readLockAll.unlock();
+        }
+        Lock writeLock = lock.writeLock(Collections.singleton(KEY));
+        writeLock.lock();
+        try {
+            assertFalse(tryLockInAnotherThread(lock.readLockAll()));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Test
+    public void intersectingKeySetsDoNotDeadlock() throws Exception {
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 16; i++) {
+            keys.add(KEY + i);
+        }
+        List<String> reversed = new ArrayList<>(keys);
+        Collections.reverse(reversed);
+        CountDownLatch start = new CountDownLatch(1);
+        Future<Void> first = executor.submit(lockRepeatedly(start, keys));
+        Future<Void> second = executor.submit(lockRepeatedly(start, reversed));
+        start.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+    }
+
+    private Callable<Void> lockRepeatedly(final CountDownLatch start, final List<String> keys) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() throws Exception {
+                start.await();
+                for (int i = 0; i < 10000; i++) {
+                    Lock keysLock = lock.writeLock(keys);
+                    keysLock.lock();
+                    keysLock.unlock();
+                }
+                return null;
+            }
+        };
+    }
+
+    private String otherStripeKey(String key) {
+        Lock keyLock = lock.readLock(key);
+        for (int i = 0; ; i++) {
+            String candidate = KEY + "_" + i;
+            if (lock.readLock(candidate) != keyLock) {
+                return candidate;
+            }
+        }
+    }
+
+    private boolean tryLockInAnotherThread(final Lock target) throws Exception {
+        return executor.submit(new Callable<Boolean>() {
+            @Override
+            public Boolean call() throws Exception {
+                if (!target.tryLock(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return false;
+                }
+                target.unlock();
+                return true;
+            }
+        }).get();
+    }
+}
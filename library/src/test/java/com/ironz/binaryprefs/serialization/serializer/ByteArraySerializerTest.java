@@ -2,6 +2,8 @@ package com.ironz.binaryprefs.serialization.serializer;
 
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+
 import static org.junit.Assert.*;
 
 public final class ByteArraySerializerTest {
@@ -21,6 +23,19 @@ public final class ByteArraySerializerTest {
         assertArrayEquals(value, restored);
     }
 
+    @Test
+    public void byteArrayBufferConvert() {
+        byte[] bytes = serializer.serialize(value);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+
+        byte[] restored = serializer.deserialize(buffer.asReadOnlyBuffer());
+
+        assertArrayEquals(value, restored);
+        assertEquals(0, buffer.position());
+    }
+
     @Test
     public void byteArrayIncorrectFlag() {
         byte[] bytes = serializer.serialize(value);
@@ -22,6 +22,18 @@ public final class IntegerSerializerTest {
         assertEquals(value, restored);
     }
 
+    @Test
+    public void integerConvertIntoArray() {
+        int value = -53;
+        byte[] bytes = new byte[serializer.bytesLength() + 2];
+
+        serializer.serialize(value, bytes, 1);
+        int restored = serializer.deserialize(bytes, 1);
+
+        assertTrue(serializer.isMatches(bytes[1]));
+        assertEquals(value, restored);
+    }
+
     @Test
     public void integerIncorrectFlag() {
         int value = 53;
@@ -3,26 +3,41 @@ package com.ironz.binaryprefs.serialization.serializer;
 import com.ironz.binaryprefs.impl.TestMigrateUser;
 import com.ironz.binaryprefs.impl.TestUser;
 import com.ironz.binaryprefs.serialization.SerializerFactory;
+import com.ironz.binaryprefs.serialization.serializer.persistable.Persistable;
 import com.ironz.binaryprefs.serialization.serializer.persistable.PersistableRegistry;
+import com.ironz.binaryprefs.serialization.serializer.persistable.SizedPersistable;
+import com.ironz.binaryprefs.serialization.serializer.persistable.io.DataInput;
+import com.ironz.binaryprefs.serialization.serializer.persistable.io.DataOutput;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public final class PersistableSerializerTest {
 
     private static final byte INCORRECT_FLAG = 0;
 
     private PersistableSerializer serializer;
+    private PersistableSerializer compactSerializer;
 
     @Before
     public void setUp() {
         PersistableRegistry persistableRegistry = new PersistableRegistry();
         persistableRegistry.register(TestUser.KEY, TestUser.class);
         persistableRegistry.register(TestMigrateUser.KEY, TestMigrateUser.class);
+        persistableRegistry.register(Payload.KEY, Payload.class);
+        persistableRegistry.register(Primitives.KEY, Primitives.class);
         SerializerFactory factory = new SerializerFactory(persistableRegistry);
         serializer = factory.getPersistableSerializer();
+        SerializerFactory compactFactory = new SerializerFactory(persistableRegistry, true);
+        compactSerializer = compactFactory.getPersistableSerializer();
     }
 
     @Test
@@ -36,6 +51,20 @@ public final class PersistableSerializerTest {
         assertEquals(value, restored);
     }
 
+    @Test
+    public void convertFromBuffer() {
+        TestUser value = TestUser.create();
+
+        byte[] bytes = serializer.serialize(value);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+
+        TestUser restored = (TestUser) serializer.deserialize(TestUser.KEY, buffer.asReadOnlyBuffer());
+
+        assertEquals(value, restored);
+    }
+
     @Test
     public void incorrectFlag() {
         TestUser value = TestUser.create();
@@ -77,4 +106,240 @@ public final class PersistableSerializerTest {
 
         serializer.deserialize(TestUser.KEY, trimmed);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void sizedConvert() {
+        Payload large = new Payload(new byte[100 * 1024], null);
+        Payload small = new Payload(new byte[]{1, 2, 3}, null);
+
+        byte[] largeBytes = serializer.serialize(large);
+        byte[] smallBytes = serializer.serialize(small);
+
+        assertEquals(large, serializer.deserialize(Payload.KEY, largeBytes));
+        assertEquals(small, serializer.deserialize(Payload.KEY, smallBytes));
+    }
+
+    @Test
+    public void nestedConvert() {
+        Payload inner = new Payload(new byte[]{4, 5}, null);
+        Payload outer = new Payload(new byte[]{1, 2, 3}, inner);
+
+        byte[] bytes = serializer.serialize(outer);
+        Payload restored = (Payload) serializer.deserialize(Payload.KEY, bytes);
+
+        assertArrayEquals(outer.data, restored.data);
+        assertEquals(inner, serializer.deserialize(Payload.KEY, restored.nested));
+    }
+
+    @Test
+    public void compactConvert() {
+        TestUser value = TestUser.create();
+
+        byte[] bytes = compactSerializer.serialize(value);
+        byte[] previousBytes = serializer.serialize(value);
+
+        TestUser restored = (TestUser) compactSerializer.deserialize(TestUser.KEY, bytes);
+
+        assertTrue(compactSerializer.isMatches(bytes[0]));
+        assertTrue(bytes.length < previousBytes.length);
+        assertEquals(value, restored);
+    }
+
+    @Test
+    public void compactConvertFromBuffer() {
+        TestUser value = TestUser.create();
+
+        byte[] bytes = compactSerializer.serialize(value);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes);
+        buffer.flip();
+
+        TestUser restored = (TestUser) compactSerializer.deserialize(TestUser.KEY, buffer.asReadOnlyBuffer());
+
+        assertEquals(value, restored);
+    }
+
+    @Test
+    public void compactBoundaryValues() {
+        Primitives min = Primitives.create(Short.MIN_VALUE, Character.MIN_VALUE, Integer.MIN_VALUE, Long.MIN_VALUE, Float.NaN, Double.NEGATIVE_INFINITY);
+        Primitives max = Primitives.create(Short.MAX_VALUE, Character.MAX_VALUE, Integer.MAX_VALUE, Long.MAX_VALUE, Float.MAX_VALUE, -0.0d);
+
+        Primitives restoredMin = (Primitives) compactSerializer.deserialize(Primitives.KEY, compactSerializer.serialize(min));
+        Primitives restoredMax = (Primitives) compactSerializer.deserialize(Primitives.KEY, compactSerializer.serialize(max));
+
+        assertEquals(min, restoredMin);
+        assertEquals(max, restoredMax);
+        assertNull(restoredMin.string);
+        assertNull(restoredMin.bytes);
+    }
+
+    @Test
+    public void protocolVersionsAreReadable() {
+        TestUser value = TestUser.create();
+
+        byte[] previousBytes = serializer.serialize(value);
+        byte[] compactBytes = compactSerializer.serialize(value);
+
+        assertEquals(value, compactSerializer.deserialize(TestUser.KEY, previousBytes));
+        assertEquals(value, serializer.deserialize(TestUser.KEY, compactBytes));
+    }
+
+    @Test(expected = UnsupportedClassVersionError.class)
+    public void unsupportedVersion() {
+        TestUser value = TestUser.create();
+
+        byte[] bytes = compactSerializer.serialize(value);
+        bytes[1] = 3;
+
+        compactSerializer.deserialize(TestUser.KEY, bytes);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void compactOutOfBounds() {
+        TestUser value = TestUser.create();
+
+        byte[] bytes = compactSerializer.serialize(value);
+
+        int trimmedLength = bytes.length - 1;
+        byte[] trimmed = new byte[trimmedLength];
+        System.arraycopy(bytes, 0, trimmed, 0, trimmedLength);
+
+        compactSerializer.deserialize(TestUser.KEY, trimmed);
+    }
+
+    /**
+     * Sized persistable which serializes nested value with the same serializer
+     * inside of {@link #writeExternal(DataOutput)}.
+     */
+    public static final class Payload implements SizedPersistable {
+
+        static final String KEY = "payload";
+
+        private byte[] data;
+        private byte[] nested;
+        private transient Persistable nestedValue;
+
+        @SuppressWarnings("unused")
+        public Payload() {
+
+        }
+
+        Payload(byte[] data, Persistable nestedValue) {
+            this.data = data;
+            this.nestedValue = nestedValue;
+        }
+
+        @Override
+        public int sizeHint() {
+            return data.length + 16;
+        }
+
+        @Override
+        public void writeExternal(DataOutput out) {
+            out.writeByteArray(data);
+            out.writeByteArray(nestedValue == null ? null : out.serialize(nestedValue));
+        }
+
+        @Override
+        public void readExternal(DataInput in) {
+            data = in.readByteArray();
+            nested = in.readByteArray();
+        }
+
+        @Override
+        public Persistable deepClone() {
+            return new Payload(data.clone(), nestedValue);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Payload && Arrays.equals(data, ((Payload) o).data);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(data);
+        }
+    }
+
+    /**
+     * Writes each primitive type once, strings and byte arrays are written as {@code null}.
+     */
+    public static final class Primitives implements Persistable {
+
+        static final String KEY = "primitives";
+
+        private short s;
+        private char c;
+        private int i;
+        private long l;
+        private float f;
+        private double d;
+        private String string;
+        private byte[] bytes;
+
+        @SuppressWarnings("unused")
+        public Primitives() {
+
+        }
+
+        static Primitives create(short s, char c, int i, long l, float f, double d) {
+            Primitives value = new Primitives();
+            value.s = s;
+            value.c = c;
+            value.i = i;
+            value.l = l;
+            value.f = f;
+            value.d = d;
+            return value;
+        }
+
+        @Override
+        public void writeExternal(DataOutput out) {
+            out.writeShort(s);
+            out.writeChar(c);
+            out.writeInt(i);
+            out.writeLong(l);
+            out.writeFloat(f);
+            out.writeDouble(d);
+            out.writeString(string);
+            out.writeByteArray(bytes);
+        }
+
+        @Override
+        public void readExternal(DataInput in) {
+            s = in.readShort();
+            c = in.readChar();
+            i = in.readInt();
+            l = in.readLong();
+            f = in.readFloat();
+            d = in.readDouble();
+            string = in.readString();
+            bytes = in.readByteArray();
+        }
+
+        @Override
+        public Persistable deepClone() {
+            return create(s, c, i, l, f, d);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Primitives)) {
+                return false;
+            }
+            Primitives that = (Primitives) o;
+            return s == that.s
+                    && c == that.c
+                    && i == that.i
+                    && l == that.l
+                    && Float.compare(f, that.f) == 0
+                    && Double.compare(d, that.d) == 0;
+        }
+
+        @Override
+        public int hashCode() {
+            return (int) (l ^ (l >>> 32)) + 31 * i;
+        }
+    }
+}
@@ -10,6 +10,7 @@ public final class StringSerializerImplTest {
 
     private final StringSerializer serializer = new StringSerializer();
     private final String value = "Some String";
+    private final String unicodeValue = "\u0421\u0442\u0440\u043e\u043a\u0430 \u00e9 \ud83d\ude00";
 
     @Test
     public void stringConvert() {
@@ -21,6 +22,19 @@ public final class StringSerializerImplTest {
         assertEquals(value, restored);
     }
 
+    @Test
+    public void stringConvertIntoArray() {
+        int length = serializer.bytesLength(unicodeValue);
+        byte[] bytes = new byte[length + 1];
+
+        serializer.serialize(unicodeValue, bytes, 1);
+        String restored = serializer.deserialize(bytes, 1, length - serializer.bytesLength());
+
+        assertTrue(serializer.isMatches(bytes[1]));
+        assertEquals(serializer.serialize(unicodeValue).length, length);
+        assertEquals(unicodeValue, restored);
+    }
+
     @Test
     public void stringIncorrectFlag() {
         byte[] bytes = serializer.serialize(value);
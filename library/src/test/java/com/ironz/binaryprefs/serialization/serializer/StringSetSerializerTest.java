@@ -1,11 +1,17 @@
 package com.ironz.binaryprefs.serialization.serializer;
 
+import com.ironz.binaryprefs.exception.SerializationException;
 import org.junit.Test;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
+import static com.ironz.binaryprefs.impl.UnicodeCharacters.UTF_CHARACTERS;
 import static org.junit.Assert.*;
 
 public final class StringSetSerializerTest {
@@ -42,6 +48,82 @@ public final class StringSetSerializerTest {
         assertEquals(value, restored);
     }
 
+    @Test
+    public void unicodeStringSet() {
+        String emoji = "\uD83D\uDE00";
+        String unpairedSurrogate = "a\uD83Db";
+        Set<String> value = new HashSet<>(Arrays.asList(UTF_CHARACTERS, emoji));
+        byte[] unicodeBytes = UTF_CHARACTERS.getBytes(Charset.forName("UTF-8"));
+
+        byte[] bytes = serializer.serialize(value);
+        byte[] unpairedBytes = serializer.serialize(Collections.singleton(unpairedSurrogate));
+        Set<String> restored = serializer.deserialize(bytes);
+
+        assertEquals(1 + 4 + unicodeBytes.length + 4 + 4, bytes.length);
+        assertEquals(value, restored);
+        assertEquals(Collections.singleton("a?b"), serializer.deserialize(unpairedBytes));
+    }
+
+    @Test
+    public void deltaBlocksAreApplied() {
+        Set<String> value = new HashSet<>(Arrays.asList("One", "Two"));
+        byte[] first = serializer.serializeDelta(Collections.singleton("Three"), Collections.singleton("One"));
+        byte[] second = serializer.serializeDelta(Collections.singleton("One"), Collections.singleton("Two"));
+
+        byte[] bytes = concat(serializer.serialize(value), first, second);
+        Set<String> restored = serializer.deserialize(bytes);
+
+        assertEquals(new HashSet<>(Arrays.asList("One", "Three")), restored);
+    }
+
+    @Test
+    public void tornDeltaBlockIsIgnored() {
+        Set<String> value = new HashSet<>(Arrays.asList("One", "Two"));
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Three"), Collections.<String>emptySet());
+        byte[] torn = Arrays.copyOf(delta, delta.length - 1);
+        byte[] corrupted = delta.clone();
+        corrupted[corrupted.length - 1]++;
+
+        Set<String> tornRestored = serializer.deserialize(concat(serializer.serialize(value), torn));
+        Set<String> corruptedRestored = serializer.deserialize(concat(serializer.serialize(value), corrupted));
+
+        assertEquals(value, tornRestored);
+        assertEquals(value, corruptedRestored);
+    }
+
+    @Test
+    public void tornDeltaBlockIsNotLastBlock() {
+        Set<String> value = new HashSet<>(Arrays.asList("One", "Two"));
+        byte[] base = serializer.serialize(value);
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Three"), Collections.<String>emptySet());
+        byte[] corrupted = delta.clone();
+        corrupted[corrupted.length - 1]++;
+
+        assertTrue(serializer.isLastBlock(ByteBuffer.wrap(base), 0));
+        assertTrue(serializer.isLastBlock(ByteBuffer.wrap(concat(base, delta)), base.length));
+        assertFalse(serializer.isLastBlock(ByteBuffer.wrap(concat(base, Arrays.copyOf(delta, delta.length - 1))), base.length));
+        assertFalse(serializer.isLastBlock(ByteBuffer.wrap(concat(base, Arrays.copyOf(delta, 2))), base.length));
+        assertFalse(serializer.isLastBlock(ByteBuffer.wrap(concat(base, corrupted)), base.length));
+        assertFalse(serializer.isLastBlock(ByteBuffer.wrap(concat(base, delta, delta)), base.length));
+        assertFalse(serializer.isLastBlock(ByteBuffer.wrap(concat(base, delta)), 1));
+    }
+
+    @Test
+    public void serializedLength() {
+        Set<String> value = new HashSet<>(Arrays.asList("One", "", UTF_CHARACTERS));
+
+        assertEquals(serializer.serialize(value).length, serializer.serializedLength(value));
+    }
+
+    @Test(expected = SerializationException.class)
+    public void tornMarkFollowedByBlockIsRejected() {
+        Set<String> value = new HashSet<>(Arrays.asList("One", "Two"));
+        byte[] delta = serializer.serializeDelta(Collections.singleton("Three"), Collections.<String>emptySet());
+        byte[] tornMark = Arrays.copyOf(delta, 2);
+
+        serializer.deserialize(concat(serializer.serialize(value), tornMark, delta));
+    }
+
     @Test
     public void stringSetIncorrectFlag() {
         Set<String> value = Collections.emptySet();
@@ -51,4 +133,18 @@ public final class StringSetSerializerTest {
 
         assertFalse(serializer.isMatches(bytes[0]));
     }
+
+    private byte[] concat(byte[]... arrays) {
+        int size = 0;
+        for (byte[] array : arrays) {
+            size += array.length;
+        }
+        byte[] bytes = new byte[size];
+        int offset = 0;
+        for (byte[] array : arrays) {
+            System.arraycopy(array, 0, bytes, offset, array.length);
+            offset += array.length;
+        }
+        return bytes;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,154 @@
+package com.ironz.binaryprefs.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+public final class KeyPartitionedExecutorTest {
+
+    private static final long TIMEOUT_MILLIS = 100;
+    private static final String KEY = "key";
+    private static final String OTHER_KEY = "other_key";
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private final KeyPartitionedExecutor executor = new KeyPartitionedExecutor(pool);
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void readOvertakesWriteOfOtherKey() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Future<?> write = executor.submit(new BlockingWrite(KEY, release));
+
+        assertEquals(OTHER_KEY, executor.submitRead(OTHER_KEY, read(OTHER_KEY)).get(1, TimeUnit.SECONDS));
+
+        release.countDown();
+        write.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void readWaitsForWriteOfSameKey() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit(new BlockingWrite(KEY, release));
+        Future<String> read = executor.submitRead(KEY, read(KEY));
+
+        assertTimeout(read);
+        release.countDown();
+
+        assertEquals(KEY, read.get(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList("write " + KEY, "read " + KEY), events);
+    }
+
+    @Test
+    public void globalTaskWaitsForReads() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Future<String> read = executor.submitRead(KEY, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                release.await();
+                events.add("read " + KEY);
+                return KEY;
+            }
+        });
+        Future<?> global = executor.submit(new Runnable() {
+            @Override
+            public void run() {
+                events.add("global");
+            }
+        });
+        Future<String> laterRead = executor.submitRead(OTHER_KEY, read(OTHER_KEY));
+
+        assertTimeout(global);
+        assertFalse(laterRead.isDone());
+        release.countDown();
+
+        read.get(1, TimeUnit.SECONDS);
+        global.get(1, TimeUnit.SECONDS);
+        laterRead.get(1, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("read " + KEY, "global", "read " + OTHER_KEY), events);
+    }
+
+    @Test
+    public void sequentialTasksKeepOrder() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+        for (int i = 0; i < 100; i++) {
+            final int index = i;
+            futures.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    order.add(index);
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, (int) order.get(i));
+        }
+    }
+
+    private Callable<String> read(final String key) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                events.add("read " + key);
+                return key;
+            }
+        };
+    }
+
+    private void assertTimeout(Future<?> future) throws Exception {
+        try {
+            future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+            fail();
+        } catch (TimeoutException ignored) {
+        }
+    }
+
+    private final class BlockingWrite implements KeyedTask {
+
+        private final String key;
+        private final CountDownLatch release;
+
+        private BlockingWrite(String key, CountDownLatch release) {
+            this.key = key;
+            this.release = release;
+        }
+
+        @Override
+        public boolean containsKey(String other) {
+            return key.equals(other);
+        }
+
+        @Override
+        public void run() {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+            events.add("write " + key);
+        }
+    }
+}
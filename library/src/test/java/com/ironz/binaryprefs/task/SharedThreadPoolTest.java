@@ -0,0 +1,65 @@
+package com.ironz.binaryprefs.task;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public final class SharedThreadPoolTest {
+
+    private static final int THREADS_COUNT = 2;
+    private static final long KEEP_ALIVE_MILLIS = 50;
+
+    private final ThreadPoolExecutor pool = SharedThreadPool.create(THREADS_COUNT, KEEP_ALIVE_MILLIS);
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void poolIsBounded() throws Exception {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            KeyPartitionedExecutor executor = new KeyPartitionedExecutor(pool);
+            futures.add(executor.submit(sleep()));
+        }
+        for (Future<?> future : futures) {
+            future.get(1, TimeUnit.SECONDS);
+        }
+        assertEquals(THREADS_COUNT, pool.getLargestPoolSize());
+    }
+
+    @Test
+    public void idleThreadsAreStopped() throws Exception {
+        pool.submit(sleep()).get(1, TimeUnit.SECONDS);
+        assertEquals(1, pool.getPoolSize());
+
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(1);
+        while (pool.getPoolSize() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(KEEP_ALIVE_MILLIS);
+        }
+        assertEquals(0, pool.getPoolSize());
+        assertNull(pool.submit(sleep()).get(1, TimeUnit.SECONDS));
+    }
+
+    private Runnable sleep() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Thread.sleep(10);
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+}
@@ -30,6 +30,11 @@ public final class TestTaskExecutor implements TaskExecutor {
         return futureBarrierProvider.get(submit, exceptionHandler);
     }
 
+    @Override
+    public <T> FutureBarrier<T> submitRead(String key, Callable<T> callable) {
+        return submit(callable);
+    }
+
     private ExecutorService currentThreadExecutorService() {
         final ThreadPoolExecutor.CallerRunsPolicy callerRunsPolicy = new ThreadPoolExecutor.CallerRunsPolicy();
         return new ThreadPoolExecutor(0, 1, 0L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), callerRunsPolicy) {